@@ -0,0 +1,64 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Entry point for running the benchmarks from the command line, by
+ * delegating to the JMH runner. Without argument, all the benchmarks are run.
+ * Arguments are the usual JMH options, for example:
+ * <pre><code>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="MorphologyBenchmark -p size=512 -f 1"
+ * </code></pre>
+ * The runner is launched in a separate JVM with an explicit class path, so
+ * that the JVMs forked by JMH can find the benchmark classes.
+ * 
+ * @author dlegland
+ */
+public class BenchmarkRunner
+{
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private BenchmarkRunner()
+	{
+	}
+	
+	/**
+	 * Runs the benchmarks.
+	 * 
+	 * @param args
+	 *            the options of the JMH runner
+	 * @throws RunnerException
+	 *             if the benchmarks could not be run
+	 * @throws IOException
+	 *             if the command line could not be parsed
+	 */
+	public static void main(String[] args) throws RunnerException, IOException
+	{
+		Main.main(args);
+	}
+}
@@ -0,0 +1,170 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.binary.distmap.ChamferDistanceTransform2DFloat;
+import inra.ijpb.binary.distmap.ChamferDistanceTransform2DShort;
+import inra.ijpb.binary.distmap.ChamferDistanceTransform3DFloat;
+import inra.ijpb.binary.distmap.ChamferDistanceTransform3DShort;
+import inra.ijpb.binary.distmap.ChamferMask2D;
+import inra.ijpb.binary.distmap.ChamferMask3D;
+import inra.ijpb.binary.distmap.EuclideanDistanceTransform2DFloat;
+import inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat;
+
+/**
+ * Benchmarks of chamfer and Euclidean distance transforms on binary images.
+ * 
+ * @author dlegland
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DistanceMapBenchmark
+{
+	/**
+	 * The 2D binary image.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data2D
+	{
+		/** The size of the image in each direction. */
+		@Param({"512", "2048"})
+		public int size;
+		
+		ImageProcessor image;
+		
+		/**
+		 * Creates the binary image.
+		 */
+		@Setup
+		public void setup()
+		{
+			image = SyntheticImages.binary2d(size, 42);
+		}
+	}
+	
+	/**
+	 * The 3D binary image.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data3D
+	{
+		/** The size of the image in each direction. */
+		@Param({"64", "128"})
+		public int size;
+		
+		ImageStack image;
+		
+		/**
+		 * Creates the binary image.
+		 */
+		@Setup
+		public void setup()
+		{
+			image = SyntheticImages.binary3d(size, 42);
+		}
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the 2D chamfer distance map computed with integer weights
+	 */
+	@Benchmark
+	public ImageProcessor chamfer2dShort(Data2D data)
+	{
+		return new ChamferDistanceTransform2DShort(ChamferMask2D.CHESSKNIGHT, true).distanceMap(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the 2D chamfer distance map computed with floating point weights
+	 */
+	@Benchmark
+	public ImageProcessor chamfer2dFloat(Data2D data)
+	{
+		return new ChamferDistanceTransform2DFloat(ChamferMask2D.CHESSKNIGHT, true).distanceMap(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the 2D Euclidean distance map
+	 */
+	@Benchmark
+	public ImageProcessor euclidean2d(Data2D data)
+	{
+		return new EuclideanDistanceTransform2DFloat().distanceMap(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the 3D chamfer distance map computed with integer weights
+	 */
+	@Benchmark
+	public ImageStack chamfer3dShort(Data3D data)
+	{
+		return new ChamferDistanceTransform3DShort(ChamferMask3D.BORGEFORS, true).distanceMap(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the 3D chamfer distance map computed with floating point weights
+	 */
+	@Benchmark
+	public ImageStack chamfer3dFloat(Data3D data)
+	{
+		return new ChamferDistanceTransform3DFloat(ChamferMask3D.BORGEFORS, true).distanceMap(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the 3D Euclidean distance map
+	 */
+	@Benchmark
+	public ImageStack euclidean3d(Data3D data)
+	{
+		return new EuclideanDistanceTransform3DFloat().distanceMap(data.image);
+	}
+}
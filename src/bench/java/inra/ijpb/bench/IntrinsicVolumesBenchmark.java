@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImageStack;
+import ij.measure.Calibration;
+import inra.ijpb.binary.BinaryImages;
+import inra.ijpb.label.LabelImages;
+import inra.ijpb.measure.region3d.FusedRegionAnalyzer3D;
+import inra.ijpb.measure.region3d.IntrinsicVolumesAnalyzer3D;
+
+/**
+ * Benchmarks of the computation of intrinsic volumes of 3D regions.
+ * 
+ * @author dlegland
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntrinsicVolumesBenchmark
+{
+	/**
+	 * The 3D label image.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data3D
+	{
+		/** The size of the image in each direction. */
+		@Param({"64", "128", "256"})
+		public int size;
+		
+		ImageStack labelImage;
+		int[] labels;
+		Calibration calib = new Calibration();
+		
+		/**
+		 * Creates the label image.
+		 */
+		@Setup
+		public void setup()
+		{
+			labelImage = BinaryImages.componentsLabeling(SyntheticImages.binary3d(size, 42), 6, 16);
+			labels = LabelImages.findAllLabels(labelImage);
+		}
+	}
+	
+	/**
+	 * @param data
+	 *            the label image
+	 * @return the intrinsic volumes of each region
+	 */
+	@Benchmark
+	public Object intrinsicVolumes(Data3D data)
+	{
+		return new IntrinsicVolumesAnalyzer3D().analyzeRegions(data.labelImage, data.labels, data.calib);
+	}
+	
+	/**
+	 * @param data
+	 *            the label image
+	 * @return the intrinsic volumes of each region, computed by the fused
+	 *         analyzer
+	 */
+	@Benchmark
+	public Object fusedIntrinsicVolumes(Data3D data)
+	{
+		FusedRegionAnalyzer3D algo = new FusedRegionAnalyzer3D();
+		algo.setComputeVoxelCount(false);
+		algo.setComputeBoundingBox(false);
+		algo.setComputeCentroid(false);
+		algo.setComputeEllipsoid(false);
+		return algo.analyzeRegions(data.labelImage, data.labels, data.calib);
+	}
+}
@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.binary.conncomp.FloodFillComponentsLabeling;
+import inra.ijpb.binary.conncomp.FloodFillComponentsLabeling3D;
+import inra.ijpb.binary.conncomp.UnionFindComponentsLabeling3D;
+
+/**
+ * Benchmarks of connected components labeling on 2D and 3D binary images.
+ * 
+ * @author dlegland
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LabelingBenchmark
+{
+	/**
+	 * The 2D binary image.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data2D
+	{
+		/** The size of the image in each direction. */
+		@Param({"512", "2048"})
+		public int size;
+		
+		ImageProcessor image;
+		
+		/**
+		 * Creates the binary image.
+		 */
+		@Setup
+		public void setup()
+		{
+			image = SyntheticImages.binary2d(size, 42);
+		}
+	}
+	
+	/**
+	 * The 3D binary image.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data3D
+	{
+		/** The size of the image in each direction. */
+		@Param({"64", "128", "256"})
+		public int size;
+		
+		/** The number of threads used by the union-find algorithm. */
+		@Param({"1", "4"})
+		public int threadCount;
+		
+		ImageStack image;
+		
+		/**
+		 * Creates the binary image.
+		 */
+		@Setup
+		public void setup()
+		{
+			image = SyntheticImages.binary3d(size, 42);
+		}
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the label map obtained by flood-filling
+	 */
+	@Benchmark
+	public ImageProcessor floodFill2d(Data2D data)
+	{
+		return new FloodFillComponentsLabeling(8, 16).computeLabels(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the label map obtained by flood-filling
+	 */
+	@Benchmark
+	public ImageStack floodFill3d(Data3D data)
+	{
+		return new FloodFillComponentsLabeling3D(26, 16).computeLabels(data.image);
+	}
+	
+	/**
+	 * @param data
+	 *            the binary image
+	 * @return the label map obtained by the union-find algorithm
+	 */
+	@Benchmark
+	public ImageStack unionFind3d(Data3D data)
+	{
+		UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(26, 16);
+		algo.setThreadCount(data.threadCount);
+		return algo.computeLabels(data.image);
+	}
+}
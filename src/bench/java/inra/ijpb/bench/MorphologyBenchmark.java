@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.morphology.Morphology;
+import inra.ijpb.morphology.Strel;
+import inra.ijpb.morphology.Strel3D;
+
+/**
+ * Benchmarks of morphological dilations with various structuring elements.
+ * 
+ * @author dlegland
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MorphologyBenchmark
+{
+	/**
+	 * The 2D image and structuring elements.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data2D
+	{
+		/** The size of the image in each direction. */
+		@Param({"512", "2048"})
+		public int size;
+		
+		/** The bit depth of the image. */
+		@Param({"8", "16", "32"})
+		public int bitDepth;
+		
+		/** The radius of the structuring elements. */
+		@Param({"2", "10"})
+		public int radius;
+		
+		ImageProcessor image;
+		Strel disk;
+		Strel octagon;
+		
+		/**
+		 * Creates the image and the structuring elements.
+		 */
+		@Setup
+		public void setup()
+		{
+			image = SyntheticImages.grayscale2d(size, bitDepth, 42);
+			disk = Strel.Shape.DISK.fromRadius(radius);
+			octagon = Strel.Shape.OCTAGON.fromRadius(radius);
+		}
+	}
+	
+	/**
+	 * The 3D image and structuring element.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data3D
+	{
+		/** The size of the image in each direction. */
+		@Param({"64", "128"})
+		public int size;
+		
+		/** The bit depth of the image. */
+		@Param({"8", "16", "32"})
+		public int bitDepth;
+		
+		/** The radius of the structuring element. */
+		@Param({"2", "5"})
+		public int radius;
+		
+		ImageStack image;
+		Strel3D ball;
+		
+		/**
+		 * Creates the image and the structuring element.
+		 */
+		@Setup
+		public void setup()
+		{
+			image = SyntheticImages.grayscale3d(size, bitDepth, 42);
+			ball = Strel3D.Shape.BALL.fromRadius(radius);
+		}
+	}
+	
+	/**
+	 * @param data
+	 *            the image and the structuring elements
+	 * @return the dilation of the 2D image by a disk
+	 */
+	@Benchmark
+	public ImageProcessor dilationDisk(Data2D data)
+	{
+		return Morphology.dilation(data.image, data.disk);
+	}
+	
+	/**
+	 * @param data
+	 *            the image and the structuring elements
+	 * @return the dilation of the 2D image by an octagon
+	 */
+	@Benchmark
+	public ImageProcessor dilationOctagon(Data2D data)
+	{
+		return Morphology.dilation(data.image, data.octagon);
+	}
+	
+	/**
+	 * @param data
+	 *            the image and the structuring element
+	 * @return the dilation of the 3D image by a ball
+	 */
+	@Benchmark
+	public ImageStack dilationBall(Data3D data)
+	{
+		return Morphology.dilation(data.image, data.ball);
+	}
+}
@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DHybrid0Gray8;
+import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DHybrid1Image3D;
+import inra.ijpb.morphology.geodrec.GeodesicReconstructionByDilation3DScanning;
+import inra.ijpb.morphology.geodrec.GeodesicReconstructionHybrid;
+import inra.ijpb.morphology.geodrec.GeodesicReconstructionScanning;
+import inra.ijpb.morphology.geodrec.GeodesicReconstructionType;
+
+/**
+ * Benchmarks of the various implementations of morphological reconstruction
+ * by dilation. The marker is obtained by subtracting a constant value from the
+ * mask, corresponding to a h-maxima transform.
+ * 
+ * @author dlegland
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReconstructionBenchmark
+{
+	/**
+	 * The 2D marker and mask images.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data2D
+	{
+		/** The size of the images in each direction. */
+		@Param({"512", "2048"})
+		public int size;
+		
+		ImageProcessor mask;
+		ImageProcessor marker;
+		
+		/**
+		 * Creates the marker and mask images.
+		 */
+		@Setup
+		public void setup()
+		{
+			mask = SyntheticImages.grayscale2d(size, 8, 42);
+			marker = mask.duplicate();
+			marker.subtract(20);
+		}
+	}
+	
+	/**
+	 * The 3D marker and mask images.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data3D
+	{
+		/** The size of the images in each direction. */
+		@Param({"64", "128"})
+		public int size;
+		
+		ImageStack mask;
+		ImageStack marker;
+		
+		/**
+		 * Creates the marker and mask images.
+		 */
+		@Setup
+		public void setup()
+		{
+			mask = SyntheticImages.grayscale3d(size, 8, 42);
+			marker = mask.duplicate();
+			for (int z = 1; z <= marker.getSize(); z++)
+			{
+				marker.getProcessor(z).subtract(20);
+			}
+		}
+	}
+	
+	/**
+	 * @param data
+	 *            the marker and mask images
+	 * @return the result of the 2D hybrid algorithm
+	 */
+	@Benchmark
+	public ImageProcessor hybrid2d(Data2D data)
+	{
+		return new GeodesicReconstructionHybrid(GeodesicReconstructionType.BY_DILATION, 8).applyTo(data.marker, data.mask);
+	}
+	
+	/**
+	 * @param data
+	 *            the marker and mask images
+	 * @return the result of the 2D scanning algorithm
+	 */
+	@Benchmark
+	public ImageProcessor scanning2d(Data2D data)
+	{
+		return new GeodesicReconstructionScanning(GeodesicReconstructionType.BY_DILATION, 8).applyTo(data.marker, data.mask);
+	}
+	
+	/**
+	 * @param data
+	 *            the marker and mask images
+	 * @return the result of the 3D hybrid algorithm for 8-bits images
+	 */
+	@Benchmark
+	public ImageStack hybrid3dGray8(Data3D data)
+	{
+		return new GeodesicReconstruction3DHybrid0Gray8(GeodesicReconstructionType.BY_DILATION, 26).applyTo(data.marker, data.mask);
+	}
+	
+	/**
+	 * @param data
+	 *            the marker and mask images
+	 * @return the result of the generic 3D hybrid algorithm
+	 */
+	@Benchmark
+	public ImageStack hybrid3dImage3D(Data3D data)
+	{
+		return new GeodesicReconstruction3DHybrid1Image3D(GeodesicReconstructionType.BY_DILATION, 26).applyTo(data.marker, data.mask);
+	}
+	
+	/**
+	 * @param data
+	 *            the marker and mask images
+	 * @return the result of the 3D scanning algorithm
+	 */
+	@Benchmark
+	public ImageStack scanning3d(Data3D data)
+	{
+		return new GeodesicReconstructionByDilation3DScanning(26).applyTo(data.marker, data.mask);
+	}
+}
@@ -0,0 +1,199 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.Random;
+
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+
+/**
+ * Generates synthetic 2D and 3D images used as input of benchmarks. All the
+ * images are generated from a seed, so that successive runs process the
+ * same data.
+ * 
+ * @author dlegland
+ */
+public class SyntheticImages
+{
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private SyntheticImages()
+	{
+	}
+	
+	/**
+	 * Creates a grayscale image by combining random bumps, resulting in smooth
+	 * variations with several regional extrema.
+	 * 
+	 * @param size
+	 *            the size of the image in each direction
+	 * @param bitDepth
+	 *            the bit depth of the result (8, 16 or 32)
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return a new grayscale image
+	 */
+	public static final ImageProcessor grayscale2d(int size, int bitDepth, long seed)
+	{
+		ImageStack stack = ImageStack.create(size, size, 1, bitDepth);
+		double[] values = bumps(size, size, 1, seed);
+		double scale = maxValue(bitDepth);
+		ImageProcessor image = stack.getProcessor(1);
+		for (int i = 0; i < values.length; i++)
+		{
+			image.setf(i, (float) Math.floor(values[i] * scale));
+		}
+		return image;
+	}
+	
+	/**
+	 * Creates a 3D grayscale image by combining random bumps, resulting in
+	 * smooth variations with several regional extrema.
+	 * 
+	 * @param size
+	 *            the size of the image in each direction
+	 * @param bitDepth
+	 *            the bit depth of the result (8, 16 or 32)
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return a new grayscale image
+	 */
+	public static final ImageStack grayscale3d(int size, int bitDepth, long seed)
+	{
+		ImageStack image = ImageStack.create(size, size, size, bitDepth);
+		double[] values = bumps(size, size, size, seed);
+		double scale = maxValue(bitDepth);
+		int sliceSize = size * size;
+		for (int z = 0; z < size; z++)
+		{
+			ImageProcessor slice = image.getProcessor(z + 1);
+			for (int i = 0; i < sliceSize; i++)
+			{
+				slice.setf(i, (float) Math.floor(values[z * sliceSize + i] * scale));
+			}
+		}
+		return image;
+	}
+	
+	/**
+	 * Creates a binary image containing random overlapping blobs.
+	 * 
+	 * @param size
+	 *            the size of the image in each direction
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return a new binary image
+	 */
+	public static final ImageProcessor binary2d(int size, long seed)
+	{
+		ImageProcessor image = new ByteProcessor(size, size);
+		double[] values = bumps(size, size, 1, seed);
+		for (int i = 0; i < values.length; i++)
+		{
+			image.set(i, values[i] > 0.5 ? 255 : 0);
+		}
+		return image;
+	}
+	
+	/**
+	 * Creates a 3D binary image containing random overlapping blobs.
+	 * 
+	 * @param size
+	 *            the size of the image in each direction
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return a new binary image
+	 */
+	public static final ImageStack binary3d(int size, long seed)
+	{
+		ImageStack image = ImageStack.create(size, size, size, 8);
+		double[] values = bumps(size, size, size, seed);
+		int sliceSize = size * size;
+		for (int z = 0; z < size; z++)
+		{
+			ImageProcessor slice = image.getProcessor(z + 1);
+			for (int i = 0; i < sliceSize; i++)
+			{
+				slice.set(i, values[z * sliceSize + i] > 0.5 ? 255 : 0);
+			}
+		}
+		return image;
+	}
+	
+	private static final double maxValue(int bitDepth)
+	{
+		switch (bitDepth)
+		{
+		case 8: return 255;
+		case 16: return 65535;
+		case 32: return 1000;
+		default:
+			throw new IllegalArgumentException("Bit depth must be 8, 16 or 32, not " + bitDepth);
+		}
+	}
+	
+	/**
+	 * Computes the maximum of gaussian bumps with random centers and
+	 * radii, and returns values between 0 and 1 in x-y-z order.
+	 */
+	private static final double[] bumps(int sizeX, int sizeY, int sizeZ, long seed)
+	{
+		Random random = new Random(seed);
+		int nBumps = 20;
+		double[][] centers = new double[nBumps][3];
+		double[] radii = new double[nBumps];
+		double maxSize = Math.max(sizeX, Math.max(sizeY, sizeZ));
+		for (int i = 0; i < nBumps; i++)
+		{
+			centers[i][0] = random.nextDouble() * sizeX;
+			centers[i][1] = random.nextDouble() * sizeY;
+			centers[i][2] = random.nextDouble() * sizeZ;
+			radii[i] = maxSize * (0.05 + 0.1 * random.nextDouble());
+		}
+		
+		double[] values = new double[sizeX * sizeY * sizeZ];
+		int index = 0;
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					double v = 0;
+					for (int i = 0; i < nBumps; i++)
+					{
+						double dx = (x - centers[i][0]) / radii[i];
+						double dy = (y - centers[i][1]) / radii[i];
+						double dz = sizeZ > 1 ? (z - centers[i][2]) / radii[i] : 0;
+						v = Math.max(v, Math.exp(-(dx * dx + dy * dy + dz * dz)));
+					}
+					// add some noise to avoid large plateaus
+					values[index++] = Math.min(0.95 * v + 0.05 * random.nextDouble(), 1.0);
+				}
+			}
+		}
+		return values;
+	}
+}
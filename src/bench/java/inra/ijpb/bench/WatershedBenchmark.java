@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.binary.BinaryImages;
+import inra.ijpb.morphology.MinimaAndMaxima;
+import inra.ijpb.morphology.MinimaAndMaxima3D;
+import inra.ijpb.watershed.Watershed;
+
+/**
+ * Benchmarks of marker-controlled watershed on 2D and 3D images. Markers
+ * are obtained from the extended minima of the input images.
+ * 
+ * @author dlegland
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WatershedBenchmark
+{
+	/**
+	 * The 2D input and marker images.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data2D
+	{
+		/** The size of the images in each direction. */
+		@Param({"512", "2048"})
+		public int size;
+		
+		/** The bit depth of the input image. */
+		@Param({"8", "16"})
+		public int bitDepth;
+		
+		ImageProcessor input;
+		ImageProcessor marker;
+		
+		/**
+		 * Creates the input and marker images.
+		 */
+		@Setup
+		public void setup()
+		{
+			input = SyntheticImages.grayscale2d(size, bitDepth, 42);
+			double dynamic = bitDepth == 8 ? 10 : 2560;
+			ImageProcessor minima = MinimaAndMaxima.extendedMinima(input, dynamic, 4);
+			marker = BinaryImages.componentsLabeling(minima, 4, 32);
+		}
+	}
+	
+	/**
+	 * The 3D input and marker images.
+	 */
+	@State(Scope.Benchmark)
+	public static class Data3D
+	{
+		/** The size of the images in each direction. */
+		@Param({"64", "128"})
+		public int size;
+		
+		/** The bit depth of the input image. */
+		@Param({"8", "16"})
+		public int bitDepth;
+		
+		ImageStack input;
+		ImageStack marker;
+		
+		/**
+		 * Creates the input and marker images.
+		 */
+		@Setup
+		public void setup()
+		{
+			input = SyntheticImages.grayscale3d(size, bitDepth, 42);
+			double dynamic = bitDepth == 8 ? 10 : 2560;
+			ImageStack minima = MinimaAndMaxima3D.extendedMinima(input, dynamic, 6);
+			marker = BinaryImages.componentsLabeling(minima, 6, 32);
+		}
+	}
+	
+	/**
+	 * @param data
+	 *            the input and marker images
+	 * @return the result of the 2D watershed
+	 */
+	@Benchmark
+	public ImageProcessor watershed2d(Data2D data)
+	{
+		return Watershed.computeWatershed(data.input, data.marker, null, 4, true, false);
+	}
+	
+	/**
+	 * @param data
+	 *            the input and marker images
+	 * @return the result of the 3D watershed
+	 */
+	@Benchmark
+	public ImageStack watershed3d(Data3D data)
+	{
+		return Watershed.computeWatershed(data.input, data.marker, null, 6, true, false);
+	}
+}
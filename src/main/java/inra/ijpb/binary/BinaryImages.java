@@ -23,15 +23,15 @@ package inra.ijpb.binary;
 
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.Prefs;
 import ij.process.ByteProcessor;
 import ij.process.FloatProcessor;
 import ij.process.ImageProcessor;
 import ij.process.ShortProcessor;
 import inra.ijpb.algo.DefaultAlgoListener;
 import inra.ijpb.binary.conncomp.ConnectedComponentsLabeling;
-import inra.ijpb.binary.conncomp.ConnectedComponentsLabeling3D;
 import inra.ijpb.binary.conncomp.FloodFillComponentsLabeling;
-import inra.ijpb.binary.conncomp.FloodFillComponentsLabeling3D;
+import inra.ijpb.binary.conncomp.UnionFindComponentsLabeling3D;
 import inra.ijpb.binary.distmap.ChamferDistanceTransform2DFloat;
 import inra.ijpb.binary.distmap.ChamferDistanceTransform2DShort;
 import inra.ijpb.binary.distmap.ChamferDistanceTransform3DFloat;
@@ -40,6 +40,8 @@ import inra.ijpb.binary.distmap.ChamferMask2D;
 import inra.ijpb.binary.distmap.ChamferMask3D;
 import inra.ijpb.binary.distmap.DistanceTransform;
 import inra.ijpb.binary.distmap.DistanceTransform3D;
+import inra.ijpb.binary.distmap.EuclideanDistanceTransform2DFloat;
+import inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat;
 import inra.ijpb.binary.geodesic.GeodesicDistanceTransform;
 import inra.ijpb.binary.geodesic.GeodesicDistanceTransformFloatHybrid;
 import inra.ijpb.binary.geodesic.GeodesicDistanceTransformShortHybrid;
@@ -96,6 +98,21 @@ public class BinaryImages
 		return true;
 	}
 
+	/**
+	 * Check if input 3D image is binary (8-bit with only 0 or 255 values)
+	 * @param image input 3D image
+	 * @return true if image is binary
+	 */
+	public final static boolean isBinaryImage( ImageStack image )
+	{
+		if( image.getBitDepth() != 8 )
+			return false;
+		for( int n=1; n<=image.getSize(); n++ )
+			if( !isBinaryImage( image.getProcessor( n ) ) )
+				return false;
+		return true;
+	}
+
 	/**
 	 * Counts the number of foreground pixels. The foreground pixels are the
 	 * pixels with a value greater than zero.
@@ -192,8 +209,9 @@ public class BinaryImages
 		}
 		else 
 		{
-            FloodFillComponentsLabeling3D algo = new FloodFillComponentsLabeling3D(conn, bitDepth);
-            FloodFillComponentsLabeling3D.Result res = algo.computeResult(imagePlus.getStack());
+            UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(conn, bitDepth);
+            algo.setThreadCount(Prefs.getThreads());
+            UnionFindComponentsLabeling3D.Result res = algo.computeResult(imagePlus.getStack());
             labelPlus = new ImagePlus("Labels", res.labelMap);
             labelPlus.setDisplayRange(0, res.nLabels);
 		}
@@ -234,7 +252,7 @@ public class BinaryImages
 	 * Computes the labels of the connected components in the given 3D binary
 	 * image. The type of result is controlled by the bitDepth option.
 	 * 
-	 * Uses a Flood-fill type algorithm.
+	 * Uses a union-find algorithm that processes slabs of slices in parallel.
 	 * 
 	 * @param image
 	 *            contains the 3D binary image (any type is accepted)
@@ -254,7 +272,8 @@ public class BinaryImages
 	public final static ImageStack componentsLabeling(ImageStack image,
 			int conn, int bitDepth)
 	{
-		ConnectedComponentsLabeling3D algo = new FloodFillComponentsLabeling3D(conn, bitDepth);
+		UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(conn, bitDepth);
+		algo.setThreadCount(Prefs.getThreads());
 		DefaultAlgoListener.monitor(algo);
 		return algo.computeLabels(image);
 	}
@@ -415,6 +434,35 @@ public class BinaryImages
 		return (FloatProcessor) algo.distanceMap(image);
 	}
 
+	/**
+	 * <p>
+	 * Computes the exact Euclidean distance map from a binary image
+	 * processor, by specifying the spacing between pixels.
+	 * </p>
+	 * 
+	 * <p>
+	 * Distance is computed for each foreground (white) pixel, as the Euclidean
+	 * distance to the nearest background (black) pixel, in calibrated units.
+	 * Computation uses the number of threads specified in ImageJ preferences.
+	 * Result is given in a new instance of FloatProcessor.
+	 * </p>
+	 * 
+	 * @param image
+	 *            the input binary image
+	 * @param spacing
+	 *            the spacing between pixels in the x and y directions
+	 * @return the distance map obtained after applying the distance transform
+	 * 
+	 * @see inra.ijpb.binary.distmap.EuclideanDistanceTransform2DFloat
+	 */
+	public static final FloatProcessor distanceMap(ImageProcessor image,
+			double[] spacing) 
+	{
+		EuclideanDistanceTransform2DFloat algo = new EuclideanDistanceTransform2DFloat(spacing);
+		algo.setThreadCount(Prefs.getThreads());
+		return algo.distanceMap(image);
+	}
+
 	/**
 	 * Computes the distance map from a binary 3D image. 
 	 * Distance is computed for each foreground (white) pixel, as the 
@@ -500,6 +548,29 @@ public class BinaryImages
 		DistanceTransform3D	algo = new ChamferDistanceTransform3DFloat(mask, normalize);
 		return algo.distanceMap(image);
 	}
+
+	/**
+	 * Computes the exact Euclidean distance map from a binary 3D image, by
+	 * specifying the spacing between voxels. Distance is computed for each
+	 * foreground (white) voxel, as the Euclidean distance to the nearest
+	 * background (black) voxel, in calibrated units. Computation uses the
+	 * number of threads specified in ImageJ preferences.
+	 * 
+	 * @param image
+	 *            the input 3D binary image
+	 * @param spacing
+	 *            the spacing between voxels in the x, y and z directions
+	 * @return the distance map obtained after applying the distance transform
+	 * 
+	 * @see inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat
+	 */
+	public static final ImageStack distanceMap(ImageStack image, 
+			double[] spacing)
+	{
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat(spacing);
+		algo.setThreadCount(Prefs.getThreads());
+		return algo.distanceMap(image);
+	}
 	
 	/**
 	 * Computes the geodesic distance transform (or geodesic distance map) of a
@@ -0,0 +1,536 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.conncomp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Computes the labels of the connected components in a 3D binary image, by
+ * processing slabs of consecutive slices in parallel. The type of result is
+ * controlled by the bitDepth option.
+ * 
+ * The image is split into slabs along the z-axis. Within each slab, voxels are
+ * associated with provisional labels in a single raster scan, and the
+ * equivalences between provisional labels are recorded using a union-find
+ * structure. The equivalences across slab boundaries are then merged, and the
+ * provisional labels are replaced by consecutive final labels.
+ * 
+ * As for the FloodFillComponentsLabeling3D class, only neighbor voxels with
+ * the same (non zero) value are considered to belong to the same component.
+ * 
+ * The provisional labels are stored as an int array for each slice, as they
+ * may exceed the capacity of the result type. This requires an additional
+ * memory of four bytes per voxel during the computation.
+ * 
+ * The final labels are numbered in the order of the first voxel of each
+ * component in raster order, so that the result is the same as the one
+ * obtained with the FloodFillComponentsLabeling3D class.
+ * 
+ * Example of use:
+ * <pre>{@code
+    int conn = 6;
+    int bitDepth = 16;
+    UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(conn, bitDepth);
+    algo.setThreadCount(Prefs.getThreads());
+    DefaultAlgoListener.monitor(algo);
+    ImageStack labels = algo.computeLabels(image);
+ * }</pre> 
+ * 
+ * @see FloodFillComponentsLabeling3D
+ * 
+ * @author dlegland
+ */
+public class UnionFindComponentsLabeling3D extends AlgoStub implements
+		ConnectedComponentsLabeling3D
+{
+	/** 
+	 * The connectivity of the components, either 6 (default) or 26.
+	 */
+	int connectivity = 6;
+	
+	/**
+	 * The number of bits for representing the result label image. Can be 8, 16
+	 * (default), or 32.
+	 */
+	int bitDepth = 16;
+	
+	/**
+	 * The number of threads used to label the slabs.
+	 */
+	int threadCount = 1;
+	
+	/**
+	 * Constructor with default connectivity 6 and default output bitdepth equal to 16.  
+	 */
+	public UnionFindComponentsLabeling3D()
+	{
+	}
+	
+	/**
+	 * Constructor specifying the connectivity and using default output bitdepth equal to 16.  
+	 * 
+	 * @param connectivity
+	 *            the connectivity of connected components (6 or 26)
+	 */
+	public UnionFindComponentsLabeling3D(int connectivity)
+	{
+		this(connectivity, 16);
+	}
+	
+	/**
+	 * Constructor specifying the connectivity and the bitdepth of result label
+	 * image
+	 * 
+	 * @param connectivity
+	 *            the connectivity of connected components (6 or 26)
+	 * @param bitDepth
+	 *            the bit depth of the result (8, 16, or 32)
+	 */
+	public UnionFindComponentsLabeling3D(int connectivity, int bitDepth)
+	{
+		if (connectivity != 6 && connectivity != 26)
+		{
+			throw new IllegalArgumentException("Connectivity must be either 6 or 26, not " + connectivity);
+		}
+		this.connectivity = connectivity;
+		this.bitDepth = bitDepth;
+	}
+	
+	/**
+	 * @return the number of threads used to label the slabs
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+	
+	/**
+	 * @param nThreads
+	 *            the number of threads used to label the slabs (at least one)
+	 */
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see inra.ijpb.binary.conncomp.ConnectedComponentsLabeling3D#computeLabels(ij.ImageStack)
+	 */
+	@Override
+	public ImageStack computeLabels(ImageStack image)
+	{
+		if ( Thread.currentThread().isInterrupted() )					
+			return null;
+		
+		return computeResult(image).labelMap;
+	}
+	
+	/**
+	 * Computes connected components labeling on the input binary image, and
+	 * returns the results encapsulated into a <code>Result</code> class
+	 * together with the largest label index.
+	 * 
+	 * @param image
+	 *            the input binary image
+	 * @return an instance of the Result class that can be used to retrieve the
+	 *         label map.
+	 */
+	public Result computeResult(ImageStack image)
+	{
+		if ( Thread.currentThread().isInterrupted() )                   
+			return null;
+		
+		// get image size
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		
+		// identify the maximum label index
+		int maxLabel = FloodFillComponentsLabeling.largestPossibleLabel(this.bitDepth);
+
+		// initialize result image
+		fireStatusChanged(this, "Allocate memory...");
+		Result res = new Result(ImageStack.create(sizeX, sizeY, sizeZ, bitDepth));
+		
+		// provisional labels of each slice, relative to the slab containing it
+		int[][] provLabels = new int[sizeZ][];
+		
+		// label each slab independently
+		fireStatusChanged(this, "Label slabs...");
+		ArrayList<Slab> slabs = new ArrayList<Slab>();
+		AtomicInteger slabCount = new AtomicInteger(0);
+		ParallelSlabs.process(sizeZ, this.threadCount, (z0, z1) -> {
+			Slab slab = labelSlab(image, z0, z1, provLabels);
+			synchronized (slabs)
+			{
+				slabs.add(slab);
+			}
+			fireProgressChanged(this, slabCount.addAndGet(z1 - z0), sizeZ);
+		});
+		slabs.sort((s1, s2) -> Integer.compare(s1.z0, s2.z0));
+		
+		// concatenates the union-find structures of the slabs, by shifting
+		// local labels such that labels are increasing with the slab index
+		fireStatusChanged(this, "Merge slabs...");
+		int[] sliceOffsets = new int[sizeZ];
+		int nProvLabels = 0;
+		for (Slab slab : slabs)
+		{
+			for (int z = slab.z0; z < slab.z1; z++)
+			{
+				sliceOffsets[z] = nProvLabels;
+			}
+			slab.offset = nProvLabels;
+			nProvLabels += slab.nLabels;
+		}
+		int[] parents = new int[nProvLabels + 1];
+		for (Slab slab : slabs)
+		{
+			for (int i = 1; i <= slab.nLabels; i++)
+			{
+				parents[slab.offset + i] = slab.offset + slab.parents[i];
+			}
+			slab.parents = null;
+		}
+		
+		// merge the labels of adjacent voxels located on each side of slab
+		// boundaries
+		for (Slab slab : slabs)
+		{
+			if (slab.z0 > 0)
+			{
+				mergeSlabBoundary(image, provLabels, slab.z0, sliceOffsets, parents);
+			}
+		}
+		
+		// Compute final labels. As provisional labels are created in raster
+		// order, and as each root is the smallest label of its tree, final
+		// labels are assigned in the order of the first voxel of each component.
+		int[] finalLabels = new int[nProvLabels + 1];
+		for (int label = 1; label <= nProvLabels; label++)
+		{
+			int root = find(parents, label);
+			if (root == label)
+			{
+				// a new label is found: check current label number  
+				if (res.nLabels == maxLabel)
+				{
+					throw new RuntimeException("Max number of label reached (" + maxLabel + ")");
+				}
+				finalLabels[label] = ++res.nLabels;
+			}
+			else
+			{
+				finalLabels[label] = finalLabels[root];
+			}
+		}
+		
+		// replace provisional labels by final labels
+		fireStatusChanged(this, "Relabel...");
+		ImageStack labelMap = res.labelMap;
+		ParallelSlabs.process(sizeZ, this.threadCount, (z0, z1) -> {
+			for (int z = z0; z < z1; z++)
+			{
+				int[] labels = provLabels[z];
+				int offset = sliceOffsets[z];
+				Object pixels = labelMap.getPixels(z + 1);
+				for (int i = 0; i < labels.length; i++)
+				{
+					if (labels[i] == 0)
+						continue;
+					int label = finalLabels[offset + labels[i]];
+					if (pixels instanceof byte[])
+						((byte[]) pixels)[i] = (byte) label;
+					else if (pixels instanceof short[])
+						((short[]) pixels)[i] = (short) label;
+					else
+						((float[]) pixels)[i] = label;
+				}
+				provLabels[z] = null;
+			}
+		});
+		
+		fireStatusChanged(this, "");
+		fireProgressChanged(this, 1, 1);
+		return res;
+	}
+	
+	/**
+	 * Computes the provisional labels of the voxels within the slab
+	 * [z0;z1[, and the equivalences between labels.
+	 */
+	private Slab labelSlab(ImageStack image, int z0, int z1, int[][] provLabels)
+	{
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		
+		Slab slab = new Slab(z0, z1);
+		for (int z = z0; z < z1; z++)
+		{
+			ImageProcessor slice = image.getProcessor(z + 1);
+			ImageProcessor prevSlice = z > z0 ? image.getProcessor(z) : null;
+			int[] labels = new int[sizeX * sizeY];
+			int[] prevLabels = z > z0 ? provLabels[z - 1] : null;
+			
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int index = y * sizeX + x;
+					
+					// Do not process background voxels
+					float value = slice.getf(index);
+					if (value == 0)
+						continue;
+					
+					// merge with labels of neighbors already visited with same value
+					int label = 0;
+					if (x > 0)
+						label = merge(slab, label, labels, slice, index - 1, value);
+					if (y > 0)
+						label = merge(slab, label, labels, slice, index - sizeX, value);
+					if (prevLabels != null)
+						label = merge(slab, label, prevLabels, prevSlice, index, value);
+					
+					if (this.connectivity == 26)
+					{
+						if (y > 0)
+						{
+							if (x > 0)
+								label = merge(slab, label, labels, slice, index - sizeX - 1, value);
+							if (x < sizeX - 1)
+								label = merge(slab, label, labels, slice, index - sizeX + 1, value);
+						}
+						if (prevLabels != null)
+						{
+							label = mergePlaneNeighbors(slab, label, prevLabels, prevSlice, value, x, y, sizeX, sizeY);
+						}
+					}
+					
+					// if no neighbor was labeled, create a new label
+					if (label == 0)
+					{
+						label = slab.newLabel();
+					}
+					labels[index] = label;
+				}
+			}
+			provLabels[z] = labels;
+		}
+		
+		return slab;
+	}
+
+	/**
+	 * Merges the current label with the label of the neighbor at the specified
+	 * index, if the neighbor has the same value as the current voxel.
+	 */
+	private static final int merge(Slab slab, int label, int[] labels, ImageProcessor slice, int index, float value)
+	{
+		if (slice.getf(index) != value)
+			return label;
+		return slab.merge(label, labels[index]);
+	}
+	
+	/**
+	 * Merges the current label with the labels of the 3-by-3 neighborhood
+	 * centered on (x,y) within the labels of the previous slice, excepted the
+	 * center that has already been processed.
+	 */
+	private static final int mergePlaneNeighbors(Slab slab, int label, int[] prevLabels, ImageProcessor prevSlice, float value, int x, int y, int sizeX, int sizeY)
+	{
+		for (int y2 = Math.max(y - 1, 0); y2 <= Math.min(y + 1, sizeY - 1); y2++)
+		{
+			for (int x2 = Math.max(x - 1, 0); x2 <= Math.min(x + 1, sizeX - 1); x2++)
+			{
+				if (x2 == x && y2 == y)
+					continue;
+				label = merge(slab, label, prevLabels, prevSlice, y2 * sizeX + x2, value);
+			}
+		}
+		return label;
+	}
+	
+	/**
+	 * Merges the labels of the voxels in slice z with the labels of their
+	 * neighbors with same value in slice z-1.
+	 */
+	private void mergeSlabBoundary(ImageStack image, int[][] provLabels, int z, int[] sliceOffsets, int[] parents)
+	{
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		ImageProcessor slice = image.getProcessor(z + 1);
+		ImageProcessor prevSlice = image.getProcessor(z);
+		int[] labels = provLabels[z];
+		int[] prevLabels = provLabels[z - 1];
+		int offset = sliceOffsets[z];
+		int prevOffset = sliceOffsets[z - 1];
+		
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				int label = labels[y * sizeX + x];
+				if (label == 0)
+					continue;
+				label += offset;
+				float value = slice.getf(y * sizeX + x);
+				
+				if (this.connectivity == 6)
+				{
+					int label2 = prevLabels[y * sizeX + x];
+					if (label2 > 0 && prevSlice.getf(y * sizeX + x) == value)
+						union(parents, label, label2 + prevOffset);
+					continue;
+				}
+				
+				for (int y2 = Math.max(y - 1, 0); y2 <= Math.min(y + 1, sizeY - 1); y2++)
+				{
+					for (int x2 = Math.max(x - 1, 0); x2 <= Math.min(x + 1, sizeX - 1); x2++)
+					{
+						int label2 = prevLabels[y2 * sizeX + x2];
+						if (label2 > 0 && prevSlice.getf(y2 * sizeX + x2) == value)
+							union(parents, label, label2 + prevOffset);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds the root of the tree containing the specified label, and
+	 * compresses the path to the root.
+	 */
+	private static final int find(int[] parents, int label)
+	{
+		while (parents[label] != label)
+		{
+			parents[label] = parents[parents[label]];
+			label = parents[label];
+		}
+		return label;
+	}
+	
+	/**
+	 * Merges the trees containing the two labels, using the smallest root as
+	 * the root of the merged tree.
+	 */
+	private static final int union(int[] parents, int label1, int label2)
+	{
+		int root1 = find(parents, label1);
+		int root2 = find(parents, label2);
+		if (root1 < root2)
+		{
+			parents[root2] = root1;
+			return root1;
+		}
+		parents[root1] = root2;
+		return root2;
+	}
+	
+	
+	/**
+	 * The provisional labels and the equivalences computed for a slab of
+	 * slices.
+	 */
+	private static final class Slab
+	{
+		/** The index of the first slice of the slab */
+		int z0;
+		
+		/** The index of the slice after the last slice of the slab */
+		int z1;
+		
+		/** The parent of each label, starting at index 1 */
+		int[] parents = new int[64];
+		
+		/** The number of labels within this slab */
+		int nLabels = 0;
+		
+		/** The offset of labels used to concatenate slabs */
+		int offset = 0;
+		
+		Slab(int z0, int z1)
+		{
+			this.z0 = z0;
+			this.z1 = z1;
+		}
+		
+		int newLabel()
+		{
+			nLabels++;
+			if (nLabels == parents.length)
+			{
+				parents = Arrays.copyOf(parents, parents.length * 2);
+			}
+			parents[nLabels] = nLabels;
+			return nLabels;
+		}
+		
+		/**
+		 * Merges the current label with the label of a neighbor, and returns
+		 * the resulting root label.
+		 */
+		int merge(int label, int neighborLabel)
+		{
+			if (neighborLabel == 0)
+				return label;
+			if (label == 0)
+				return find(parents, neighborLabel);
+			return union(parents, label, neighborLabel);
+		}
+	}
+	
+	/**
+	 * Data class that stores result of connected component labeling.
+	 */
+	public class Result
+	{
+		/**
+		 * The image stack containing labels of connected components, or 0 for background.
+		 */
+		public ImageStack labelMap;
+		
+		/**
+		 * The number of labels within the label map.
+		 */
+		public int nLabels = 0;
+		
+		/**
+		 * Creates a new Result class from an (empty) labelMap.
+		 * 
+		 * @param labelMap
+		 *            the labelMap that will be initialized during processing.
+		 */
+		public Result(ImageStack labelMap)
+		{
+			this.labelMap = labelMap;
+		}
+	}
+}
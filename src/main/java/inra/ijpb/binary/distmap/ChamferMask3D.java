@@ -296,7 +296,26 @@ public abstract class ChamferMask3D
 			offsets.add(new FloatOffset(offset.dx, offset.dy, offset.dz, offset.weight));
 		}
 		return offsets;
-		
+
+	}
+
+	/**
+	 * Checks if all the floating-point weights of this chamfer mask are
+	 * positive integer values. In that case, distance propagation can be
+	 * performed using integer arithmetic without loss of precision.
+	 *
+	 * @return true if all the floating-point weights are positive integers.
+	 */
+	public boolean hasIntegerWeights()
+	{
+		for (FloatOffset offset : getFloatOffsets())
+		{
+			if (offset.weight <= 0 || offset.weight != Math.rint(offset.weight))
+			{
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -0,0 +1,338 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.distmap;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.data.image.Images3D;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Computes the exact Euclidean distance transform of 3D binary images, using
+ * the separable algorithm of Felzenszwalb and Huttenlocher. The computation
+ * time does not depend on the distances within the image.
+ * 
+ * <p>
+ * Distances are first computed along the x direction for each row, then
+ * propagated along the y direction and finally along the z direction using
+ * the lower envelope of parabolas. Each step is independent for each line of
+ * the image, making it possible to use several threads.
+ * </p>
+ * 
+ * <p>
+ * The spacing between voxels can be specified for each direction. An
+ * infinite spacing for a given direction prevents the propagation of
+ * distances along that direction.
+ * </p>
+ * 
+ * @see ChamferDistanceTransform3DFloat
+ * 
+ * @author David Legland
+ * 
+ */
+public class EuclideanDistanceTransform3DFloat extends AlgoStub implements DistanceTransform3D
+{
+	// ==================================================
+	// Class variables
+
+	/**
+	 * The spacing between two voxels in each direction.
+	 */
+	double[] spacing = new double[] {1.0, 1.0, 1.0};
+	
+	/**
+	 * The number of threads used for computing the distance map.
+	 */
+	int threadCount = 1;
+	
+	
+	// ==================================================
+	// Constructors 
+	
+	/**
+	 * Creates a new algorithm for computing 3D Euclidean distance maps on
+	 * binary images, using a unit spacing in each direction.
+	 */
+	public EuclideanDistanceTransform3DFloat()
+	{
+	}
+	
+	/**
+	 * Creates a new algorithm for computing 3D Euclidean distance maps on
+	 * binary images, using the specified spacing between voxels.
+	 * 
+	 * @param spacing
+	 *            the spacing between voxels in the x, y and z directions
+	 */
+	public EuclideanDistanceTransform3DFloat(double[] spacing)
+	{
+		if (spacing.length != 3)
+		{
+			throw new IllegalArgumentException("Requires a spacing array with three values");
+		}
+		this.spacing = spacing.clone();
+	}
+	
+	
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return the number of threads used for computing the distance map
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * @param nThreads
+	 *            the number of threads used for computing the distance map
+	 */
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+
+	
+	// ==================================================
+	// Implementation of the DistanceTransform3D interface 
+	
+	/**
+	 * Computes the distance map from a 3D binary image. Distance is computed
+	 * for each foreground (non zero) voxel, as the Euclidean distance to the
+	 * nearest background (zero) voxel.
+	 * 
+	 * @param image
+	 *            a 3D binary image with non zero voxels as foreground
+	 * @return a new 3D image containing:
+	 *         <ul>
+	 *         <li>0 for each background voxel</li>
+	 *         <li>the distance to the nearest background voxel otherwise</li>
+	 *         </ul>
+	 */
+	@Override
+	public ImageStack distanceMap(ImageStack image)
+	{
+		double[][] dist2 = squaredDistanceMap(image);
+		
+		// convert to distances
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, 32);
+		float[][] resultSlices = Images3D.getFloatArrays(result);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			double[] slice = dist2[z];
+			float[] resSlice = resultSlices[z];
+			for (int i = 0; i < slice.length; i++)
+			{
+				resSlice[i] = (float) Math.sqrt(slice[i]);
+			}
+		}
+		
+		return result;
+	}
+
+	/**
+	 * Computes the squared distance map from a 3D binary image. Computation
+	 * is performed using double precision, so that squared distances are
+	 * exact for integer spacings. Foreground voxels that can not reach any
+	 * background voxel (either because the image has no background, or
+	 * because of infinite spacings) are associated to the value
+	 * <code>Double.POSITIVE_INFINITY</code>.
+	 * 
+	 * @param image
+	 *            a 3D binary image with non zero voxels as foreground
+	 * @return the squared distance to the nearest background voxel, as an
+	 *         array of slices. The index within each slice is given by
+	 *         <code>y * sizeX + x</code>.
+	 */
+	public double[][] squaredDistanceMap(ImageStack image)
+	{
+		// size of image
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		
+		double[][] dist2 = new double[sizeZ][sizeX * sizeY];
+		
+		double wx = spacing[0] * spacing[0];
+		double wy = spacing[1] * spacing[1];
+		double wz = spacing[2] * spacing[2];
+		
+		// Process each slice independently for the x and y directions
+		fireStatusChanged(this, "Distance map (XY)");
+		ParallelSlabs.process(sizeZ, this.threadCount, (z0, z1) -> {
+			double[] f = new double[Math.max(sizeX, sizeY)];
+			double[] d = new double[f.length];
+			int[] v = new int[f.length];
+			double[] r = new double[f.length + 1];
+			
+			for (int z = z0; z < z1; z++)
+			{
+				ImageProcessor mask = image.getProcessor(z + 1);
+				double[] slice = dist2[z];
+				
+				// distance along each row
+				for (int y = 0; y < sizeY; y++)
+				{
+					int offset = y * sizeX;
+					for (int x = 0; x < sizeX; x++)
+					{
+						f[x] = mask.getf(offset + x) == 0 ? 0 : Double.POSITIVE_INFINITY;
+					}
+					transform1d(f, sizeX, wx, d, v, r);
+					System.arraycopy(d, 0, slice, offset, sizeX);
+				}
+				
+				// propagate along each column
+				if (Double.isInfinite(wy)) continue;
+				for (int x = 0; x < sizeX; x++)
+				{
+					for (int y = 0; y < sizeY; y++)
+					{
+						f[y] = slice[y * sizeX + x];
+					}
+					transform1d(f, sizeY, wy, d, v, r);
+					for (int y = 0; y < sizeY; y++)
+					{
+						slice[y * sizeX + x] = d[y];
+					}
+				}
+			}
+		});
+		
+		// Propagate along the z direction, processing rows independently 
+		if (!Double.isInfinite(wz))
+		{
+			fireStatusChanged(this, "Distance map (Z)");
+			ParallelSlabs.process(sizeY, this.threadCount, (y0, y1) -> {
+				double[] f = new double[sizeZ];
+				double[] d = new double[sizeZ];
+				int[] v = new int[sizeZ];
+				double[] r = new double[sizeZ + 1];
+				
+				for (int y = y0; y < y1; y++)
+				{
+					for (int x = 0; x < sizeX; x++)
+					{
+						int index = y * sizeX + x;
+						for (int z = 0; z < sizeZ; z++)
+						{
+							f[z] = dist2[z][index];
+						}
+						transform1d(f, sizeZ, wz, d, v, r);
+						for (int z = 0; z < sizeZ; z++)
+						{
+							dist2[z][index] = d[z];
+						}
+					}
+				}
+			});
+		}
+		
+		fireStatusChanged(this, "");
+		return dist2;
+	}
+	
+	/**
+	 * Computes the one-dimensional squared distance transform of a sampled
+	 * function, using the lower envelope of parabolas. The result is given by
+	 * <code>d(q) = min_p (w * (q - p)^2 + f(p))</code>.
+	 * 
+	 * @param f
+	 *            the sampled function, with infinite values for positions
+	 *            without contribution
+	 * @param n
+	 *            the number of values to process
+	 * @param w
+	 *            the weight associated to squared distances (squared spacing)
+	 * @param d
+	 *            the array used to store the result
+	 * @param v
+	 *            buffer for the locations of parabolas in the lower envelope
+	 * @param r
+	 *            buffer for the boundaries between parabolas, with at least
+	 *            <code>n+1</code> elements
+	 */
+	public static final void transform1d(double[] f, int n, double w, double[] d, int[] v, double[] r)
+	{
+		// parabolas are not defined for infinite spacing 
+		if (Double.isInfinite(w))
+		{
+			System.arraycopy(f, 0, d, 0, n);
+			return;
+		}
+		
+		// compute lower envelope, ignoring positions with infinite values
+		int k = -1;
+		for (int q = 0; q < n; q++)
+		{
+			if (Double.isInfinite(f[q]))
+			{
+				continue;
+			}
+			
+			double s = Double.NEGATIVE_INFINITY;
+			while (k >= 0)
+			{
+				int p = v[k];
+				s = ((f[q] + w * q * q) - (f[p] + w * p * p)) / (2 * w * (q - p));
+				if (s > r[k]) break;
+				k--;
+			}
+			if (k < 0)
+			{
+				s = Double.NEGATIVE_INFINITY;
+			}
+			k++;
+			v[k] = q;
+			r[k] = s;
+			r[k + 1] = Double.POSITIVE_INFINITY;
+		}
+		
+		// case of no finite value
+		if (k < 0)
+		{
+			for (int q = 0; q < n; q++)
+			{
+				d[q] = Double.POSITIVE_INFINITY;
+			}
+			return;
+		}
+		
+		// fill in values of distance transform
+		k = 0;
+		for (int q = 0; q < n; q++)
+		{
+			while (r[k + 1] < q)
+			{
+				k++;
+			}
+			int dq = q - v[k];
+			d[q] = w * dq * dq + f[v[k]];
+		}
+	}
+}
@@ -0,0 +1,307 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.geodesic;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import ij.ImageStack;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.binary.distmap.ChamferMask3D;
+import inra.ijpb.binary.distmap.ChamferMask3D.FloatOffset;
+import inra.ijpb.data.image.Image3D;
+import inra.ijpb.data.image.Images3D;
+
+/**
+ * Computation of geodesic distance transform for 3D images, using a
+ * Dijkstra-like propagation with a bucket queue.
+ * 
+ * This algorithm requires a chamfer mask with positive integer weights (see
+ * {@link ChamferMask3D#hasIntegerWeights()}). As all the weights are integer,
+ * voxels can be processed in increasing distance order using a circular array
+ * of buckets indexed by distance modulo the largest weight, resulting in a
+ * single processing of each voxel, whatever the tortuosity of the structures.
+ * Distances are computed using integer arithmetic, and the result is stored
+ * as a 32-bit float image, as for the {@link GeodesicDistanceTransform3DFloat}
+ * class.
+ * 
+ * Adapted for the management of label images.
+ * 
+ * @see GeodesicDistanceTransform3DFloat
+ * @see GeodesicDistanceTransform3DFloatHybrid
+ * 
+ * @author dlegland
+ *
+ */
+public class GeodesicDistanceTransform3DBucketQueue extends AlgoStub implements GeodesicDistanceTransform3D
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The chamfer mask used for propagating distances from the marker.
+	 */
+	ChamferMask3D chamferMask;
+	
+	/**
+	 * Flag for dividing final distance map by the value first weight. 
+	 * This results in distance map values closer to euclidean, but with non integer values. 
+	 */
+	boolean normalizeMap = true;
+	
+	/**
+	 * The value kept in the result image for voxels that can not be reached
+	 * from the marker.
+	 */
+	static final float MAX_DIST = Float.MAX_VALUE;
+	
+	/** 
+	 * The value assigned to the background in the result image.
+	 * Default is Float.NaN.
+	 */
+	static final float BACKGROUND = Float.NaN;
+	
+	
+	// ==================================================
+	// Constructors
+	
+	/**
+	 * Creates a new algorithm for propagating geodesic distances.
+	 * 
+	 * @param mask
+	 *            the chamfer mask to use for propagating distances, that must
+	 *            have positive integer weights
+	 * @param normalizeMap
+	 *            the flag for normalization
+	 * @throws IllegalArgumentException
+	 *             if the weights of the chamfer mask are not positive integers
+	 */
+	public GeodesicDistanceTransform3DBucketQueue(ChamferMask3D mask, boolean normalizeMap)
+	{
+		if (!mask.hasIntegerWeights())
+		{
+			throw new IllegalArgumentException("Requires a chamfer mask with positive integer weights");
+		}
+		this.chamferMask = mask;
+		this.normalizeMap = normalizeMap;
+	}
+
+
+	// ==================================================
+	// Methods
+	
+	/* (non-Javadoc)
+	 * @see inra.ijpb.binary.geodesic.GeodesicDistanceTransform3D#geodesicDistanceMap(ij.ImageStack, ij.ImageStack)
+	 */
+	@Override
+	public ImageStack geodesicDistanceMap(ImageStack marker, ImageStack mask)
+	{
+		int sizeX = marker.getWidth();
+		int sizeY = marker.getHeight();
+		int sizeZ = marker.getSize();
+		if ((long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Image is too large to be processed: " + sizeX + "x" + sizeY + "x" + sizeZ);
+		}
+		
+		Image3D labelImage = Images3D.createWrapper(mask);
+		Image3D markerImage = Images3D.createWrapper(marker);
+
+		// convert offsets to integer arrays
+		Collection<FloatOffset> offsetList = chamferMask.getFloatOffsets();
+		int nOffsets = offsetList.size();
+		int[][] offsets = new int[nOffsets][];
+		int maxWeight = 0;
+		int k = 0;
+		for (FloatOffset offset : offsetList)
+		{
+			int w = (int) offset.weight;
+			offsets[k++] = new int[] {offset.dx, offset.dy, offset.dz, w};
+			maxWeight = Math.max(maxWeight, w);
+		}
+		
+		// initialize the distance array, and insert marker voxels into the queue
+		fireStatusChanged(this, "Initialization...");
+		int sliceSize = sizeX * sizeY;
+		int[] dist = new int[sliceSize * sizeZ];
+		BucketQueue queue = new BucketQueue(maxWeight + 1);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			fireProgressChanged(this, z, sizeZ);
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int index = (z * sizeY + y) * sizeX + x;
+					if (labelImage.get(x, y, z) != 0 && markerImage.getValue(x, y, z) != 0)
+					{
+						dist[index] = 0;
+						queue.add(index, 0);
+					}
+					else
+					{
+						dist[index] = Integer.MAX_VALUE;
+					}
+				}
+			}
+		}
+		
+		// propagate distances in increasing order
+		fireStatusChanged(this, "Propagate distances");
+		int currentDist = 0;
+		while (!queue.isEmpty())
+		{
+			IntArray bucket = queue.bucket(currentDist);
+			for (int i = 0; i < bucket.size; i++)
+			{
+				int index = bucket.data[i];
+				// skip voxels that have been reached by a shorter path
+				if (dist[index] != currentDist)
+				{
+					continue;
+				}
+				
+				int x = index % sizeX;
+				int y = (index / sizeX) % sizeY;
+				int z = index / sliceSize;
+				int label = labelImage.get(x, y, z);
+				
+				for (int[] offset : offsets)
+				{
+					int x2 = x + offset[0];
+					int y2 = y + offset[1];
+					int z2 = z + offset[2];
+					
+					if (x2 < 0 || x2 >= sizeX)
+						continue;
+					if (y2 < 0 || y2 >= sizeY)
+						continue;
+					if (z2 < 0 || z2 >= sizeZ)
+						continue;
+					
+					int index2 = (z2 * sizeY + y2) * sizeX + x2;
+					int dist2 = currentDist + offset[3];
+					if (dist[index2] > dist2 && labelImage.get(x2, y2, z2) == label)
+					{
+						dist[index2] = dist2;
+						queue.add(index2, dist2);
+					}
+				}
+			}
+			queue.clear(currentDist, bucket.size);
+			currentDist++;
+		}
+
+		// convert to float result, with normalization
+		fireStatusChanged(this, "Create result image");
+		double w0 = this.normalizeMap ? this.chamferMask.getNormalizationWeight() : 1.0;
+		ImageStack resultStack = ImageStack.create(sizeX, sizeY, sizeZ, 32);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			fireProgressChanged(this, z, sizeZ);
+			float[] slice = (float[]) resultStack.getPixels(z + 1);
+			int offset = z * sliceSize;
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int i = y * sizeX + x;
+					if (labelImage.get(x, y, z) == 0)
+					{
+						slice[i] = BACKGROUND;
+					}
+					else
+					{
+						int d = dist[offset + i];
+						slice[i] = (float) ((d == Integer.MAX_VALUE ? MAX_DIST : d) / w0);
+					}
+				}
+			}
+		}
+		fireProgressChanged(this, 1, 1);
+		
+		return resultStack;
+	}
+	
+	/**
+	 * A circular array of buckets, each bucket containing the indices of the
+	 * voxels with a given distance. As the distance increment is bounded by
+	 * the number of buckets minus one, a bucket is never modified while being
+	 * processed.
+	 */
+	private static class BucketQueue
+	{
+		IntArray[] buckets;
+		
+		/** the total number of indices stored in the buckets */
+		long size = 0;
+		
+		BucketQueue(int nBuckets)
+		{
+			this.buckets = new IntArray[nBuckets];
+			for (int i = 0; i < nBuckets; i++)
+			{
+				buckets[i] = new IntArray();
+			}
+		}
+		
+		void add(int index, int dist)
+		{
+			buckets[dist % buckets.length].add(index);
+			size++;
+		}
+		
+		IntArray bucket(int dist)
+		{
+			return buckets[dist % buckets.length];
+		}
+		
+		void clear(int dist, int count)
+		{
+			buckets[dist % buckets.length].size = 0;
+			size -= count;
+		}
+		
+		boolean isEmpty()
+		{
+			return size == 0;
+		}
+	}
+	
+	/**
+	 * A growable array of primitive int values.
+	 */
+	private static class IntArray
+	{
+		int[] data = new int[16];
+		int size = 0;
+		
+		void add(int value)
+		{
+			if (size == data.length)
+			{
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = value;
+		}
+	}
+}
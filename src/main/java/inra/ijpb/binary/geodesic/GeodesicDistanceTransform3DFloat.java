@@ -264,7 +264,8 @@ public class GeodesicDistanceTransform3DFloat extends AlgoStub implements Geodes
 						}
 					}
 					
-					if (newDist < currentDist)
+					// compare with float precision, as distances are stored as floats
+					if ((float) newDist < currentDist)
 					{
 						distMap.setValue(x, y, z, newDist);
 						modif = true;
@@ -328,7 +329,8 @@ public class GeodesicDistanceTransform3DFloat extends AlgoStub implements Geodes
 						}
 					}
 					
-					if (newDist < currentDist)
+					// compare with float precision, as distances are stored as floats
+					if ((float) newDist < currentDist)
 					{
 						distMap.setValue(x, y, z, newDist);
 						modif = true;
@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Hierarchical queue (also known as bucket queue) of linear element indices,
+ * for integer priority values within a bounded range (typically the gray
+ * levels of 8-bit or 16-bit images).
+ * 
+ * The queue contains one FIFO buffer of indices for each priority level.
+ * Adding and removing elements is performed in constant time (amortized),
+ * and does not require any object allocation once the buffers have grown to
+ * their working size.
+ * 
+ * Priority values given to the <code>add()</code> method are truncated to
+ * integer values, and must be between 0 and <code>nLevels-1</code>.
+ * 
+ * @see IndexHeap
+ * 
+ * @author Ignacio Arganda-Carreras
+ */
+public class HierarchicalQueue implements IndexPriorityQueue
+{
+	/** Initial capacity of the buffer of each level */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/** The circular buffer of indices for each level, lazily allocated */
+	private final int[][] buffers;
+	/** The position of the first element in the buffer of each level */
+	private final int[] heads;
+	/** The number of elements in the buffer of each level */
+	private final int[] counts;
+	
+	/** The lowest level that may contain elements */
+	private int currentLevel;
+	
+	/** The total number of elements within the queue */
+	private int size = 0;
+	
+	/**
+	 * Creates a new hierarchical queue for the specified number of levels.
+	 * 
+	 * @param nLevels
+	 *            the number of priority levels (256 for 8-bit images, 65536
+	 *            for 16-bit images)
+	 */
+	public HierarchicalQueue( int nLevels )
+	{
+		if ( nLevels <= 0 )
+			throw new IllegalArgumentException( "Number of levels must be positive" );
+		this.buffers = new int[nLevels][];
+		this.heads = new int[nLevels];
+		this.counts = new int[nLevels];
+		this.currentLevel = nLevels;
+	}
+
+	@Override
+	public void add( int index, double value )
+	{
+		final int level = (int) value;
+		if ( level < 0 || level >= buffers.length )
+			throw new IllegalArgumentException( "Priority value " + value
+					+ " is outside of range [0;" + (buffers.length - 1) + "]" );
+		
+		int[] buffer = buffers[level];
+		final int count = counts[level];
+		if ( buffer == null )
+		{
+			buffer = new int[INITIAL_CAPACITY];
+			buffers[level] = buffer;
+		}
+		else if ( count == buffer.length )
+		{
+			buffer = grow( level );
+		}
+		
+		// buffer capacity is always a power of two
+		buffer[(heads[level] + count) & (buffer.length - 1)] = index;
+		counts[level] = count + 1;
+		size++;
+		
+		if ( level < currentLevel )
+			currentLevel = level;
+	}
+
+	/**
+	 * Doubles the capacity of the buffer of the specified level, and moves
+	 * its elements to the beginning of the new buffer.
+	 */
+	private int[] grow( int level )
+	{
+		final int[] buffer = buffers[level];
+		final int capacity = buffer.length;
+		final int head = heads[level];
+		final int[] newBuffer = new int[capacity * 2];
+		System.arraycopy( buffer, head, newBuffer, 0, capacity - head );
+		System.arraycopy( buffer, 0, newBuffer, capacity - head, head );
+		buffers[level] = newBuffer;
+		heads[level] = 0;
+		return newBuffer;
+	}
+
+	@Override
+	public int poll()
+	{
+		if ( size == 0 )
+			throw new NoSuchElementException( "Hierarchical queue is empty" );
+		
+		// find the lowest non empty level
+		while ( counts[currentLevel] == 0 )
+			currentLevel++;
+		
+		final int level = currentLevel;
+		final int[] buffer = buffers[level];
+		final int head = heads[level];
+		final int index = buffer[head];
+		
+		heads[level] = (head + 1) & (buffer.length - 1);
+		counts[level]--;
+		size--;
+		
+		return index;
+	}
+	
+	@Override
+	public double minValue()
+	{
+		if ( size == 0 )
+			throw new NoSuchElementException( "Hierarchical queue is empty" );
+		
+		while ( counts[currentLevel] == 0 )
+			currentLevel++;
+		return currentLevel;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+}
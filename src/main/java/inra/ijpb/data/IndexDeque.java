@@ -0,0 +1,226 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Double-ended queue of element indices stored as long values within a
+ * primitive ring buffer. It can be used either as a FIFO queue (using
+ * <code>addLast</code> and <code>pollFirst</code>) or as a LIFO stack (using
+ * <code>addLast</code> and <code>pollLast</code>), without allocating an
+ * object for each element.
+ * 
+ * Positions are usually encoded as linear indices, or packed into a single
+ * long value using the <code>pack</code> method, that stores the x-coordinate
+ * in the lower 32 bits and the y-coordinate (or the row index
+ * <code>z * sizeY + y</code> for 3D images) in the upper 32 bits.
+ * 
+ * <p>
+ * Example of use:
+ * <pre><code>
+ * IndexDeque queue = new IndexDeque();
+ * queue.addLast(IndexDeque.pack(x, y));
+ * while (!queue.isEmpty())
+ * {
+ *     long p = queue.pollFirst();
+ *     int x = IndexDeque.unpackX(p);
+ *     int y = IndexDeque.unpackY(p);
+ *     // process position (x,y)
+ * }
+ * </code></pre>
+ * 
+ * @author David Legland
+ */
+public class IndexDeque
+{
+	/** The elements, stored in a ring buffer whose capacity is a power of two */
+	private long[] buffer;
+	
+	/** The position of the first element within the buffer */
+	private int head = 0;
+	
+	/** The number of elements within the deque */
+	private int size = 0;
+	
+	/**
+	 * Creates a new empty deque with a default initial capacity.
+	 */
+	public IndexDeque()
+	{
+		this(256);
+	}
+	
+	/**
+	 * Creates a new empty deque with the specified initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            the initial number of elements the deque can contain before
+	 *            growing
+	 */
+	public IndexDeque(int initialCapacity)
+	{
+		int capacity = Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1;
+		this.buffer = new long[capacity];
+	}
+	
+	/**
+	 * Packs two integer coordinates into a single long value.
+	 * 
+	 * @param x
+	 *            the x-coordinate, stored in the lower 32 bits
+	 * @param y
+	 *            the y-coordinate, stored in the upper 32 bits
+	 * @return the packed position
+	 */
+	public static final long pack(int x, int y)
+	{
+		return (((long) y) << 32) | (x & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Retrieves the x-coordinate of a position packed with the
+	 * {@link #pack(int, int)} method.
+	 * 
+	 * @param key
+	 *            the packed position
+	 * @return the x-coordinate
+	 */
+	public static final int unpackX(long key)
+	{
+		return (int) key;
+	}
+	
+	/**
+	 * Retrieves the y-coordinate of a position packed with the
+	 * {@link #pack(int, int)} method.
+	 * 
+	 * @param key
+	 *            the packed position
+	 * @return the y-coordinate
+	 */
+	public static final int unpackY(long key)
+	{
+		return (int) (key >>> 32);
+	}
+	
+	/**
+	 * Adds an element at the end of the deque.
+	 * 
+	 * @param value
+	 *            the element to add
+	 */
+	public void addLast(long value)
+	{
+		if (size == buffer.length)
+			grow();
+		buffer[(head + size) & (buffer.length - 1)] = value;
+		size++;
+	}
+	
+	/**
+	 * Adds all the elements of another deque at the end of this deque,
+	 * keeping their order.
+	 * 
+	 * @param deque
+	 *            the deque containing the elements to add
+	 */
+	public void addAll(IndexDeque deque)
+	{
+		int mask = deque.buffer.length - 1;
+		for (int i = 0; i < deque.size; i++)
+		{
+			addLast(deque.buffer[(deque.head + i) & mask]);
+		}
+	}
+	
+	/**
+	 * Removes and returns the first element of the deque.
+	 * 
+	 * @return the first element of the deque
+	 * @throws NoSuchElementException
+	 *             if the deque is empty
+	 */
+	public long pollFirst()
+	{
+		if (size == 0)
+			throw new NoSuchElementException("Deque is empty");
+		long value = buffer[head];
+		head = (head + 1) & (buffer.length - 1);
+		size--;
+		return value;
+	}
+	
+	/**
+	 * Removes and returns the last element of the deque.
+	 * 
+	 * @return the last element of the deque
+	 * @throws NoSuchElementException
+	 *             if the deque is empty
+	 */
+	public long pollLast()
+	{
+		if (size == 0)
+			throw new NoSuchElementException("Deque is empty");
+		size--;
+		return buffer[(head + size) & (buffer.length - 1)];
+	}
+	
+	/**
+	 * @return true if the deque does not contain any element
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	/**
+	 * @return the number of elements within the deque
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Removes all the elements of the deque, keeping the allocated capacity.
+	 */
+	public void clear()
+	{
+		head = 0;
+		size = 0;
+	}
+	
+	private void grow()
+	{
+		int capacity = buffer.length;
+		long[] newBuffer = new long[capacity * 2];
+		
+		// copy the elements in order, starting at the beginning of the array
+		int n1 = Math.min(size, capacity - head);
+		System.arraycopy(buffer, head, newBuffer, 0, n1);
+		System.arraycopy(buffer, 0, newBuffer, n1, size - n1);
+		
+		buffer = newBuffer;
+		head = 0;
+	}
+}
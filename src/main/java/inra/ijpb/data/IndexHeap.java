@@ -0,0 +1,188 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of linear element indices with floating point priority
+ * values, stored within primitive arrays.
+ * 
+ * Elements with the same priority value are returned in insertion order,
+ * using an insertion counter as secondary key.
+ * 
+ * @see HierarchicalQueue
+ * 
+ * @author Ignacio Arganda-Carreras
+ */
+public class IndexHeap implements IndexPriorityQueue
+{
+	/** The linear index of each element */
+	private int[] indices;
+	/** The priority value of each element */
+	private double[] values;
+	/** The insertion order of each element, used to break ties */
+	private long[] orders;
+	
+	/** The number of elements within the heap */
+	private int size = 0;
+	
+	/** The counter used to number the inserted elements */
+	private long counter = 0;
+
+	/**
+	 * Creates a new empty heap with a default initial capacity.
+	 */
+	public IndexHeap()
+	{
+		this( 256 );
+	}
+	
+	/**
+	 * Creates a new empty heap with the specified initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            the initial number of elements the heap can contain before
+	 *            growing
+	 */
+	public IndexHeap( int initialCapacity )
+	{
+		initialCapacity = Math.max( initialCapacity, 1 );
+		this.indices = new int[initialCapacity];
+		this.values = new double[initialCapacity];
+		this.orders = new long[initialCapacity];
+	}
+
+	@Override
+	public void add( int index, double value )
+	{
+		if ( size == indices.length )
+			grow();
+		
+		final long order = counter++;
+		
+		// sift up the new element from the last position
+		int pos = size++;
+		while ( pos > 0 )
+		{
+			final int parent = (pos - 1) >>> 1;
+			final double parentValue = values[parent];
+			if ( precedes( parentValue, orders[parent], value, order ) )
+				break;
+			indices[pos] = indices[parent];
+			values[pos] = parentValue;
+			orders[pos] = orders[parent];
+			pos = parent;
+		}
+		indices[pos] = index;
+		values[pos] = value;
+		orders[pos] = order;
+	}
+
+	/**
+	 * Compares two elements based on their value, then on their insertion
+	 * order. Values are compared the same way as in
+	 * {@link PixelRecord#compareTo(PixelRecord)}.
+	 */
+	private static final boolean precedes( double value1, long order1, double value2, long order2 )
+	{
+		final int res = Double.compare( value1, value2 );
+		return res < 0 || ( res == 0 && order1 < order2 );
+	}
+
+	private void grow()
+	{
+		final int newCapacity = indices.length * 2;
+		int[] newIndices = new int[newCapacity];
+		double[] newValues = new double[newCapacity];
+		long[] newOrders = new long[newCapacity];
+		System.arraycopy( indices, 0, newIndices, 0, size );
+		System.arraycopy( values, 0, newValues, 0, size );
+		System.arraycopy( orders, 0, newOrders, 0, size );
+		indices = newIndices;
+		values = newValues;
+		orders = newOrders;
+	}
+	
+	@Override
+	public int poll()
+	{
+		if ( size == 0 )
+			throw new NoSuchElementException( "Heap is empty" );
+		
+		final int result = indices[0];
+		
+		// remove last element, and sift it down from the root
+		size--;
+		if ( size > 0 )
+		{
+			final int index = indices[size];
+			final double value = values[size];
+			final long order = orders[size];
+			
+			int pos = 0;
+			final int half = size >>> 1;
+			while ( pos < half )
+			{
+				// identify smallest child
+				int child = 2 * pos + 1;
+				final int right = child + 1;
+				if ( right < size && precedes( values[right], orders[right], values[child], orders[child] ) )
+					child = right;
+				
+				final double childValue = values[child];
+				if ( precedes( value, order, childValue, orders[child] ) )
+					break;
+				
+				indices[pos] = indices[child];
+				values[pos] = childValue;
+				orders[pos] = orders[child];
+				pos = child;
+			}
+			indices[pos] = index;
+			values[pos] = value;
+			orders[pos] = order;
+		}
+		
+		return result;
+	}
+
+	@Override
+	public double minValue()
+	{
+		if ( size == 0 )
+			throw new NoSuchElementException( "Heap is empty" );
+		return values[0];
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+}
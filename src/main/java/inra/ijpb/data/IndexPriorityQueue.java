@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+/**
+ * A priority queue of linear element indices (pixel or voxel indices), stored
+ * without allocating one object per element.
+ * 
+ * Elements are returned by increasing priority value. Elements with the same
+ * priority are returned in the order they were added (FIFO), so that the
+ * processing order is the same as when using a
+ * <code>java.util.PriorityQueue</code> of {@link PixelRecord} or
+ * {@link VoxelRecord}.
+ * 
+ * @see HierarchicalQueue
+ * @see IndexHeap
+ * 
+ * @author Ignacio Arganda-Carreras
+ */
+public interface IndexPriorityQueue
+{
+	/**
+	 * Adds an element index to the queue, with the specified priority.
+	 * 
+	 * @param index
+	 *            the linear index of the element
+	 * @param value
+	 *            the priority value of the element (lower values are
+	 *            retrieved first)
+	 */
+	public void add( int index, double value );
+	
+	/**
+	 * Removes the element with the lowest priority from the queue.
+	 * 
+	 * @return the linear index of the removed element
+	 */
+	public int poll();
+	
+	/**
+	 * Returns the priority value of the element that will be returned by the
+	 * next call to the <code>poll()</code> method.
+	 * 
+	 * @return the lowest priority value within the queue
+	 */
+	public double minValue();
+	
+	/**
+	 * @return the number of elements within the queue
+	 */
+	public int size();
+	
+	/**
+	 * @return true if the queue does not contain any element
+	 */
+	public boolean isEmpty();
+}
@@ -0,0 +1,287 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data.image;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import ij.ImageStack;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.morphology.Strel3D;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Applies a local operator on a 3D image by splitting it into blocks, making
+ * it possible to process images that do not fit into memory.
+ * 
+ * The image is split into a regular grid of blocks. Each block is extended by
+ * a margin in each direction, read from the source image into an ImageStack,
+ * and processed by the operator. Only the voxels within the (non-extended)
+ * block are written into the target image. Blocks are independent, and can
+ * be processed in parallel.
+ * 
+ * The result is identical to the result of the operator applied on the
+ * whole image as long as the value of each voxel depends only on the voxels
+ * within a neighborhood smaller than the margin. For morphological filters
+ * the margin can be computed from the structuring element (see
+ * {@link #footprintMargin(Strel3D)}); it must be doubled for openings and
+ * closings, that combine two elementary operations. Operators with non local
+ * support (distance maps, connected components labeling, watershed...) do
+ * not satisfy this requirement.
+ * 
+ * Source and target can be any implementation of the {@link Image3D}
+ * interface, for example a {@link MappedRawImage3D} for images stored in raw
+ * files larger than the memory.
+ * 
+ * <pre><code>
+ * Strel3D strel = CubeStrel.fromRadius(2);
+ * BlockProcessor3D algo = new BlockProcessor3D(new int[] {128, 128, 64}, BlockProcessor3D.footprintMargin(strel));
+ * algo.setThreadCount(4);
+ * ImageStack result = algo.process(image, block -&gt; strel.dilation(block));
+ * </code></pre>
+ * 
+ * @see MappedRawImage3D
+ * 
+ * @author dlegland
+ */
+public class BlockProcessor3D extends AlgoStub
+{
+	// ==================================================
+	// Static methods
+	
+	/**
+	 * Computes the margin required for applying a dilation or an erosion with
+	 * the specified structuring element on a block, such that the values
+	 * within the block are the same as the ones obtained on the whole image.
+	 * 
+	 * @param strel
+	 *            the structuring element
+	 * @return the margin in each direction
+	 */
+	public static final int[] footprintMargin(Strel3D strel)
+	{
+		int[] size = strel.getSize();
+		int[] offset = strel.getOffset();
+		int[] margin = new int[3];
+		for (int d = 0; d < 3; d++)
+		{
+			margin[d] = max(offset[d], size[d] - 1 - offset[d]);
+		}
+		return margin;
+	}
+	
+	
+	// ==================================================
+	// Class variables
+	
+	/** The size of the blocks in each direction, without margin. */
+	int[] blockSize;
+	
+	/** The number of voxels added on each side of the blocks. */
+	int[] margin;
+	
+	/** The number of threads used to process blocks. */
+	int threadCount = 1;
+	
+	
+	// ==================================================
+	// Constructor
+	
+	/**
+	 * Creates a new block processor.
+	 * 
+	 * @param blockSize
+	 *            the size of the blocks in each direction, without margin
+	 * @param margin
+	 *            the number of voxels added on each side of the blocks
+	 */
+	public BlockProcessor3D(int[] blockSize, int[] margin)
+	{
+		if (blockSize.length != 3 || margin.length != 3)
+		{
+			throw new IllegalArgumentException("Block size and margin must have three elements");
+		}
+		for (int d = 0; d < 3; d++)
+		{
+			if (blockSize[d] < 1)
+			{
+				throw new IllegalArgumentException("Block size must be positive");
+			}
+			if (margin[d] < 0)
+			{
+				throw new IllegalArgumentException("Margin must be positive or zero");
+			}
+		}
+		this.blockSize = blockSize.clone();
+		this.margin = margin.clone();
+	}
+	
+	
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return the number of threads used to process blocks
+	 */
+	public int getThreadCount()
+	{
+		return this.threadCount;
+	}
+	
+	/**
+	 * Sets the number of threads used to process blocks. Each thread holds
+	 * two or more extended blocks in memory.
+	 * 
+	 * @param threadCount
+	 *            the number of threads used to process blocks
+	 */
+	public void setThreadCount(int threadCount)
+	{
+		this.threadCount = max(threadCount, 1);
+	}
+	
+	
+	// ==================================================
+	// Processing methods
+	
+	/**
+	 * Applies the operator on an image stored in memory, and returns the
+	 * result in a new stack with the same type as the input image.
+	 * 
+	 * @param image
+	 *            the image to process
+	 * @param operator
+	 *            the operator to apply on each (extended) block
+	 * @return the result of the operator
+	 */
+	public ImageStack process(ImageStack image, UnaryOperator<ImageStack> operator)
+	{
+		int bitDepth = image.getBitDepth();
+		ImageStack result = ImageStack.create(image.getWidth(), image.getHeight(), image.getSize(), bitDepth);
+		process(Images3D.createWrapper(image), Images3D.createWrapper(result), bitDepth, operator);
+		return result;
+	}
+	
+	/**
+	 * Applies the operator on the source image block by block, and stores the
+	 * result into the target image.
+	 * 
+	 * @param source
+	 *            the image to process
+	 * @param target
+	 *            the image to store the result in, with the same size as the
+	 *            source image
+	 * @param bitDepth
+	 *            the bit depth of the stacks used to store the blocks passed
+	 *            to the operator (8, 16 or 32)
+	 * @param operator
+	 *            the operator to apply on each (extended) block. The result
+	 *            must have the same size as the block.
+	 */
+	public void process(Image3D source, Image3D target, int bitDepth, UnaryOperator<ImageStack> operator)
+	{
+		int sizeX = source.getSize(0);
+		int sizeY = source.getSize(1);
+		int sizeZ = source.getSize(2);
+		if (target.getSize(0) != sizeX || target.getSize(1) != sizeY || target.getSize(2) != sizeZ)
+		{
+			throw new IllegalArgumentException("Source and target images must have the same size");
+		}
+		
+		// number of blocks in each direction
+		int nbx = (sizeX + blockSize[0] - 1) / blockSize[0];
+		int nby = (sizeY + blockSize[1] - 1) / blockSize[1];
+		int nbz = (sizeZ + blockSize[2] - 1) / blockSize[2];
+		int nBlocks = nbx * nby * nbz;
+		
+		AtomicInteger counter = new AtomicInteger(0);
+		this.fireStatusChanged(this, "Process " + nBlocks + " blocks");
+		ParallelSlabs.process(nBlocks, threadCount, (i0, i1) -> {
+			for (int i = i0; i < i1; i++)
+			{
+				int bx = i % nbx;
+				int by = (i / nbx) % nby;
+				int bz = i / (nbx * nby);
+				processBlock(source, target, bitDepth, operator, bx, by, bz);
+				this.fireProgressChanged(this, counter.incrementAndGet(), nBlocks);
+			}
+		});
+		this.fireProgressChanged(this, 1, 1);
+	}
+	
+	private void processBlock(Image3D source, Image3D target, int bitDepth, UnaryOperator<ImageStack> operator, int bx, int by, int bz)
+	{
+		int sizeX = source.getSize(0);
+		int sizeY = source.getSize(1);
+		int sizeZ = source.getSize(2);
+		
+		// bounds of the block within the image
+		int x0 = bx * blockSize[0];
+		int y0 = by * blockSize[1];
+		int z0 = bz * blockSize[2];
+		int x1 = min(x0 + blockSize[0], sizeX);
+		int y1 = min(y0 + blockSize[1], sizeY);
+		int z1 = min(z0 + blockSize[2], sizeZ);
+		
+		// bounds of the extended block, clamped to image bounds
+		int ex0 = max(x0 - margin[0], 0);
+		int ey0 = max(y0 - margin[1], 0);
+		int ez0 = max(z0 - margin[2], 0);
+		int ex1 = min(x1 + margin[0], sizeX);
+		int ey1 = min(y1 + margin[1], sizeY);
+		int ez1 = min(z1 + margin[2], sizeZ);
+		
+		// read the extended block
+		ImageStack block = ImageStack.create(ex1 - ex0, ey1 - ey0, ez1 - ez0, bitDepth);
+		for (int z = ez0; z < ez1; z++)
+		{
+			for (int y = ey0; y < ey1; y++)
+			{
+				for (int x = ex0; x < ex1; x++)
+				{
+					block.setVoxel(x - ex0, y - ey0, z - ez0, source.getValue(x, y, z));
+				}
+			}
+		}
+		
+		ImageStack res = operator.apply(block);
+		if (res.getWidth() != block.getWidth() || res.getHeight() != block.getHeight() || res.getSize() != block.getSize())
+		{
+			throw new RuntimeException("The operator must return a stack with the same size as the block");
+		}
+		
+		// write the interior of the block
+		for (int z = z0; z < z1; z++)
+		{
+			for (int y = y0; y < y1; y++)
+			{
+				for (int x = x0; x < x1; x++)
+				{
+					target.setValue(x, y, z, res.getVoxel(x - ex0, y - ey0, z - ez0));
+				}
+			}
+		}
+	}
+}
@@ -145,4 +145,20 @@ public class ByteStackWrapper implements Image3D
 	{
 		setValue(pos.getX(), pos.getY(), pos.getZ(), value);
 	}
+
+	@Override
+	public double getValueAt(int index, int z)
+	{
+		return (double) (slices[z][index] & 0x00FF);
+	}
+
+	@Override
+	public void setValueAt(int index, int z, double value)
+	{
+		if (value > 255)
+			value = 255;
+		else if (value < 0)
+			value = 0;
+		slices[z][index] = (byte) (value + .5);
+	}
 }
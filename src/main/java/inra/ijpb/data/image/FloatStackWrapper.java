@@ -138,4 +138,16 @@ public class FloatStackWrapper implements Image3D
 		setValue(pos.getX(), pos.getY(), pos.getZ(), value);
 	}
 
+	@Override
+	public double getValueAt(int index, int z)
+	{
+		return slices[z][index];
+	}
+
+	@Override
+	public void setValueAt(int index, int z, double value)
+	{
+		slices[z][index] = (float) value;
+	}
+
 }
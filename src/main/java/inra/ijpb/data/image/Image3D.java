@@ -26,7 +26,8 @@ import inra.ijpb.data.Cursor3D;
 /**
  * Interface for accessing the values of a 3D stack. Implementations should
  * provide efficient access to the inner data, without checking coordinate
- * bounds. Data can be accessed either as integer or as double. 
+ * bounds. Data can be accessed either as integer or as double, using either
+ * (x,y,z) coordinates or the linear index of the voxel within its slice. 
  * 
  * <p>
  * Example of use:
@@ -125,4 +126,38 @@ public interface Image3D
 	 *            the new value at the specified position
 	 */
 	public void setValue(Cursor3D pos, double  value);
+	
+	/**
+	 * Returns the value of the voxel identified by its linear index within
+	 * the specified slice, as a double. The linear index is given by
+	 * <code>y * sizeX + x</code>.
+	 * 
+	 * @param index
+	 *            the linear index of the voxel within the slice
+	 * @param z
+	 *            the z-coordinate of the voxel (0-indexed)
+	 * @return the value at the specified position
+	 */
+	public default double getValueAt(int index, int z)
+	{
+		int sizeX = getSize(0);
+		return getValue(index % sizeX, index / sizeX, z);
+	}
+	
+	/**
+	 * Changes the value of the voxel identified by its linear index within
+	 * the specified slice, using a double to specify the new value.
+	 * 
+	 * @param index
+	 *            the linear index of the voxel within the slice
+	 * @param z
+	 *            the z-coordinate of the voxel (0-indexed)
+	 * @param value
+	 *            the new value at the specified position
+	 */
+	public default void setValueAt(int index, int z, double value)
+	{
+		int sizeX = getSize(0);
+		setValue(index % sizeX, index / sizeX, z, value);
+	}
 }
@@ -443,4 +443,220 @@ public class Images3D
 		return slices;
 	}
 	
+	/**
+	 * Copies a range of values from the pixel array of a slice into an
+	 * integer buffer. The type of the array is identified once, and the copy
+	 * is performed by a loop specialized for the corresponding data type.
+	 * Floating point values are truncated, as done by casting the result of
+	 * the <code>getVoxel</code> method, and only the 24 lower bits of RGB
+	 * values are kept.
+	 * 
+	 * @param pixels
+	 *            the pixel array of a slice (byte[], short[], float[] or int[])
+	 * @param offset
+	 *            the linear index of the first value to read
+	 * @param buffer
+	 *            the array to fill with integer values
+	 * @param length
+	 *            the number of values to copy
+	 * @return the buffer array
+	 */
+	public static final int[] readInts(Object pixels, int offset, int[] buffer, int length)
+	{
+		if (pixels instanceof byte[])
+		{
+			byte[] array = (byte[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = array[offset + i] & 0x00FF;
+			}
+		}
+		else if (pixels instanceof short[])
+		{
+			short[] array = (short[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = array[offset + i] & 0x00FFFF;
+			}
+		}
+		else if (pixels instanceof float[])
+		{
+			float[] array = (float[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = (int) array[offset + i];
+			}
+		}
+		else if (pixels instanceof int[])
+		{
+			int[] array = (int[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = array[offset + i] & 0x00FFFFFF;
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Requires a byte, short, float or int pixel array");
+		}
+		return buffer;
+	}
+	
+	/**
+	 * Copies integer values into a range of the pixel array of a slice, using
+	 * a loop specialized for the data type of the array. Values are clamped to
+	 * the range of the data type for byte, short and RGB (24 bits) arrays.
+	 * 
+	 * @param buffer
+	 *            the array containing the values to write
+	 * @param pixels
+	 *            the pixel array of a slice (byte[], short[], float[] or int[])
+	 * @param offset
+	 *            the linear index of the first value to write
+	 * @param length
+	 *            the number of values to copy
+	 */
+	public static final void writeInts(int[] buffer, Object pixels, int offset, int length)
+	{
+		if (pixels instanceof byte[])
+		{
+			byte[] array = (byte[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = (byte) Math.min(Math.max(buffer[i], 0), 255);
+			}
+		}
+		else if (pixels instanceof short[])
+		{
+			short[] array = (short[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = (short) Math.min(Math.max(buffer[i], 0), 65535);
+			}
+		}
+		else if (pixels instanceof float[])
+		{
+			float[] array = (float[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = buffer[i];
+			}
+		}
+		else if (pixels instanceof int[])
+		{
+			int[] array = (int[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = Math.min(Math.max(buffer[i], 0), 0x00FFFFFF);
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Requires a byte, short, float or int pixel array");
+		}
+	}
+	
+	/**
+	 * Copies a range of values from the pixel array of a slice into a float
+	 * buffer, using a loop specialized for the data type of the array. Only
+	 * the 24 lower bits of RGB values are kept.
+	 * 
+	 * @param pixels
+	 *            the pixel array of a slice (byte[], short[], float[] or int[])
+	 * @param offset
+	 *            the linear index of the first value to read
+	 * @param buffer
+	 *            the array to fill with float values
+	 * @param length
+	 *            the number of values to copy
+	 * @return the buffer array
+	 */
+	public static final float[] readFloats(Object pixels, int offset, float[] buffer, int length)
+	{
+		if (pixels instanceof byte[])
+		{
+			byte[] array = (byte[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = array[offset + i] & 0x00FF;
+			}
+		}
+		else if (pixels instanceof short[])
+		{
+			short[] array = (short[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = array[offset + i] & 0x00FFFF;
+			}
+		}
+		else if (pixels instanceof float[])
+		{
+			System.arraycopy((float[]) pixels, offset, buffer, 0, length);
+		}
+		else if (pixels instanceof int[])
+		{
+			int[] array = (int[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				buffer[i] = array[offset + i] & 0x00FFFFFF;
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Requires a byte, short, float or int pixel array");
+		}
+		return buffer;
+	}
+	
+	/**
+	 * Copies float values into a range of the pixel array of a slice, using a
+	 * loop specialized for the data type of the array. For byte, short and RGB
+	 * (24 bits) arrays, values are clamped to the range of the data type and
+	 * rounded.
+	 * 
+	 * @param buffer
+	 *            the array containing the values to write
+	 * @param pixels
+	 *            the pixel array of a slice (byte[], short[], float[] or int[])
+	 * @param offset
+	 *            the linear index of the first value to write
+	 * @param length
+	 *            the number of values to copy
+	 */
+	public static final void writeFloats(float[] buffer, Object pixels, int offset, int length)
+	{
+		if (pixels instanceof byte[])
+		{
+			byte[] array = (byte[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = (byte) (Math.min(Math.max(buffer[i], 0f), 255f) + 0.5f);
+			}
+		}
+		else if (pixels instanceof short[])
+		{
+			short[] array = (short[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = (short) (Math.min(Math.max(buffer[i], 0f), 65535f) + 0.5f);
+			}
+		}
+		else if (pixels instanceof float[])
+		{
+			System.arraycopy(buffer, 0, (float[]) pixels, offset, length);
+		}
+		else if (pixels instanceof int[])
+		{
+			int[] array = (int[]) pixels;
+			for (int i = 0; i < length; i++)
+			{
+				array[offset + i] = Math.min((int) (Math.max(buffer[i], 0f) + 0.5f), 0x00FFFFFF);
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Requires a byte, short, float or int pixel array");
+		}
+	}
+	
 }
@@ -0,0 +1,346 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data.image;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import inra.ijpb.data.Cursor3D;
+
+/**
+ * A 3D image whose voxels are stored within a raw (headerless) file, and
+ * accessed through memory-mapping.
+ * 
+ * The file content is mapped in several chunks, each chunk containing an
+ * integer number of slices, making it possible to access files larger than
+ * 2GB, and larger than the available heap. Voxels are stored in x-y-z order,
+ * using 8-bits or 16-bits unsigned integers, or 32-bits floating point
+ * values.
+ * 
+ * Typical usage is to use a mapped image as source or as target of a
+ * block-wise processing:
+ * <pre><code>
+ * MappedRawImage3D source = MappedRawImage3D.open(new File("input.raw"), 2000, 2000, 1000, 8, true);
+ * MappedRawImage3D target = MappedRawImage3D.create(new File("output.raw"), 2000, 2000, 1000, 8, true);
+ * Strel3D strel = CubeStrel.fromRadius(3);
+ * BlockProcessor3D algo = new BlockProcessor3D(new int[] {256, 256, 256}, BlockProcessor3D.footprintMargin(strel));
+ * algo.process(source, target, 8, block -&gt; strel.dilation(block));
+ * target.close();
+ * source.close();
+ * </code></pre>
+ * 
+ * @see BlockProcessor3D
+ * 
+ * @author dlegland
+ */
+public class MappedRawImage3D implements Image3D, Closeable
+{
+	// ==================================================
+	// Static factories
+	
+	/**
+	 * Opens an existing raw file in read-only mode.
+	 * 
+	 * @param file
+	 *            the file containing voxel values
+	 * @param sizeX
+	 *            the size of the image in the X direction
+	 * @param sizeY
+	 *            the size of the image in the Y direction
+	 * @param sizeZ
+	 *            the size of the image in the Z direction
+	 * @param bitDepth
+	 *            the number of bits used to store each voxel (8, 16 or 32)
+	 * @param littleEndian
+	 *            the byte order of multi-byte values
+	 * @return a new read-only image mapped on the file content
+	 * @throws IOException
+	 *             if the file can not be opened or is too small
+	 */
+	public static final MappedRawImage3D open(File file, int sizeX, int sizeY, int sizeZ, int bitDepth, boolean littleEndian) throws IOException
+	{
+		return new MappedRawImage3D(file, sizeX, sizeY, sizeZ, bitDepth, littleEndian, false);
+	}
+	
+	/**
+	 * Creates (or overwrites) a raw file with the specified dimensions, and
+	 * maps it in read-write mode. The voxels of a new file are initialized to
+	 * zero.
+	 * 
+	 * @param file
+	 *            the file that will contain voxel values
+	 * @param sizeX
+	 *            the size of the image in the X direction
+	 * @param sizeY
+	 *            the size of the image in the Y direction
+	 * @param sizeZ
+	 *            the size of the image in the Z direction
+	 * @param bitDepth
+	 *            the number of bits used to store each voxel (8, 16 or 32)
+	 * @param littleEndian
+	 *            the byte order of multi-byte values
+	 * @return a new writable image mapped on the file content
+	 * @throws IOException
+	 *             if the file can not be created
+	 */
+	public static final MappedRawImage3D create(File file, int sizeX, int sizeY, int sizeZ, int bitDepth, boolean littleEndian) throws IOException
+	{
+		return new MappedRawImage3D(file, sizeX, sizeY, sizeZ, bitDepth, littleEndian, true);
+	}
+	
+	
+	// ==================================================
+	// Class variables
+	
+	int sizeX;
+	int sizeY;
+	int sizeZ;
+	
+	int bitDepth;
+	
+	/** The number of bytes used to store a single voxel. */
+	int bytesPerVoxel;
+	
+	/** The number of bytes used to store a single slice. */
+	long bytesPerSlice;
+	
+	/** The number of slices stored in each mapped chunk. */
+	int slicesPerChunk;
+	
+	/** The file channel, kept to be closed later. */
+	FileChannel channel;
+	
+	/** The mapped chunks of the file. */
+	MappedByteBuffer[] chunks;
+	
+	boolean writable;
+	
+	
+	// ==================================================
+	// Constructor
+	
+	private MappedRawImage3D(File file, int sizeX, int sizeY, int sizeZ, int bitDepth, boolean littleEndian, boolean writable) throws IOException
+	{
+		if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0)
+		{
+			throw new IllegalArgumentException("Image dimensions must be positive");
+		}
+		if (bitDepth != 8 && bitDepth != 16 && bitDepth != 32)
+		{
+			throw new IllegalArgumentException("Bit depth must be 8, 16 or 32, not " + bitDepth);
+		}
+		
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.bitDepth = bitDepth;
+		this.writable = writable;
+		
+		this.bytesPerVoxel = bitDepth / 8;
+		this.bytesPerSlice = ((long) sizeX) * sizeY * bytesPerVoxel;
+		if (bytesPerSlice > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Slices larger than 2GB are not supported");
+		}
+		this.slicesPerChunk = (int) min(sizeZ, Integer.MAX_VALUE / bytesPerSlice);
+		long fileSize = bytesPerSlice * sizeZ;
+		
+		RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+		try
+		{
+			if (writable)
+			{
+				raf.setLength(fileSize);
+			}
+			else if (raf.length() < fileSize)
+			{
+				throw new IOException("File " + file.getName() + " is too small: expected at least "
+						+ fileSize + " bytes, found " + raf.length());
+			}
+			this.channel = raf.getChannel();
+			
+			// map the file content by chunks containing an integer number of slices
+			FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+			ByteOrder order = littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+			int nChunks = (sizeZ + slicesPerChunk - 1) / slicesPerChunk;
+			this.chunks = new MappedByteBuffer[nChunks];
+			for (int i = 0; i < nChunks; i++)
+			{
+				long z0 = ((long) i) * slicesPerChunk;
+				long nSlices = min(slicesPerChunk, sizeZ - z0);
+				chunks[i] = channel.map(mode, z0 * bytesPerSlice, nSlices * bytesPerSlice);
+				chunks[i].order(order);
+			}
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			raf.close();
+			throw ex;
+		}
+	}
+	
+	
+	// ==================================================
+	// General methods
+
+	/**
+	 * @return the number of bits used to store each voxel (8, 16 or 32)
+	 */
+	public int getBitDepth()
+	{
+		return this.bitDepth;
+	}
+	
+	/**
+	 * @return true if the image was opened in read-write mode
+	 */
+	public boolean isWritable()
+	{
+		return this.writable;
+	}
+	
+	/**
+	 * Forces the modifications of the voxel values to be written to the
+	 * storage device.
+	 */
+	public void force()
+	{
+		if (writable)
+		{
+			for (MappedByteBuffer chunk : chunks)
+			{
+				chunk.force();
+			}
+		}
+	}
+	
+	/**
+	 * Writes pending modifications and closes the underlying file channel.
+	 * Mapped memory is released by the garbage collector once the image is not
+	 * referenced any more.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		force();
+		channel.close();
+	}
+	
+	/**
+	 * Returns the index of the first byte of the voxel within its chunk.
+	 */
+	private int byteIndex(int x, int y, int z)
+	{
+		int zc = z % slicesPerChunk;
+		return (int) (zc * bytesPerSlice + (((long) y) * sizeX + x) * bytesPerVoxel);
+	}
+	
+	
+	// ==================================================
+	// Implementation of the Image3D interface
+
+	@Override
+	public int getSize(int dim)
+	{
+		switch(dim)
+		{
+		case 0: return this.sizeX;
+		case 1: return this.sizeY;
+		case 2: return this.sizeZ;
+		default:
+			throw new IllegalArgumentException("Dimension must be comprised between 0 and 2, not " + dim);
+		}
+	}
+
+	@Override
+	public int get(int x, int y, int z)
+	{
+		MappedByteBuffer chunk = chunks[z / slicesPerChunk];
+		int index = byteIndex(x, y, z);
+		switch (bitDepth)
+		{
+		case 8: return chunk.get(index) & 0x00FF;
+		case 16: return chunk.getShort(index) & 0x00FFFF;
+		default: return (int) chunk.getFloat(index);
+		}
+	}
+
+	@Override
+	public void set(int x, int y, int z, int value)
+	{
+		MappedByteBuffer chunk = chunks[z / slicesPerChunk];
+		int index = byteIndex(x, y, z);
+		switch (bitDepth)
+		{
+		case 8: chunk.put(index, (byte) max(min(value, 255), 0)); break;
+		case 16: chunk.putShort(index, (short) max(min(value, 65535), 0)); break;
+		default: chunk.putFloat(index, (float) value);
+		}
+	}
+
+	@Override
+	public double getValue(int x, int y, int z)
+	{
+		MappedByteBuffer chunk = chunks[z / slicesPerChunk];
+		int index = byteIndex(x, y, z);
+		switch (bitDepth)
+		{
+		case 8: return chunk.get(index) & 0x00FF;
+		case 16: return chunk.getShort(index) & 0x00FFFF;
+		default: return chunk.getFloat(index);
+		}
+	}
+
+	@Override
+	public double getValue(Cursor3D pos)
+	{
+		return getValue(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	public void setValue(int x, int y, int z, double value)
+	{
+		MappedByteBuffer chunk = chunks[z / slicesPerChunk];
+		int index = byteIndex(x, y, z);
+		// clamp and round integer values, as done by ImageStack.setVoxel
+		switch (bitDepth)
+		{
+		case 8: chunk.put(index, (byte) (max(min(value, 255), 0) + .5)); break;
+		case 16: chunk.putShort(index, (short) (max(min(value, 65535), 0) + .5)); break;
+		default: chunk.putFloat(index, (float) value);
+		}
+	}
+
+	@Override
+	public void setValue(Cursor3D pos, double value)
+	{
+		setValue(pos.getX(), pos.getY(), pos.getZ(), value);
+	}
+}
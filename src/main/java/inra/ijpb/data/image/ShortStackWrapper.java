@@ -140,4 +140,16 @@ public class ShortStackWrapper implements Image3D
 		setValue(pos.getX(), pos.getY(), pos.getZ(), value);
 	}
 
+	@Override
+	public double getValueAt(int index, int z)
+	{
+		return (double) (slices[z][index] & 0x00FFFF);
+	}
+
+	@Override
+	public void setValueAt(int index, int z, double value)
+	{
+		slices[z][index] = (short) max(min(value, 65535), 0);
+	}
+
 }
@@ -46,27 +46,49 @@ public class FeretDiameters
 	 */
 	public final static PointPair2D maxFeretDiameter(ArrayList<? extends Point2D> points)
 	{
+		return maxFeretDiameter(new PointList2D(points));
+	}
+	
+	/**
+	 * Computes Maximum Feret diameter of a set of points whose coordinates
+	 * are packed within a PointList2D.
+	 * 
+	 * @param points
+	 *            a collection of planar points
+	 * @return the maximum Feret diameter of the point set
+	 */
+	public final static PointPair2D maxFeretDiameter(PointList2D points)
+	{
+		double[] coords = points.coords;
+		
+		// compare squared distances, and keep the indices of the points
 		double distMax = Double.NEGATIVE_INFINITY;
-		PointPair2D maxDiam = null;
+		int ind1 = -1, ind2 = -1;
 		
 		int n = points.size();
 		for (int i1 = 0; i1 < n - 1; i1++)
 		{
-			Point2D p1 = points.get(i1);
+			double x1 = coords[2 * i1];
+			double y1 = coords[2 * i1 + 1];
 			for (int i2 = i1 + 1; i2 < n; i2++)
 			{
-				Point2D p2 = points.get(i2);
-		
-				double dist = p1.distance(p2);
+				double dx = coords[2 * i2] - x1;
+				double dy = coords[2 * i2 + 1] - y1;
+				double dist = dx * dx + dy * dy;
 				if (dist > distMax)
 				{
-					maxDiam = new PointPair2D(p1, p2);
+					ind1 = i1;
+					ind2 = i2;
 					distMax = dist;
 				}
 			}
 		}
-	
-		return maxDiam;
+		
+		if (ind1 < 0)
+		{
+			return null;
+		}
+		return new PointPair2D(points.get(ind1), points.get(ind2));
 	}
 	
 	/**
@@ -84,31 +106,52 @@ public class FeretDiameters
 	 */
 	public final static AngleDiameterPair minFeretDiameter(ArrayList<? extends Point2D> points)
 	{
-		// first compute convex hull to simplify
+		return minFeretDiameter(new PointList2D(points));
+	}
+	
+	/**
+	 * Computes Minimum Feret diameter of a set of points whose coordinates
+	 * are packed within a PointList2D, and returns both the diameter and the
+	 * corresponding angle. The points are expected to be the ordered vertices
+	 * of a convex polygon.
+	 * 
+	 * @param points
+	 *            a collection of planar points
+	 * @return the minimum Feret diameter of the point set
+	 */
+	public final static AngleDiameterPair minFeretDiameter(PointList2D points)
+	{
 		int n = points.size();
+		double[] coords = points.coords;
 
 		// initialize result
 		double widthMin = Double.POSITIVE_INFINITY;
 		double angleMin = 0;
-		StraightLine2D line;
 
 		for (int i = 0; i < n; i++)
 		{
-			Point2D p1 = points.get(i);
-			Point2D p2 = points.get((i + 1) % n);
+			int i2 = (i + 1) % n;
+			double x0 = coords[2 * i];
+			double y0 = coords[2 * i + 1];
+			double dx = coords[2 * i2] - x0;
+			double dy = coords[2 * i2 + 1] - y0;
 			
 			// avoid degenerated lines
-			if (p1.distance(p2) < 1e-12)
+			double delta = dx * dx + dy * dy;
+			if (Math.sqrt(delta) < 1e-12)
 			{
 				continue;
 			}
 
-			// Compute the width for this polygon edge
-			line = new StraightLine2D(p1, p2);
+			// Compute the width for this polygon edge, as the largest distance
+			// between a point and the line supporting the edge
 			double width = 0;
-			for (Point2D p : points)
+			for (int j = 0; j < n; j++)
 			{
-				double dist = line.distance(p);
+				double xDiff = coords[2 * j] - x0;
+				double yDiff = coords[2 * j + 1] - y0;
+				double pos = (xDiff * dx + yDiff * dy) / delta;
+				double dist = Math.hypot(pos * dx - xDiff, pos * dy - yDiff);
 				width = Math.max(width, dist);
 			}
 			
@@ -116,8 +159,6 @@ public class FeretDiameters
 			if (width < widthMin)
 			{
 				widthMin = width;
-				double dx = p2.getX() - p1.getX();
-				double dy = p2.getY() - p1.getY();
 				angleMin = Math.atan2(dy, dx);
 			}
 		}
@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.geometry;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A list of planar points whose coordinates are packed within a single array
+ * of double values, in the order x0, y0, x1, y1... Avoids the allocation of
+ * one object per point when processing large sets of points, for example the
+ * boundary points of regions within label images.
+ * 
+ * @see PointList3D
+ * @see Polygons2D#convexHull(PointList2D)
+ * @see FeretDiameters#maxFeretDiameter(PointList2D)
+ * 
+ * @author dlegland
+ *
+ */
+public class PointList2D
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The packed coordinates of the points.
+	 */
+	double[] coords;
+	
+	/**
+	 * The number of points within the list.
+	 */
+	int size = 0;
+	
+	
+	// ==================================================
+	// Constructors
+	
+	/**
+	 * Creates a new empty list of points.
+	 */
+	public PointList2D()
+	{
+		this(16);
+	}
+	
+	/**
+	 * Creates a new empty list of points with the specified initial capacity.
+	 * 
+	 * @param capacity
+	 *            the number of points the list can contain before being
+	 *            resized
+	 */
+	public PointList2D(int capacity)
+	{
+		this.coords = new double[2 * Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Creates a new list of points containing the coordinates of the points
+	 * within the specified collection.
+	 * 
+	 * @param points
+	 *            a collection of planar points
+	 */
+	public PointList2D(Collection<? extends Point2D> points)
+	{
+		this(points.size());
+		for (Point2D p : points)
+		{
+			add(p.getX(), p.getY());
+		}
+	}
+	
+	
+	// ==================================================
+	// Methods
+	
+	/**
+	 * Adds a new point at the end of this list.
+	 * 
+	 * @param x
+	 *            the x-coordinate of the point
+	 * @param y
+	 *            the y-coordinate of the point
+	 */
+	public void add(double x, double y)
+	{
+		if (2 * size == coords.length)
+		{
+			coords = Arrays.copyOf(coords, coords.length * 2);
+		}
+		coords[2 * size] = x;
+		coords[2 * size + 1] = y;
+		size++;
+	}
+	
+	/**
+	 * Changes the coordinates of a point within this list.
+	 * 
+	 * @param index
+	 *            the index of the point
+	 * @param x
+	 *            the new x-coordinate of the point
+	 * @param y
+	 *            the new y-coordinate of the point
+	 */
+	public void set(int index, double x, double y)
+	{
+		checkIndex(index);
+		coords[2 * index] = x;
+		coords[2 * index + 1] = y;
+	}
+	
+	/**
+	 * @return the number of points within this list
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the x-coordinate of the point
+	 */
+	public double getX(int index)
+	{
+		checkIndex(index);
+		return coords[2 * index];
+	}
+	
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the y-coordinate of the point
+	 */
+	public double getY(int index)
+	{
+		checkIndex(index);
+		return coords[2 * index + 1];
+	}
+	
+	/**
+	 * Creates a new Point2D instance corresponding to a point of this list.
+	 * 
+	 * @param index
+	 *            the index of the point
+	 * @return a new point with the coordinates of the point at the specified
+	 *         index
+	 */
+	public Point2D get(int index)
+	{
+		checkIndex(index);
+		return new Point2D.Double(coords[2 * index], coords[2 * index + 1]);
+	}
+	
+	/**
+	 * Converts this list into a list of Point2D instances.
+	 * 
+	 * @return a new list containing one point for each point of this list
+	 */
+	public ArrayList<Point2D> toArrayList()
+	{
+		ArrayList<Point2D> res = new ArrayList<Point2D>(size);
+		for (int i = 0; i < size; i++)
+		{
+			res.add(new Point2D.Double(coords[2 * i], coords[2 * i + 1]));
+		}
+		return res;
+	}
+	
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A list of 3D points whose coordinates are packed within a single array
+ * of double values, in the order x0, y0, z0, x1, y1, z1... Avoids the allocation of
+ * one object per point when processing large sets of points, for example the
+ * boundary points of regions within label images.
+ * 
+ * @see PointList2D
+ * @see QuickHull3D#convexHullVertexIndices(PointList3D)
+ * 
+ * @author dlegland
+ *
+ */
+public class PointList3D
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The packed coordinates of the points.
+	 */
+	double[] coords;
+	
+	/**
+	 * The number of points within the list.
+	 */
+	int size = 0;
+	
+	
+	// ==================================================
+	// Constructors
+	
+	/**
+	 * Creates a new empty list of points.
+	 */
+	public PointList3D()
+	{
+		this(16);
+	}
+	
+	/**
+	 * Creates a new empty list of points with the specified initial capacity.
+	 * 
+	 * @param capacity
+	 *            the number of points the list can contain before being
+	 *            resized
+	 */
+	public PointList3D(int capacity)
+	{
+		this.coords = new double[3 * Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Creates a new list of points containing the coordinates of the points
+	 * within the specified collection.
+	 * 
+	 * @param points
+	 *            a collection of 3D points
+	 */
+	public PointList3D(Collection<? extends Point3D> points)
+	{
+		this(points.size());
+		for (Point3D p : points)
+		{
+			add(p.getX(), p.getY(), p.getZ());
+		}
+	}
+	
+	
+	// ==================================================
+	// Methods
+	
+	/**
+	 * Adds a new point at the end of this list.
+	 * 
+	 * @param x
+	 *            the x-coordinate of the point
+	 * @param y
+	 *            the y-coordinate of the point
+	 * @param z
+	 *            the z-coordinate of the point
+	 */
+	public void add(double x, double y, double z)
+	{
+		if (3 * size == coords.length)
+		{
+			coords = Arrays.copyOf(coords, coords.length * 2);
+		}
+		coords[3 * size] = x;
+		coords[3 * size + 1] = y;
+		coords[3 * size + 2] = z;
+		size++;
+	}
+	
+	/**
+	 * Changes the coordinates of a point within this list.
+	 * 
+	 * @param index
+	 *            the index of the point
+	 * @param x
+	 *            the new x-coordinate of the point
+	 * @param y
+	 *            the new y-coordinate of the point
+	 * @param z
+	 *            the new z-coordinate of the point
+	 */
+	public void set(int index, double x, double y, double z)
+	{
+		checkIndex(index);
+		coords[3 * index] = x;
+		coords[3 * index + 1] = y;
+		coords[3 * index + 2] = z;
+	}
+	
+	/**
+	 * @return the number of points within this list
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the x-coordinate of the point
+	 */
+	public double getX(int index)
+	{
+		checkIndex(index);
+		return coords[3 * index];
+	}
+	
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the y-coordinate of the point
+	 */
+	public double getY(int index)
+	{
+		checkIndex(index);
+		return coords[3 * index + 1];
+	}
+	
+	/**
+	 * @param index
+	 *            the index of the point
+	 * @return the z-coordinate of the point
+	 */
+	public double getZ(int index)
+	{
+		checkIndex(index);
+		return coords[3 * index + 2];
+	}
+	
+	/**
+	 * Creates a new Point3D instance corresponding to a point of this list.
+	 * 
+	 * @param index
+	 *            the index of the point
+	 * @return a new point with the coordinates of the point at the specified
+	 *         index
+	 */
+	public Point3D get(int index)
+	{
+		checkIndex(index);
+		return new Point3D(coords[3 * index], coords[3 * index + 1], coords[3 * index + 2]);
+	}
+	
+	/**
+	 * Converts this list into a list of Point3D instances.
+	 * 
+	 * @return a new list containing one point for each point of this list
+	 */
+	public ArrayList<Point3D> toArrayList()
+	{
+		ArrayList<Point3D> res = new ArrayList<Point3D>(size);
+		for (int i = 0; i < size; i++)
+		{
+			res.add(new Point3D(coords[3 * i], coords[3 * i + 1], coords[3 * i + 2]));
+		}
+		return res;
+	}
+	
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -60,9 +60,24 @@ public class Polygons2D
 	 * @return the convex hull of the points, as a list of ordered vertices
 	 */
 	public static final Polygon2D convexHull(ArrayList<? extends Point2D> points)
+	{
+		return convexHull(new PointList2D(points));
+	}
+
+	/**
+	 * Computes the convex hull of a set of points whose coordinates are packed
+	 * within a PointList2D, using the same algorithm as
+	 * {@link #convexHull(ArrayList)}.
+	 * 
+	 * @param points
+	 *            a set of points coordinates in the 2D space
+	 * @return the convex hull of the points, as a list of ordered vertices
+	 */
+	public static final Polygon2D convexHull(PointList2D points)
 	{
 		// Get polygon info
 		int n = points.size();
+		double[] coords = points.coords;
 		
 		// index of left-most vertex of horizontal line with smallest y
 		int pStart = 0;
@@ -72,19 +87,18 @@ public class Polygons2D
 		// Iterate over vertices to identify index of point with lowest y-coord.
 		for (int i = 0; i < n; i++)
 		{
-			Point2D vertex = points.get(i);
-			double y = vertex.getY();
+			double y = coords[2 * i + 1];
 
 			// update lowest vertex index
 			if (y < ymin)
 			{
 				ymin = y;
 				pStart = i;
-				smallestX = vertex.getX();
+				smallestX = coords[2 * i];
 			}
 			else if (y == ymin)
 			{
-				double x = vertex.getX();
+				double x = coords[2 * i];
 				if (x < smallestX)
 				{
 					smallestX = x;
@@ -104,23 +118,20 @@ public class Polygons2D
 		do
 		{
 			// coordinates of current convex hull vertex
-			Point2D p1 = points.get(ip1);
-			double x1 = p1.getX();
-			double y1 = p1.getY();
+			double x1 = coords[2 * ip1];
+			double y1 = coords[2 * ip1 + 1];
 			
 			// coordinates of next vertex candidate
 			int ip2 = (ip1 + 1) % n;
-			Point2D p2 = points.get(ip2);
-			double x2 = p2.getX();
-			double y2 = p2.getY();
+			double x2 = coords[2 * ip2];
+			double y2 = coords[2 * ip2 + 1];
 	
 			// find the next "wrapping" vertex by computing oriented angle
 			int ip3 = (ip2 + 1) % n;
 			do
 			{
-				Point2D p3 = points.get(ip3);
-				double x3 = p3.getX();
-				double y3 = p3.getY();
+				double x3 = coords[2 * ip3];
+				double y3 = coords[2 * ip3 + 1];
 				
 				// if V1-V2-V3 is oriented CW, use V3 as next wrapping candidate
 				double det = x1 * (y2 - y3) - y1 * (x2 - x3) + (y3 * x2 - y2 * x3);
@@ -0,0 +1,703 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.geometry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Computes the convex hull of a set of 3D points using the QuickHull
+ * algorithm.
+ * 
+ * <p>
+ * The convex hull is represented by a set of triangular faces. Coplanar
+ * faces are not merged, and points located on the boundary of the hull
+ * without being extreme points are discarded. Orientation tests are exact
+ * when the coordinates of the points are integer (or half-integer) values
+ * with moderate amplitude, as it is the case for the corners of voxels.
+ * </p>
+ * 
+ * <p>
+ * Example of use:
+ * <pre><code>
+ * ArrayList&lt;Point3D&gt; points = ...;
+ * int[] inds = QuickHull3D.convexHullVertexIndices(points);
+ * </code></pre>
+ * 
+ * @see Polygons2D#convexHull(ArrayList)
+ * 
+ * @author dlegland
+ *
+ */
+public class QuickHull3D
+{
+	// ==================================================
+	// Static methods
+	
+	/**
+	 * Computes the vertices of the convex hull of a set of 3D points.
+	 * 
+	 * @param points
+	 *            a collection of 3D points
+	 * @return the vertices of the convex hull, in the order of the input
+	 *         collection
+	 */
+	public static final ArrayList<Point3D> convexHullVertices(List<? extends Point3D> points)
+	{
+		int[] inds = convexHullVertexIndices(points);
+		ArrayList<Point3D> vertices = new ArrayList<Point3D>(inds.length);
+		for (int ind : inds)
+		{
+			vertices.add(points.get(ind));
+		}
+		return vertices;
+	}
+	
+	/**
+	 * Computes the indices of the vertices of the convex hull of a set of 3D
+	 * points. If several points share the same coordinates, the index of the
+	 * first one is returned. If the points are coplanar, all the distinct
+	 * points are returned.
+	 * 
+	 * @param points
+	 *            a collection of 3D points
+	 * @return the indices of the vertices of the convex hull within the input
+	 *         collection, in increasing order
+	 */
+	public static final int[] convexHullVertexIndices(List<? extends Point3D> points)
+	{
+		int n = points.size();
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double[] zs = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			Point3D p = points.get(i);
+			xs[i] = p.getX();
+			ys[i] = p.getY();
+			zs[i] = p.getZ();
+		}
+		
+		QuickHull3D hull = new QuickHull3D(xs, ys, zs);
+		return hull.vertexIndices();
+	}
+	
+	/**
+	 * Computes the indices of the vertices of the convex hull of a set of 3D
+	 * points whose coordinates are packed within a PointList3D.
+	 * 
+	 * @see #convexHullVertexIndices(List)
+	 * 
+	 * @param points
+	 *            a list of 3D points
+	 * @return the indices of the vertices of the convex hull within the input
+	 *         list, in increasing order
+	 */
+	public static final int[] convexHullVertexIndices(PointList3D points)
+	{
+		int n = points.size();
+		double[] coords = points.coords;
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double[] zs = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			xs[i] = coords[3 * i];
+			ys[i] = coords[3 * i + 1];
+			zs[i] = coords[3 * i + 2];
+		}
+		
+		QuickHull3D hull = new QuickHull3D(xs, ys, zs);
+		return hull.vertexIndices();
+	}
+	
+	
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * Point coordinates.
+	 */
+	final double[] xs;
+	final double[] ys;
+	final double[] zs;
+	
+	/**
+	 * The faces of the current hull, including the deleted ones.
+	 */
+	ArrayList<Face> faces = new ArrayList<Face>();
+	
+	/**
+	 * The indices of the vertices, or null if the points are degenerate.
+	 */
+	int[] vertexInds;
+	
+	
+	// ==================================================
+	// Constructor
+	
+	/**
+	 * Computes the convex hull of the set of points given by their coordinates.
+	 * 
+	 * @param xs
+	 *            the x-coordinates of the points
+	 * @param ys
+	 *            the y-coordinates of the points
+	 * @param zs
+	 *            the z-coordinates of the points
+	 */
+	public QuickHull3D(double[] xs, double[] ys, double[] zs)
+	{
+		if (xs.length != ys.length || xs.length != zs.length)
+		{
+			throw new IllegalArgumentException("Coordinate arrays must have the same length");
+		}
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+		
+		compute();
+	}
+	
+	
+	// ==================================================
+	// Accessors
+	
+	/**
+	 * @return the indices of the vertices of the convex hull, in increasing
+	 *         order
+	 */
+	public int[] vertexIndices()
+	{
+		return vertexInds.clone();
+	}
+	
+	/**
+	 * @return the faces of the convex hull, as an array of triangles given by
+	 *         the indices of their vertices, oriented counter-clockwise when
+	 *         seen from outside of the hull
+	 */
+	public int[][] faceIndices()
+	{
+		ArrayList<int[]> res = new ArrayList<int[]>();
+		for (Face face : faces)
+		{
+			if (!face.deleted)
+			{
+				res.add(face.verts.clone());
+			}
+		}
+		return res.toArray(new int[res.size()][]);
+	}
+	
+	
+	// ==================================================
+	// Computation
+	
+	private void compute()
+	{
+		// keep only the first point of each set of duplicates
+		int[] inds = uniquePointIndices();
+		
+		// create initial tetrahedron
+		int[] simplex = initialSimplex(inds);
+		if (simplex == null)
+		{
+			// degenerate case: all points are collinear or coplanar
+			this.vertexInds = inds;
+			Arrays.sort(this.vertexInds);
+			return;
+		}
+		createInitialFaces(simplex);
+		
+		// assign remaining points to the outside set of a face
+		ArrayList<Face> initialFaces = new ArrayList<Face>(faces);
+		for (int ind : inds)
+		{
+			if (ind == simplex[0] || ind == simplex[1] || ind == simplex[2] || ind == simplex[3])
+			{
+				continue;
+			}
+			assignToOutsideSet(ind, initialFaces);
+		}
+		
+		// process faces until no face has outside point
+		ArrayDeque<Face> stack = new ArrayDeque<Face>(initialFaces);
+		while (!stack.isEmpty())
+		{
+			Face face = stack.pop();
+			if (face.deleted || face.outside.size == 0)
+			{
+				continue;
+			}
+			
+			for (Face newFace : addPoint(face.farthestOutsidePoint(this), face))
+			{
+				if (newFace.outside.size > 0)
+				{
+					stack.push(newFace);
+				}
+			}
+		}
+		
+		// collect vertices of remaining faces
+		boolean[] isVertex = new boolean[xs.length];
+		int nVertices = 0;
+		for (Face face : faces)
+		{
+			if (face.deleted) continue;
+			for (int v : face.verts)
+			{
+				if (!isVertex[v])
+				{
+					isVertex[v] = true;
+					nVertices++;
+				}
+			}
+		}
+		this.vertexInds = new int[nVertices];
+		int k = 0;
+		for (int i = 0; i < isVertex.length; i++)
+		{
+			if (isVertex[i])
+			{
+				this.vertexInds[k++] = i;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the indices of distinct points, keeping the smallest index for
+	 * each set of points with the same coordinates.
+	 */
+	private int[] uniquePointIndices()
+	{
+		int n = xs.length;
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			order[i] = i;
+		}
+		sortIndices(order);
+		
+		// as the sort is stable, the first index of each set of points with
+		// the same coordinates is the smallest one
+		int nUnique = 0;
+		for (int i = 0; i < n; i++)
+		{
+			int ind = order[i];
+			if (nUnique > 0)
+			{
+				int prev = order[nUnique - 1];
+				if (xs[ind] == xs[prev] && ys[ind] == ys[prev] && zs[ind] == zs[prev])
+				{
+					continue;
+				}
+			}
+			order[nUnique++] = ind;
+		}
+		return Arrays.copyOf(order, nUnique);
+	}
+	
+	/**
+	 * Sorts an array of point indices in lexicographic order of the point
+	 * coordinates, using a bottom-up merge sort on primitive arrays to avoid
+	 * boxing the indices. The sort is stable.
+	 */
+	private void sortIndices(int[] order)
+	{
+		int n = order.length;
+		int[] src = order;
+		int[] dst = new int[n];
+		for (int width = 1; width < n; width *= 2)
+		{
+			for (int lo = 0; lo < n; lo += 2 * width)
+			{
+				int mid = Math.min(lo + width, n);
+				int hi = Math.min(lo + 2 * width, n);
+				int i = lo, j = mid, k = lo;
+				while (i < mid && j < hi)
+				{
+					dst[k++] = comparePoints(src[i], src[j]) <= 0 ? src[i++] : src[j++];
+				}
+				while (i < mid)
+				{
+					dst[k++] = src[i++];
+				}
+				while (j < hi)
+				{
+					dst[k++] = src[j++];
+				}
+			}
+			int[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if (src != order)
+		{
+			System.arraycopy(src, 0, order, 0, n);
+		}
+	}
+	
+	/**
+	 * Compares the coordinates of two points in lexicographic order.
+	 */
+	private int comparePoints(int i1, int i2)
+	{
+		int c = Double.compare(xs[i1], xs[i2]);
+		if (c != 0) return c;
+		c = Double.compare(ys[i1], ys[i2]);
+		if (c != 0) return c;
+		return Double.compare(zs[i1], zs[i2]);
+	}
+	
+	/**
+	 * Finds four points that form a non degenerate tetrahedron, or returns
+	 * null if all points are coplanar.
+	 */
+	private int[] initialSimplex(int[] inds)
+	{
+		if (inds.length < 4)
+		{
+			return null;
+		}
+		
+		// find extreme points along each axis
+		int[] extremes = new int[6];
+		Arrays.fill(extremes, inds[0]);
+		for (int ind : inds)
+		{
+			if (xs[ind] < xs[extremes[0]]) extremes[0] = ind;
+			if (xs[ind] > xs[extremes[1]]) extremes[1] = ind;
+			if (ys[ind] < ys[extremes[2]]) extremes[2] = ind;
+			if (ys[ind] > ys[extremes[3]]) extremes[3] = ind;
+			if (zs[ind] < zs[extremes[4]]) extremes[4] = ind;
+			if (zs[ind] > zs[extremes[5]]) extremes[5] = ind;
+		}
+		
+		// choose the pair of extreme points with largest distance
+		int i0 = -1, i1 = -1;
+		double maxDist = 0;
+		for (int i = 0; i < 6; i++)
+		{
+			for (int j = i + 1; j < 6; j++)
+			{
+				double dist = distance2(extremes[i], extremes[j]);
+				if (dist > maxDist)
+				{
+					maxDist = dist;
+					i0 = extremes[i];
+					i1 = extremes[j];
+				}
+			}
+		}
+		if (i0 < 0)
+		{
+			return null;
+		}
+		
+		// choose the point the most distant from the line
+		int i2 = -1;
+		maxDist = 0;
+		for (int ind : inds)
+		{
+			double dist = lineDistance2(i0, i1, ind);
+			if (dist > maxDist)
+			{
+				maxDist = dist;
+				i2 = ind;
+			}
+		}
+		if (i2 < 0)
+		{
+			return null;
+		}
+		
+		// choose the point the most distant from the plane
+		int i3 = -1;
+		maxDist = 0;
+		for (int ind : inds)
+		{
+			double dist = Math.abs(orient(i0, i1, i2, ind));
+			if (dist > maxDist)
+			{
+				maxDist = dist;
+				i3 = ind;
+			}
+		}
+		if (i3 < 0)
+		{
+			return null;
+		}
+		
+		return new int[] {i0, i1, i2, i3};
+	}
+	
+	private void createInitialFaces(int[] simplex)
+	{
+		int i0 = simplex[0], i1 = simplex[1], i2 = simplex[2], i3 = simplex[3];
+		
+		// ensure the last point is below the plane of the first face
+		if (orient(i0, i1, i2, i3) > 0)
+		{
+			int tmp = i1;
+			i1 = i2;
+			i2 = tmp;
+		}
+		
+		Face f0 = new Face(i0, i1, i2);
+		Face f1 = new Face(i0, i3, i1);
+		Face f2 = new Face(i1, i3, i2);
+		Face f3 = new Face(i2, i3, i0);
+		
+		// edges of each face: (v0,v1), (v1,v2), (v2,v0)
+		f0.link(0, f1); f0.link(1, f2); f0.link(2, f3);
+		f1.link(0, f3); f1.link(1, f2); f1.link(2, f0);
+		f2.link(0, f1); f2.link(1, f3); f2.link(2, f0);
+		f3.link(0, f2); f3.link(1, f1); f3.link(2, f0);
+		
+		faces.add(f0);
+		faces.add(f1);
+		faces.add(f2);
+		faces.add(f3);
+	}
+	
+	/**
+	 * Adds the point to the hull, and returns the list of new faces.
+	 */
+	private ArrayList<Face> addPoint(int ind, Face startFace)
+	{
+		// identify visible faces, and the horizon edges
+		ArrayList<Face> visibleFaces = new ArrayList<Face>();
+		ArrayList<Face> horizonFaces = new ArrayList<Face>();
+		ArrayList<int[]> horizonEdges = new ArrayList<int[]>();
+		
+		startFace.visited = true;
+		visibleFaces.add(startFace);
+		ArrayDeque<Face> stack = new ArrayDeque<Face>();
+		stack.push(startFace);
+		while (!stack.isEmpty())
+		{
+			Face face = stack.pop();
+			for (int e = 0; e < 3; e++)
+			{
+				Face neigh = face.neighbors[e];
+				if (neigh.visited)
+				{
+					continue;
+				}
+				if (orient(neigh, ind) > 0)
+				{
+					neigh.visited = true;
+					visibleFaces.add(neigh);
+					stack.push(neigh);
+				}
+				else
+				{
+					horizonFaces.add(neigh);
+					horizonEdges.add(new int[] {face.verts[e], face.verts[(e + 1) % 3]});
+				}
+			}
+		}
+		
+		// create new faces, and link them with the faces beyond the horizon
+		ArrayList<Face> newFaces = new ArrayList<Face>(horizonEdges.size());
+		HashMap<Integer, Face> faceFromStart = new HashMap<Integer, Face>();
+		for (int i = 0; i < horizonEdges.size(); i++)
+		{
+			int[] edge = horizonEdges.get(i);
+			Face newFace = new Face(edge[0], edge[1], ind);
+			Face beyond = horizonFaces.get(i);
+			newFace.neighbors[0] = beyond;
+			beyond.neighbors[beyond.edgeIndex(edge[1], edge[0])] = newFace;
+			
+			faceFromStart.put(edge[0], newFace);
+			newFaces.add(newFace);
+			faces.add(newFace);
+		}
+		
+		// link new faces together
+		for (Face newFace : newFaces)
+		{
+			Face next = faceFromStart.get(newFace.verts[1]);
+			newFace.neighbors[1] = next;
+			next.neighbors[2] = newFace;
+		}
+		
+		// reassign outside points of visible faces to new faces
+		for (Face face : visibleFaces)
+		{
+			face.deleted = true;
+			for (int k = 0; k < face.outside.size; k++)
+			{
+				int ind2 = face.outside.values[k];
+				if (ind2 != ind)
+				{
+					assignToOutsideSet(ind2, newFaces);
+				}
+			}
+			face.outside = null;
+		}
+		
+		return newFaces;
+	}
+	
+	private void assignToOutsideSet(int ind, List<Face> candidates)
+	{
+		for (Face face : candidates)
+		{
+			if (orient(face, ind) > 0)
+			{
+				face.outside.add(ind);
+				return;
+			}
+		}
+	}
+	
+	
+	// ==================================================
+	// Geometric predicates
+	
+	/**
+	 * Computes six times the signed volume of the tetrahedron formed by the
+	 * three points of the face and the query point. The result is positive if
+	 * the query point is on the outer side of the face.
+	 */
+	private double orient(Face face, int ind)
+	{
+		return orient(face.verts[0], face.verts[1], face.verts[2], ind);
+	}
+	
+	private double orient(int i0, int i1, int i2, int ind)
+	{
+		double ax = xs[i1] - xs[i0], ay = ys[i1] - ys[i0], az = zs[i1] - zs[i0];
+		double bx = xs[i2] - xs[i0], by = ys[i2] - ys[i0], bz = zs[i2] - zs[i0];
+		double cx = xs[ind] - xs[i0], cy = ys[ind] - ys[i0], cz = zs[ind] - zs[i0];
+		return cx * (ay * bz - az * by) + cy * (az * bx - ax * bz) + cz * (ax * by - ay * bx);
+	}
+	
+	private double distance2(int i1, int i2)
+	{
+		double dx = xs[i2] - xs[i1];
+		double dy = ys[i2] - ys[i1];
+		double dz = zs[i2] - zs[i1];
+		return dx * dx + dy * dy + dz * dz;
+	}
+	
+	/**
+	 * Computes the squared norm of the cross product between the line
+	 * direction and the vector to the point.
+	 */
+	private double lineDistance2(int i0, int i1, int ind)
+	{
+		double ax = xs[i1] - xs[i0], ay = ys[i1] - ys[i0], az = zs[i1] - zs[i0];
+		double bx = xs[ind] - xs[i0], by = ys[ind] - ys[i0], bz = zs[ind] - zs[i0];
+		double cx = ay * bz - az * by;
+		double cy = az * bx - ax * bz;
+		double cz = ax * by - ay * bx;
+		return cx * cx + cy * cy + cz * cz;
+	}
+	
+	
+	// ==================================================
+	// Inner classes
+	
+	/**
+	 * A triangular face of the hull, with references to the adjacent faces.
+	 * The neighbor with index i shares the edge from vertex i to vertex i+1.
+	 */
+	private static final class Face
+	{
+		final int[] verts;
+		final Face[] neighbors = new Face[3];
+		IntArray outside = new IntArray();
+		boolean deleted = false;
+		boolean visited = false;
+		
+		Face(int v0, int v1, int v2)
+		{
+			this.verts = new int[] {v0, v1, v2};
+		}
+		
+		/**
+		 * Links the edge of this face with the specified index to the given
+		 * face.
+		 */
+		void link(int edge, Face neigh)
+		{
+			this.neighbors[edge] = neigh;
+		}
+		
+		/**
+		 * Returns the index of the edge going from v0 to v1.
+		 */
+		int edgeIndex(int v0, int v1)
+		{
+			for (int e = 0; e < 3; e++)
+			{
+				if (verts[e] == v0 && verts[(e + 1) % 3] == v1)
+				{
+					return e;
+				}
+			}
+			throw new IllegalStateException("Could not find edge within face");
+		}
+		
+		int farthestOutsidePoint(QuickHull3D hull)
+		{
+			int best = -1;
+			double maxDist = Double.NEGATIVE_INFINITY;
+			for (int k = 0; k < outside.size; k++)
+			{
+				int ind = outside.values[k];
+				double dist = hull.orient(this, ind);
+				if (dist > maxDist)
+				{
+					maxDist = dist;
+					best = ind;
+				}
+			}
+			return best;
+		}
+	}
+	
+	/**
+	 * A minimal growable array of int values.
+	 */
+	private static final class IntArray
+	{
+		int[] values = new int[4];
+		int size = 0;
+		
+		void add(int value)
+		{
+			if (size == values.length)
+			{
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+}
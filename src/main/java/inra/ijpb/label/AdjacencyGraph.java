@@ -0,0 +1,702 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.data.image.Images3D;
+import inra.ijpb.label.RegionAdjacencyGraph.LabelPair;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * <p>
+ * Compact representation of the adjacency graph of the regions within a label
+ * image, stored in compressed sparse row (CSR) format.
+ * </p>
+ * 
+ * <p>
+ * Adjacencies are detected with the same rule as in
+ * {@link RegionAdjacencyGraph}: the label of each voxel is compared with the
+ * label of the voxel shifted by two in the X, Y or Z direction, and the
+ * background label zero is ignored. Each pair of adjacent labels is encoded
+ * into a single <code>long</code> key, with the lowest label in the upper 32
+ * bits. The image is scanned by bands of rows processed in parallel, each band
+ * accumulating its own statistics in a primitive hash table, and the partial
+ * results are merged at the end.
+ * </p>
+ * 
+ * <p>
+ * For each edge, the graph stores the number of detected contacts (used as an
+ * estimate of the contact area, in voxels), and optionally the mean value of
+ * an intensity image sampled at the voxel located between the two compared
+ * voxels, that usually corresponds to the boundary between the regions.
+ * </p>
+ * 
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * AdjacencyGraph graph = AdjacencyGraph.compute(labelImage, intensityImage, 4);
+ * for (int e = 0; e < graph.edgeCount(); e++)
+ * {
+ *     System.out.println(graph.edgeLabel1(e) + "-" + graph.edgeLabel2(e) 
+ *         + ": " + graph.contactCount(e) + " contacts, mean intensity "
+ *         + graph.meanBoundaryIntensity(e));
+ * }
+ * }</pre>
+ * 
+ * @see RegionAdjacencyGraph
+ * 
+ * @author dlegland
+ *
+ */
+public class AdjacencyGraph
+{
+	// ==================================================
+	// Static methods
+	
+	/**
+	 * Computes the adjacency graph of the label image contained in an
+	 * ImagePlus, using a single thread.
+	 * 
+	 * @param image
+	 *            an ImagePlus containing a 2D or 3D label image
+	 * @return the adjacency graph of the regions within the image
+	 */
+	public static final AdjacencyGraph compute(ImagePlus image)
+	{
+		if (image.getStackSize() == 1)
+			return compute(image.getProcessor(), null, 1);
+		else
+			return compute(image.getStack(), null, 1);
+	}
+	
+	/**
+	 * Computes the adjacency graph of a 2D label image.
+	 * 
+	 * @param labelImage
+	 *            the label image
+	 * @param intensityImage
+	 *            an optional intensity image used to compute the mean
+	 *            intensity along each boundary (can be null)
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @return the adjacency graph of the regions within the image
+	 */
+	public static final AdjacencyGraph compute(ImageProcessor labelImage, ImageProcessor intensityImage, int nThreads)
+	{
+		ImageStack labels = new ImageStack(labelImage.getWidth(), labelImage.getHeight());
+		labels.addSlice(labelImage);
+		ImageStack intensities = null;
+		if (intensityImage != null)
+		{
+			intensities = new ImageStack(intensityImage.getWidth(), intensityImage.getHeight());
+			intensities.addSlice(intensityImage);
+		}
+		return compute(labels, intensities, nThreads);
+	}
+	
+	/**
+	 * Computes the adjacency graph of a 3D label image.
+	 * 
+	 * @param labelImage
+	 *            the label image
+	 * @param intensityImage
+	 *            an optional intensity image used to compute the mean
+	 *            intensity along each boundary (can be null)
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @return the adjacency graph of the regions within the image
+	 */
+	public static final AdjacencyGraph compute(ImageStack labelImage, ImageStack intensityImage, int nThreads)
+	{
+		final int sizeX = labelImage.getWidth();
+		final int sizeY = labelImage.getHeight();
+		final int sizeZ = labelImage.getSize();
+		
+		boolean withIntensity = intensityImage != null;
+		if (withIntensity)
+		{
+			if (intensityImage.getWidth() != sizeX || intensityImage.getHeight() != sizeY
+					|| intensityImage.getSize() != sizeZ)
+			{
+				throw new IllegalArgumentException("Label and intensity images must have the same size");
+			}
+		}
+		
+		// retrieve slice arrays once, to avoid repeated stack lookups
+		final Object[] labelSlices = labelImage.getImageArray();
+		final ImageProcessor[] intensitySlices = withIntensity ? new ImageProcessor[sizeZ] : null;
+		if (withIntensity)
+		{
+			for (int z = 0; z < sizeZ; z++)
+			{
+				intensitySlices[z] = intensityImage.getProcessor(z + 1);
+			}
+		}
+		
+		// scan bands of rows, each row being identified by index z * sizeY + y.
+		// Partial results are indexed by the first row of each band.
+		final TreeMap<Integer, EdgeAccumulator> partials = new TreeMap<Integer, EdgeAccumulator>();
+		ParallelSlabs.process(sizeY * sizeZ, nThreads, (r0, r1) -> {
+			EdgeAccumulator acc = new EdgeAccumulator(64);
+			int[][] rows = new int[3][sizeX];
+			for (int r = r0; r < r1; r++)
+			{
+				int z = r / sizeY;
+				int y = r % sizeY;
+				scanRow(labelSlices, intensitySlices, sizeX, sizeY, sizeZ, y, z, rows, acc);
+			}
+			synchronized (partials)
+			{
+				partials.put(r0, acc);
+			}
+		});
+		
+		// merge partial results in row order, so that the order of edges and
+		// the sums of intensities do not depend on thread scheduling
+		EdgeAccumulator merged = new EdgeAccumulator(64);
+		for (EdgeAccumulator acc : partials.values())
+		{
+			merged.addAll(acc);
+		}
+		
+		return new AdjacencyGraph(merged, withIntensity);
+	}
+	
+	/**
+	 * Detects the adjacencies between the voxels of the specified row and
+	 * their neighbors at distance two in the positive X, Y and Z directions.
+	 * The labels of the three rows involved are first copied into the
+	 * <code>rows</code> buffers, using loops specialized for the data type.
+	 */
+	private static final void scanRow(Object[] labelSlices, ImageProcessor[] intensitySlices,
+			int sizeX, int sizeY, int sizeZ, int y, int z, int[][] rows, EdgeAccumulator acc)
+	{
+		int offset = y * sizeX;
+		
+		int[] row = Images3D.readInts(labelSlices[z], offset, rows[0], sizeX);
+		int[] rowY = y < sizeY - 2 ? Images3D.readInts(labelSlices[z], offset + 2 * sizeX, rows[1], sizeX) : null;
+		int[] rowZ = z < sizeZ - 2 ? Images3D.readInts(labelSlices[z + 2], offset, rows[2], sizeX) : null;
+		
+		ImageProcessor intensity = intensitySlices != null ? intensitySlices[z] : null;
+		ImageProcessor intensityZ = (intensitySlices != null && rowZ != null) ? intensitySlices[z + 1] : null;
+		
+		for (int x = 0; x < sizeX; x++)
+		{
+			int index = offset + x;
+			int label = row[x];
+			if (label == 0)
+				continue;
+			
+			// transition in x direction
+			if (x < sizeX - 2)
+			{
+				int label2 = row[x + 2];
+				if (label2 != 0 && label2 != label)
+				{
+					double value = intensity != null ? intensity.getf(index + 1) : 0.0;
+					acc.add(pairKey(label, label2), value);
+				}
+			}
+			
+			// transition in y direction
+			if (rowY != null)
+			{
+				int label2 = rowY[x];
+				if (label2 != 0 && label2 != label)
+				{
+					double value = intensity != null ? intensity.getf(index + sizeX) : 0.0;
+					acc.add(pairKey(label, label2), value);
+				}
+			}
+			
+			// transition in z direction
+			if (rowZ != null)
+			{
+				int label2 = rowZ[x];
+				if (label2 != 0 && label2 != label)
+				{
+					double value = intensityZ != null ? intensityZ.getf(index) : 0.0;
+					acc.add(pairKey(label, label2), value);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Encodes a pair of labels into a single long value. The key does not
+	 * depend on the order of the labels: the lowest label is stored in the
+	 * upper 32 bits, and the highest one in the lower 32 bits.
+	 * 
+	 * @param label1
+	 *            the first label
+	 * @param label2
+	 *            the second label
+	 * @return the key associated to the pair of labels
+	 */
+	public static final long pairKey(int label1, int label2)
+	{
+		if (label1 > label2)
+		{
+			int tmp = label1;
+			label1 = label2;
+			label2 = tmp;
+		}
+		return ((long) label1 << 32) | (label2 & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Returns the lowest label of the pair encoded by the specified key.
+	 * 
+	 * @param key
+	 *            a key computed by the {@link #pairKey(int, int)} method
+	 * @return the lowest label of the pair
+	 */
+	public static final int keyLabel1(long key)
+	{
+		return (int) (key >> 32);
+	}
+	
+	/**
+	 * Returns the highest label of the pair encoded by the specified key.
+	 * 
+	 * @param key
+	 *            a key computed by the {@link #pairKey(int, int)} method
+	 * @return the highest label of the pair
+	 */
+	public static final int keyLabel2(long key)
+	{
+		return (int) key;
+	}
+	
+	
+	// ==================================================
+	// Class members
+	
+	/**
+	 * The sorted list of labels that are adjacent to at least one other
+	 * label.
+	 */
+	final int[] labels;
+	
+	/**
+	 * For each node, the position of the first neighbor within the
+	 * <code>neighbors</code> array. Contains one more element than the number
+	 * of nodes.
+	 */
+	final int[] offsets;
+	
+	/**
+	 * The indices of the neighbor nodes, sorted by increasing label for each
+	 * node.
+	 */
+	final int[] neighbors;
+	
+	/**
+	 * The index of the edge associated to each element of the
+	 * <code>neighbors</code> array.
+	 */
+	final int[] neighborEdges;
+	
+	/**
+	 * The sorted keys of the edges, as computed by the
+	 * {@link #pairKey(int, int)} method.
+	 */
+	final long[] edgeKeys;
+	
+	/**
+	 * The number of contacts detected for each edge.
+	 */
+	final long[] contactCounts;
+	
+	/**
+	 * The sum of boundary intensities for each edge, or null if no intensity
+	 * image was specified.
+	 */
+	final double[] intensitySums;
+	
+	
+	// ==================================================
+	// Constructors
+	
+	/**
+	 * Builds the CSR arrays from the edge statistics.
+	 */
+	private AdjacencyGraph(EdgeAccumulator acc, boolean withIntensity)
+	{
+		// sort edge keys, and retrieve statistics in the same order
+		int nEdges = acc.size;
+		this.edgeKeys = acc.keys();
+		Arrays.sort(this.edgeKeys);
+		this.contactCounts = new long[nEdges];
+		this.intensitySums = withIntensity ? new double[nEdges] : null;
+		for (int e = 0; e < nEdges; e++)
+		{
+			int slot = acc.slot(edgeKeys[e]);
+			contactCounts[e] = acc.counts[slot];
+			if (withIntensity)
+				intensitySums[e] = acc.sums[slot];
+		}
+		
+		// collect the labels involved in at least one edge
+		int[] allLabels = new int[nEdges * 2];
+		for (int e = 0; e < nEdges; e++)
+		{
+			allLabels[2 * e] = keyLabel1(edgeKeys[e]);
+			allLabels[2 * e + 1] = keyLabel2(edgeKeys[e]);
+		}
+		Arrays.sort(allLabels);
+		int nNodes = 0;
+		for (int i = 0; i < allLabels.length; i++)
+		{
+			if (nNodes == 0 || allLabels[i] != allLabels[nNodes - 1])
+				allLabels[nNodes++] = allLabels[i];
+		}
+		this.labels = Arrays.copyOf(allLabels, nNodes);
+		
+		// count the neighbors of each node
+		int[] edgeNodes1 = new int[nEdges];
+		int[] edgeNodes2 = new int[nEdges];
+		this.offsets = new int[nNodes + 1];
+		for (int e = 0; e < nEdges; e++)
+		{
+			edgeNodes1[e] = Arrays.binarySearch(labels, keyLabel1(edgeKeys[e]));
+			edgeNodes2[e] = Arrays.binarySearch(labels, keyLabel2(edgeKeys[e]));
+			offsets[edgeNodes1[e] + 1]++;
+			offsets[edgeNodes2[e] + 1]++;
+		}
+		for (int i = 0; i < nNodes; i++)
+		{
+			offsets[i + 1] += offsets[i];
+		}
+		
+		// fill neighbor arrays. As edges are sorted by (label1, label2), the
+		// neighbors of each node are inserted by increasing label: first the
+		// lower neighbors (when node is label2), then the upper neighbors.
+		this.neighbors = new int[2 * nEdges];
+		this.neighborEdges = new int[2 * nEdges];
+		int[] pos = Arrays.copyOf(offsets, nNodes);
+		for (int e = 0; e < nEdges; e++)
+		{
+			int n2 = edgeNodes2[e];
+			neighbors[pos[n2]] = edgeNodes1[e];
+			neighborEdges[pos[n2]++] = e;
+		}
+		for (int e = 0; e < nEdges; e++)
+		{
+			int n1 = edgeNodes1[e];
+			neighbors[pos[n1]] = edgeNodes2[e];
+			neighborEdges[pos[n1]++] = e;
+		}
+	}
+	
+	
+	// ==================================================
+	// Node methods
+	
+	/**
+	 * @return the number of nodes within the graph
+	 */
+	public int nodeCount()
+	{
+		return labels.length;
+	}
+	
+	/**
+	 * Returns the sorted list of labels that are adjacent to at least one
+	 * other label. Labels without any neighbor are not included.
+	 * 
+	 * @return the labels associated to the nodes of the graph
+	 */
+	public int[] getLabels()
+	{
+		return labels.clone();
+	}
+	
+	/**
+	 * Returns the index of the node associated to the specified label, or -1
+	 * if the label has no neighbor.
+	 * 
+	 * @param label
+	 *            the label of a region
+	 * @return the index of the corresponding node, or -1.
+	 */
+	public int nodeIndex(int label)
+	{
+		int index = Arrays.binarySearch(labels, label);
+		return index >= 0 ? index : -1;
+	}
+	
+	/**
+	 * Returns the labels of the regions adjacent to the specified region,
+	 * sorted in increasing order. Returns an empty array if the label is not
+	 * adjacent to any other region.
+	 * 
+	 * @param label
+	 *            the label of a region
+	 * @return the sorted labels of the adjacent regions
+	 */
+	public int[] neighborLabels(int label)
+	{
+		int node = nodeIndex(label);
+		if (node < 0)
+			return new int[0];
+		int[] res = new int[offsets[node + 1] - offsets[node]];
+		for (int i = 0; i < res.length; i++)
+		{
+			res[i] = labels[neighbors[offsets[node] + i]];
+		}
+		return res;
+	}
+	
+	/**
+	 * Returns the indices of the edges incident to the specified region, in
+	 * the same order as the labels returned by {@link #neighborLabels(int)}.
+	 * 
+	 * @param label
+	 *            the label of a region
+	 * @return the indices of the incident edges
+	 */
+	public int[] incidentEdges(int label)
+	{
+		int node = nodeIndex(label);
+		if (node < 0)
+			return new int[0];
+		return Arrays.copyOfRange(neighborEdges, offsets[node], offsets[node + 1]);
+	}
+	
+	
+	// ==================================================
+	// Edge methods
+	
+	/**
+	 * @return the number of edges within the graph
+	 */
+	public int edgeCount()
+	{
+		return edgeKeys.length;
+	}
+	
+	/**
+	 * Returns the index of the edge between the two specified labels, or -1
+	 * if the regions are not adjacent.
+	 * 
+	 * @param label1
+	 *            the label of the first region
+	 * @param label2
+	 *            the label of the second region
+	 * @return the index of the edge, or -1.
+	 */
+	public int edgeIndex(int label1, int label2)
+	{
+		int index = Arrays.binarySearch(edgeKeys, pairKey(label1, label2));
+		return index >= 0 ? index : -1;
+	}
+	
+	/**
+	 * @param edge
+	 *            the index of an edge
+	 * @return the lowest label of the regions connected by the edge
+	 */
+	public int edgeLabel1(int edge)
+	{
+		return keyLabel1(edgeKeys[edge]);
+	}
+	
+	/**
+	 * @param edge
+	 *            the index of an edge
+	 * @return the highest label of the regions connected by the edge
+	 */
+	public int edgeLabel2(int edge)
+	{
+		return keyLabel2(edgeKeys[edge]);
+	}
+	
+	/**
+	 * Returns the number of contacts detected between the two regions
+	 * connected by the edge. This corresponds to the number of voxel pairs
+	 * separated by two voxels in one of the main directions, and can be used
+	 * as an estimate of the contact area (or perimeter in 2D).
+	 * 
+	 * @param edge
+	 *            the index of an edge
+	 * @return the number of contacts between the two regions
+	 */
+	public long contactCount(int edge)
+	{
+		return contactCounts[edge];
+	}
+	
+	/**
+	 * Returns the average intensity measured between the two regions connected
+	 * by the edge, or NaN if no intensity image was specified.
+	 * 
+	 * @param edge
+	 *            the index of an edge
+	 * @return the mean boundary intensity
+	 */
+	public double meanBoundaryIntensity(int edge)
+	{
+		if (intensitySums == null)
+			return Double.NaN;
+		return intensitySums[edge] / contactCounts[edge];
+	}
+	
+	/**
+	 * Converts the edges of this graph into a set of label pairs, as returned
+	 * by the {@link RegionAdjacencyGraph#computeAdjacencies(ImageStack)}
+	 * method.
+	 * 
+	 * @return the set of label pairs corresponding to the edges of the graph.
+	 */
+	public Set<LabelPair> toLabelPairs()
+	{
+		TreeSet<LabelPair> set = new TreeSet<LabelPair>();
+		for (long key : edgeKeys)
+		{
+			set.add(new LabelPair(keyLabel1(key), keyLabel2(key)));
+		}
+		return set;
+	}
+	
+	
+	// ==================================================
+	// Inner class
+	
+	/**
+	 * Open-addressing hash table associating to each pair key the number of
+	 * contacts and the sum of boundary intensities.
+	 */
+	private static final class EdgeAccumulator
+	{
+		static final long EMPTY = Long.MIN_VALUE;
+		
+		long[] table;
+		long[] counts;
+		double[] sums;
+		int size = 0;
+		
+		EdgeAccumulator(int capacity)
+		{
+			int n = Integer.highestOneBit(Math.max(capacity, 4) - 1) << 1;
+			this.table = new long[n];
+			Arrays.fill(this.table, EMPTY);
+			this.counts = new long[n];
+			this.sums = new double[n];
+		}
+		
+		private static int hash(long key)
+		{
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+		
+		/**
+		 * Returns the slot containing the key, or the empty slot where it
+		 * should be inserted.
+		 */
+		int slot(long key)
+		{
+			int mask = table.length - 1;
+			int i = hash(key) & mask;
+			while (table[i] != EMPTY && table[i] != key)
+			{
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+		
+		void add(long key, double value)
+		{
+			add(key, 1, value);
+		}
+		
+		void add(long key, long count, double sum)
+		{
+			int i = slot(key);
+			if (table[i] == EMPTY)
+			{
+				if (2 * (size + 1) > table.length)
+				{
+					grow();
+					i = slot(key);
+				}
+				table[i] = key;
+				size++;
+			}
+			counts[i] += count;
+			sums[i] += sum;
+		}
+		
+		void addAll(EdgeAccumulator acc)
+		{
+			for (int i = 0; i < acc.table.length; i++)
+			{
+				if (acc.table[i] != EMPTY)
+					add(acc.table[i], acc.counts[i], acc.sums[i]);
+			}
+		}
+		
+		long[] keys()
+		{
+			long[] res = new long[size];
+			int n = 0;
+			for (long key : table)
+			{
+				if (key != EMPTY)
+					res[n++] = key;
+			}
+			return res;
+		}
+		
+		private void grow()
+		{
+			long[] oldTable = table;
+			long[] oldCounts = counts;
+			double[] oldSums = sums;
+			
+			int n = oldTable.length * 2;
+			this.table = new long[n];
+			Arrays.fill(this.table, EMPTY);
+			this.counts = new long[n];
+			this.sums = new double[n];
+			
+			for (int i = 0; i < oldTable.length; i++)
+			{
+				if (oldTable[i] != EMPTY)
+				{
+					int j = slot(oldTable[i]);
+					table[j] = oldTable[i];
+					counts[j] = oldCounts[i];
+					sums[j] = oldSums[i];
+				}
+			}
+		}
+	}
+}
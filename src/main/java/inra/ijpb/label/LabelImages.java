@@ -35,6 +35,7 @@ import java.util.TreeSet;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.Prefs;
 import ij.gui.PlotWindow;
 import ij.gui.PointRoi;
 import ij.gui.ProfilePlot;
@@ -54,6 +55,7 @@ import inra.ijpb.binary.distmap.ChamferMask3D;
 import inra.ijpb.data.Cursor2D;
 import inra.ijpb.data.Cursor3D;
 import inra.ijpb.data.image.ImageUtils;
+import inra.ijpb.data.image.Images3D;
 import inra.ijpb.label.conncomp.FloodFillRegionComponentsLabeling;
 import inra.ijpb.label.conncomp.FloodFillRegionComponentsLabeling3D;
 import inra.ijpb.label.distmap.ChamferDistanceTransform2DFloat;
@@ -62,6 +64,8 @@ import inra.ijpb.label.distmap.ChamferDistanceTransform3DFloat;
 import inra.ijpb.label.distmap.ChamferDistanceTransform3DShort;
 import inra.ijpb.label.distmap.DistanceTransform2D;
 import inra.ijpb.label.distmap.DistanceTransform3D;
+import inra.ijpb.label.distmap.EuclideanDistanceTransform2DFloat;
+import inra.ijpb.label.distmap.EuclideanDistanceTransform3DFloat;
 import inra.ijpb.label.edit.FindAllLabels;
 import inra.ijpb.label.edit.ReplaceLabelValues;
 import inra.ijpb.label.filter.ChamferLabelDilation2DShort;
@@ -1151,7 +1155,7 @@ public class LabelImages
 	    int height 	= image.getHeight();
 	
         // create associative array to identify the index of each label
-	    HashMap<Integer, Integer> labelIndices = mapLabelIndices(labels);
+	    LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
         // initialize result
 		int nLabels = labels.length;
@@ -1165,7 +1169,9 @@ public class LabelImages
 	        	int label = (int) image.getf(x, y);
 	        	if (label == 0)
 					continue;
-				int labelIndex = labelIndices.get(label);
+				int labelIndex = labelIndices.indexOf(label);
+				if (labelIndex < 0)
+					continue;
 				counts[labelIndex]++;
 	        }
 	    }	
@@ -1187,7 +1193,7 @@ public class LabelImages
 	public final static int[] voxelCount(ImageStack image, int[] labels) 
 	{
         // create associative array to know index of each label
-		HashMap<Integer, Integer> labelIndices = mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
         // initialize result
 		int nLabels = labels.length;
@@ -1198,19 +1204,24 @@ public class LabelImages
 		int sizeY = image.getHeight();
 		int sizeZ = image.getSize();
 
-		// iterate on image voxels
+		// iterate on image voxels, reading labels of each row at once
+		Object[] slices = image.getImageArray();
+		int[] row = new int[sizeX];
 		for (int z = 0; z < sizeZ; z++) 
         {
         	IJ.showProgress(z, sizeZ);
         	for (int y = 0; y < sizeY; y++)
         	{
+        		Images3D.readInts(slices[z], y * sizeX, row, sizeX);
         		for (int x = 0; x < sizeX; x++)
         		{
-        			int label = (int) image.getVoxel(x, y, z);
+        			int label = row[x];
 					// do not consider background
 					if (label == 0)
 						continue;
-					int labelIndex = labelIndices.get(label);
+					int labelIndex = labelIndices.indexOf(label);
+					if (labelIndex < 0)
+						continue;
 					counts[labelIndex]++;
         		}
         	}
@@ -1417,7 +1428,7 @@ public class LabelImages
 	public static final void remapLabels(ImageProcessor image)
 	{
 		int[] labels = findAllLabels(image);
-		HashMap<Integer, Integer> map = mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap map = LabelUtils.createLabelIndexMap(labels);
 		
 		for (int y = 0; y < image.getHeight(); y++)
 		{
@@ -1426,7 +1437,7 @@ public class LabelImages
 				int label = (int) image.getf(x, y);
 				if (label != 0)
 				{
-					image.setf(x, y, map.get(label) + 1);
+					image.setf(x, y, map.indexOf(label) + 1);
 				}
 			}
 		}
@@ -1440,20 +1451,26 @@ public class LabelImages
 	public static final void remapLabels(ImageStack image)
 	{
 		int[] labels = findAllLabels(image);
-		HashMap<Integer, Integer> map = mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap map = LabelUtils.createLabelIndexMap(labels);
 		
+		int sizeX = image.getWidth();
+		Object[] slices = image.getImageArray();
+		int[] row = new int[sizeX];
 		for (int z = 0; z < image.getSize(); z++)
 		{
 			for (int y = 0; y < image.getHeight(); y++)
 			{
-				for (int x = 0; x < image.getWidth(); x++)
+				int offset = y * sizeX;
+				Images3D.readInts(slices[z], offset, row, sizeX);
+				for (int x = 0; x < sizeX; x++)
 				{
-					int label = (int) image.getVoxel(x, y, z);
+					int label = row[x];
 					if (label != 0)
 					{
-						image.setVoxel(x, y, z, map.get(label) + 1);
+						row[x] = map.indexOf(label) + 1;
 					}
 				}
+				Images3D.writeInts(row, slices[z], offset, sizeX);
 			}
 		}
 	}
@@ -1551,24 +1568,24 @@ public class LabelImages
 		
 		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, image.getBitDepth());
 		
-		TreeSet<Integer> labelSet = new TreeSet<Integer>();
-		for (int i = 0; i < labels.length; i++)
-		{
-			labelSet.add(labels[i]);
-		}
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
+		Object[] slices = image.getImageArray();
+		Object[] resSlices = result.getImageArray();
+		int[] row = new int[sizeX];
 		for (int z = 0; z < sizeZ; z++) 
 		{
 			for (int y = 0; y < sizeY; y++)
 			{
+				int offset = y * sizeX;
+				Images3D.readInts(slices[z], offset, row, sizeX);
 				for (int x = 0; x < sizeX; x++)
 				{
-					int value = (int) image.getVoxel(x, y, z); 
-					if (value == 0)
-						continue;
-					if (labelSet.contains(value)) 
-						result.setVoxel(x, y, z, value);
+					int value = row[x]; 
+					if (value != 0 && labelIndices.indexOf(value) < 0)
+						row[x] = 0;
 				}
+				Images3D.writeInts(row, resSlices[z], offset, sizeX);
 			}
 		}
 		
@@ -1634,7 +1651,7 @@ public class LabelImages
         int[] labels = LabelImages.findAllLabels(labelImage);
         
         // create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		for (int y = 0; y < height; y++) 
 		{
@@ -1647,7 +1664,7 @@ public class LabelImages
 					continue;
 				}
 				
-				int index = labelIndices.get(label);
+				int index = labelIndices.indexOf(label);
 				
 				if (index >= values.length) {
 					throw new RuntimeException("Try to access index " + index + 
@@ -1685,23 +1702,28 @@ public class LabelImages
         int[] labels = LabelImages.findAllLabels(labelImage);
         
         // create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
         // Iterate over voxels to change their color
+        Object[] slices = labelImage.getImageArray();
+        int[] row = new int[sizeX];
         for (int z = 0; z < sizeZ; z++) 
         {
+        	float[] resSlice = (float[]) resultImage.getPixels(z + 1);
 			for (int y = 0; y < sizeY; y++) 
 			{
+				int offset = y * sizeX;
+				Images3D.readInts(slices[z], offset, row, sizeX);
 				for (int x = 0; x < sizeX; x++)
 				{
-					int label = (int) labelImage.getVoxel(x, y, z);
+					int label = row[x];
 					if (label == 0)
 					{
-						resultImage.setVoxel(x, y, z, Double.NaN);
+						resSlice[offset + x] = Float.NaN;
 						continue;
 					}
 
-					int index = labelIndices.get(label);
+					int index = labelIndices.indexOf(label);
 					
 					if (index >= values.length) 
 					{
@@ -1709,8 +1731,7 @@ public class LabelImages
 								" in array with " + values.length + " values");
 					}
 					
-					double value = values[index];
-					resultImage.setVoxel(x, y, z, value);
+					resSlice[offset + x] = (float) values[index];
 				}
 			}
 		}
@@ -1732,6 +1753,9 @@ public class LabelImages
 	 * }
 	 * </pre>
 	 * 
+	 * For per-pixel lookups within large images, the primitive map returned by
+	 * {@link LabelUtils#createLabelIndexMap(int[])} should be preferred.
+	 * 
 	 * @param labels
 	 *            an array of labels
 	 * @return a HashMap instance with each label as key, and the index of the
@@ -2319,6 +2343,30 @@ public class LabelImages
 		DistanceTransform2D	algo = new ChamferDistanceTransform2DFloat(mask, normalize);
 		return algo.distanceMap(image);
 	}
+
+	/**
+	 * Computes the exact Euclidean distance map for each region within a label
+	 * map, by specifying the spacing between pixels.
+	 * 
+	 * Distance is computed for each label pixel, as the Euclidean distance to
+	 * the nearest pixel with a different value, in calibrated units.
+	 * Computation uses the number of threads specified in ImageJ preferences.
+	 * 
+	 * @param image
+	 *            the input image of labels
+	 * @param spacing
+	 *            the spacing between pixels in the x and y directions
+	 * @return the distance map obtained after applying the distance transform
+	 * 
+	 * @see inra.ijpb.label.distmap.EuclideanDistanceTransform2DFloat
+	 */
+	public static final ImageProcessor distanceMap(ImageProcessor image, 
+			double[] spacing)
+	{
+		EuclideanDistanceTransform2DFloat algo = new EuclideanDistanceTransform2DFloat(spacing);
+		algo.setThreadCount(Prefs.getThreads());
+		return algo.distanceMap(image);
+	}
 	
     /**
      * Computes the 3D distance map from an image of labels.
@@ -2416,6 +2464,30 @@ public class LabelImages
         return algo.distanceMap(image);
     }
     
+    /**
+     * Computes the exact Euclidean distance map from a 3D image of labels, by
+     * specifying the spacing between voxels.
+     * 
+     * Distance is computed for each label voxel, as the Euclidean distance to
+     * the nearest voxel with a different value, in calibrated units.
+     * Computation uses the number of threads specified in ImageJ preferences.
+     * 
+     * @param image
+     *            the input 3D image of labels
+     * @param spacing
+     *            the spacing between voxels in the x, y and z directions
+     * @return the distance map obtained after applying the distance transform
+     * 
+     * @see inra.ijpb.label.distmap.EuclideanDistanceTransform3DFloat
+     */
+    public static final ImageStack distanceMap(ImageStack image, 
+            double[] spacing)
+    {
+        EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat(spacing);
+        algo.setThreadCount(Prefs.getThreads());
+        return algo.distanceMap(image);
+    }
+    
     /**
 	 * Applies a constrained dilation to each region in the 3D label map:
 	 * <ul>
@@ -2721,7 +2793,7 @@ public class LabelImages
 		int[] sourceLabels = findAllLabels( sourceImage );
 		double[] intersection = new double[ sourceLabels.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> sourceLabelIndices = mapLabelIndices( sourceLabels );
+	    LabelUtils.LabelIndexMap sourceLabelIndices = LabelUtils.createLabelIndexMap( sourceLabels );
 
 	    int[] targetLabels = findAllLabels( targetImage );
 		int[] numPixTarget = pixelCount( targetImage, targetLabels );
@@ -2735,7 +2807,7 @@ public class LabelImages
 	    		if( sourceImage.getf( i, j ) > 0 ) // skip label 0 (background)
 	    		{
 	    			if( sourceImage.getf( i, j ) == targetImage.getf( i, j ) )
-	    				intersection[ sourceLabelIndices.get( (int) sourceImage.getf( i, j ) ) ] ++;
+	    				intersection[ sourceLabelIndices.indexOf( (int) sourceImage.getf( i, j ) ) ] ++;
 	    		}
 	    // return the target overlap
 	    for( int i = 0; i < intersection.length; i ++ )
@@ -2825,7 +2897,7 @@ public class LabelImages
 		int[] sourceLabels = findAllLabels( sourceImage );
 		double[] intersection = new double[ sourceLabels.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> sourceLabelIndices = mapLabelIndices( sourceLabels );
+	    LabelUtils.LabelIndexMap sourceLabelIndices = LabelUtils.createLabelIndexMap( sourceLabels );
 
 	    int[] targetLabels = findAllLabels( targetImage );
 		int[] numPixTarget = voxelCount( targetImage, targetLabels );
@@ -2842,7 +2914,7 @@ public class LabelImages
 	 				if( ls.getf( i, j ) > 0 ) // skip label 0 (background)
 	 				{
 	 					if( ls.getf( i, j ) == lt.getf( i, j ) )
-	 						intersection[ sourceLabelIndices.get( (int) ls.getf( i, j ) ) ] ++;
+	 						intersection[ sourceLabelIndices.indexOf( (int) ls.getf( i, j ) ) ] ++;
 	 				}
 	 	}
 	    // return the target overlap
@@ -2928,7 +3000,7 @@ public class LabelImages
 		int[] numPix1 = pixelCount( labelImage1, labels1 );
 		double[] intersection = new double[ labels1.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> labelIndices1 = mapLabelIndices( labels1 );
+	    LabelUtils.LabelIndexMap labelIndices1 = LabelUtils.createLabelIndexMap( labels1 );
 
 	    int[] labels2 = findAllLabels( labelImage2 );
 		int[] numPix2 = pixelCount( labelImage2, labels2 );
@@ -2942,7 +3014,7 @@ public class LabelImages
 	    		if( labelImage1.getf( i, j ) > 0 ) // skip label 0 (background)
 	    		{
 	    			if( labelImage1.getf( i, j ) == labelImage2.getf( i, j ) )
-	    				intersection[ labelIndices1.get( (int) labelImage1.getf( i, j ) ) ] ++;
+	    				intersection[ labelIndices1.indexOf( (int) labelImage1.getf( i, j ) ) ] ++;
 	    		}
 	    // return the intersection over the union
 	    for( int i = 0; i < intersection.length; i ++ )
@@ -3019,7 +3091,7 @@ public class LabelImages
 		int[] numPix1 = voxelCount( labelImage1, labels1 );
 		double[] intersection = new double[ labels1.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> labelIndices1 = mapLabelIndices( labels1 );
+	    LabelUtils.LabelIndexMap labelIndices1 = LabelUtils.createLabelIndexMap( labels1 );
 
 	    int[] labels2 = findAllLabels( labelImage2 );
 		int[] numPix2 = voxelCount( labelImage2, labels2 );
@@ -3037,7 +3109,7 @@ public class LabelImages
 					if( l1.getf( i, j ) > 0 ) // skip label 0 (background)
 		    		{
 						if( l1.getf( i, j ) == l2.getf( i, j ) )
-							intersection[ labelIndices1.get( (int) l1.getf( i, j ) ) ] ++;
+							intersection[ labelIndices1.indexOf( (int) l1.getf( i, j ) ) ] ++;
 		    		}
 		}
 	    // return the intersection over the union
@@ -3136,7 +3208,7 @@ public class LabelImages
 		int[] numPix1 = pixelCount( labelImage1, labels1 );
 		double[] intersection = new double[ labels1.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> labelIndices1 = mapLabelIndices( labels1 );
+	    LabelUtils.LabelIndexMap labelIndices1 = LabelUtils.createLabelIndexMap( labels1 );
 
 	    int[] labels2 = findAllLabels( labelImage2 );
 		int[] numPix2 = pixelCount( labelImage2, labels2 );
@@ -3150,7 +3222,7 @@ public class LabelImages
 	    		if( labelImage1.getf( i, j ) > 0 ) // skip label 0 (background)
 	    		{
 	    			if( labelImage1.getf( i, j ) == labelImage2.getf( i, j ) )
-	    				intersection[ labelIndices1.get( (int) labelImage1.getf( i, j ) ) ] ++;
+	    				intersection[ labelIndices1.indexOf( (int) labelImage1.getf( i, j ) ) ] ++;
 	    		}
 	    // return the Dice coefficient
 	    for( int i = 0; i < intersection.length; i ++ )
@@ -3225,7 +3297,7 @@ public class LabelImages
 		int[] numPix1 = voxelCount( labelImage1, labels1 );
 		double[] intersection = new double[ labels1.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> labelIndices1 = mapLabelIndices( labels1 );
+	    LabelUtils.LabelIndexMap labelIndices1 = LabelUtils.createLabelIndexMap( labels1 );
 
 	    int[] labels2 = findAllLabels( labelImage2 );
 		int[] numPix2 = voxelCount( labelImage2, labels2 );
@@ -3243,7 +3315,7 @@ public class LabelImages
 					if( l1.getf( i, j ) > 0 ) // skip label 0 (background)
 		    		{
 						if( l1.getf( i, j ) == l2.getf( i, j ) )
-							intersection[ labelIndices1.get( (int) l1.getf( i, j ) ) ] ++;
+							intersection[ labelIndices1.indexOf( (int) l1.getf( i, j ) ) ] ++;
 		    		}
 		}
 	    // return the Dice coefficient
@@ -3633,7 +3705,7 @@ public class LabelImages
 		int[] sourceLabels = findAllLabels( sourceImage );
 		double[] setDiff = new double[ sourceLabels.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> sourceLabelIndices = mapLabelIndices( sourceLabels );
+	    LabelUtils.LabelIndexMap sourceLabelIndices = LabelUtils.createLabelIndexMap( sourceLabels );
 	    int[] numPixSource = pixelCount( sourceImage, sourceLabels );
 
 		// calculate the set difference between source and target
@@ -3642,7 +3714,7 @@ public class LabelImages
 	    		if( sourceImage.getf( i, j ) > 0 ) // skip label 0 (background)
 	    		{
 	    			if( sourceImage.getf( i, j ) != targetImage.getf( i, j ) )
-	    				setDiff[ sourceLabelIndices.get( (int) sourceImage.getf( i, j ) ) ] ++;
+	    				setDiff[ sourceLabelIndices.indexOf( (int) sourceImage.getf( i, j ) ) ] ++;
 	    		}
 	    // return the false positive error
 	    for( int i = 0; i < setDiff.length; i ++ )
@@ -3716,7 +3788,7 @@ public class LabelImages
 		int[] sourceLabels = findAllLabels( sourceImage );
 		double[] setDiff = new double[ sourceLabels.length ];
 		// create associative array to identify the index of each label
-	    HashMap<Integer, Integer> sourceLabelIndices = mapLabelIndices( sourceLabels );
+	    LabelUtils.LabelIndexMap sourceLabelIndices = LabelUtils.createLabelIndexMap( sourceLabels );
 	    int[] numPixSource = voxelCount( sourceImage, sourceLabels );
 
 	    // calculate the set difference between source and target
@@ -3729,7 +3801,7 @@ public class LabelImages
 	 				if( ls.getf( i, j ) > 0 ) // skip label 0 (background)
 	 				{
 	 					if( ls.getf( i, j ) != lt.getf( i, j ) )
-	 						setDiff[ sourceLabelIndices.get( (int) ls.getf( i, j ) ) ] ++;
+	 						setDiff[ sourceLabelIndices.indexOf( (int) ls.getf( i, j ) ) ] ++;
 	 				}
 	 	}
 	
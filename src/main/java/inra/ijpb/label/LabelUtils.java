@@ -24,6 +24,8 @@
  */
 package inra.ijpb.label;
 
+import java.util.Arrays;
+
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 
@@ -91,6 +93,184 @@ public class LabelUtils
         }
     }
 
+    /**
+     * Creates a map between the label values and their indices within the
+     * specified array. The returned map relies on primitive arrays, avoiding
+     * the boxing overhead of a <code>HashMap&lt;Integer,Integer&gt;</code>
+     * when it is queried for each pixel or voxel of a label image.
+     * 
+     * <pre><code>
+     * int[] labels = LabelImages.findAllLabels(labelImage);
+     * LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+     * int index = labelIndices.indexOf(label);
+     * if (index &lt; 0) continue; // label is not in the array
+     * </code></pre>
+     * 
+     * @see LabelImages#mapLabelIndices(int[])
+     * 
+     * @param labels
+     *            an array of labels
+     * @return a map between the label values and their indices
+     */
+    public static final LabelIndexMap createLabelIndexMap(int[] labels)
+    {
+        return new LabelIndexMap(labels);
+    }
+    
+    /**
+     * Associates to each label its index within an array of labels, using
+     * primitive arrays.
+     * 
+     * If the largest label is moderate, a look-up table indexed by label value
+     * is used. Otherwise, labels are stored within an open-addressing hash
+     * table with linear probing.
+     * 
+     * @see LabelUtils#createLabelIndexMap(int[])
+     */
+    public static final class LabelIndexMap
+    {
+        /**
+         * The largest label value for which a look-up table is always used.
+         */
+        private static final int MAX_DENSE_LABEL = 1 << 20;
+        
+        /**
+         * The number of labels within the map.
+         */
+        private final int size;
+        
+        /**
+         * The look-up table from label value to index, or null if the hash
+         * table is used.
+         */
+        private final int[] lut;
+        
+        /**
+         * The keys of the hash table, or null if the look-up table is used.
+         */
+        private final int[] keys;
+        
+        /**
+         * The values of the hash table, -1 for empty slots.
+         */
+        private final int[] values;
+        
+        /**
+         * The bit mask used to compute slot indices (capacity minus one).
+         */
+        private final int mask;
+        
+        /**
+         * Creates a new map from an array of labels. If a label value is
+         * present several times, the index of its last occurrence is kept.
+         * 
+         * @param labels
+         *            an array of labels
+         */
+        public LabelIndexMap(int[] labels)
+        {
+            this.size = labels.length;
+            
+            // identify range of label values
+            int minLabel = 0;
+            int maxLabel = 0;
+            for (int label : labels)
+            {
+                minLabel = Math.min(minLabel, label);
+                maxLabel = Math.max(maxLabel, label);
+            }
+            
+            if (minLabel >= 0 && (maxLabel < MAX_DENSE_LABEL || maxLabel < 4L * labels.length))
+            {
+                // dense look-up table
+                this.lut = new int[maxLabel + 1];
+                Arrays.fill(this.lut, -1);
+                for (int i = 0; i < labels.length; i++)
+                {
+                    this.lut[labels[i]] = i;
+                }
+                this.keys = null;
+                this.values = null;
+                this.mask = 0;
+            }
+            else
+            {
+                // hash table with load factor of at most one half
+                int capacity = 4;
+                while (capacity < 2 * labels.length)
+                {
+                    capacity <<= 1;
+                }
+                this.lut = null;
+                this.keys = new int[capacity];
+                this.values = new int[capacity];
+                Arrays.fill(this.values, -1);
+                this.mask = capacity - 1;
+                for (int i = 0; i < labels.length; i++)
+                {
+                    int slot = hash(labels[i]) & mask;
+                    while (values[slot] >= 0 && keys[slot] != labels[i])
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = labels[i];
+                    values[slot] = i;
+                }
+            }
+        }
+        
+        /**
+         * Returns the index of the specified label, or -1 if the label is
+         * not contained within the map.
+         * 
+         * @param label
+         *            the label value
+         * @return the index of the label, or -1 if the label was not found
+         */
+        public int indexOf(int label)
+        {
+            if (lut != null)
+            {
+                return label >= 0 && label < lut.length ? lut[label] : -1;
+            }
+            
+            int slot = hash(label) & mask;
+            while (values[slot] >= 0)
+            {
+                if (keys[slot] == label)
+                {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+        
+        /**
+         * @param label
+         *            the label value
+         * @return true if the label is contained within the map
+         */
+        public boolean containsLabel(int label)
+        {
+            return indexOf(label) >= 0;
+        }
+        
+        /**
+         * @return the number of labels used to create this map
+         */
+        public int size()
+        {
+            return size;
+        }
+        
+        private static final int hash(int label)
+        {
+            int h = label * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+    
     /** 
      * Private constructor to prevent instantation.
      */
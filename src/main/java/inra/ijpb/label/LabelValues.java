@@ -22,7 +22,6 @@
 package inra.ijpb.label;
 
 import java.awt.Point;
-import java.util.Map;
 
 import ij.ImageStack;
 import ij.process.ImageProcessor;
@@ -149,7 +148,7 @@ public class LabelValues
 		int nLabels = labels.length;
 		
 		// init index of each label
-		Map<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 				
 		// Init value of maximum for each label
 		double[] maxValues = new double[nLabels];
@@ -169,10 +168,9 @@ public class LabelValues
 				if (label == 0)
 					continue;
 
-				if (labelIndices.containsKey(label))
+				int index = labelIndices.indexOf(label);
+				if (index >= 0)
 				{
-					int index = labelIndices.get(label);
-					
 					// update values and positions
 					double value = image.getf(x, y);
 					if (value > maxValues[index])
@@ -214,7 +212,7 @@ public class LabelValues
 		int nLabels = labels.length;
 		
 		// init index of each label
-		Map<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 				
 		// Init value of maximum for each label
 		double[] maxValues = new double[nLabels];
@@ -234,10 +232,9 @@ public class LabelValues
 					if (label == 0)
 						continue;
 
-					if (labelIndices.containsKey(label))
+					int index = labelIndices.indexOf(label);
+					if (index >= 0)
 					{
-						int index = labelIndices.get(label);
-
 						// update values and positions
 						double value = image.getVoxel(x, y, z);
 						if (value > maxValues[index])
@@ -267,7 +264,7 @@ public class LabelValues
 			ImageProcessor labelImage, int[] labels)
 	{
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -289,11 +286,11 @@ public class LabelValues
 				// do not process pixels that do not belong to any particle
 				if (label == 0)
 					continue;
-				if (!labelIndices.containsKey(label))
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
 					continue;
 
 				// get position-value pair corresponding to current label
-				int index = labelIndices.get(label);
 				PositionValuePair pair = pairs[index];
 				
 				// update values and positions
@@ -337,7 +334,7 @@ public class LabelValues
 		}
 
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -359,11 +356,11 @@ public class LabelValues
 					// do not process pixels that do not belong to any particle
 					if (label == 0)
 						continue;
-					if (!labelIndices.containsKey(label))
+					int index = labelIndices.indexOf(label);
+					if (index < 0)
 						continue;
 	
 					// get position-value pair corresponding to current label
-					int index = labelIndices.get(label);
 					Position3DValuePair pair = pairs[index];
 					
 					// update values and positions
@@ -397,7 +394,7 @@ public class LabelValues
 			ImageProcessor labelImage, int[] labels)
 	{
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -419,11 +416,11 @@ public class LabelValues
 				// do not process pixels that do not belong to any particle
 				if (label == 0)
 					continue;
-				if (!labelIndices.containsKey(label))
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
 					continue;
 
 				// get position-value pair corresponding to current label
-				int index = labelIndices.get(label);
 				PositionValuePair pair = pairs[index];
 				
 				// update values and positions
@@ -467,7 +464,7 @@ public class LabelValues
 		}
 
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -489,11 +486,11 @@ public class LabelValues
 					// do not process pixels that do not belong to any particle
 					if (label == 0)
 						continue;
-					if (!labelIndices.containsKey(label))
+					int index = labelIndices.indexOf(label);
+					if (index < 0)
 						continue;
 
 					// get position-value pair corresponding to current label
-					int index = labelIndices.get(label);
 					Position3DValuePair pair = pairs[index];
 
 					// update values and positions
@@ -527,7 +524,7 @@ public class LabelValues
 			ImageProcessor labelImage, int[] labels)
 	{
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -552,7 +549,9 @@ public class LabelValues
 				if (label == 0)
 					continue;
 
-				int index = labelIndices.get(label);
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
+					continue;
 				
 				// update values and positions
 				float value = valueImage.getf(x, y);
@@ -595,7 +594,7 @@ public class LabelValues
 		}
 
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -620,7 +619,9 @@ public class LabelValues
 					if (label == 0)
 						continue;
 
-					int index = labelIndices.get(label);
+					int index = labelIndices.indexOf(label);
+					if (index < 0)
+						continue;
 
 					// update values and positions
 					double value = valueImage.getVoxel(x, y, z);
@@ -653,7 +654,7 @@ public class LabelValues
 			ImageProcessor labelImage, int[] labels)
 	{
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of minimum for each label
 		int nLabels = labels.length;
@@ -678,7 +679,9 @@ public class LabelValues
 				if (label == 0)
 					continue;
 
-				int index = labelIndices.get(label);
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
+					continue;
 				
 				// update values and positions
 				float value = valueImage.getf(x, y);
@@ -721,7 +724,7 @@ public class LabelValues
 		}
 
 		// Create associative map between each label and its index
-		Map<Integer,Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 		
 		// Init Position and value of maximum for each label
 		int nLabels = labels.length;
@@ -746,7 +749,9 @@ public class LabelValues
 					if (label == 0)
 						continue;
 
-					int index = labelIndices.get(label);
+					int index = labelIndices.indexOf(label);
+					if (index < 0)
+						continue;
 
 					// update values and positions
 					double value = valueImage.getVoxel(x, y, z);
@@ -26,7 +26,6 @@ import ij.ImageStack;
 import ij.process.ImageProcessor;
 
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * <p>
@@ -100,46 +99,7 @@ public class RegionAdjacencyGraph
 	 */
 	public static final Set<LabelPair> computeAdjacencies(ImageProcessor image)
 	{
-		int width = image.getWidth();
-		int height = image.getHeight();
-		
-		TreeSet<LabelPair> list = new TreeSet<LabelPair>();
-		
-		// transitions in x direction
-		for (int y = 0; y < height; y++)
-		{
-			for (int x = 0; x < width - 2; x++)
-			{
-				int label = (int) image.getf(x, y);
-				if (label == 0)
-					continue;
-				int label2 = (int) image.getf(x + 2, y);
-				if (label2 == 0 || label2 == label)
-					continue;
-				
-				LabelPair pair = new LabelPair(label, label2);
-				list.add(pair);
-			}
-		}
-		
-		// transitions in y direction
-		for (int y = 0; y < height - 2; y++)
-		{
-			for (int x = 0; x < width; x++)
-			{
-				int label = (int) image.getf(x, y);
-				if (label == 0)
-					continue;
-				int label2 = (int) image.getf(x, y + 2);
-				if (label2 == 0 || label2 == label)
-					continue;
-				
-				LabelPair pair = new LabelPair(label, label2);
-				list.add(pair);
-			}
-		}
-		
-		return list;
+		return AdjacencyGraph.compute(image, null, 1).toLabelPairs();
 	}
 	
 	/**
@@ -151,73 +111,7 @@ public class RegionAdjacencyGraph
 	 */
 	public static final Set<LabelPair> computeAdjacencies(ImageStack image)
 	{
-		int width = image.getWidth();
-		int height = image.getHeight();
-		int depth = image.getSize();
-		
-		TreeSet<LabelPair> list = new TreeSet<LabelPair>();
-		
-		// transitions in x direction
-		for (int z = 0; z < depth; z++)
-		{
-			for (int y = 0; y < height; y++)
-			{
-				for (int x = 0; x < width - 2; x++)
-				{
-					int label = (int) image.getVoxel(x, y, z);
-					if (label == 0)
-						continue;
-					int label2 = (int) image.getVoxel(x + 2, y, z);
-					if (label2 == 0 || label2 == label)
-						continue;
-
-					LabelPair pair = new LabelPair(label, label2);
-					list.add(pair);
-				}
-			}
-		}
-
-		// transitions in y direction
-		for (int z = 0; z < depth; z++)
-		{
-			for (int y = 0; y < height - 2; y++)
-			{
-				for (int x = 0; x < width; x++)
-				{
-					int label = (int) image.getVoxel(x, y, z);
-					if (label == 0)
-						continue;
-					int label2 = (int) image.getVoxel(x, y + 2, z);
-					if (label2 == 0 || label2 == label)
-						continue;
-
-					LabelPair pair = new LabelPair(label, label2);
-					list.add(pair);
-				}
-			}
-		}
-
-		// transitions in z direction
-		for (int z = 0; z < depth - 2; z++)
-		{
-			for (int y = 0; y < height; y++)
-			{
-				for (int x = 0; x < width; x++)
-				{
-					int label = (int) image.getVoxel(x, y, z);
-					if (label == 0)
-						continue;
-					int label2 = (int) image.getVoxel(x, y, z + 2);
-					if (label2 == 0 || label2 == label)
-						continue;
-
-					LabelPair pair = new LabelPair(label, label2);
-					list.add(pair);
-				}
-			}
-		}
-	
-		return list;
+		return AdjacencyGraph.compute(image, null, 1).toLabelPairs();
 	}
 
 	/**
@@ -0,0 +1,678 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+
+/**
+ * <p>
+ * Iterative merging of adjacent regions within a label image, typically used
+ * to reduce the over-segmentation produced by a watershed transform.
+ * </p>
+ * 
+ * <p>
+ * The algorithm starts from the adjacency graph of the regions (see
+ * {@link AdjacencyGraph}), and associates to each edge a merging cost that
+ * depends on the chosen criterion. Edges are processed by increasing cost
+ * using a priority queue: the two regions connected by the edge with the
+ * lowest cost are merged, the statistics of the edges incident to the merged
+ * region are updated, and the process is repeated until the lowest cost is
+ * greater than or equal to the threshold. The final label image is then
+ * computed in a single pass over the input image.
+ * </p>
+ * 
+ * <p>
+ * Example of use:
+ * <pre>{@code
+ * ImageProcessor gradient = ...;
+ * ImageProcessor basins = Watershed.computeWatershed(gradient, null, 4, true);
+ * RegionMerging algo = new RegionMerging(RegionMerging.Criterion.DYNAMIC, 10.0);
+ * ImageProcessor merged = algo.process(basins, gradient);
+ * }</pre>
+ * 
+ * @see AdjacencyGraph
+ * @see LabelImages#mergeLabelsWithGap(ImageProcessor, float[], float, int)
+ * 
+ * @author dlegland
+ *
+ */
+public class RegionMerging extends AlgoStub
+{
+	// ==================================================
+	// Inner enumeration
+	
+	/**
+	 * The criterion used to compute the merging cost of two adjacent regions.
+	 */
+	public enum Criterion
+	{
+		/**
+		 * The mean intensity along the boundary between the two regions.
+		 * Requires an intensity image, usually a gradient image.
+		 */
+		BOUNDARY_MEAN,
+		
+		/**
+		 * The size (number of pixels or voxels) of the smallest region. When
+		 * several neighbors are possible, the one with the lowest boundary
+		 * mean intensity is chosen if an intensity image is provided, and the
+		 * one with the longest boundary otherwise.
+		 */
+		MIN_SIZE,
+		
+		/**
+		 * The difference between the mean intensity along the boundary and the
+		 * largest value of the minimum intensities within the two regions. For
+		 * a gradient image, this approximates the dynamic of the basin that
+		 * would be absorbed by the merge. Requires an intensity image.
+		 */
+		DYNAMIC;
+		
+		/**
+		 * @return true if the cost of an edge depends on the attributes of the
+		 *         regions, and not only on the statistics of the boundary
+		 */
+		boolean dependsOnRegions()
+		{
+			return this != BOUNDARY_MEAN;
+		}
+	}
+	
+	
+	// ==================================================
+	// Class members
+	
+	/**
+	 * The criterion used to compute the merging cost of adjacent regions.
+	 */
+	Criterion criterion;
+	
+	/**
+	 * Adjacent regions are merged as long as their cost is strictly lower
+	 * than this threshold.
+	 */
+	double threshold;
+	
+	/**
+	 * Specifies whether the background pixels or voxels located between merged
+	 * regions should be assigned to the merged region.
+	 */
+	boolean fillGaps = true;
+	
+	/**
+	 * The number of threads used to compute the adjacency graph.
+	 */
+	int threadCount = 1;
+	
+	/**
+	 * Specifies whether boundary intensities are available during the
+	 * current computation.
+	 */
+	private boolean hasIntensity = false;
+	
+	
+	// ==================================================
+	// Constructor
+	
+	/**
+	 * Creates a new region merging algorithm.
+	 * 
+	 * @param criterion
+	 *            the criterion used to compute the merging cost of adjacent
+	 *            regions
+	 * @param threshold
+	 *            the value of the cost below which regions are merged
+	 */
+	public RegionMerging(Criterion criterion, double threshold)
+	{
+		this.criterion = criterion;
+		this.threshold = threshold;
+	}
+	
+	
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return true if the gaps between merged regions are filled
+	 */
+	public boolean isFillGaps()
+	{
+		return fillGaps;
+	}
+
+	/**
+	 * Specifies whether the background pixels or voxels located between
+	 * merged regions should be assigned to the merged region. A background
+	 * element is filled if its orthogonal neighbors belong to at least two
+	 * different original regions, all merged into the same final region.
+	 * Default is true.
+	 * 
+	 * @param fillGaps
+	 *            the flag for filling gaps between merged regions
+	 */
+	public void setFillGaps(boolean fillGaps)
+	{
+		this.fillGaps = fillGaps;
+	}
+
+	/**
+	 * @return the number of threads used to compute the adjacency graph
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * @param threadCount
+	 *            the number of threads used to compute the adjacency graph (at
+	 *            least one)
+	 */
+	public void setThreadCount(int threadCount)
+	{
+		this.threadCount = Math.max(threadCount, 1);
+	}
+	
+	
+	// ==================================================
+	// Processing methods
+	
+	/**
+	 * Merges the adjacent regions of a 2D label image.
+	 * 
+	 * @param labelImage
+	 *            the label image
+	 * @param intensityImage
+	 *            the intensity image used to compute boundary statistics. Can
+	 *            be null only for the MIN_SIZE criterion.
+	 * @return a new label image containing the merged regions
+	 */
+	public ImageProcessor process(ImageProcessor labelImage, ImageProcessor intensityImage)
+	{
+		ImageStack labels = new ImageStack(labelImage.getWidth(), labelImage.getHeight());
+		labels.addSlice(labelImage);
+		ImageStack intensities = null;
+		if (intensityImage != null)
+		{
+			intensities = new ImageStack(intensityImage.getWidth(), intensityImage.getHeight());
+			intensities.addSlice(intensityImage);
+		}
+		return process(labels, intensities).getProcessor(1);
+	}
+	
+	/**
+	 * Merges the adjacent regions of a 3D label image.
+	 * 
+	 * @param labelImage
+	 *            the label image
+	 * @param intensityImage
+	 *            the intensity image used to compute boundary statistics. Can
+	 *            be null only for the MIN_SIZE criterion.
+	 * @return a new label image containing the merged regions
+	 */
+	public ImageStack process(ImageStack labelImage, ImageStack intensityImage)
+	{
+		int[] labels = LabelImages.findAllLabels(labelImage);
+		int[] mergedLabels = computeMergedLabels(labelImage, intensityImage, labels);
+		
+		this.fireStatusChanged(this, "Relabel image");
+		return relabel(labelImage, labels, mergedLabels);
+	}
+	
+	/**
+	 * Computes the label associated to each region after merging. Each group
+	 * of merged regions is associated to the smallest of their labels.
+	 * 
+	 * @param labelImage
+	 *            the label image
+	 * @param intensityImage
+	 *            the intensity image used to compute boundary statistics. Can
+	 *            be null only for the MIN_SIZE criterion.
+	 * @param labels
+	 *            the labels of the regions within the image
+	 * @return the label of each region after merging
+	 */
+	public int[] computeMergedLabels(ImageStack labelImage, ImageStack intensityImage, int[] labels)
+	{
+		if (intensityImage == null && criterion != Criterion.MIN_SIZE)
+		{
+			throw new IllegalArgumentException("Criterion " + criterion + " requires an intensity image");
+		}
+		
+		this.hasIntensity = intensityImage != null;
+		
+		int nLabels = labels.length;
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+		
+		// compute region attributes
+		this.fireStatusChanged(this, "Compute region attributes");
+		long[] sizes = new long[nLabels];
+		double[] minima = new double[nLabels];
+		computeRegionAttributes(labelImage, intensityImage, labelIndices, sizes, minima);
+		
+		// compute region adjacencies with boundary statistics
+		this.fireStatusChanged(this, "Compute adjacency graph");
+		AdjacencyGraph graph = AdjacencyGraph.compute(labelImage, intensityImage, threadCount);
+		
+		// initialize regions
+		Region[] regions = new Region[nLabels];
+		for (int i = 0; i < nLabels; i++)
+		{
+			regions[i] = new Region(i, labels[i], sizes[i], minima[i]);
+		}
+		
+		// initialize edges and priority queue
+		PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+		for (int e = 0; e < graph.edgeCount(); e++)
+		{
+			Region region1 = regions[labelIndices.indexOf(graph.edgeLabel1(e))];
+			Region region2 = regions[labelIndices.indexOf(graph.edgeLabel2(e))];
+			double sum = graph.intensitySums != null ? graph.intensitySums[e] : 0.0;
+			Edge edge = new Edge(region1, region2, graph.contactCounts[e], sum);
+			region1.neighbors.put(region2.index, edge);
+			region2.neighbors.put(region1.index, edge);
+			push(queue, edge);
+		}
+		
+		// iterate merges by increasing cost
+		this.fireStatusChanged(this, "Merge regions");
+		int nMerges = 0;
+		while (!queue.isEmpty())
+		{
+			Entry entry = queue.poll();
+			Edge edge = entry.edge;
+			if (edge.removed || entry.stamp != edge.stamp)
+				continue;
+			
+			merge(edge, queue);
+			nMerges++;
+		}
+		this.fireStatusChanged(this, "Merged " + nMerges + " region pairs");
+		
+		// compute final label of each region, using the smallest label of each group
+		int[] mergedLabels = new int[nLabels];
+		for (int i = 0; i < nLabels; i++)
+		{
+			mergedLabels[i] = regions[i].root().label;
+		}
+		return mergedLabels;
+	}
+	
+	/**
+	 * Computes the size and the minimum intensity of each region.
+	 */
+	private static final void computeRegionAttributes(ImageStack labelImage, ImageStack intensityImage, 
+			LabelUtils.LabelIndexMap labelIndices, long[] sizes, double[] minima)
+	{
+		Arrays.fill(minima, Double.POSITIVE_INFINITY);
+		for (int z = 0; z < labelImage.getSize(); z++)
+		{
+			ImageProcessor slice = labelImage.getProcessor(z + 1);
+			ImageProcessor intensity = intensityImage != null ? intensityImage.getProcessor(z + 1) : null;
+			int nPixels = slice.getPixelCount();
+			for (int i = 0; i < nPixels; i++)
+			{
+				int label = (int) slice.getf(i);
+				if (label == 0)
+					continue;
+				int index = labelIndices.indexOf(label);
+				sizes[index]++;
+				if (intensity != null)
+					minima[index] = Math.min(minima[index], intensity.getf(i));
+			}
+		}
+	}
+	
+	/**
+	 * Merges the two regions connected by the edge, and updates the incident
+	 * edges and the priority queue.
+	 */
+	private void merge(Edge edge, PriorityQueue<Entry> queue)
+	{
+		// keep the region with the largest number of neighbors, to reduce the
+		// number of edges to update
+		Region keep = edge.region1;
+		Region remove = edge.region2;
+		if (remove.neighbors.size() > keep.neighbors.size())
+		{
+			keep = edge.region2;
+			remove = edge.region1;
+		}
+		
+		edge.removed = true;
+		keep.neighbors.remove(remove.index);
+		remove.neighbors.remove(keep.index);
+		
+		// update region attributes
+		keep.size += remove.size;
+		keep.minimum = Math.min(keep.minimum, remove.minimum);
+		remove.parent = keep;
+		if (remove.label < keep.label)
+			keep.label = remove.label;
+		
+		// transfer the edges of the removed region
+		ArrayList<Edge> modified = new ArrayList<Edge>();
+		for (Edge edge2 : remove.neighbors.values())
+		{
+			Region other = edge2.opposite(remove);
+			other.neighbors.remove(remove.index);
+			
+			Edge existing = keep.neighbors.get(other.index);
+			if (existing != null)
+			{
+				// merge boundary statistics within existing edge
+				existing.count += edge2.count;
+				existing.sum += edge2.sum;
+				edge2.removed = true;
+				modified.add(existing);
+			}
+			else
+			{
+				// connect edge to the kept region
+				edge2.replace(remove, keep);
+				keep.neighbors.put(other.index, edge2);
+				other.neighbors.put(keep.index, edge2);
+				modified.add(edge2);
+			}
+		}
+		remove.neighbors.clear();
+		
+		// update costs
+		if (criterion.dependsOnRegions())
+		{
+			for (Edge edge2 : keep.neighbors.values())
+				push(queue, edge2);
+		}
+		else
+		{
+			for (Edge edge2 : modified)
+				push(queue, edge2);
+		}
+	}
+	
+	/**
+	 * Invalidates previous entries of the edge within the queue, and adds a
+	 * new entry if the cost of the edge is below the threshold.
+	 */
+	private void push(PriorityQueue<Entry> queue, Edge edge)
+	{
+		edge.stamp++;
+		double cost = cost(edge);
+		if (cost < threshold)
+		{
+			queue.add(new Entry(edge, cost, secondaryCost(edge)));
+		}
+	}
+	
+	private double cost(Edge edge)
+	{
+		switch (criterion)
+		{
+		case BOUNDARY_MEAN:
+			return edge.mean();
+		case MIN_SIZE:
+			return Math.min(edge.region1.size, edge.region2.size);
+		case DYNAMIC:
+			return edge.mean() - Math.max(edge.region1.minimum, edge.region2.minimum);
+		default:
+			throw new RuntimeException("Unknown criterion: " + criterion);
+		}
+	}
+	
+	/**
+	 * Computes the value used to order edges with the same cost: the boundary
+	 * mean intensity for the size criterion if intensity is available, and
+	 * the opposite of the boundary length otherwise.
+	 */
+	private double secondaryCost(Edge edge)
+	{
+		if (criterion == Criterion.MIN_SIZE && hasIntensity)
+			return edge.mean();
+		return -edge.count;
+	}
+	
+	/**
+	 * Computes the new label image in a single pass over the original label
+	 * image.
+	 */
+	private ImageStack relabel(ImageStack labelImage, int[] labels, int[] mergedLabels)
+	{
+		int sizeX = labelImage.getWidth();
+		int sizeY = labelImage.getHeight();
+		int sizeZ = labelImage.getSize();
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+		
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, labelImage.getBitDepth());
+		ImageProcessor[] slices = new ImageProcessor[sizeZ];
+		for (int z = 0; z < sizeZ; z++)
+		{
+			slices[z] = labelImage.getProcessor(z + 1);
+		}
+		
+		for (int z = 0; z < sizeZ; z++)
+		{
+			this.fireProgressChanged(this, z, sizeZ);
+			ImageProcessor slice = slices[z];
+			ImageProcessor resSlice = result.getProcessor(z + 1);
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int index = y * sizeX + x;
+					int label = (int) slice.getf(index);
+					if (label != 0)
+					{
+						resSlice.setf(index, mergedLabels[labelIndices.indexOf(label)]);
+						continue;
+					}
+					
+					if (!fillGaps)
+						continue;
+					
+					// check if background element separates merged regions
+					int newLabel = 0;
+					int firstLabel = 0;
+					boolean several = false;
+					boolean valid = true;
+					for (int k = 0; k < 6 && valid; k++)
+					{
+						int label2 = neighborLabel(slices, x, y, z, k);
+						if (label2 == 0)
+							continue;
+						int newLabel2 = mergedLabels[labelIndices.indexOf(label2)];
+						if (newLabel == 0)
+						{
+							newLabel = newLabel2;
+							firstLabel = label2;
+						}
+						else if (newLabel2 != newLabel)
+						{
+							valid = false;
+						}
+						else if (label2 != firstLabel)
+						{
+							several = true;
+						}
+					}
+					if (valid && several)
+						resSlice.setf(index, newLabel);
+				}
+			}
+		}
+		this.fireProgressChanged(this, 1, 1);
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the label of the k-th orthogonal neighbor, or 0 if the neighbor
+	 * is outside of image.
+	 */
+	private static final int neighborLabel(ImageProcessor[] slices, int x, int y, int z, int k)
+	{
+		ImageProcessor slice = slices[z];
+		switch (k)
+		{
+		case 0: return x > 0 ? (int) slice.getf(x - 1, y) : 0;
+		case 1: return x < slice.getWidth() - 1 ? (int) slice.getf(x + 1, y) : 0;
+		case 2: return y > 0 ? (int) slice.getf(x, y - 1) : 0;
+		case 3: return y < slice.getHeight() - 1 ? (int) slice.getf(x, y + 1) : 0;
+		case 4: return z > 0 ? (int) slices[z - 1].getf(x, y) : 0;
+		case 5: return z < slices.length - 1 ? (int) slices[z + 1].getf(x, y) : 0;
+		default: return 0;
+		}
+	}
+	
+	
+	// ==================================================
+	// Inner classes
+	
+	/**
+	 * A region of the graph, that may have been merged with other regions.
+	 */
+	private static final class Region
+	{
+		/** The index of the region within the array of labels. */
+		final int index;
+		
+		/** The smallest label of the merged regions. */
+		int label;
+		
+		long size;
+		
+		double minimum;
+		
+		/** The region this region was merged into, or null. */
+		Region parent = null;
+		
+		/** The edges to the neighbor regions, indexed by neighbor index. */
+		HashMap<Integer, Edge> neighbors = new HashMap<Integer, Edge>();
+		
+		Region(int index, int label, long size, double minimum)
+		{
+			this.index = index;
+			this.label = label;
+			this.size = size;
+			this.minimum = minimum;
+		}
+		
+		Region root()
+		{
+			Region root = this;
+			while (root.parent != null)
+				root = root.parent;
+			
+			// path compression
+			Region region = this;
+			while (region.parent != null && region.parent != root)
+			{
+				Region next = region.parent;
+				region.parent = root;
+				region = next;
+			}
+			return root;
+		}
+	}
+	
+	/**
+	 * An edge between two adjacent regions, with boundary statistics.
+	 */
+	private static final class Edge
+	{
+		Region region1;
+		Region region2;
+		
+		/** The number of contacts between the two regions. */
+		long count;
+		
+		/** The sum of intensities along the boundary. */
+		double sum;
+		
+		/** Incremented each time the cost of the edge is updated. */
+		int stamp = 0;
+		
+		boolean removed = false;
+		
+		Edge(Region region1, Region region2, long count, double sum)
+		{
+			this.region1 = region1;
+			this.region2 = region2;
+			this.count = count;
+			this.sum = sum;
+		}
+		
+		double mean()
+		{
+			return sum / count;
+		}
+		
+		Region opposite(Region region)
+		{
+			return region == region1 ? region2 : region1;
+		}
+		
+		void replace(Region oldRegion, Region newRegion)
+		{
+			if (region1 == oldRegion)
+				region1 = newRegion;
+			else
+				region2 = newRegion;
+		}
+	}
+	
+	/**
+	 * An entry of the priority queue, valid only if its stamp equals the stamp
+	 * of the edge.
+	 */
+	private static final class Entry implements Comparable<Entry>
+	{
+		final Edge edge;
+		final double cost;
+		final double secondary;
+		final int stamp;
+		
+		Entry(Edge edge, double cost, double secondary)
+		{
+			this.edge = edge;
+			this.cost = cost;
+			this.secondary = secondary;
+			this.stamp = edge.stamp;
+		}
+		
+		@Override
+		public int compareTo(Entry that)
+		{
+			int res = Double.compare(this.cost, that.cost);
+			if (res != 0)
+				return res;
+			return Double.compare(this.secondary, that.secondary);
+		}
+	}
+}
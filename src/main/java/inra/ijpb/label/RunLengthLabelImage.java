@@ -0,0 +1,627 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+
+/**
+ * <p>
+ * Run-length encoded representation of a 2D or 3D label image. For each
+ * label, the image stores the list of runs of consecutive voxels with this
+ * label along the x-direction, in raster order.
+ * </p>
+ * 
+ * <p>
+ * The representation is built by scanning the dense image once. Queries and
+ * edits on a given label (voxel count, bounds, crop, replacement...) then
+ * require a time proportional to the number of runs of the label, instead of
+ * the number of voxels within the image. The result can be converted back to
+ * a dense image.
+ * </p>
+ * 
+ * <p>
+ * Example of use:
+ * <pre>{@code
+ * RunLengthLabelImage rle = new RunLengthLabelImage(labelImage);
+ * rle.removeBorderLabels();
+ * rle.replaceLabels(new int[] {3, 4}, 3);
+ * int[] counts = rle.voxelCount(rle.getLabels());
+ * ImageStack result = rle.toImageStack();
+ * }</pre>
+ * 
+ * @see LabelImages
+ * 
+ * @author dlegland
+ *
+ */
+public class RunLengthLabelImage
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The size of the image in each direction.
+	 */
+	int sizeX;
+	int sizeY;
+	int sizeZ;
+	
+	/**
+	 * The runs of each label, indexed by label value.
+	 */
+	TreeMap<Integer, Runs> labelRuns = new TreeMap<Integer, Runs>();
+	
+	
+	// ==================================================
+	// Constructors
+	
+	/**
+	 * Creates the run-length representation of a planar label image.
+	 * 
+	 * @param image
+	 *            a label image (8, 16 or 32 bits)
+	 */
+	public RunLengthLabelImage(ImageProcessor image)
+	{
+		this.sizeX = image.getWidth();
+		this.sizeY = image.getHeight();
+		this.sizeZ = 1;
+		
+		int[] labels = LabelImages.findAllLabels(image);
+		Runs[] runs = createRuns(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+		addRuns(image, 0, runs, labelIndices);
+	}
+	
+	/**
+	 * Creates the run-length representation of a 3D label image.
+	 * 
+	 * @param image
+	 *            a 3D label image (8, 16 or 32 bits)
+	 */
+	public RunLengthLabelImage(ImageStack image)
+	{
+		this.sizeX = image.getWidth();
+		this.sizeY = image.getHeight();
+		this.sizeZ = image.getSize();
+		
+		int[] labels = LabelImages.findAllLabels(image);
+		Runs[] runs = createRuns(labels);
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			addRuns(image.getProcessor(z + 1), z, runs, labelIndices);
+		}
+	}
+	
+	private Runs[] createRuns(int[] labels)
+	{
+		Runs[] runs = new Runs[labels.length];
+		for (int i = 0; i < labels.length; i++)
+		{
+			runs[i] = new Runs();
+			labelRuns.put(labels[i], runs[i]);
+		}
+		return runs;
+	}
+	
+	/**
+	 * Adds the runs of the specified slice to the runs of each label.
+	 */
+	private void addRuns(ImageProcessor slice, int z, Runs[] runs, LabelUtils.LabelIndexMap labelIndices)
+	{
+		for (int y = 0; y < sizeY; y++)
+		{
+			int row = z * sizeY + y;
+			int offset = y * sizeX;
+			
+			int x0 = 0;
+			int current = (int) slice.getf(offset);
+			for (int x = 1; x <= sizeX; x++)
+			{
+				int label = x < sizeX ? (int) slice.getf(offset + x) : 0;
+				if (x < sizeX && label == current)
+				{
+					continue;
+				}
+				
+				// end of the current run
+				if (current != 0)
+				{
+					runs[labelIndices.indexOf(current)].add(row, x0, x);
+				}
+				x0 = x;
+				current = label;
+			}
+		}
+	}
+	
+	
+	// ==================================================
+	// Label queries
+	
+	/**
+	 * @return the size of the image in the x, y and z directions
+	 */
+	public int[] getSize()
+	{
+		return new int[] {sizeX, sizeY, sizeZ};
+	}
+	
+	/**
+	 * @return the sorted array of labels within the image, excluding the
+	 *         background
+	 */
+	public int[] getLabels()
+	{
+		int[] labels = new int[labelRuns.size()];
+		int i = 0;
+		for (int label : labelRuns.keySet())
+		{
+			labels[i++] = label;
+		}
+		return labels;
+	}
+	
+	/**
+	 * @param label
+	 *            a label value
+	 * @return true if the image contains at least one voxel with the label
+	 */
+	public boolean containsLabel(int label)
+	{
+		return labelRuns.containsKey(label);
+	}
+	
+	/**
+	 * Returns the number of runs of the specified label, that is, the number of
+	 * sequences of consecutive voxels along the x-direction.
+	 * 
+	 * @param label
+	 *            a label value
+	 * @return the number of runs of the label
+	 */
+	public int runCount(int label)
+	{
+		Runs runs = labelRuns.get(label);
+		return runs == null ? 0 : runs.size;
+	}
+	
+	/**
+	 * Returns the number of voxels of the specified label.
+	 * 
+	 * @param label
+	 *            a label value
+	 * @return the number of voxels with the label
+	 */
+	public int voxelCount(int label)
+	{
+		Runs runs = labelRuns.get(label);
+		return runs == null ? 0 : runs.voxelCount();
+	}
+	
+	/**
+	 * Returns the number of voxels of each label within the specified array.
+	 * 
+	 * @param labels
+	 *            an array of label values
+	 * @return the number of voxels of each label
+	 */
+	public int[] voxelCount(int[] labels)
+	{
+		int[] counts = new int[labels.length];
+		for (int i = 0; i < labels.length; i++)
+		{
+			counts[i] = voxelCount(labels[i]);
+		}
+		return counts;
+	}
+	
+	/**
+	 * Computes the bounds of the specified label, as an array containing
+	 * xmin, xmax, ymin, ymax, zmin and zmax, all bounds being inclusive.
+	 * 
+	 * @param label
+	 *            a label value
+	 * @return the bounds of the label
+	 * @throws IllegalArgumentException
+	 *             if the image does not contain the label
+	 */
+	public int[] bounds(int label)
+	{
+		Runs runs = getRuns(label);
+		
+		int xmin = Integer.MAX_VALUE, xmax = Integer.MIN_VALUE;
+		for (int i = 0; i < runs.size; i++)
+		{
+			xmin = Math.min(xmin, runs.data[3 * i + 1]);
+			xmax = Math.max(xmax, runs.data[3 * i + 2] - 1);
+		}
+		
+		// rows are sorted, so z-range is given by first and last runs
+		int row0 = runs.data[0];
+		int row1 = runs.data[3 * (runs.size - 1)];
+		int ymin = Integer.MAX_VALUE, ymax = Integer.MIN_VALUE;
+		if (row1 / sizeY == row0 / sizeY)
+		{
+			ymin = row0 % sizeY;
+			ymax = row1 % sizeY;
+		}
+		else
+		{
+			for (int i = 0; i < runs.size; i++)
+			{
+				int y = runs.data[3 * i] % sizeY;
+				ymin = Math.min(ymin, y);
+				ymax = Math.max(ymax, y);
+			}
+		}
+		
+		return new int[] {xmin, xmax, ymin, ymax, row0 / sizeY, row1 / sizeY};
+	}
+	
+	/**
+	 * Returns the labels of the regions that touch the borders of the image.
+	 * For planar images, only the borders along the x and y directions are
+	 * considered.
+	 * 
+	 * @return the sorted array of labels touching the image borders
+	 */
+	public int[] findBorderLabels()
+	{
+		ArrayList<Integer> borderLabels = new ArrayList<Integer>();
+		for (Map.Entry<Integer, Runs> entry : labelRuns.entrySet())
+		{
+			int[] bounds = bounds(entry.getKey());
+			if (bounds[0] == 0 || bounds[1] == sizeX - 1 
+					|| bounds[2] == 0 || bounds[3] == sizeY - 1
+					|| (sizeZ > 1 && (bounds[4] == 0 || bounds[5] == sizeZ - 1)))
+			{
+				borderLabels.add(entry.getKey());
+			}
+		}
+		
+		int[] res = new int[borderLabels.size()];
+		for (int i = 0; i < res.length; i++)
+		{
+			res[i] = borderLabels.get(i);
+		}
+		return res;
+	}
+	
+	
+	// ==================================================
+	// Label edition
+	
+	/**
+	 * Replaces all the specified labels by a new label. If the new label is
+	 * zero, the corresponding regions are removed.
+	 * 
+	 * @param labels
+	 *            the labels to replace
+	 * @param newLabel
+	 *            the new value of the labels
+	 */
+	public void replaceLabels(int[] labels, int newLabel)
+	{
+		// collect runs of labels to merge, including the new label if present
+		TreeSet<Integer> labelSet = new TreeSet<Integer>();
+		for (int label : labels)
+		{
+			labelSet.add(label);
+		}
+		if (newLabel != 0)
+		{
+			labelSet.add(newLabel);
+		}
+		
+		ArrayList<Runs> runsList = new ArrayList<Runs>(labelSet.size());
+		for (int label : labelSet)
+		{
+			Runs runs = labelRuns.remove(label);
+			if (runs != null)
+			{
+				runsList.add(runs);
+			}
+		}
+		
+		if (newLabel == 0 || runsList.isEmpty())
+		{
+			return;
+		}
+		
+		// merge runs of the different labels
+		Runs merged = runsList.get(0);
+		for (int i = 1; i < runsList.size(); i++)
+		{
+			merged = Runs.merge(merged, runsList.get(i));
+		}
+		labelRuns.put(newLabel, merged);
+	}
+	
+	/**
+	 * Removes the specified labels from the image.
+	 * 
+	 * @param labels
+	 *            the labels to remove
+	 */
+	public void removeLabels(int[] labels)
+	{
+		for (int label : labels)
+		{
+			labelRuns.remove(label);
+		}
+	}
+	
+	/**
+	 * Removes all the labels that are not within the specified array.
+	 * 
+	 * @param labels
+	 *            the labels to keep
+	 */
+	public void keepLabels(int[] labels)
+	{
+		TreeMap<Integer, Runs> newRuns = new TreeMap<Integer, Runs>();
+		for (int label : labels)
+		{
+			Runs runs = labelRuns.get(label);
+			if (runs != null)
+			{
+				newRuns.put(label, runs);
+			}
+		}
+		this.labelRuns = newRuns;
+	}
+	
+	/**
+	 * Removes all the regions that touch the borders of the image.
+	 */
+	public void removeBorderLabels()
+	{
+		removeLabels(findBorderLabels());
+	}
+	
+	
+	// ==================================================
+	// Conversion to dense images
+	
+	/**
+	 * Creates a binary image of the specified label, cropped around its
+	 * bounds, with the same result as
+	 * {@link LabelImages#cropLabel(ImageStack, int, int)}.
+	 * 
+	 * @param label
+	 *            the label of the region to crop
+	 * @param border
+	 *            the number of voxels to add to each side of the region
+	 * @return a smaller binary image containing only the selected region
+	 */
+	public ImageStack cropLabel(int label, int border)
+	{
+		Runs runs = getRuns(label);
+		int[] bounds = bounds(label);
+		
+		int sizeX2 = bounds[1] - bounds[0] + 1 + 2 * border;
+		int sizeY2 = bounds[3] - bounds[2] + 1 + 2 * border;
+		int sizeZ2 = bounds[5] - bounds[4] + 1 + 2 * border;
+		ImageStack result = ImageStack.create(sizeX2, sizeY2, sizeZ2, 8);
+		
+		for (int i = 0; i < runs.size; i++)
+		{
+			int row = runs.data[3 * i];
+			int z2 = row / sizeY - bounds[4] + border;
+			int y2 = row % sizeY - bounds[2] + border;
+			byte[] pixels = (byte[]) result.getPixels(z2 + 1);
+			int offset = y2 * sizeX2 - bounds[0] + border;
+			Arrays.fill(pixels, offset + runs.data[3 * i + 1], offset + runs.data[3 * i + 2], (byte) 255);
+		}
+		return result;
+	}
+	
+	/**
+	 * Converts this run-length representation into a dense label image,
+	 * using the smallest bit depth that can represent all the labels (8 or 16
+	 * bits, or 32 bits for larger values).
+	 * 
+	 * @return a new 3D label image
+	 */
+	public ImageStack toImageStack()
+	{
+		int maxLabel = labelRuns.isEmpty() ? 0 : labelRuns.lastKey();
+		int bitDepth = maxLabel < 256 ? 8 : (maxLabel < 65536 ? 16 : 32);
+		return toImageStack(bitDepth);
+	}
+	
+	/**
+	 * Converts this run-length representation into a dense label image with
+	 * the specified bit depth.
+	 * 
+	 * @param bitDepth
+	 *            the bit depth of the result image (8, 16 or 32)
+	 * @return a new 3D label image
+	 */
+	public ImageStack toImageStack(int bitDepth)
+	{
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, bitDepth);
+		ImageProcessor[] slices = new ImageProcessor[sizeZ];
+		for (int z = 0; z < sizeZ; z++)
+		{
+			slices[z] = result.getProcessor(z + 1);
+		}
+		for (Map.Entry<Integer, Runs> entry : labelRuns.entrySet())
+		{
+			fillRuns(slices, entry.getValue(), entry.getKey());
+		}
+		return result;
+	}
+	
+	/**
+	 * Converts this run-length representation into a dense planar label
+	 * image, using the smallest bit depth that can represent all the labels.
+	 * 
+	 * @return a new planar label image
+	 * @throws RuntimeException
+	 *             if the image has more than one slice
+	 */
+	public ImageProcessor toImageProcessor()
+	{
+		if (sizeZ != 1)
+		{
+			throw new RuntimeException("Requires a planar label image");
+		}
+		return toImageStack().getProcessor(1);
+	}
+	
+	private void fillRuns(ImageProcessor[] slices, Runs runs, int label)
+	{
+		for (int i = 0; i < runs.size; i++)
+		{
+			int row = runs.data[3 * i];
+			ImageProcessor slice = slices[row / sizeY];
+			int offset = (row % sizeY) * sizeX;
+			int x0 = runs.data[3 * i + 1];
+			int x1 = runs.data[3 * i + 2];
+			if (slice instanceof ByteProcessor)
+			{
+				Arrays.fill((byte[]) slice.getPixels(), offset + x0, offset + x1, (byte) label);
+			}
+			else if (slice instanceof ShortProcessor)
+			{
+				Arrays.fill((short[]) slice.getPixels(), offset + x0, offset + x1, (short) label);
+			}
+			else if (slice instanceof FloatProcessor)
+			{
+				Arrays.fill((float[]) slice.getPixels(), offset + x0, offset + x1, (float) label);
+			}
+			else
+			{
+				for (int x = x0; x < x1; x++)
+				{
+					slice.setf(offset + x, label);
+				}
+			}
+		}
+	}
+	
+	private Runs getRuns(int label)
+	{
+		Runs runs = labelRuns.get(label);
+		if (runs == null)
+		{
+			throw new IllegalArgumentException("Image does not contain label: " + label);
+		}
+		return runs;
+	}
+	
+	
+	// ==================================================
+	// Inner class for storing runs
+	
+	/**
+	 * The runs of a label, stored as triplets (row, x0, x1) within a single
+	 * array, where row = z * sizeY + y, and x1 is exclusive. Runs are sorted
+	 * in raster order.
+	 */
+	static final class Runs
+	{
+		int[] data = new int[3 * 4];
+		int size = 0;
+		
+		void add(int row, int x0, int x1)
+		{
+			// merge with previous run if they touch
+			if (size > 0 && data[3 * size - 3] == row && data[3 * size - 1] == x0)
+			{
+				data[3 * size - 1] = x1;
+				return;
+			}
+			
+			if (3 * size == data.length)
+			{
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			data[3 * size] = row;
+			data[3 * size + 1] = x0;
+			data[3 * size + 2] = x1;
+			size++;
+		}
+		
+		int voxelCount()
+		{
+			int count = 0;
+			for (int i = 0; i < size; i++)
+			{
+				count += data[3 * i + 2] - data[3 * i + 1];
+			}
+			return count;
+		}
+		
+		/**
+		 * Merges two sorted lists of (disjoint) runs into a new sorted list.
+		 */
+		static Runs merge(Runs runs1, Runs runs2)
+		{
+			Runs res = new Runs();
+			res.data = new int[3 * Math.max(runs1.size + runs2.size, 1)];
+			int i1 = 0, i2 = 0;
+			while (i1 < runs1.size || i2 < runs2.size)
+			{
+				boolean first;
+				if (i1 == runs1.size)
+				{
+					first = false;
+				}
+				else if (i2 == runs2.size)
+				{
+					first = true;
+				}
+				else
+				{
+					int row1 = runs1.data[3 * i1], row2 = runs2.data[3 * i2];
+					first = row1 < row2 || (row1 == row2 && runs1.data[3 * i1 + 1] < runs2.data[3 * i2 + 1]);
+				}
+				
+				if (first)
+				{
+					res.add(runs1.data[3 * i1], runs1.data[3 * i1 + 1], runs1.data[3 * i1 + 2]);
+					i1++;
+				}
+				else
+				{
+					res.add(runs2.data[3 * i2], runs2.data[3 * i2 + 1], runs2.data[3 * i2 + 2]);
+					i2++;
+				}
+			}
+			return res;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label.distmap;
+
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Computes the exact Euclidean distance transform of 2D label images, using
+ * a separable algorithm. For each label pixel, the distance to the nearest
+ * pixel with a different value is computed.
+ * 
+ * @see EuclideanDistanceTransform3DFloat
+ * @see ChamferDistanceTransform2DFloat
+ * 
+ * @author David Legland
+ * 
+ */
+public class EuclideanDistanceTransform2DFloat extends AlgoStub implements DistanceTransform2D
+{
+	// ==================================================
+	// Class variables
+
+	/**
+	 * The spacing between two pixels in each direction.
+	 */
+	double[] spacing = new double[] {1.0, 1.0};
+	
+	/**
+	 * The number of threads used for computing the distance map.
+	 */
+	int threadCount = 1;
+	
+	
+	// ==================================================
+	// Constructors 
+	
+	/**
+	 * Creates a new algorithm for computing 2D Euclidean distance maps on
+	 * label images, using a unit spacing in each direction.
+	 */
+	public EuclideanDistanceTransform2DFloat()
+	{
+	}
+	
+	/**
+	 * Creates a new algorithm for computing 2D Euclidean distance maps on
+	 * label images, using the specified spacing between pixels.
+	 * 
+	 * @param spacing
+	 *            the spacing between pixels in the x and y directions
+	 */
+	public EuclideanDistanceTransform2DFloat(double[] spacing)
+	{
+		if (spacing.length != 2)
+		{
+			throw new IllegalArgumentException("Requires a spacing array with two values");
+		}
+		this.spacing = spacing.clone();
+	}
+	
+	
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return the number of threads used for computing the distance map
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * @param nThreads
+	 *            the number of threads used for computing the distance map
+	 */
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+
+	
+	// ==================================================
+	// Implementation of the DistanceTransform2D interface 
+	
+	@Override
+	public FloatProcessor distanceMap(ImageProcessor image)
+	{
+		double[] dist2 = squaredDistanceMap(image);
+		
+		// convert to distances
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		float[] array = new float[sizeX * sizeY];
+		double maxDist = 0;
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = (float) Math.sqrt(dist2[i]);
+			if (!Double.isInfinite(dist2[i]))
+			{
+				maxDist = Math.max(maxDist, array[i]);
+			}
+		}
+		
+		FloatProcessor result = new FloatProcessor(sizeX, sizeY, array);
+		result.setMinAndMax(0, maxDist);
+		return result;
+	}
+	
+	/**
+	 * Computes the squared distance map from a label image, using double
+	 * precision. Regions that do not touch any other region nor the
+	 * background are associated to the value
+	 * <code>Double.POSITIVE_INFINITY</code>.
+	 * 
+	 * @param image
+	 *            a label image, with 0 as background
+	 * @return the squared distance to the nearest pixel with a different
+	 *         label, as an array indexed by <code>y * sizeX + x</code>.
+	 */
+	public double[] squaredDistanceMap(ImageProcessor image)
+	{
+		// size of image
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		
+		double[] dist2 = new double[sizeX * sizeY];
+		
+		double wx = spacing[0] * spacing[0];
+		double wy = spacing[1] * spacing[1];
+		
+		// compute distances along each row
+		fireStatusChanged(this, "Distance map (X)");
+		ParallelSlabs.process(sizeY, this.threadCount, (y0, y1) -> {
+			double[] f = new double[sizeX];
+			int[] labels = new int[sizeX];
+			double[] d = new double[sizeX];
+			double[] g = new double[sizeX + 2];
+			double[] e = new double[sizeX + 2];
+			int[] v = new int[sizeX + 2];
+			double[] r = new double[sizeX + 3];
+			
+			for (int x = 0; x < sizeX; x++)
+			{
+				f[x] = Double.POSITIVE_INFINITY;
+			}
+			for (int y = y0; y < y1; y++)
+			{
+				int offset = y * sizeX;
+				for (int x = 0; x < sizeX; x++)
+				{
+					labels[x] = (int) image.getf(offset + x);
+				}
+				EuclideanDistanceTransform3DFloat.transformRuns(f, labels, sizeX, wx, d, g, e, v, r);
+				System.arraycopy(d, 0, dist2, offset, sizeX);
+			}
+		});
+		
+		// propagate along each column
+		fireStatusChanged(this, "Distance map (Y)");
+		ParallelSlabs.process(sizeX, this.threadCount, (x0, x1) -> {
+			double[] f = new double[sizeY];
+			int[] labels = new int[sizeY];
+			double[] d = new double[sizeY];
+			double[] g = new double[sizeY + 2];
+			double[] e = new double[sizeY + 2];
+			int[] v = new int[sizeY + 2];
+			double[] r = new double[sizeY + 3];
+			
+			for (int x = x0; x < x1; x++)
+			{
+				for (int y = 0; y < sizeY; y++)
+				{
+					int index = y * sizeX + x;
+					f[y] = dist2[index];
+					labels[y] = (int) image.getf(index);
+				}
+				EuclideanDistanceTransform3DFloat.transformRuns(f, labels, sizeY, wy, d, g, e, v, r);
+				for (int y = 0; y < sizeY; y++)
+				{
+					dist2[y * sizeX + x] = d[y];
+				}
+			}
+		});
+		
+		fireStatusChanged(this, "");
+		return dist2;
+	}
+}
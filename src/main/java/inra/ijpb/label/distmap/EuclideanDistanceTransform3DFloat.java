@@ -0,0 +1,342 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label.distmap;
+
+import static inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat.transform1d;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.data.image.Images3D;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Computes the exact Euclidean distance transform of 3D label images, using
+ * a separable algorithm. For each label voxel, the distance to the nearest
+ * voxel with a different value is computed.
+ * 
+ * <p>
+ * The algorithm extends the separable algorithm of Felzenszwalb and
+ * Huttenlocher to label images: each line of the image is split into runs of
+ * voxels with the same label, and the lower envelope of parabolas is computed
+ * independently for each run, considering that the voxels adjacent to the
+ * run are at distance zero. Lines are processed independently, making it
+ * possible to use several threads.
+ * </p>
+ * 
+ * @see inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat
+ * @see ChamferDistanceTransform3DFloat
+ * 
+ * @author David Legland
+ * 
+ */
+public class EuclideanDistanceTransform3DFloat extends AlgoStub implements DistanceTransform3D
+{
+	// ==================================================
+	// Static methods
+	
+	/**
+	 * Computes the one-dimensional squared distance transform of a line of
+	 * labels. For each run of voxels with the same (non zero) label, the
+	 * result is given by the lower envelope of the parabolas associated to
+	 * the voxels within the run, and to the two voxels adjacent to the run,
+	 * that are associated to a zero value. Background voxels are associated
+	 * to a zero distance.
+	 * 
+	 * @param f
+	 *            the current squared distances along the line
+	 * @param labels
+	 *            the labels along the line
+	 * @param n
+	 *            the number of values to process
+	 * @param w
+	 *            the weight associated to squared distances (squared spacing)
+	 * @param d
+	 *            the array used to store the result
+	 * @param g
+	 *            buffer for the values within a run, with at least
+	 *            <code>n+2</code> elements
+	 * @param e
+	 *            buffer for the result within a run, with at least
+	 *            <code>n+2</code> elements
+	 * @param v
+	 *            buffer for the locations of parabolas, with at least
+	 *            <code>n+2</code> elements
+	 * @param r
+	 *            buffer for the boundaries between parabolas, with at least
+	 *            <code>n+3</code> elements
+	 */
+	static final void transformRuns(double[] f, int[] labels, int n, double w, double[] d, 
+			double[] g, double[] e, int[] v, double[] r)
+	{
+		int a = 0;
+		while (a < n)
+		{
+			// identify the run of voxels with the same label
+			int label = labels[a];
+			int b = a + 1;
+			while (b < n && labels[b] == label)
+			{
+				b++;
+			}
+			
+			if (label == 0)
+			{
+				for (int i = a; i < b; i++)
+				{
+					d[i] = 0;
+				}
+				a = b;
+				continue;
+			}
+			
+			// local values, with zero values for the voxels adjacent to the run
+			int m = 0;
+			int start = a > 0 ? a - 1 : a;
+			if (a > 0)
+			{
+				g[m++] = 0;
+			}
+			for (int i = a; i < b; i++)
+			{
+				g[m++] = f[i];
+			}
+			if (b < n)
+			{
+				g[m++] = 0;
+			}
+			
+			transform1d(g, m, w, e, v, r);
+			for (int i = a; i < b; i++)
+			{
+				d[i] = e[i - start];
+			}
+			a = b;
+		}
+	}
+	
+	
+	// ==================================================
+	// Class variables
+
+	/**
+	 * The spacing between two voxels in each direction.
+	 */
+	double[] spacing = new double[] {1.0, 1.0, 1.0};
+	
+	/**
+	 * The number of threads used for computing the distance map.
+	 */
+	int threadCount = 1;
+	
+	
+	// ==================================================
+	// Constructors 
+	
+	/**
+	 * Creates a new algorithm for computing 3D Euclidean distance maps on
+	 * label images, using a unit spacing in each direction.
+	 */
+	public EuclideanDistanceTransform3DFloat()
+	{
+	}
+	
+	/**
+	 * Creates a new algorithm for computing 3D Euclidean distance maps on
+	 * label images, using the specified spacing between voxels.
+	 * 
+	 * @param spacing
+	 *            the spacing between voxels in the x, y and z directions
+	 */
+	public EuclideanDistanceTransform3DFloat(double[] spacing)
+	{
+		if (spacing.length != 3)
+		{
+			throw new IllegalArgumentException("Requires a spacing array with three values");
+		}
+		this.spacing = spacing.clone();
+	}
+	
+	
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return the number of threads used for computing the distance map
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * @param nThreads
+	 *            the number of threads used for computing the distance map
+	 */
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+
+	
+	// ==================================================
+	// Implementation of the DistanceTransform3D interface 
+	
+	@Override
+	public ImageStack distanceMap(ImageStack image)
+	{
+		double[][] dist2 = squaredDistanceMap(image);
+		
+		// convert to distances
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, 32);
+		float[][] resultSlices = Images3D.getFloatArrays(result);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			double[] slice = dist2[z];
+			float[] resSlice = resultSlices[z];
+			for (int i = 0; i < slice.length; i++)
+			{
+				resSlice[i] = (float) Math.sqrt(slice[i]);
+			}
+		}
+		
+		return result;
+	}
+
+	/**
+	 * Computes the squared distance map from a 3D label image, using double
+	 * precision. Regions that do not touch any other region nor the
+	 * background are associated to the value
+	 * <code>Double.POSITIVE_INFINITY</code>.
+	 * 
+	 * @param image
+	 *            a 3D label image, with 0 as background
+	 * @return the squared distance to the nearest voxel with a different
+	 *         label, as an array of slices. The index within each slice is
+	 *         given by <code>y * sizeX + x</code>.
+	 */
+	public double[][] squaredDistanceMap(ImageStack image)
+	{
+		// size of image
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		
+		ImageProcessor[] slices = new ImageProcessor[sizeZ];
+		for (int z = 0; z < sizeZ; z++)
+		{
+			slices[z] = image.getProcessor(z + 1);
+		}
+		double[][] dist2 = new double[sizeZ][sizeX * sizeY];
+		
+		double wx = spacing[0] * spacing[0];
+		double wy = spacing[1] * spacing[1];
+		double wz = spacing[2] * spacing[2];
+		
+		// Process each slice independently for the x and y directions
+		fireStatusChanged(this, "Distance map (XY)");
+		ParallelSlabs.process(sizeZ, this.threadCount, (z0, z1) -> {
+			int n = Math.max(sizeX, sizeY);
+			double[] f = new double[n];
+			int[] labels = new int[n];
+			double[] d = new double[n];
+			double[] g = new double[n + 2];
+			double[] e = new double[n + 2];
+			int[] v = new int[n + 2];
+			double[] r = new double[n + 3];
+			
+			for (int z = z0; z < z1; z++)
+			{
+				ImageProcessor labelSlice = slices[z];
+				double[] slice = dist2[z];
+				
+				// distance along each row
+				for (int x = 0; x < sizeX; x++)
+				{
+					f[x] = Double.POSITIVE_INFINITY;
+				}
+				for (int y = 0; y < sizeY; y++)
+				{
+					int offset = y * sizeX;
+					for (int x = 0; x < sizeX; x++)
+					{
+						labels[x] = (int) labelSlice.getf(offset + x);
+					}
+					transformRuns(f, labels, sizeX, wx, d, g, e, v, r);
+					System.arraycopy(d, 0, slice, offset, sizeX);
+				}
+				
+				// propagate along each column
+				for (int x = 0; x < sizeX; x++)
+				{
+					for (int y = 0; y < sizeY; y++)
+					{
+						int index = y * sizeX + x;
+						f[y] = slice[index];
+						labels[y] = (int) labelSlice.getf(index);
+					}
+					transformRuns(f, labels, sizeY, wy, d, g, e, v, r);
+					for (int y = 0; y < sizeY; y++)
+					{
+						slice[y * sizeX + x] = d[y];
+					}
+				}
+			}
+		});
+		
+		// Propagate along the z direction, processing rows independently 
+		fireStatusChanged(this, "Distance map (Z)");
+		ParallelSlabs.process(sizeY, this.threadCount, (y0, y1) -> {
+			double[] f = new double[sizeZ];
+			int[] labels = new int[sizeZ];
+			double[] d = new double[sizeZ];
+			double[] g = new double[sizeZ + 2];
+			double[] e = new double[sizeZ + 2];
+			int[] v = new int[sizeZ + 2];
+			double[] r = new double[sizeZ + 3];
+			
+			for (int y = y0; y < y1; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int index = y * sizeX + x;
+					for (int z = 0; z < sizeZ; z++)
+					{
+						f[z] = dist2[z][index];
+						labels[z] = (int) slices[z].getf(index);
+					}
+					transformRuns(f, labels, sizeZ, wz, d, g, e, v, r);
+					for (int z = 0; z < sizeZ; z++)
+					{
+						dist2[z][index] = d[z];
+					}
+				}
+			}
+		});
+		
+		fireStatusChanged(this, "");
+		return dist2;
+	}
+}
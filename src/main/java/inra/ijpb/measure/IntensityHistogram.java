@@ -0,0 +1,291 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure;
+
+/**
+ * Sparse histogram of intensity values, used to compute rank statistics
+ * (median, percentiles, mode) with a memory footprint that does not depend on
+ * the number of values.
+ * 
+ * Values are associated to one of 65536 bins, organized into 256 blocks of
+ * 256 bins that are allocated only when one of their bins is used.
+ * <ul>
+ * <li>In <em>exact</em> mode, used for 8-bits and 16-bits images, each bin
+ * corresponds to an integer value between 0 and 65535, and the statistics are
+ * exact.</li>
+ * <li>Otherwise, bins are indexed by the 16 most significant bits of the
+ * (order-preserving) binary representation of the values, and each bin keeps
+ * the sum of its values. Statistics are computed from the mean value within
+ * the bin, resulting in a relative error smaller than 2<sup>-7</sup>, and in
+ * exact results when a bin contains a single distinct value.</li>
+ * </ul>
+ * Histograms computed with the same mode can be merged.
+ * 
+ * @see IntensityMeasures
+ * 
+ * @author dlegland
+ */
+public class IntensityHistogram
+{
+	// ==================================================
+	// Class variables
+
+	/** whether bins correspond to integer values */
+	boolean exact;
+	
+	/** the counts within each bin, allocated by blocks of 256 bins */
+	long[][] counts = new long[256][];
+	
+	/** the sum of values within each bin, only used for non exact mode */
+	double[][] sums;
+	
+	/** the total number of values */
+	long total = 0;
+	
+	
+	// ==================================================
+	// Constructor
+
+	/**
+	 * Creates a new empty histogram.
+	 * 
+	 * @param exact
+	 *            if true, values are assumed to be integers between 0 and
+	 *            65535 and the histogram is exact. Otherwise, values are
+	 *            grouped into bins with bounded relative width.
+	 */
+	public IntensityHistogram(boolean exact)
+	{
+		this.exact = exact;
+		if (!exact)
+		{
+			this.sums = new double[256][];
+		}
+	}
+	
+	
+	// ==================================================
+	// Update methods
+
+	/**
+	 * Adds a value to the histogram. NaN values are ignored.
+	 * 
+	 * @param value
+	 *            the value to add
+	 */
+	public void add(double value)
+	{
+		if (Double.isNaN(value))
+		{
+			return;
+		}
+		int key = key(value);
+		int b = key >> 8;
+		if (counts[b] == null)
+		{
+			counts[b] = new long[256];
+			if (!exact)
+			{
+				sums[b] = new double[256];
+			}
+		}
+		counts[b][key & 0x00FF]++;
+		if (!exact)
+		{
+			sums[b][key & 0x00FF] += value;
+		}
+		total++;
+	}
+	
+	/**
+	 * Adds the content of another histogram, computed with the same mode, to
+	 * this histogram.
+	 * 
+	 * @param other
+	 *            the histogram to merge
+	 */
+	public void add(IntensityHistogram other)
+	{
+		if (other.exact != this.exact)
+		{
+			throw new IllegalArgumentException("Can not merge histograms computed with different modes");
+		}
+		for (int b = 0; b < 256; b++)
+		{
+			if (other.counts[b] == null)
+			{
+				continue;
+			}
+			if (counts[b] == null)
+			{
+				counts[b] = new long[256];
+				if (!exact)
+				{
+					sums[b] = new double[256];
+				}
+			}
+			for (int i = 0; i < 256; i++)
+			{
+				counts[b][i] += other.counts[b][i];
+				if (!exact)
+				{
+					sums[b][i] += other.sums[b][i];
+				}
+			}
+		}
+		total += other.total;
+	}
+	
+	
+	// ==================================================
+	// Statistics
+
+	/**
+	 * @return the number of values within the histogram
+	 */
+	public long count()
+	{
+		return total;
+	}
+	
+	/**
+	 * Returns the value with the specified rank, the values being sorted in
+	 * increasing order.
+	 * 
+	 * @param rank
+	 *            the rank of the value, between 0 and count()-1
+	 * @return the value with the specified rank, or NaN if the histogram is
+	 *         empty
+	 */
+	public double valueAtRank(long rank)
+	{
+		if (total == 0)
+		{
+			return Double.NaN;
+		}
+		rank = Math.max(Math.min(rank, total - 1), 0);
+		
+		long cumSum = 0;
+		for (int b = 0; b < 256; b++)
+		{
+			if (counts[b] == null)
+			{
+				continue;
+			}
+			for (int i = 0; i < 256; i++)
+			{
+				cumSum += counts[b][i];
+				if (cumSum > rank)
+				{
+					return binValue(b, i);
+				}
+			}
+		}
+		throw new RuntimeException("Could not find value with rank " + rank);
+	}
+	
+	/**
+	 * Returns the median value, defined as the value with rank
+	 * <code>count()/2</code>. For an even number of values, this corresponds
+	 * to the upper of the two central values.
+	 * 
+	 * @return the median value, or NaN if the histogram is empty
+	 */
+	public double median()
+	{
+		return valueAtRank(total / 2);
+	}
+	
+	/**
+	 * Returns the value corresponding to the specified percentile, using the
+	 * nearest-rank method.
+	 * 
+	 * @param percent
+	 *            the percentile, between 0 and 100
+	 * @return the value corresponding to the percentile, or NaN if the
+	 *         histogram is empty
+	 */
+	public double percentile(double percent)
+	{
+		long rank = (long) Math.ceil(percent * total / 100.0) - 1;
+		return valueAtRank(rank);
+	}
+	
+	/**
+	 * Returns the most frequent value. In case of ties, the smallest value is
+	 * returned.
+	 * 
+	 * @return the most frequent value, or NaN if the histogram is empty
+	 */
+	public double mode()
+	{
+		long maxCount = 0;
+		int bestBlock = -1;
+		int bestBin = -1;
+		for (int b = 0; b < 256; b++)
+		{
+			if (counts[b] == null)
+			{
+				continue;
+			}
+			for (int i = 0; i < 256; i++)
+			{
+				if (counts[b][i] > maxCount)
+				{
+					maxCount = counts[b][i];
+					bestBlock = b;
+					bestBin = i;
+				}
+			}
+		}
+		return maxCount > 0 ? binValue(bestBlock, bestBin) : Double.NaN;
+	}
+	
+	
+	// ==================================================
+	// Utility methods
+
+	private double binValue(int block, int bin)
+	{
+		if (exact)
+		{
+			return (block << 8) + bin;
+		}
+		return sums[block][bin] / counts[block][bin];
+	}
+	
+	/**
+	 * Computes the index of the bin associated to a value.
+	 */
+	private int key(double value)
+	{
+		if (exact)
+		{
+			return Math.max(Math.min((int) value, 65535), 0);
+		}
+		
+		// order-preserving mapping of float bits to unsigned integers
+		int bits = Float.floatToIntBits((float) value);
+		bits ^= (bits >> 31) & 0x7FFFFFFF;
+		return (bits ^ 0x80000000) >>> 16;
+	}
+}
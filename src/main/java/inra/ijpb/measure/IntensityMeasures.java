@@ -21,34 +21,31 @@
  */
 package inra.ijpb.measure;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Set;
-
 import ij.ImagePlus;
 import ij.measure.ResultsTable;
-import inra.ijpb.label.RegionAdjacencyGraph;
-import inra.ijpb.label.RegionAdjacencyGraph.LabelPair;
+import inra.ijpb.label.AdjacencyGraph;
 
 
 /**
  * Class to facilitate the calculation of intensity measures by
  * grouping together voxels belonging to the same label.
  * 
+ * Moment-based measures (mean, standard deviation, skewness, kurtosis,
+ * extrema) are computed from running moments accumulated in a single pass.
+ * Rank-based measures (median, mode, percentiles) are computed from
+ * intensity histograms, exact for 8-bits and 16-bits images, and with a
+ * bounded relative error for floating point images (see
+ * {@link IntensityHistogram}). Measures of neighbor labels are obtained by
+ * merging the moments or the histograms of the adjacent labels.
+ * 
  * @author Ignacio Arganda-Carreras
  *
  */
 public class IntensityMeasures extends LabeledVoxelsMeasure{
-    /** adjacency list */
-    Set<LabelPair> adjList = null;
-    /** list of adjacent pixels/voxels per label */
-    ArrayList<Double>[] neighborVoxels = null;
-    /**
-     * intensity mode per region labeled and number of pixels/voxels with that
-     * intensity
-     */
-    double[][] mode = null;
+    /** adjacency graph of the regions */
+    AdjacencyGraph adjacencyGraph = null;
+    /** indices of the adjacent labels, for each label */
+    int[][] neighborIndices = null;
     /** maximum intensity value per labeled region */
     double[] max = null;
     /** minimum intensity value per labeled region */
@@ -57,10 +54,6 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
     double[] mean = null;
     /** neighbors mean intensity value per labeled region */
     double[] neighborsMean = null;
-    /** intensity histogram per label */
-    HashMap<Double, Integer>[] histogramPerLabel = null;
-    /** label image */
-    ImagePlus labelImage = null;
     
 	/**
 	 * Initialize the measurements by reading the input (grayscale) 
@@ -74,7 +67,6 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 			ImagePlus labelImage )
 	{
 		super( inputImage, labelImage );
-		this.labelImage = labelImage;
 	}
 	
 	/**
@@ -87,15 +79,7 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 		// Calculate man intensity per label
 		this.mean = meanPerLabel();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < mean.length; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("Mean", mean[i]);
-		}
-
-		return table;
+		return createTable( "Mean", mean );
 	}
 	/**
 	 * Get the mean intensity value per labeled region.
@@ -103,16 +87,9 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	private double[] meanPerLabel()
 	{
-		double[] mean = new double[ objectVoxels.length ];
-		
-		// calculate mean voxel value per object
+		double[] mean = new double[ labels.length ];
 		for( int i=0; i<mean.length; i++ )
-		{
-			mean[ i ] = 0;
-			for( final double v : objectVoxels[ i ] )
-				mean[ i ] += v;
-			mean[ i ] /= objectVoxels[ i ].size();			
-		}
+			mean[ i ] = moments[ i ].mean();
 		return mean;
 	}
 	/**
@@ -124,15 +101,7 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	{
 		this.neighborsMean = neighborsMeanPerLabel();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < neighborsMean.length; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("NeighborsMean", neighborsMean[i]);
-		}
-
-		return table;
+		return createTable( "NeighborsMean", neighborsMean );
 	}
 	/**
 	 * Get the neighbors mean intensity value per labeled region.
@@ -140,40 +109,10 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	private double[] neighborsMeanPerLabel()
 	{
-		// check if adjacency list has already been calculated
-		if( this.adjList == null )
-			this.adjList = RegionAdjacencyGraph.computeAdjacencies( labelImage );
-		// check if mean per label exists
-		if( null == this.mean )
-			this.mean = meanPerLabel();
-
-		final int numLabels = objectVoxels.length;
-
-		double[] neighborsMean = new double[ numLabels ];
-		double[] neighborsNumVox = new double[ numLabels ];
-
-		// merge histograms of adjacent labels
-		for( LabelPair pair : adjList )
-		{
-			// extract their indices
-			int ind1 = super.labelIndices.get( pair.label1 );
-			int ind2 = super.labelIndices.get( pair.label2 );
-			// sum up weighted mean values
-			neighborsMean[ ind1 ] += mean[ ind2 ] * objectVoxels[ ind2 ].size();
-			neighborsMean[ ind2 ] += mean[ ind1 ] * objectVoxels[ ind1 ].size();
-			// store number of neighbor voxels
-			neighborsNumVox[ ind1 ] += objectVoxels[ ind2 ].size();
-			neighborsNumVox[ ind2 ] += objectVoxels[ ind1 ].size();
-		}
-
-		// go through list of labels and divide by the total number of neighbor voxels
-		for( int i = 0; i < numLabels; i++ )
-		{
-			if( neighborsNumVox[ i ] > 0)
-				neighborsMean[ i ] /= neighborsNumVox[ i ];
-			else
-				neighborsMean[ i ] = Double.NaN;
-		}
+		RunningMoments[] neighborMoments = neighborMoments();
+		double[] neighborsMean = new double[ labels.length ];
+		for( int i = 0; i < labels.length; i++ )
+			neighborsMean[ i ] = neighborMoments[ i ].mean();
 		return neighborsMean;
 	}
 	/**
@@ -183,26 +122,13 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getMedian()
 	{
-		final int numLabels = objectVoxels.length;
-
-		double[] median = new double[ numLabels ];
+		IntensityHistogram[] histograms = histogramPerLabel();
 
-		// calculate median voxel value per object
-		for( int i=0; i<numLabels; i++ )
-		{
-			Collections.sort( objectVoxels[ i ] );
-			median[ i ] = objectVoxels[ i ].get( objectVoxels[ i ].size() / 2 );
-		}
+		double[] median = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			median[ i ] = histograms[ i ].median();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[i] ));
-			table.addValue( "Median", median[i] );
-		}
-
-		return table;
+		return createTable( "Median", median );
 	}
 	/**
 	 * Get the median intensity values of the neighbor labels
@@ -211,98 +137,51 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsMedian()
 	{
-		if( this.neighborVoxels == null )
-			this.neighborVoxels = computeNeighborVoxels();
-
-		final int numLabels = objectVoxels.length;
+		final int numLabels = labels.length;
 		double[] median = new double[ numLabels ];
-
-		// calculate median value
 		for( int i=0; i<numLabels; i++ )
-		{
-			Collections.sort( neighborVoxels[ i ] );
-			if( neighborVoxels[ i ].size() > 0)
-				median[ i ] = neighborVoxels[ i ].get( neighborVoxels[ i ].size() / 2 );
-			else
-				median[ i ] = Double.NaN;
-		}
+			median[ i ] = neighborsHistogram( i ).median();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("NeighborsMedian", median[i]);
-		}
-
-		return table;
+		return createTable( "NeighborsMedian", median );
 	}
 	/**
-	 * Get mode voxel values per label
+	 * Get the value of the specified percentile of voxel values per label,
+	 * using the nearest-rank method.
 	 *
-	 * @return result table with mode values per label
+	 * @param percent
+	 *            the percentile, between 0 and 100
+	 * @return result table with percentile values per label
 	 */
-	public ResultsTable getMode()
+	public ResultsTable getPercentile( double percent )
 	{
-		final int numLabels = objectVoxels.length;
-		double[] mode = new double[ numLabels ];
-
-		// calculate histogram of each label
-		if( null == histogramPerLabel )
-			this.histogramPerLabel = getHistogramPerLabel();
-
-		// calculate mode voxel value per object
-		for( int i=0; i<numLabels; i++ )
-		{
-			int max = 1;
-			double temp = objectVoxels[ i ].get( 0 );
+		if( percent < 0 || percent > 100 )
+			throw new IllegalArgumentException( "Percentile must be between 0 and 100, not " + percent );
+		
+		IntensityHistogram[] histograms = histogramPerLabel();
 
-			for( HashMap.Entry<Double, Integer> entry : histogramPerLabel[ i ].entrySet() )
-			{
-				if( entry.getValue() > max )
-				{
-					max = entry.getValue();
-					temp = entry.getKey();
-				}
-			}
-			mode[ i ] = temp;
-		}
+		double[] values = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			values[ i ] = histograms[ i ].percentile( percent );
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[i] ));
-			table.addValue( "Mode", mode[ i ] );
-		}
-
-		return table;
+		String name = percent == Math.floor( percent ) ? 
+				Integer.toString( (int) percent ) : Double.toString( percent );
+		return createTable( "Percentile" + name, values );
 	}
 	/**
-	 * Get the intensity histogram of each label.
-	 * @return the intensity histogram of each label
+	 * Get mode voxel values per label. In case of ties, the smallest value is
+	 * retained.
+	 *
+	 * @return result table with mode values per label
 	 */
-	private HashMap<Double,Integer>[] getHistogramPerLabel()
+	public ResultsTable getMode()
 	{
-		@SuppressWarnings("unchecked")
-		HashMap<Double,Integer>[] hm = new HashMap[ objectVoxels.length ];
-		for( int i=0; i<objectVoxels.length; i++ )
-		{
-			hm[ i ] = new HashMap< Double,Integer >();
+		IntensityHistogram[] histograms = histogramPerLabel();
 
-			for( double val : objectVoxels[ i ] )
-			{
-				if( hm[ i ].get( val ) != null )
-				{
-					int count = hm[ i ].get( val );
-					count++;
-					hm[ i ].put( val, count );
-				}
-				else
-					hm[ i ].put( val, 1 );
-			}
-		}
-		return hm;
+		double[] mode = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			mode[ i ] = histograms[ i ].mode();
+
+		return createTable( "Mode", mode );
 	}
 	/**
 	 * Get the intensity mode value of the neighbor labels
@@ -311,77 +190,12 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsMode()
 	{
-		// check if the label histograms have been calculated
-		if( null == histogramPerLabel )
-			this.histogramPerLabel = getHistogramPerLabel();
-
-		final int numLabels = objectVoxels.length;
+		final int numLabels = labels.length;
 		double[] mode = new double[ numLabels ];
-
-		// check if adjacency list has already been calculated
-		if( this.adjList == null )
-			this.adjList = RegionAdjacencyGraph.computeAdjacencies( labelImage );
-
-		@SuppressWarnings("unchecked")
-		HashMap<Double,Integer>[] hm = new HashMap[ numLabels ];
-		for( int i = 0; i < numLabels ; i++ )
-			hm[ i ] = new HashMap< Double,Integer >();
-		// merge histograms of adjacent labels
-		for( LabelPair pair : adjList )
-		{
-			// extract their indices
-			int ind1 = super.labelIndices.get( pair.label1 );
-			int ind2 = super.labelIndices.get( pair.label2 );
-
-			// add up ind1 histogram to ind2 hashmap
-			for( HashMap.Entry<Double, Integer> entry : histogramPerLabel[ ind1 ].entrySet() )
-			{
-				double val = entry.getKey();
-				int count = entry.getValue();
-				if( hm[ ind2 ].get( val ) != null )
-					hm[ ind2 ].put( val, count + hm[ ind2 ].get( val ) );
-				else
-					hm[ ind2 ].put( val, count );
-			}
-			// add up ind2 histogram to ind1 hashmap
-			for( HashMap.Entry<Double, Integer> entry : histogramPerLabel[ ind2 ].entrySet() )
-			{
-				double val = entry.getKey();
-				int count = entry.getValue();
-				if( hm[ ind1 ].get( val ) != null )
-					hm[ ind1 ].put( val, count + hm[ ind1 ].get( val ) );
-				else
-					hm[ ind1 ].put( val, count );
-			}
-		}
-
-		// calculate mode value in merged histograms hashmap
 		for( int i=0; i<numLabels; i++ )
-		{
-			int max = 1;
-			double temp = Double.NaN;
+			mode[ i ] = neighborsHistogram( i ).mode();
 
-			for( HashMap.Entry<Double, Integer> entry : hm[ i ].entrySet() )
-			{
-				if( entry.getValue() > max )
-				{
-					max = entry.getValue();
-					temp = entry.getKey();
-				}
-			}
-			mode[ i ] = temp;
-		}
-
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for( int i = 0; i < numLabels; i++ )
-		{
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[i] ) );
-			table.addValue( "NeighborsMode", mode[i] );
-		}
-
-		return table;
+		return createTable( "NeighborsMode", mode );
 	}
 	/**
 	 * Get skewness voxel values per label
@@ -390,43 +204,11 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getSkewness()
 	{
-		final int numLabels = objectVoxels.length;
-		// check if the mean intensity per label has already
-		// been calculated
-		if( null == this.mean )
-			this.mean = meanPerLabel();
-
-		double[] skewness = new double[ numLabels ];
-
-		// calculate skewness voxel value per object
-		for( int i=0; i<numLabels; i++ )
-		{
-			final double voxelCount = objectVoxels[ i ].size();
-			double v, v2, sum2 = 0, sum3 = 0;
-			for( int j=0; j<voxelCount; j++ )
-			{
-				v = objectVoxels[ i ].get( j ) + Double.MIN_VALUE;
-				v2 = v * v;
-				sum2 += v2;
-				sum3 += v * v2;
-			}
-			double mean2 = mean[ i ] * mean[ i ];
-			double variance = sum2 / voxelCount - mean2;
-			double sDeviation = Math.sqrt( variance );
-			skewness[ i ] = Double.compare( variance, 0d ) == 0 ? 0 :
-				((sum3 - 3.0 * mean[ i ] * sum2 ) / voxelCount
-					+ 2.0 * mean[ i ] * mean2 ) / ( variance * sDeviation );
-		}
+		double[] skewness = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			skewness[ i ] = moments[ i ].skewness();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[i] ));
-			table.addValue( "Skewness", skewness[i] );
-		}
-
-		return table;
+		return createTable( "Skewness", skewness );
 	}
 	/**
 	 * Get the intensity skewness values of the neighbor labels
@@ -435,79 +217,12 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsSkewness()
 	{
-		if( this.neighborVoxels == null )
-			this.neighborVoxels = computeNeighborVoxels();
-
-		final int numLabels = objectVoxels.length;
-		double[] skewness = new double[ numLabels ];
-
-		// calculate skewness value
-		for( int i=0; i<numLabels; i++ )
-		{
-			final double voxelCount = neighborVoxels[ i ].size();
-			if( voxelCount > 0 )
-			{
-				double v, v2, sum2 = 0, sum3 = 0;
-				double mean = 0;
-				for( int j=0; j<voxelCount; j++ )
-				{
-					mean += neighborVoxels[ i ].get( j );
-					v = neighborVoxels[ i ].get( j ) + Double.MIN_VALUE;
-					v2 = v * v;
-					sum2 += v2;
-					sum3 += v * v2;
-				}
-				mean /= voxelCount;
-				double mean2 = mean*mean;
-				double variance = sum2 / voxelCount - mean2;
-				double sDeviation = Math.sqrt( variance );
-				skewness[ i ] = Double.compare( variance, 0d ) == 0 ? 0 :
-					((sum3 - 3.0 * mean * sum2 ) / voxelCount
-						+ 2.0 * mean * mean2 ) / ( variance * sDeviation );
-			}
-			else
-				skewness[ i ] = Double.NaN;
-		}
-
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++)
-		{
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[ i ] ) );
-			table.addValue( "NeighborsSkewness", skewness[ i ] );
-		}
+		RunningMoments[] neighborMoments = neighborMoments();
+		double[] skewness = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			skewness[ i ] = neighborMoments[ i ].skewness();
 
-		return table;
-	}
-	/**
-	 * Compute the lists of pixels/voxels belonging to each adjacent label region.
-	 * @return array with lists of pixels/voxels belonging to each adjacent label region
-	 */
-	private ArrayList<Double>[] computeNeighborVoxels()
-	{
-		if( this.adjList == null )
-			this.adjList = RegionAdjacencyGraph.computeAdjacencies( labelImage );
-		
-		int numLabels = super.labels.length;
-		
-        // create an array with as many elements as the number of labels
-		@SuppressWarnings("unchecked")
-		ArrayList<Double>[] neighborVoxels = new ArrayList[ numLabels ];
-		for( int i = 0; i < neighborVoxels.length; i++ )
-			neighborVoxels[ i ] = new ArrayList<Double>();
-		
-		// go through list of adjacent pairs
-		for( LabelPair pair : adjList )
-		{
-			// extract their indices
-			int ind1 = super.labelIndices.get( pair.label1 );
-			int ind2 = super.labelIndices.get( pair.label2 );
-			// concatenate lists of adjacent voxels
-			neighborVoxels[ ind1 ].addAll( objectVoxels[ ind2 ] );
-			neighborVoxels[ ind2 ].addAll( objectVoxels[ ind1 ] );
-		}
-		return neighborVoxels;
+		return createTable( "NeighborsSkewness", skewness );
 	}
 	/**
 	 * Get kurtosis voxel values per label
@@ -516,45 +231,11 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getKurtosis()
 	{
-		final int numLabels = objectVoxels.length;
-		// check if the mean intensity per label has already
-		// been calculated
-		if( null == this.mean )
-			this.mean = meanPerLabel();
-
-		double[] kurtosis = new double[ numLabels ];
+		double[] kurtosis = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			kurtosis[ i ] = moments[ i ].kurtosis();
 
-		// calculate kurtosis voxel value per object
-		for( int i=0; i<numLabels; i++ )
-		{
-			final double voxelCount = objectVoxels[ i ].size();
-			double v, v2, sum2 = 0, sum3 = 0, sum4 = 0;
-			for( int j=0; j<voxelCount; j++ )
-			{
-				v = objectVoxels[ i ].get( j ) + Double.MIN_VALUE;
-				v2 = v * v;
-				sum2 += v2;
-				sum3 += v * v2;
-				sum4 += v2 * v2;
-			}
-
-			double mean2 = mean[ i ] * mean[ i ];
-			double variance = sum2 / voxelCount - mean2;
-			kurtosis[ i ] = Double.compare( variance, 0d ) == 0 ? -6.0/5.0 :
-				(((sum4 - 4.0 * mean[ i ] * sum3 + 6.0 * mean2 * sum2 )
-					/ voxelCount - 3.0 * mean2 * mean2 )
-					/ ( variance * variance ) -3.0 );
-		}
-
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[ i ] ) );
-			table.addValue( "Kurtosis", kurtosis[ i ] );
-		}
-
-		return table;
+		return createTable( "Kurtosis", kurtosis );
 	}
 	/**
 	 * Get the intensity kurtosis values of the neighbor labels
@@ -563,50 +244,12 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsKurtosis()
 	{
-		if( this.neighborVoxels == null )
-			this.neighborVoxels = computeNeighborVoxels();
-		final int numLabels = objectVoxels.length;
-		double[] kurtosis = new double[ numLabels ];
-
-		// calculate kurtosis value
-		for( int i=0; i<numLabels; i++ )
-		{
-			final double voxelCount = neighborVoxels[ i ].size();
-			if( voxelCount > 0 )
-			{
-				double v, v2, sum2 = 0, sum3 = 0, sum4 = 0;
-				double mean = 0;
-				for( int j=0; j<voxelCount; j++ )
-				{
-					mean += neighborVoxels[ i ].get( j );
-					v = neighborVoxels[ i ].get( j ) + Double.MIN_VALUE;
-					v2 = v * v;
-					sum2 += v2;
-					sum3 += v * v2;
-					sum4 += v2 * v2;
-				}
-				mean /= voxelCount;
-				double mean2 = mean*mean;
-				double variance = sum2 / voxelCount - mean2;
-				kurtosis[ i ] = Double.compare( variance, 0d ) == 0 ? -6.0/5.0 :
-					(((sum4 - 4.0 * mean * sum3 + 6.0 * mean2 * sum2 )
-						/ voxelCount - 3.0 * mean2 * mean2 )
-						/ ( variance * variance ) -3.0 );
-			}
-			else
-				kurtosis[ i ] = Double.NaN;
-		}
+		RunningMoments[] neighborMoments = neighborMoments();
+		double[] kurtosis = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			kurtosis[ i ] = neighborMoments[ i ].kurtosis();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for( int i = 0; i < numLabels; i++ )
-		{
-			table.incrementCounter();
-			table.addLabel( Integer.toString( labels[ i ] ) );
-			table.addValue( "NeighborsKurtosis", kurtosis[ i ] );
-		}
-
-		return table;
+		return createTable( "NeighborsKurtosis", kurtosis );
 	}
 	/**
 	 * Get standard deviation of voxel values per label
@@ -615,37 +258,11 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getStdDev()
 	{
-		final int numLabels = objectVoxels.length;
+		double[] sd = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			sd[ i ] = moments[ i ].stdDev();
 		
-		// check if the mean intensity per label has already
-		// been calculated
-		if( null == this.mean )
-			this.mean = meanPerLabel();
-		double[] sd = new double[ numLabels ];
-
-		// calculate standard deviation
-		for( int i=0; i<numLabels; i++ )
-		{
-			sd[ i ] = 0;
-			double diff;
-			for( final double v : objectVoxels[ i ] )
-			{
-				diff = v - mean[ i ];
-				sd[ i ] += diff * diff;
-			}
-			sd[ i ] /= objectVoxels[ i ].size();
-			sd[ i ] = Math.sqrt( sd[ i ] );
-		}
-		
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("StdDev", sd[i]);
-		}
-
-		return table;
+		return createTable( "StdDev", sd );
 	}
 	/**
 	 * Get the standard deviation of the intensity values of the neighbor labels
@@ -654,42 +271,12 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsStdDev()
 	{
-		// Check if neighbors mean already exists
-		if( null == neighborsMean )
-			this.neighborsMean = neighborsMeanPerLabel();
-		// Check if neighbor voxels have been calculated
-		if( this.neighborVoxels == null )
-			this.neighborVoxels = computeNeighborVoxels();
-		final int numLabels = neighborsMean.length;
-
-		double[] sd = new double[ numLabels ];
-
-		// Calculate standard deviation
-		for( int i=0; i<numLabels; i++ )
-		{
-			if( neighborVoxels[ i ].size() > 0 )
-			{
-				for( final double v : neighborVoxels[ i ] )
-				{
-					double diff = v - neighborsMean[ i ];
-					sd[ i ] += diff * diff;
-				}
-				sd[ i ] /= neighborVoxels[ i ].size();
-				sd[ i ] = Math.sqrt( sd[ i ] );
-			}
-			else
-				sd[ i ] = Double.NaN;
-		}
+		RunningMoments[] neighborMoments = neighborMoments();
+		double[] sd = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			sd[ i ] = neighborMoments[ i ].stdDev();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("NeighborsStdDev", sd[i]);
-		}
-
-		return table;
+		return createTable( "NeighborsStdDev", sd );
 	}
 	/**
 	 * Get maximum voxel values per label
@@ -700,15 +287,7 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	{
 		this.max = maxPerLabel();
 		
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < objectVoxels.length; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("Max", max[i]);
-		}
-
-		return table;
+		return createTable( "Max", max );
 	}
 	/**
 	 * Calculate maximum intensity value per labeled region.
@@ -716,17 +295,9 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	private double[] maxPerLabel()
 	{
-		final int numLabels = objectVoxels.length;
-		final double[] max = new double[ numLabels ];
-		
-		// calculate maximum voxel value per object
-		for( int i=0; i<numLabels; i++ )
-		{
-			max[ i ] = Double.NEGATIVE_INFINITY;
-			for( final double v : objectVoxels[ i ] )
-				if( v > max[ i ] )
-					max[ i ] = v;
-		}
+		final double[] max = new double[ labels.length ];
+		for( int i=0; i<max.length; i++ )
+			max[ i ] = moments[ i ].max();
 		return max;
 	}
 	/**
@@ -736,53 +307,12 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsMax()
 	{
-		// Check if adjacency list has been created
-		if( this.adjList == null )
-			this.adjList = RegionAdjacencyGraph.computeAdjacencies( labelImage );
-
-		final int numLabels = objectVoxels.length;
-
-		// check if the maximum intensity of individual labeled regions
-		// has been already calculated
-		if( null == this.max )
-			this.max = maxPerLabel();
-
-		// Initialize array of adjacent maximum values
-		double[] adjacentMax = new double[ numLabels ];
-		for( int i=0; i<numLabels; i++ )
-			adjacentMax[ i ] = Double.NaN;
-
-		// go through list of adjacent pairs
-		for( LabelPair pair : adjList )
-		{
-			// extract their indices
-			int ind1 = super.labelIndices.get( pair.label1 );
-			int ind2 = super.labelIndices.get( pair.label2 );
-
-			// store maximum value of adjacent label voxels
-			if( Double.isNaN( adjacentMax[ ind1 ] ) )
-				adjacentMax[ ind1 ] = Double.MIN_VALUE;
-			if( Double.isNaN( adjacentMax[ ind2 ] ) )
-				adjacentMax[ ind2 ] = Double.MIN_VALUE;
-
-			// check if the maximum value of the adjacent neighbor
-			// is larger than the stored maximum (in both directions)
-			if( this.max[ ind2 ] > adjacentMax[ ind1 ] )
-				adjacentMax[ ind1 ] = this.max[ ind2 ];
-
-			if( this.max[ ind1 ] > adjacentMax[ ind2 ] )
-				adjacentMax[ ind2 ] = this.max[ ind1 ];
-		}
-
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[ i ] ));
-			table.addValue( "NeighborsMax", adjacentMax[ i ] );
-		}
+		RunningMoments[] neighborMoments = neighborMoments();
+		double[] adjacentMax = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			adjacentMax[ i ] = neighborMoments[ i ].count() > 0 ? neighborMoments[ i ].max() : Double.NaN;
 
-		return table;
+		return createTable( "NeighborsMax", adjacentMax );
 	}
 	/**
 	 * Get minimum voxel values per label
@@ -793,15 +323,7 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	{
 		this.min = minPerLabel();
 
-		// create data table
-		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < objectVoxels.length; i++) {
-			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("Min", min[i]);
-		}
-
-		return table;
+		return createTable( "Min", min );
 	}
 	/**
 	 * Calculate minimum intensity value per labeled region.
@@ -809,17 +331,9 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	private double[] minPerLabel()
 	{
-		final int numLabels = objectVoxels.length;
-		double[] min = new double[ numLabels ];
-		
-		// calculate minimum voxel value per object
-		for( int i=0; i<numLabels; i++ )
-		{
-			min[ i ] = Double.POSITIVE_INFINITY;
-			for( final double v : objectVoxels[ i ] )
-				if( v < min[ i ] )
-					min[ i ] = v;
-		}
+		double[] min = new double[ labels.length ];
+		for( int i=0; i<min.length; i++ )
+			min[ i ] = moments[ i ].min();
 		return min;
 	}
 	/**
@@ -829,52 +343,88 @@ public class IntensityMeasures extends LabeledVoxelsMeasure{
 	 */
 	public ResultsTable getNeighborsMin()
 	{
-		// Check if adjacency list has been created
-		if( this.adjList == null )
-			this.adjList = RegionAdjacencyGraph.computeAdjacencies( labelImage );
-
-		final int numLabels = objectVoxels.length;
-
-		// check if the minimum intensity of individual labeled regions
-		// has been already calculated
-		if( null == this.min )
-			this.min = minPerLabel();
+		RunningMoments[] neighborMoments = neighborMoments();
+		double[] adjacentMin = new double[ labels.length ];
+		for( int i=0; i<labels.length; i++ )
+			adjacentMin[ i ] = neighborMoments[ i ].count() > 0 ? neighborMoments[ i ].min() : Double.NaN;
 
-		// Initialize array of adjacent minimum values
-		double[] adjacentMin = new double[ numLabels ];
-		for( int i=0; i<numLabels; i++ )
-			adjacentMin[ i ] = Double.NaN;
-
-		// go through list of adjacent pairs
-		for( LabelPair pair : adjList )
+		return createTable( "NeighborsMin", adjacentMin );
+	}
+	
+	/**
+	 * Compute the indices of the adjacent labels of each label.
+	 * @return the indices of the adjacent labels of each label
+	 */
+	private int[][] neighborIndices()
+	{
+		if( this.neighborIndices != null )
+			return this.neighborIndices;
+		
+		if( this.adjacencyGraph == null )
+			this.adjacencyGraph = AdjacencyGraph.compute( labelImage );
+		
+		// convert neighbor labels of each label into label indices
+		final int numLabels = labels.length;
+		int[][] neighborIndices = new int[ numLabels ][];
+		for( int i = 0; i < numLabels; i++ )
 		{
-			// extract their indices
-			int ind1 = super.labelIndices.get( pair.label1 );
-			int ind2 = super.labelIndices.get( pair.label2 );
-
-			// store minimum value of adjacent label voxels
-			if( Double.isNaN( adjacentMin[ ind1 ] ) )
-				adjacentMin[ ind1 ] = Double.MAX_VALUE;
-			if( Double.isNaN( adjacentMin[ ind2 ] ) )
-				adjacentMin[ ind2 ] = Double.MAX_VALUE;
-
-			// check if the minimum value of the adjacent neighbor
-			// is smaller than the stored minimum (in both directions)
-			if( this.min[ ind2 ] < adjacentMin[ ind1 ] )
-				adjacentMin[ ind1 ] = this.min[ ind2 ];
-
-			if( this.min[ ind1 ] < adjacentMin[ ind2 ] )
-				adjacentMin[ ind2 ] = this.min[ ind1 ];
+			int[] neighborLabels = adjacencyGraph.neighborLabels( labels[ i ] );
+			neighborIndices[ i ] = new int[ neighborLabels.length ];
+			for( int j = 0; j < neighborLabels.length; j++ )
+				neighborIndices[ i ][ j ] = labelIndices.indexOf( neighborLabels[ j ] );
 		}
-
-		// create data table
+		
+		this.neighborIndices = neighborIndices;
+		return neighborIndices;
+	}
+	
+	/**
+	 * Merge the running moments of the adjacent labels of each label.
+	 * @return the moments of the voxels belonging to adjacent labels
+	 */
+	private RunningMoments[] neighborMoments()
+	{
+		int[][] neighborIndices = neighborIndices();
+		RunningMoments[] res = new RunningMoments[ labels.length ];
+		for( int i = 0; i < labels.length; i++ )
+		{
+			res[ i ] = new RunningMoments();
+			for( int j : neighborIndices[ i ] )
+				res[ i ].add( moments[ j ] );
+		}
+		return res;
+	}
+	
+	/**
+	 * Merge the histograms of the adjacent labels of a label.
+	 * @param index the index of the label
+	 * @return the histogram of the voxels belonging to adjacent labels
+	 */
+	private IntensityHistogram neighborsHistogram( int index )
+	{
+		IntensityHistogram[] histograms = histogramPerLabel();
+		int[] neighbors = neighborIndices()[ index ];
+		IntensityHistogram res = new IntensityHistogram( histograms[ index ].exact );
+		for( int j : neighbors )
+			res.add( histograms[ j ] );
+		return res;
+	}
+	
+	/**
+	 * Create a results table with a single column.
+	 * @param name the name of the column
+	 * @param values the value associated to each label
+	 * @return a new results table
+	 */
+	private ResultsTable createTable( String name, double[] values )
+	{
 		ResultsTable table = new ResultsTable();
-		for (int i = 0; i < numLabels; i++) {
+		for( int i = 0; i < values.length; i++ )
+		{
 			table.incrementCounter();
-			table.addLabel(Integer.toString( labels[ i ] ));
-			table.addValue( "NeighborsMin", adjacentMin[ i ] );
+			table.addLabel( Integer.toString( labels[ i ] ) );
+			table.addValue( name, values[ i ] );
 		}
-
 		return table;
 	}
 }
@@ -23,24 +23,39 @@ package inra.ijpb.measure;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.ImageStack;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
 import inra.ijpb.label.LabelImages;
-
-import java.util.ArrayList;
-import java.util.HashMap;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Mother class to extract measures from pairs of grayscale and 
  * labeled images.
+ * 
+ * Voxel values are not stored: the count, sum, extrema and central moments of
+ * the values within each label are accumulated in a single pass over the
+ * images. Intensity histograms, required for rank statistics, are computed
+ * on demand during a second pass. Memory usage is therefore proportional to
+ * the number of labels rather than to the number of voxels.
+ * 
  * @author Ignacio Arganda-Carreras
  *
  */
 public class LabeledVoxelsMeasure
 {
-    /** list of voxels grouped by label */
-    ArrayList<Double>[] objectVoxels;
+    /** input (grayscale) image, kept for computing histograms */
+    ImagePlus inputImage;
+    
+    /** label image */
+    ImagePlus labelImage;
+    
+    /** running moments of voxel values, one per label */
+    RunningMoments[] moments;
+    
+    /** intensity histograms, one per label, computed on demand */
+    IntensityHistogram[] histograms = null;
 
     /** list of unique labels */
     int[] labels;
@@ -48,7 +63,7 @@ public class LabeledVoxelsMeasure
     /** calibration of input image */
     Calibration calibration;
     /** associative hash table to know the index of each label */
-    HashMap<Integer, Integer> labelIndices = null;
+    LabelUtils.LabelIndexMap labelIndices = null;
 	/**
 	 * Initialize the measurements by reading the input (grayscale) 
 	 * image and its corresponding labels.
@@ -56,7 +71,6 @@ public class LabeledVoxelsMeasure
 	 * @param inputImage input (grayscale) image
 	 * @param labelImage label image (labels are positive integer values)
 	 */
-	@SuppressWarnings("unchecked")
 	public LabeledVoxelsMeasure(
 			ImagePlus inputImage,
 			ImagePlus labelImage )
@@ -67,6 +81,8 @@ public class LabeledVoxelsMeasure
 		if( width != labelImage.getWidth() || height != labelImage.getHeight() )
 			throw new IllegalArgumentException("Input and label images must have the same size");
 		
+		this.inputImage = inputImage;
+		this.labelImage = labelImage;
 		this.calibration = inputImage.getCalibration();
 
 		// extract the labels from the input image
@@ -74,41 +90,82 @@ public class LabeledVoxelsMeasure
 		int numLabels = labels.length;
 		
 		// create associative hash table to know the index of each label
-		labelIndices = LabelImages.mapLabelIndices( labels );
-
-		// initialize lists of voxels per object
-        // unchecked cast
-		objectVoxels = (ArrayList<Double>[]) new ArrayList[ numLabels ];
+		labelIndices = LabelUtils.createLabelIndexMap( labels );
 
+		// initialize accumulators per object
+		moments = new RunningMoments[ numLabels ];
 		for( int i = 0; i < numLabels; i++ )
-			objectVoxels[ i ] = new ArrayList<Double>();
-		
-		//final long start = System.currentTimeMillis();		
+			moments[ i ] = new RunningMoments();
 		
 		IJ.showStatus( "Extracting voxel information..." );
 		
-		// read voxel intensities for each object
+		// accumulate voxel intensities for each object
+		final ImageStack grayStack = inputImage.getImageStack();
+		final ImageStack labelStack = labelImage.getImageStack();
 		final int numSlices = inputImage.getImageStackSize();
 		for( int z=1; z <= numSlices; z++ )
 		{
-			final ImageProcessor grayIP = inputImage.getImageStack().getProcessor( z );
-			final ImageProcessor labelsIP = labelImage.getImageStack().getProcessor( z );
+			final ImageProcessor grayIP = grayStack.getProcessor( z );
+			final ImageProcessor labelsIP = labelStack.getProcessor( z );
 
-			for( int x = 0; x<width; x++ )
-				for( int y = 0; y<height; y++ )
+			for( int y = 0; y<height; y++ )
+				for( int x = 0; x<width; x++ )
 				{
 					int labelValue = (int) labelsIP.getf( x, y );
 					if( labelValue != 0)
-						objectVoxels[ labelIndices.get( labelValue ) ].add( (double) grayIP.getf(x, y) );
+						moments[ labelIndices.indexOf( labelValue ) ].add( grayIP.getf( x, y ) );
 				}
 			
 			IJ.showProgress( z, numSlices );
 		}
 		
 		IJ.showProgress( 1.0 );
+	}
+	
+	/**
+	 * Computes the intensity histogram of each label, by iterating again over
+	 * the images. Histograms are exact for 8-bits and 16-bits images.
+	 * 
+	 * @return the intensity histogram of each label
+	 */
+	IntensityHistogram[] histogramPerLabel()
+	{
+		if( this.histograms != null )
+			return this.histograms;
+		
+		final int numLabels = labels.length;
+		final int bitDepth = inputImage.getBitDepth();
+		final boolean exact = bitDepth == 8 || bitDepth == 16;
+		IntensityHistogram[] histograms = new IntensityHistogram[ numLabels ];
+		for( int i = 0; i < numLabels; i++ )
+			histograms[ i ] = new IntensityHistogram( exact );
+		
+		IJ.showStatus( "Computing histograms..." );
+		
+		final int width = inputImage.getWidth();
+		final int height = inputImage.getHeight();
+		final ImageStack grayStack = inputImage.getImageStack();
+		final ImageStack labelStack = labelImage.getImageStack();
+		final int numSlices = inputImage.getImageStackSize();
+		for( int z=1; z <= numSlices; z++ )
+		{
+			final ImageProcessor grayIP = grayStack.getProcessor( z );
+			final ImageProcessor labelsIP = labelStack.getProcessor( z );
+
+			for( int y = 0; y<height; y++ )
+				for( int x = 0; x<width; x++ )
+				{
+					int labelValue = (int) labelsIP.getf( x, y );
+					if( labelValue != 0)
+						histograms[ labelIndices.indexOf( labelValue ) ].add( grayIP.getf( x, y ) );
+				}
+			
+			IJ.showProgress( z, numSlices );
+		}
 		
-		//final long end = System.currentTimeMillis();
-		//IJ.log("Reading voxels took " + (end-start) + " ms.");
+		IJ.showProgress( 1.0 );
+		this.histograms = histograms;
+		return histograms;
 	}
 	
 	/**
@@ -117,7 +174,7 @@ public class LabeledVoxelsMeasure
 	 */
 	public ResultsTable getNumberOfVoxels()
 	{
-		final int numLabels = objectVoxels.length;
+		final int numLabels = labels.length;
 				
 		// create data table
 		ResultsTable table = new ResultsTable();
@@ -125,7 +182,7 @@ public class LabeledVoxelsMeasure
 		{
 			table.incrementCounter();
 			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue("NumberOfVoxels", objectVoxels[ i ].size() );
+			table.addValue("NumberOfVoxels", moments[ i ].count() );
 		}
 
 		return table;
@@ -137,7 +194,7 @@ public class LabeledVoxelsMeasure
 	 */
 	public ResultsTable getSumOfVoxels() 
 	{
-		final int numLabels = objectVoxels.length;
+		final int numLabels = labels.length;
 
 		// create data table
 		ResultsTable table = new ResultsTable();
@@ -145,16 +202,9 @@ public class LabeledVoxelsMeasure
 		{
 			table.incrementCounter();
 			table.addLabel(Integer.toString( labels[i] ));
-//			double vox_sum = objectVoxels[ i ].stream().mapToDouble(Double::doubleValue).sum();
-			// compute the sum, 1.6-compatible
-			double voxelSum = 0;
-			for (double value : objectVoxels[i])
-			{
-				voxelSum += value;
-			}
-			table.addValue( "Voxels Sum", voxelSum);
+			table.addValue( "Voxels Sum", moments[ i ].sum() );
 		}
-			return table;
+		return table;
 	}
 	
 	/**
@@ -165,7 +215,7 @@ public class LabeledVoxelsMeasure
 	 */
 	public ResultsTable getVolume()
 	{
-		final int numLabels = objectVoxels.length;
+		final int numLabels = labels.length;
 		
 		double volumePerVoxel = calibration.pixelWidth * calibration.pixelHeight * calibration.pixelDepth;
 		
@@ -175,12 +225,9 @@ public class LabeledVoxelsMeasure
 		{
 			table.incrementCounter();
 			table.addLabel(Integer.toString( labels[i] ));
-			table.addValue( "Volume", objectVoxels[ i ].size() * volumePerVoxel );
+			table.addValue( "Volume", moments[ i ].count() * volumePerVoxel );
 		}
 
 		return table;
 	}
-	
-	
-	
 }
@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Base class for region analyzers, that manages the parallel processing of
+ * regions, and the associated progress events. The regions can be processed
+ * either with a dedicated number of threads, or within a pool shared between
+ * several analyzers.
+ *
+ * @param <T>
+ *            the type of the data computed for each region. May be a class
+ *            instance, or a single Numeric type.
+ *
+ * @see inra.ijpb.measure.region2d.RegionAnalyzer2D
+ * @see inra.ijpb.measure.region3d.RegionAnalyzer3D
+ * 
+ * @author dlegland
+ *
+ */
+public abstract class RegionAnalyzerStub<T> extends AlgoStub implements RegionAnalyzer<T>
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The number of threads used to process regions in parallel, when no
+	 * pool is specified. Default is 1.
+	 */
+	int threadCount = 1;
+	
+	/**
+	 * The (optional) pool used to process regions in parallel. When null, a
+	 * new pool is created for each computation, based on the thread count.
+	 */
+	ForkJoinPool pool = null;
+	
+	
+	// ==================================================
+	// Accessors
+	
+	/**
+	 * @return the number of threads used to process regions in parallel
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+	
+	/**
+	 * Sets the number of threads used to process regions in parallel. Each
+	 * region is processed by a single thread, and the results are returned
+	 * in the order of the labels.
+	 * 
+	 * @param nThreads
+	 *            the number of threads (at least one)
+	 */
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+	
+	/**
+	 * @return the pool used to process regions in parallel, or null if the
+	 *         pool is created from the thread count
+	 */
+	public ForkJoinPool getPool()
+	{
+		return pool;
+	}
+	
+	/**
+	 * Sets the pool used to process regions in parallel. This makes it
+	 * possible to share a single pool between several analyzers. If the pool
+	 * is null, a new pool is created for each computation, with the number
+	 * of threads given by {@link #getThreadCount()}.
+	 * 
+	 * @param pool
+	 *            the pool used to process regions, or null
+	 */
+	public void setPool(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	
+	// ==================================================
+	// Parallel processing of regions
+	
+	/**
+	 * Applies an operation on each region index within the range [0,
+	 * nRegions), by distributing the regions over the threads of the pool.
+	 * The operation is expected to store its result at the position given by
+	 * the index, so that the output order does not depend on the number of
+	 * threads. Progress events are fired each time a region is processed.
+	 * 
+	 * @param nRegions
+	 *            the number of regions to process
+	 * @param op
+	 *            the operation to apply on each region index
+	 */
+	protected void processRegions(int nRegions, IntConsumer op)
+	{
+		AtomicInteger counter = new AtomicInteger(0);
+		ParallelSlabs.SlabOperation slabOp = (i0, i1) -> {
+			for (int i = i0; i < i1; i++)
+			{
+				op.accept(i);
+				this.fireProgressChanged(this, counter.incrementAndGet(), nRegions);
+			}
+		};
+		
+		if (this.pool != null && nRegions > 1)
+		{
+			ParallelSlabs.process(nRegions, this.pool, slabOp);
+		}
+		else
+		{
+			ParallelSlabs.process(nRegions, this.threadCount, slabOp);
+		}
+		this.fireProgressChanged(this, 1, 1);
+	}
+}
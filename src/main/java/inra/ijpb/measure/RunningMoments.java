@@ -0,0 +1,232 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure;
+
+/**
+ * Accumulates the count, sum, extrema and the central moments up to order
+ * four of a set of values, without storing the values. Values can be added
+ * one by one, and accumulators computed on disjoint sets of values can be
+ * merged.
+ * 
+ * Central moments are updated using the one-pass formulas of Welford, extended
+ * to higher orders by Terriberry, and merged using the pairwise formulas of
+ * Chan et al. and Pébay.
+ * 
+ * @see IntensityMeasures
+ * 
+ * @author dlegland
+ */
+public class RunningMoments
+{
+	// ==================================================
+	// Class variables
+
+	long count = 0;
+	double sum = 0;
+	double min = Double.POSITIVE_INFINITY;
+	double max = Double.NEGATIVE_INFINITY;
+	
+	double mean = 0;
+	/** sum of squared deviations from the mean */
+	double m2 = 0;
+	/** sum of cubed deviations from the mean */
+	double m3 = 0;
+	/** sum of deviations from the mean to the power four */
+	double m4 = 0;
+	
+	
+	// ==================================================
+	// Constructor
+
+	/**
+	 * Creates a new empty accumulator.
+	 */
+	public RunningMoments()
+	{
+	}
+	
+	
+	// ==================================================
+	// Update methods
+
+	/**
+	 * Adds a value to this accumulator.
+	 * 
+	 * @param value
+	 *            the value to add
+	 */
+	public void add(double value)
+	{
+		long n1 = count;
+		count++;
+		double n = count;
+		double delta = value - mean;
+		double deltaN = delta / n;
+		double deltaN2 = deltaN * deltaN;
+		double term1 = delta * deltaN * n1;
+		mean += deltaN;
+		m4 += term1 * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+		m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+		m2 += term1;
+		
+		sum += value;
+		if (value < min) min = value;
+		if (value > max) max = value;
+	}
+	
+	/**
+	 * Merges the values accumulated by another instance into this
+	 * accumulator.
+	 * 
+	 * @param other
+	 *            the accumulator to merge
+	 */
+	public void add(RunningMoments other)
+	{
+		if (other.count == 0)
+		{
+			return;
+		}
+		if (this.count == 0)
+		{
+			this.count = other.count;
+			this.sum = other.sum;
+			this.min = other.min;
+			this.max = other.max;
+			this.mean = other.mean;
+			this.m2 = other.m2;
+			this.m3 = other.m3;
+			this.m4 = other.m4;
+			return;
+		}
+		
+		double na = this.count;
+		double nb = other.count;
+		double n = na + nb;
+		double delta = other.mean - this.mean;
+		double delta2 = delta * delta;
+		
+		double newM4 = this.m4 + other.m4 
+				+ delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+				+ 6 * delta2 * (na * na * other.m2 + nb * nb * this.m2) / (n * n)
+				+ 4 * delta * (na * other.m3 - nb * this.m3) / n;
+		double newM3 = this.m3 + other.m3
+				+ delta2 * delta * na * nb * (na - nb) / (n * n)
+				+ 3 * delta * (na * other.m2 - nb * this.m2) / n;
+		double newM2 = this.m2 + other.m2 + delta2 * na * nb / n;
+		
+		this.mean += delta * nb / n;
+		this.m2 = newM2;
+		this.m3 = newM3;
+		this.m4 = newM4;
+		this.count += other.count;
+		this.sum += other.sum;
+		this.min = Math.min(this.min, other.min);
+		this.max = Math.max(this.max, other.max);
+	}
+	
+	
+	// ==================================================
+	// Accessors
+
+	/**
+	 * @return the number of values
+	 */
+	public long count()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return the sum of values
+	 */
+	public double sum()
+	{
+		return sum;
+	}
+	
+	/**
+	 * @return the smallest value, or positive infinity if no value was added
+	 */
+	public double min()
+	{
+		return min;
+	}
+	
+	/**
+	 * @return the largest value, or negative infinity if no value was added
+	 */
+	public double max()
+	{
+		return max;
+	}
+	
+	/**
+	 * @return the mean of values, or NaN if no value was added
+	 */
+	public double mean()
+	{
+		return count > 0 ? mean : Double.NaN;
+	}
+	
+	/**
+	 * @return the (population) variance of values, or NaN if no value was
+	 *         added
+	 */
+	public double variance()
+	{
+		return count > 0 ? m2 / count : Double.NaN;
+	}
+	
+	/**
+	 * @return the standard deviation of values (computed from the population
+	 *         variance), or NaN if no value was added
+	 */
+	public double stdDev()
+	{
+		return Math.sqrt(variance());
+	}
+	
+	/**
+	 * @return the skewness of values, 0 for constant values, or NaN if no value
+	 *         was added
+	 */
+	public double skewness()
+	{
+		if (count == 0) return Double.NaN;
+		double variance = m2 / count;
+		if (Double.compare(variance, 0d) == 0) return 0;
+		return (m3 / count) / (variance * Math.sqrt(variance));
+	}
+	
+	/**
+	 * @return the excess kurtosis of values, -6/5 for constant values, or NaN
+	 *         if no value was added
+	 */
+	public double kurtosis()
+	{
+		if (count == 0) return Double.NaN;
+		double variance = m2 / count;
+		if (Double.compare(variance, 0d) == 0) return -6.0 / 5.0;
+		return (m4 / count) / (variance * variance) - 3.0;
+	}
+}
@@ -31,6 +31,7 @@ import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
 import inra.ijpb.binary.BinaryImages;
 import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Compute average thickness of a binary region, or of each region in a label image. 
@@ -91,7 +92,7 @@ public class AverageThickness extends RegionAnalyzer2D<AverageThickness.Result>
             throw new IllegalArgumentException("Requires input image to have square pixels (width = height)");
         }
         
-        Map<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
         // first compute distance map of each label
         ImageProcessor distanceMap = LabelImages.distanceMap(image);
@@ -118,7 +119,9 @@ public class AverageThickness extends RegionAnalyzer2D<AverageThickness.Result>
                     continue;
                 }
 
-                int index = labelIndices.get(label);
+                int index = labelIndices.indexOf(label);
+                if (index < 0)
+                    continue;
                 
                 // update results for current region
                 sums[index] += distanceMap.getf(x, y);
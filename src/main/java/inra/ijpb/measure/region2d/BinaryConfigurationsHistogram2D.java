@@ -24,12 +24,9 @@
  */
 package inra.ijpb.measure.region2d;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 import ij.process.ImageProcessor;
 import inra.ijpb.algo.AlgoStub;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Computes histogram of binary configurations composed of 2-by-2 pixels (planar
@@ -293,7 +290,7 @@ public class BinaryConfigurationsHistogram2D extends AlgoStub
     {
         // create associative array to know index of each label
         int nLabels = labels.length;
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
         // initialize result
         int[][] histograms = new int[nLabels][16];
@@ -303,7 +300,8 @@ public class BinaryConfigurationsHistogram2D extends AlgoStub
         int sizeY = labelImage.getHeight();
 
         // for each configuration of 2x2 pixels, we identify the labels
-        ArrayList<Integer> localLabels = new ArrayList<Integer>(4);
+        int[] localLabels = new int[4];
+        int nLocalLabels = 0;
 
         // values of pixels within current 2-by-2 configuration
         // (first digit for y, second digit for x)
@@ -327,24 +325,28 @@ public class BinaryConfigurationsHistogram2D extends AlgoStub
                 configValues[3] = x < sizeX & y < sizeY ? (int) labelImage.getf(x, y) : 0;
 
                 // identify labels in current config
-                localLabels.clear();
+                nLocalLabels = 0;
                 for (int label : configValues)
                 {
                     if (label == 0)
                         continue;
                     // keep only one instance of each label
-                    if (!localLabels.contains(label))
-                        localLabels.add(label);
+                    if (!containsLabel(localLabels, nLocalLabels, label))
+                        localLabels[nLocalLabels++] = label;
                 }
 
                 // For each label, compute binary confi
-                for (int label : localLabels) 
+                for (int i = 0; i < nLocalLabels; i++)
                 {
+                    int label = localLabels[i];
+
                     // Compute index of local configuration
                     int index = configIndex(configValues, label);
 
                     // retrieve label index from label value
-                    int labelIndex = labelIndices.get(label);
+                    int labelIndex = labelIndices.indexOf(label);
+                    if (labelIndex < 0)
+                        continue;
 
                     // update histogram of current label
                     histograms[labelIndex][index]++;
@@ -360,6 +362,16 @@ public class BinaryConfigurationsHistogram2D extends AlgoStub
         return histograms;
     }
 
+    private static final boolean containsLabel(int[] localLabels, int nLocalLabels, int label)
+    {
+        for (int i = 0; i < nLocalLabels; i++)
+        {
+            if (localLabels[i] == label)
+                return true;
+        }
+        return false;
+    }
+
     private static final int configIndex(int[] configValues, int label)
     {
         // Compute index of local configuration
@@ -25,13 +25,12 @@
 package inra.ijpb.measure.region2d;
 
 import java.awt.geom.Point2D;
-import java.util.HashMap;
 import java.util.Map;
 
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Computes centroid position of regions within binary or label images.
@@ -84,7 +83,7 @@ public class Centroid extends RegionAnalyzer2D<Point2D>
 	{
 		// create associative array to know index of each label
 		int nLabels = labels.length;
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		// allocate memory for result
 		int[] counts = new int[nLabels];
@@ -102,10 +101,9 @@ public class Centroid extends RegionAnalyzer2D<Point2D>
 					continue;
 
 				// do not process labels that are not in the input list 
-				if (!labelIndices.containsKey(label))
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
 					continue;
-				
-				int index = labelIndices.get(label);
 				centroids[index][0] += x;
 				centroids[index][1] += y;
 				counts[index]++;
@@ -203,7 +201,7 @@ public class Centroid extends RegionAnalyzer2D<Point2D>
 		}
 		
 		// create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		// allocate memory for result
 		int nLabels = labels.length;
@@ -221,7 +219,9 @@ public class Centroid extends RegionAnalyzer2D<Point2D>
 				if (label == 0)
 					continue;
 
-				int index = labelIndices.get(label);
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
+					continue;
 				cx[index] += x * sx;
 				cy[index] += y * sy;
 				counts[index]++;
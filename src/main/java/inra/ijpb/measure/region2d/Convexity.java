@@ -33,6 +33,7 @@ import ij.measure.ResultsTable;
 import ij.process.ByteProcessor;
 import ij.process.ImageProcessor;
 import inra.ijpb.geometry.Box2D;
+import inra.ijpb.geometry.PointList2D;
 import inra.ijpb.geometry.Polygon2D;
 import inra.ijpb.geometry.Polygons2D;
 
@@ -128,11 +129,10 @@ public class Convexity extends RegionAnalyzer2D<Convexity.Result>
 		Convexity.Result[] res = new Convexity.Result[labels.length];
 		
         // compute convex hull of boundary points around each region
-        ArrayList<Point2D>[] pointArrays = RegionBoundaries.boundaryPixelsMiddleEdges(image, labels);
+        PointList2D[] pointArrays = RegionBoundaries.boundaryPixelsMiddleEdgeLists(image, labels);
 
-        // iterate over labels
-		for (int i = 0; i < labels.length; i++)
-		{
+        // process each label independently
+		processRegions(labels.length, i -> {
 			// compute convex hull of boundary points around the binary particle
             Polygon2D convexHull = Polygons2D.convexHull(pointArrays[i]);
 
@@ -168,7 +168,7 @@ public class Convexity extends RegionAnalyzer2D<Convexity.Result>
             
             // save convexity measures for this label
             res[i] = new Convexity.Result(area, convexArea);
-		}
+		});
 		
 		return res;
 	}
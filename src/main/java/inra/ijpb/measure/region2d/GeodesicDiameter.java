@@ -416,8 +416,8 @@ public class GeodesicDiameter extends RegionAnalyzer2D<GeodesicDiameter.Result>
 			this.fireStatusChanged(this, "Computing geodesic paths...");
 
 			// compute paths starting from points with larger distance value
-			for (int i = 0; i < nLabels; i++)
-			{
+			final ImageProcessor distances = distanceMap;
+			processRegions(nLabels, i -> {
 				// Current first geodesic extremity 
 				// (corresponding to the minimum of the geodesic distance map)
 				Point2D pos1 = result[i].firstExtremity;
@@ -431,7 +431,7 @@ public class GeodesicDiameter extends RegionAnalyzer2D<GeodesicDiameter.Result>
 				if (Double.isInfinite(result[i].diameter))
 				{
 					result[i].path = path;
-					continue;
+					return;
 				}
 				
 				// initialize path with position of second geodesic extremity
@@ -442,12 +442,12 @@ public class GeodesicDiameter extends RegionAnalyzer2D<GeodesicDiameter.Result>
 				// iterate over neighbors of current position until we reach the minimum value
 				while (!pos.equals(pos1))
 				{
-					pos = findLowestNeighborPosition(labelImage, distanceMap, pos);
+					pos = findLowestNeighborPosition(labelImage, distances, pos);
 					path.add(pos);
 				}
 				
 				result[i].path = path;
-			}
+			});
 		}
 		
 		// calibrate the results
@@ -27,14 +27,13 @@ package inra.ijpb.measure.region2d;
 import static java.lang.Math.sqrt;
 
 import java.awt.geom.Point2D;
-import java.util.HashMap;
 import java.util.Map;
 
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
 import inra.ijpb.geometry.Ellipse;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Compute parameters of inertia ellipse from label images.
@@ -153,7 +152,7 @@ public class InertiaEllipse extends RegionAnalyzer2D<Ellipse>
 		}
 		
 		// create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		// allocate memory for result
 		int nLabels = labels.length;
@@ -175,10 +174,9 @@ public class InertiaEllipse extends RegionAnalyzer2D<Ellipse>
 					continue;
 
                 // do not process labels that are not in the input list 
-                if (!labelIndices.containsKey(label))
+                int index = labelIndices.indexOf(label);
+                if (index < 0)
                     continue;
-
-                int index = labelIndices.get(label);
 				cx[index] += x * sx;
 				cy[index] += y * sy;
 				counts[index]++;
@@ -202,7 +200,9 @@ public class InertiaEllipse extends RegionAnalyzer2D<Ellipse>
 				if (label == 0)
 					continue;
 
-				int index = labelIndices.get(label);
+				int index = labelIndices.indexOf(label);
+				if (index < 0)
+					continue;
 				double x2 = x * sx - cx[index];
 				double y2 = y * sy - cy[index];
 				Ixx[index] += x2 * x2;
@@ -32,6 +32,7 @@ import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
 import inra.ijpb.geometry.FeretDiameters;
+import inra.ijpb.geometry.PointList2D;
 import inra.ijpb.geometry.PointPair2D;
 import inra.ijpb.geometry.Polygon2D;
 import inra.ijpb.geometry.Polygons2D;
@@ -149,29 +150,25 @@ public class MaxFeretDiameter extends RegionAnalyzer2D<PointPair2D>
 
         // For each label, create a list of corner points
 		fireStatusChanged(this, "Find Label Corner Points");
-        ArrayList<Point2D>[] cornerPointsArrays = RegionBoundaries.runlengthsCorners(image, labels);
+        PointList2D[] cornerPointsArrays = RegionBoundaries.runLengthsCornerLists(image, labels);
                 
         // Compute the oriented box of each set of corner points
         PointPair2D[] labelMaxDiams = new PointPair2D[nLabels];
         fireStatusChanged(this, "Compute feret Diameters");
-        for (int i = 0; i < nLabels; i++)
-        {
-        	this.fireProgressChanged(this, i, nLabels);
-        	
-        	ArrayList<Point2D> corners = cornerPointsArrays[i];
+        final double sx2 = sx, sy2 = sy;
+        final double ox2 = ox, oy2 = oy;
+        processRegions(nLabels, i -> {
+        	PointList2D corners = cornerPointsArrays[i];
     		// calibrate coordinates of hull vertices
     		for (int iv = 0; iv < corners.size(); iv++)
     		{
-    			Point2D vertex = corners.get(iv);
-    			vertex = new Point2D.Double(vertex.getX() * sx + ox, vertex.getY() * sy + oy);
-    			corners.set(iv, vertex);
+    			corners.set(iv, corners.getX(iv) * sx2 + ox2, corners.getY(iv) * sy2 + oy2);
     		}
 
     		// compute Feret diameter of calibrated hull
         	labelMaxDiams[i] = FeretDiameters.maxFeretDiameter(corners);
-        }
+        });
         
-        fireProgressChanged(this, 1, 1);
         fireStatusChanged(this, "");
         return labelMaxDiams;
 	}
@@ -34,6 +34,7 @@ import ij.process.ImageProcessor;
 import inra.ijpb.geometry.AngleDiameterPair;
 import inra.ijpb.geometry.FeretDiameters;
 import inra.ijpb.geometry.OrientedBox2D;
+import inra.ijpb.geometry.PointList2D;
 import inra.ijpb.geometry.Polygon2D;
 import inra.ijpb.geometry.Polygons2D;
 
@@ -55,9 +56,28 @@ public class OrientedBoundingBox2D extends RegionAnalyzer2D<OrientedBox2D>
 	 */
 	public static final OrientedBox2D orientedBoundingBox(ArrayList<? extends Point2D> points)
 	{
-		// Compute convex hull to reduce complexity
-		Polygon2D convexHull = Polygons2D.convexHull(points);
-		
+		return orientedBoundingBox(Polygons2D.convexHull(points));
+	}
+	
+	/**
+	 * Computes the object-oriented bounding box of a set of points whose
+	 * coordinates are packed within a PointList2D.
+	 * 
+	 * @param points
+	 *            a list of points (not necessarily ordered)
+	 * @return the oriented box of this set of points.
+	 */
+	public static final OrientedBox2D orientedBoundingBox(PointList2D points)
+	{
+		return orientedBoundingBox(Polygons2D.convexHull(points));
+	}
+	
+	/**
+	 * Computes the object-oriented bounding box from the convex hull of a set
+	 * of points.
+	 */
+	private static final OrientedBox2D orientedBoundingBox(Polygon2D convexHull)
+	{
 		// compute convex hull centroid
 		Point2D center = convexHull.centroid();
 		double cx = center.getX();
@@ -136,9 +156,31 @@ public class OrientedBoundingBox2D extends RegionAnalyzer2D<OrientedBox2D>
 	 */
 	public static final OrientedBox2D orientedBoundingBox(ArrayList<? extends Point2D> points, Calibration calib)
 	{
-		// Compute convex hull to reduce complexity
-		Polygon2D convexHull = Polygons2D.convexHull(points);
-		
+		return orientedBoundingBox(Polygons2D.convexHull(points), calib);
+	}
+	
+	/**
+	 * Computes the object-oriented bounding box of a set of points whose
+	 * coordinates are packed within a PointList2D, computing convex hull in
+	 * pixel coordinates.
+	 * 
+	 * @param points
+	 *            a list of points, in pixel coordinates
+	 * @param calib
+	 *            the spatial calibration of the points
+	 * @return the oriented box of this set of points, in calibrated coordinates
+	 */
+	public static final OrientedBox2D orientedBoundingBox(PointList2D points, Calibration calib)
+	{
+		return orientedBoundingBox(Polygons2D.convexHull(points), calib);
+	}
+	
+	/**
+	 * Computes the object-oriented bounding box in calibrated coordinates from
+	 * the convex hull of a set of points in pixel coordinates.
+	 */
+	private static final OrientedBox2D orientedBoundingBox(Polygon2D convexHull, Calibration calib)
+	{
 		Polygon2D calibratedHull = new Polygon2D(calibrate(convexHull.vertices(), calib));
 				
 		// compute convex hull centroid
@@ -251,7 +293,7 @@ public class OrientedBoundingBox2D extends RegionAnalyzer2D<OrientedBox2D>
 	{
         // For each label, create a list of corner points
 		this.fireStatusChanged(this, "Find Label Corner Points");
-        ArrayList<Point2D>[] cornerPointsArrays = RegionBoundaries.runlengthsCorners(image, labels);
+        PointList2D[] cornerPointsArrays = RegionBoundaries.runLengthsCornerLists(image, labels);
                 
         // allocate memory for result
 		int nLabels = labels.length;
@@ -259,15 +301,9 @@ public class OrientedBoundingBox2D extends RegionAnalyzer2D<OrientedBox2D>
 
         // Compute the oriented box of each set of corner points
 		this.fireStatusChanged(this, "Compute oriented boxes");
-        for (int i = 0; i < nLabels; i++)
-        {
-        	this.fireProgressChanged(this, i, nLabels);
-//        	boxes[i] = orientedBoundingBox(calibrate(cornerPointsArrays[i], calib));
-        	boxes[i] = orientedBoundingBox(cornerPointsArrays[i], calib);
-        }
+        processRegions(nLabels, i -> boxes[i] = orientedBoundingBox(cornerPointsArrays[i], calib));
         
 		this.fireStatusChanged(this, "");
-    	this.fireProgressChanged(this, 1, 1);
         
         return boxes;
 	}
@@ -31,9 +31,8 @@ import ij.ImagePlus;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
-import inra.ijpb.algo.AlgoStub;
 import inra.ijpb.label.LabelImages;
-import inra.ijpb.measure.RegionAnalyzer;
+import inra.ijpb.measure.RegionAnalyzerStub;
 
 /**
  * Base implementation of RegionAnalyzer interface for planar binary/label
@@ -48,8 +47,11 @@ import inra.ijpb.measure.RegionAnalyzer;
  * @author dlegland
  *
  */
-public abstract class RegionAnalyzer2D<T> extends AlgoStub implements RegionAnalyzer<T>
+public abstract class RegionAnalyzer2D<T> extends RegionAnalyzerStub<T>
 {
+	// ==================================================
+	// Implementation of RegionAnalyzer interface
+
 	/**
 	 * Computes an instance of the generic type T for each region in input label image.
 	 * 
@@ -26,12 +26,12 @@ package inra.ijpb.measure.region2d;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
 import ij.process.ImageProcessor;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.geometry.PointList2D;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Utility functions for computing position of boundary points/corners of
@@ -126,22 +126,171 @@ public class RegionBoundaries
     public final static ArrayList<Point2D>[] runlengthsCorners(ImageProcessor image, int[] labels)
     {
     	// Compute corner points for each label
-    	Map<Integer, ArrayList<Point2D>> cornerPointsMap = runLengthsCornersMap(image, labels);
+    	PointList2D[] cornerLists = runLengthsCornerLists(image, labels);
     	
     	// allocate array
     	int nLabels = labels.length;
     	@SuppressWarnings("unchecked")
     	ArrayList<Point2D>[] labelCornerPoints = (ArrayList<Point2D>[]) new ArrayList<?>[nLabels];
     	
-    	// convert map to array
+    	// convert packed lists to lists of points
     	for (int i = 0; i < nLabels; i++)
     	{
-    		labelCornerPoints[i] = cornerPointsMap.get(labels[i]);
+    		labelCornerPoints[i] = cornerLists[i].toArrayList();
     	}		
     	
     	return labelCornerPoints;
     }
 
+    /**
+     * Returns a set of points located at the corners of each region, as
+     * packed lists of coordinates. Point coordinates are integer (ImageJ
+     * locates pixels in a [0 1]^2 area). The points are the same, and in the
+     * same order, as the ones returned by
+     * {@link #runlengthsCorners(ImageProcessor, int[])}.
+     * 
+     * @param image
+     *            a label image
+     * @param labels
+     *            the list of labels to process
+     * @return for each label, the list of corner points
+     */
+    public final static PointList2D[] runLengthsCornerLists(ImageProcessor image, int[] labels)
+    {
+    	// get image size
+    	int sizeX = image.getWidth();
+    	int sizeY = image.getHeight();
+    	
+    	// allocate one list of points for each label
+    	int nLabels = labels.length;
+    	LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+    	RunLengthCorners[] corners = new RunLengthCorners[nLabels];
+    	for (int i = 0; i < nLabels; i++)
+    	{
+    		corners[i] = new RunLengthCorners();
+    	}
+    	
+    	// for each row, add corner point for first and last pixel of each run-length
+    	for (int y = 0; y < sizeY; y++)
+    	{
+    		// start from background
+    		int previous = 0;
+    		
+    		// Identify transition inside and outside the each label
+    		for (int x = 0; x < sizeX; x++)
+    		{
+    			int current = (int) image.getf(x, y);
+    			
+    			// check if we have a transition 
+    			if (current != previous)
+    			{
+    				// if leave a region, add corner points for the end of the region
+    				if (previous > 0)
+    				{
+    					int index = labelIndices.indexOf(previous);
+    					if (index >= 0)
+    						corners[index].addTransition(x, y);
+    				}
+    				
+    				// transition into a new region
+    				if (current > 0)
+    				{
+    					int index = labelIndices.indexOf(current);
+    					if (index >= 0)
+    						corners[index].addTransition(x, y);
+    				}
+    				
+    				// update current label
+    				previous = current;
+    			}
+    		}
+    		
+    		// if particle touches right border, add another point
+    		if (previous > 0)
+    		{
+    			int index = labelIndices.indexOf(previous);
+    			if (index >= 0)
+    				corners[index].addTransition(sizeX, y);
+    		}
+    	}
+    	
+    	PointList2D[] res = new PointList2D[nLabels];
+    	for (int i = 0; i < nLabels; i++)
+    	{
+    		res[i] = corners[i].points;
+    	}
+    	return res;
+    }
+    
+    /**
+     * Accumulates the corners of the run-lengths of a region. When a run-length
+     * starts or ends at position x, the corners (x,y) and (x,y+1) are added,
+     * the first one being omitted if it was already added as the bottom corner
+     * of a run-length of the previous row. As corners are added row by row and
+     * with increasing x within each row, duplicates are found by scanning the
+     * corners of the previous row with a cursor.
+     */
+    private static final class RunLengthCorners
+    {
+    	PointList2D points = new PointList2D();
+    	
+    	/** The row of the last added corners, or -2 if no corner was added. */
+    	int lastRow = -2;
+    	
+    	/** The range of indices of the corners added for the previous row. */
+    	int prevStart = 0;
+    	int prevEnd = 0;
+    	
+    	/** The range of indices of the corners added for the current row. */
+    	int currStart = 0;
+    	
+    	/** The index of the next corner to check within the previous row. */
+    	int cursor = 0;
+    	
+    	void addTransition(int x, int y)
+    	{
+    		// update row ranges
+    		if (y != lastRow)
+    		{
+    			int size = points.size();
+    			if (y == lastRow + 1)
+    			{
+    				prevStart = currStart;
+    				prevEnd = size;
+    			}
+    			else
+    			{
+    				prevStart = size;
+    				prevEnd = size;
+    			}
+    			currStart = size;
+    			cursor = prevStart;
+    			lastRow = y;
+    		}
+    		
+    		// search for corner (x,y) among the bottom corners of previous row
+    		while (cursor < prevEnd && points.getX(cursor) < x)
+    		{
+    			cursor++;
+    		}
+    		boolean found = false;
+    		for (int k = cursor; k < prevEnd && points.getX(k) == x; k++)
+    		{
+    			if (points.getY(k) == y)
+    			{
+    				found = true;
+    				break;
+    			}
+    		}
+    		
+    		if (!found)
+    		{
+    			points.add(x, y);
+    		}
+    		points.add(x, y + 1);
+    	}
+    }
+
     /**
 	 * Returns a set of points located at the corners of each region.
 	 * Point coordinates are integer (ImageJ locates pixels in a [0 1]^2 area).
@@ -156,72 +305,14 @@ public class RegionBoundaries
 	 */
 	public final static Map<Integer, ArrayList<Point2D>> runLengthsCornersMap(ImageProcessor image, int[] labels)
 	{
-	    // get image size
-		int sizeX = image.getWidth();
-		int sizeY = image.getHeight();
-		
-        // For each label, create a list of corner points
-        Map<Integer, ArrayList<Point2D>> labelCornerPoints = new TreeMap<Integer, ArrayList<Point2D>>();
-        for (int label : labels)
-        {
-        	labelCornerPoints.put(label, new ArrayList<Point2D>());
-        }
+		// compute corner points for each label
+		PointList2D[] cornerLists = runLengthsCornerLists(image, labels);
 		
-		// for each row, add corner point for first and last pixel of each run-length
-		for (int y = 0; y < sizeY; y++)
+		// convert to map of point lists
+		Map<Integer, ArrayList<Point2D>> labelCornerPoints = new TreeMap<Integer, ArrayList<Point2D>>();
+		for (int i = 0; i < labels.length; i++)
 		{
-			// start from background
-			int previous = 0;
-
-			// Identify transition inside and outside the each label
-			for (int x = 0; x < sizeX; x++)
-			{
-				int current = (int) image.getf(x, y);
-
-				// check if we have a transition 
-				if (current != previous)
-				{
-					// if leave a region, add a new corner points for the end of the region
-					if (previous > 0 && labelCornerPoints.containsKey(previous))
-					{
-						ArrayList<Point2D> corners = labelCornerPoints.get(previous);
-						Point2D p = new Point2D.Double(x, y);
-						if (!corners.contains(p))
-						{
-							corners.add(p);
-						}
-						corners.add(new Point2D.Double(x, y+1));
-					}
-					
-					// transition into a new region
-					if (current > 0 && labelCornerPoints.containsKey(current))
-					{
-						// add a new corner points for the beginning of the new region
-						ArrayList<Point2D> corners = labelCornerPoints.get(current);
-						Point2D p = new Point2D.Double(x, y);
-						if (!corners.contains(p))
-						{
-							corners.add(p);
-						}
-						corners.add(new Point2D.Double(x, y+1));
-					}
-					
-					// update current label
-					previous = current;
-				}
-			}
-			
-			// if particle touches right border, add another point
-			if (previous > 0 && labelCornerPoints.containsKey(previous))
-			{
-				ArrayList<Point2D> corners = labelCornerPoints.get(previous);
-				Point2D p = new Point2D.Double(sizeX, y);
-				if (!corners.contains(p))
-				{
-					corners.add(p);
-				}
-				corners.add(new Point2D.Double(sizeX, y+1));
-			}
+			labelCornerPoints.put(labels[i], cornerLists[i].toArrayList());
 		}
 		
 		return labelCornerPoints;
@@ -310,20 +401,46 @@ public class RegionBoundaries
      * @return an array of arrays of boundary points, one array for each label.
      */
     public static final ArrayList<Point2D>[] boundaryPixelsMiddleEdges(ImageProcessor labelImage, int[] labels)
+    {
+        PointList2D[] pointLists = boundaryPixelsMiddleEdgeLists(labelImage, labels);
+        
+        // convert packed lists to lists of points
+        int nLabels = labels.length;
+        @SuppressWarnings("unchecked")
+        ArrayList<Point2D>[] pointArrays = (ArrayList<Point2D>[]) new ArrayList<?>[nLabels];
+        for (int i = 0; i < nLabels; i++)
+        {
+            pointArrays[i] = pointLists[i].toArrayList();
+        }
+        return pointArrays;
+    }
+
+    /**
+     * Extracts boundary points from the different regions, as packed lists of
+     * coordinates. The points are the same, and in the same order, as the
+     * ones returned by
+     * {@link #boundaryPixelsMiddleEdges(ImageProcessor, int[])}.
+     * 
+     * @param labelImage
+     *            the image processor containing the region labels
+     * @param labels
+     *            the array of region labels
+     * @return an array of lists of boundary points, one list for each label.
+     */
+    public static final PointList2D[] boundaryPixelsMiddleEdgeLists(ImageProcessor labelImage, int[] labels)
     {
         // size of image
         int sizeX = labelImage.getWidth();
         int sizeY = labelImage.getHeight();
         
         int nLabels = labels.length;
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
         
         // allocate data structure for storing results
-        @SuppressWarnings("unchecked")
-        ArrayList<Point2D>[] pointArrays = (ArrayList<Point2D>[]) new ArrayList<?>[nLabels];
+        PointList2D[] pointArrays = new PointList2D[nLabels];
         for (int i = 0; i < nLabels; i++)
         {
-            pointArrays[i] = new ArrayList<Point2D>();
+            pointArrays[i] = new PointList2D();
         }
         
         // labels for current, up, and left pixels.
@@ -349,32 +466,34 @@ public class RegionBoundaries
                 // check boundary with upper pixel
                 if (labelUp != label)
                 {
-                    Point2D p = new Point2D.Double(x + .5, y);
                     if (label != 0)
                     {
-                        int index = labelIndices.get(label);
-                        pointArrays[index].add(p);
+                        int index = labelIndices.indexOf(label);
+                        if (index >= 0)
+                            pointArrays[index].add(x + .5, y);
                     }
                     if (labelUp != 0)
                     {
-                        int index = labelIndices.get(labelUp);
-                        pointArrays[index].add(p);
+                        int index = labelIndices.indexOf(labelUp);
+                        if (index >= 0)
+                            pointArrays[index].add(x + .5, y);
                     }
                 }
                 
                 // check boundary with left pixel
                 if (labelLeft != label)
                 {
-                    Point2D p = new Point2D.Double(x, y + .5);
                     if (label != 0)
                     {
-                        int index = labelIndices.get(label);
-                        pointArrays[index].add(p);
+                        int index = labelIndices.indexOf(label);
+                        if (index >= 0)
+                            pointArrays[index].add(x, y + .5);
                     }
                     if (labelLeft != 0)
                     {
-                        int index = labelIndices.get(labelLeft);
-                        pointArrays[index].add(p);
+                        int index = labelIndices.indexOf(labelLeft);
+                        if (index >= 0)
+                            pointArrays[index].add(x, y + .5);
                     }
                 }
 
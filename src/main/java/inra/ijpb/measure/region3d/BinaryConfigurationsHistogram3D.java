@@ -24,12 +24,12 @@
  */
 package inra.ijpb.measure.region3d;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 import ij.ImageStack;
 import inra.ijpb.algo.AlgoStub;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.data.image.Images3D;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Computes histogram of binary 2-by-2-by-2 configurations within a 3D image.
@@ -132,6 +132,13 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
         // values of pixels within current 2-by-2-by-2 configuration
         boolean[] configValues = new boolean[8];
         
+        // the four rows of voxels involved in current configurations
+        Object[] slices = image.getImageArray();
+        float[] row1 = new float[sizeX];
+        float[] row3 = new float[sizeX];
+        float[] row5 = new float[sizeX];
+        float[] row7 = new float[sizeX];
+        
         // Iterate over all 2-by-2-by-2 configurations containing at least one
         // voxel within the image.
         // Current pixel is the lower-right pixel in configuration
@@ -142,6 +149,11 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
             
             for (int y = 0; y < sizeY + 1; y++) 
             {
+                readRow(slices, sizeX, sizeY, sizeZ, y - 1, z - 1, row1);
+                readRow(slices, sizeX, sizeY, sizeZ, y, z - 1, row3);
+                readRow(slices, sizeX, sizeY, sizeZ, y - 1, z, row5);
+                readRow(slices, sizeX, sizeY, sizeZ, y, z, row7);
+                
                 // initialize left voxels
                 configValues[0] = false;
                 configValues[2] = false;
@@ -153,10 +165,10 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
                     // update pixel values of configuration
                     if (x < sizeX)
                     {
-                        configValues[1] = y > 0 & z > 0 ? image.getVoxel(x, y - 1, z - 1) > 0 : false;
-                        configValues[3] = y < sizeY & z > 0 ? image.getVoxel(x, y, z - 1) > 0 : false;
-                        configValues[5] = y > 0 & z < sizeZ ? image.getVoxel(x, y - 1, z) > 0 : false;
-                        configValues[7] = y < sizeY & z < sizeZ ? image.getVoxel(x, y, z) > 0 : false;
+                        configValues[1] = row1[x] > 0;
+                        configValues[3] = row3[x] > 0;
+                        configValues[5] = row5[x] > 0;
+                        configValues[7] = row7[x] > 0;
                     }
                     else
                     {
@@ -220,6 +232,13 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
         // values of pixels within current 2-by-2-by-2 configuration
         boolean[] configValues = new boolean[8];
         
+        // the four rows of voxels involved in current configurations
+        Object[] slices = image.getImageArray();
+        float[] row1 = new float[sizeX];
+        float[] row3 = new float[sizeX];
+        float[] row5 = new float[sizeX];
+        float[] row7 = new float[sizeX];
+        
         // Iterate over all 2-by-2-by-2 configurations containing at least one
         // voxel within the image.
         // Current pixel is the lower-right voxel in configuration
@@ -230,19 +249,24 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
             
             for (int y = 1; y < sizeY; y++) 
             {
+                readRow(slices, sizeX, sizeY, sizeZ, y - 1, z - 1, row1);
+                readRow(slices, sizeX, sizeY, sizeZ, y, z - 1, row3);
+                readRow(slices, sizeX, sizeY, sizeZ, y - 1, z, row5);
+                readRow(slices, sizeX, sizeY, sizeZ, y, z, row7);
+                
                 // initialize left voxels
-                configValues[0] = image.getVoxel(0, y - 1, z - 1) > 0;
-                configValues[2] = image.getVoxel(0, y, z - 1) > 0;
-                configValues[4] = image.getVoxel(0, y - 1, z) > 0;
-                configValues[6] = image.getVoxel(0, y, z) > 0;
+                configValues[0] = row1[0] > 0;
+                configValues[2] = row3[0] > 0;
+                configValues[4] = row5[0] > 0;
+                configValues[6] = row7[0] > 0;
     
                 for (int x = 1; x < sizeX; x++) 
                 {
                     // update pixel values of configuration
-                    configValues[1] = image.getVoxel(x, y - 1, z - 1) > 0;
-                    configValues[3] = image.getVoxel(x, y, z - 1) > 0;
-                    configValues[5] = image.getVoxel(x, y - 1, z) > 0;
-                    configValues[7] = image.getVoxel(x, y, z) > 0;
+                    configValues[1] = row1[x] > 0;
+                    configValues[3] = row3[x] > 0;
+                    configValues[5] = row5[x] > 0;
+                    configValues[7] = row7[x] > 0;
     
                     // Compute index of local configuration
                     int index = configIndex(configValues);
@@ -305,7 +329,7 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
         // and adds is contribution to the measure associated to the label. 
         
         // create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
         // initialize the result array containing one measure for each label
         int nLabels = labels.length;
@@ -317,11 +341,19 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
         int sizeZ = image.getSize();
 
         // for each configuration of 2x2x2 voxels, we identify the labels
-        ArrayList<Integer> localLabels = new ArrayList<Integer>(8);
+        int[] localLabels = new int[8];
+        int nLocalLabels = 0;
         
         // values of pixels within current 2-by-2-by-2 configuration
         int[] configValues = new int[8];
         
+        // the four rows of voxels involved in current configurations
+        Object[] slices = image.getImageArray();
+        int[] row1 = new int[sizeX];
+        int[] row3 = new int[sizeX];
+        int[] row5 = new int[sizeX];
+        int[] row7 = new int[sizeX];
+        
         // Iterate over all 2-by-2-by-2 configurations containing at least one
         // voxel within the image.
         // Current pixel is the lower-right pixel in configuration
@@ -332,6 +364,11 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
 
             for (int y = 0; y < sizeY + 1; y++) 
             {
+                readRow(slices, sizeX, sizeY, sizeZ, y - 1, z - 1, row1);
+                readRow(slices, sizeX, sizeY, sizeZ, y, z - 1, row3);
+                readRow(slices, sizeX, sizeY, sizeZ, y - 1, z, row5);
+                readRow(slices, sizeX, sizeY, sizeZ, y, z, row7);
+                
                 // initialize left voxels
                 configValues[0] = 0;
                 configValues[2] = 0;
@@ -343,10 +380,10 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
                     // update pixel values of configuration
                     if (x < sizeX)
                     {
-                        configValues[1] = y > 0 & z > 0 ? (int) image.getVoxel(x, y - 1, z - 1) : 0;
-                        configValues[3] = y < sizeY & z > 0 ? (int) image.getVoxel(x, y, z - 1) : 0;
-                        configValues[5] = y > 0 & z < sizeZ ? (int) image.getVoxel(x, y - 1, z) : 0;
-                        configValues[7] = y < sizeY & z < sizeZ ? (int) image.getVoxel(x, y, z) : 0;
+                        configValues[1] = row1[x];
+                        configValues[3] = row3[x];
+                        configValues[5] = row5[x];
+                        configValues[7] = row7[x];
                     }
                     else
                     {
@@ -356,24 +393,28 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
                     }
 
                     // identify labels in current config
-                    localLabels.clear();
+                    nLocalLabels = 0;
                     for (int label : configValues)
                     {
                         if (label == 0)
                             continue;
                         // keep only one instance of each label
-                        if (!localLabels.contains(label))
-                            localLabels.add(label);
+                        if (!containsLabel(localLabels, nLocalLabels, label))
+                            localLabels[nLocalLabels++] = label;
                     }
 
                     // For each label, compute binary confi
-                    for (int label : localLabels) 
+                    for (int i = 0; i < nLocalLabels; i++)
                     {
+                        int label = localLabels[i];
+
                         // Compute index of local configuration
                         int index = configIndex(configValues, label);
 
                         // retrieve label index from label value
-                        int labelIndex = labelIndices.get(label);
+                        int labelIndex = labelIndices.indexOf(label);
+                        if (labelIndex < 0)
+                            continue;
 
                         // add the contribution of the configuration to the
                         // accumulator for the label
@@ -395,7 +436,45 @@ public class BinaryConfigurationsHistogram3D extends AlgoStub
         return histos;
     }
 
-    private static final int configIndex(int[] configValues, int label)
+    /**
+     * Reads the values of the row (y,z) into the buffer, or fills the buffer
+     * with zeros if the row is outside of image bounds.
+     */
+    private static final void readRow(Object[] slices, int sizeX, int sizeY, int sizeZ, int y, int z, float[] row)
+    {
+        if (y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
+        {
+            Arrays.fill(row, 0f);
+            return;
+        }
+        Images3D.readFloats(slices[z], y * sizeX, row, sizeX);
+    }
+    
+    /**
+     * Reads the labels of the row (y,z) into the buffer, or fills the buffer
+     * with zeros if the row is outside of image bounds.
+     */
+    private static final void readRow(Object[] slices, int sizeX, int sizeY, int sizeZ, int y, int z, int[] row)
+    {
+        if (y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
+        {
+            Arrays.fill(row, 0);
+            return;
+        }
+        Images3D.readInts(slices[z], y * sizeX, row, sizeX);
+    }
+    
+    static final boolean containsLabel(int[] localLabels, int nLocalLabels, int label)
+    {
+        for (int i = 0; i < nLocalLabels; i++)
+        {
+            if (localLabels[i] == label)
+                return true;
+        }
+        return false;
+    }
+
+    static final int configIndex(int[] configValues, int label)
     {
         // Compute index of local configuration
         int index = 0;
@@ -24,14 +24,13 @@
  */
 package inra.ijpb.measure.region3d;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import ij.ImageStack;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import inra.ijpb.geometry.Box3D;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Compute bounding box of each region within a label or binary image.
@@ -109,7 +108,7 @@ public class BoundingBox3D extends RegionAnalyzer3D<Box3D>
 		}
 		
 		// create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		// allocate memory for result
 		int nLabels = labels.length;
@@ -144,9 +143,9 @@ public class BoundingBox3D extends RegionAnalyzer3D<Box3D>
     					continue;
 
                     // do not process labels that are not in the input list 
-                    if (!labelIndices.containsKey(label))
+                    int index = labelIndices.indexOf(label);
+                    if (index < 0)
                         continue;
-    				int index = labelIndices.get(label);
 
     				xmin[index] = Math.min(xmin[index], x);
     				xmax[index] = Math.max(xmax[index], x + 1);
@@ -24,14 +24,13 @@
  */
 package inra.ijpb.measure.region3d;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import ij.ImageStack;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import inra.ijpb.geometry.Point3D;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Computes centroid position of regions within 3D binary or label images.
@@ -81,7 +80,7 @@ public class Centroid3D extends RegionAnalyzer3D<Point3D>
 	{
 		// create associative array to know index of each label
 		int nLabels = labels.length;
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		// allocate memory for result
 		int[] counts = new int[nLabels];
@@ -103,10 +102,9 @@ public class Centroid3D extends RegionAnalyzer3D<Point3D>
 						continue;
 
 					// do not process labels that are not in the input list 
-					if (!labelIndices.containsKey(label))
+					int index = labelIndices.indexOf(label);
+					if (index < 0)
 						continue;
-
-					int index = labelIndices.get(label);
 					centroids[index][0] += x;
 					centroids[index][1] += y;
 					centroids[index][2] += z;
@@ -209,7 +207,7 @@ public class Centroid3D extends RegionAnalyzer3D<Point3D>
 		}
 		
 		// create associative array to know index of each label
-        HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+        LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 		// allocate memory for result
 		int nLabels = labels.length;
@@ -231,10 +229,9 @@ public class Centroid3D extends RegionAnalyzer3D<Point3D>
     					continue;
 
                     // do not process labels that are not in the input list 
-                    if (!labelIndices.containsKey(label))
+                    int index = labelIndices.indexOf(label);
+                    if (index < 0)
                         continue;
-
-                    int index = labelIndices.get(label);
     				cx[index] += x * sx;
     				cy[index] += y * sy;
     				cz[index] += z * sz;
@@ -30,7 +30,6 @@ import static java.lang.Math.sqrt;
 import static java.lang.Math.toDegrees;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 
 import Jama.Matrix;
@@ -41,7 +40,7 @@ import ij.measure.ResultsTable;
 import inra.ijpb.geometry.Ellipsoid;
 import inra.ijpb.geometry.Point3D;
 import inra.ijpb.geometry.Vector3D;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Compute the parameters of 3D ellipsoids that has the same moments up to the
@@ -202,13 +201,7 @@ public class EquivalentEllipsoid extends RegionAnalyzer3D<Ellipsoid>
 
     	// compute ellipsoid parameters for each region
         fireStatusChanged(this, "Ellipsoid: compute SVD");
-    	for (int i = 0; i < n; i++) 
-    	{
-            this.fireProgressChanged(this, i, n);
-            // create the new ellipsoid
-            ellipsoids[i] = moments[i].equivalentEllipsoid();
-    	}
-        fireProgressChanged(this, 1, 1);
+    	processRegions(n, i -> ellipsoids[i] = moments[i].equivalentEllipsoid());
     	
 		return ellipsoids;
 	}
@@ -248,7 +241,7 @@ public class EquivalentEllipsoid extends RegionAnalyzer3D<Ellipsoid>
         fireStatusChanged(this, "Ellipsoid: compute Moments");
 
         // create associative array to know index of each label
-	    HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+	    LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 	    // allocate memory for result
 	    int nLabels = labels.length;
@@ -273,11 +266,11 @@ public class EquivalentEllipsoid extends RegionAnalyzer3D<Ellipsoid>
 	                    continue;
 
                     // do not process labels that are not in the input list 
-                    if (!labelIndices.containsKey(label))
+                    int index = labelIndices.indexOf(label);
+                    if (index < 0)
                         continue;
 
                     // convert label to its index
-	                int index = labelIndices.get(label);
 
 	                // update sum coordinates, taking into account the spatial calibration
 	                Moments3D moment = moments[index];
@@ -312,14 +305,18 @@ public class EquivalentEllipsoid extends RegionAnalyzer3D<Ellipsoid>
                     // get label of current label
                     int label = (int) image.getVoxel(x, y, z);
                     
-                    // do not process background voxels or regions not in the "labels" array
-                    if (label == 0 || !labelIndices.containsKey(label))
+                    // do not process background voxels
+                    if (label == 0)
                     {
                         continue;
                     }
 
-                    // convert label to its index
-                    int index = labelIndices.get(label);
+                    // convert label to its index, and skip regions not in the "labels" array
+                    int index = labelIndices.indexOf(label);
+                    if (index < 0)
+                    {
+                        continue;
+                    }
                     Moments3D moment = moments[index];
 
                     // convert coordinates relative to centroid 
@@ -0,0 +1,774 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure.region3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.measure.ResultsTable;
+import inra.ijpb.geometry.Box3D;
+import inra.ijpb.geometry.Ellipsoid;
+import inra.ijpb.geometry.Point3D;
+import inra.ijpb.label.LabelUtils;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * Computes several morphological features of the regions within a 3D label
+ * image using a single pass over the voxels.
+ * 
+ * <p>
+ * The features that only depend on voxel coordinates or on the histogram of
+ * 2-by-2-by-2 binary configurations (voxel count, intrinsic volumes, bounding
+ * box, centroid, and equivalent ellipsoid) are all accumulated during the same
+ * scan of the image, instead of running one scan for each feature. The image
+ * is split into slabs of consecutive planes that can be processed by several
+ * threads, each thread updating its own accumulators that are merged at the
+ * end of the computation.
+ * </p>
+ * 
+ * <p>
+ * The results are the same as the ones obtained with the
+ * {@link IntrinsicVolumesAnalyzer3D}, {@link BoundingBox3D},
+ * {@link Centroid3D} and {@link EquivalentEllipsoid} classes, up to
+ * floating-point rounding.
+ * </p>
+ * 
+ * @see IntrinsicVolumesAnalyzer3D
+ * @see BoundingBox3D
+ * @see Centroid3D
+ * @see EquivalentEllipsoid
+ * 
+ * @author dlegland
+ *
+ */
+public class FusedRegionAnalyzer3D extends RegionAnalyzer3D<FusedRegionAnalyzer3D.Result>
+{
+    // ==================================================
+    // Class members
+
+    boolean computeVoxelCount = true;
+    boolean computeIntrinsicVolumes = true;
+    boolean computeBoundingBox = true;
+    boolean computeCentroid = true;
+    boolean computeEllipsoid = true;
+    
+    /**
+     * The number of directions for computing surface area and mean breadth.
+     * Can be 3 or 13.
+     */
+    int directionNumber = 13;
+
+    /**
+     * The connectivity used for computing the Euler number. Can be 6 or 26.
+     */
+    int connectivity = 6;
+    
+    
+    // ==================================================
+    // Constructors
+
+    /**
+     * Default constructor, that computes all the features.
+     */
+    public FusedRegionAnalyzer3D()
+    {
+    }
+    
+    
+    // ==================================================
+    // Setters and getters
+    
+    /**
+     * @param b
+     *            the flag indicating whether the number of voxels should be
+     *            computed
+     */
+    public void setComputeVoxelCount(boolean b)
+    {
+        this.computeVoxelCount = b;
+    }
+
+    /**
+     * @param b
+     *            the flag indicating whether the intrinsic volumes (volume,
+     *            surface area, mean breadth and Euler number) should be
+     *            computed
+     */
+    public void setComputeIntrinsicVolumes(boolean b)
+    {
+        this.computeIntrinsicVolumes = b;
+    }
+
+    /**
+     * @param b
+     *            the flag indicating whether the bounding boxes should be
+     *            computed
+     */
+    public void setComputeBoundingBox(boolean b)
+    {
+        this.computeBoundingBox = b;
+    }
+
+    /**
+     * @param b
+     *            the flag indicating whether the centroids should be computed
+     */
+    public void setComputeCentroid(boolean b)
+    {
+        this.computeCentroid = b;
+    }
+
+    /**
+     * @param b
+     *            the flag indicating whether the equivalent ellipsoids should
+     *            be computed
+     */
+    public void setComputeEllipsoid(boolean b)
+    {
+        this.computeEllipsoid = b;
+    }
+
+    /**
+     * @return the number of directions used for computing surface area and
+     *         mean breadth
+     */
+    public int getDirectionNumber()
+    {
+        return directionNumber;
+    }
+
+    /**
+     * @param directionNumber
+     *            the number of directions used for computing surface area and
+     *            mean breadth (either 3 or 13)
+     */
+    public void setDirectionNumber(int directionNumber)
+    {
+        this.directionNumber = directionNumber;
+    }
+
+    /**
+     * @return the connectivity used for computing the Euler number
+     */
+    public int getConnectivity()
+    {
+        return connectivity;
+    }
+
+    /**
+     * @param connectivity
+     *            the connectivity used for computing the Euler number (either
+     *            6 or 26)
+     */
+    public void setConnectivity(int connectivity)
+    {
+        this.connectivity = connectivity;
+    }
+    
+    
+    // ==================================================
+    // Implementation of RegionAnalyzer3D methods
+
+    @Override
+    public ResultsTable createTable(Map<Integer, Result> results)
+    {
+        // Initialize a new result table
+        ResultsTable table = new ResultsTable();
+    
+        for (int label : results.keySet())
+        {
+            Result res = results.get(label);
+            
+            // add an entry to the resulting data table
+            table.incrementCounter();
+            table.addLabel(Integer.toString(label));
+
+            if (computeVoxelCount)
+            {
+                table.addValue("VoxelCount", res.voxelCount);
+            }
+            if (computeIntrinsicVolumes)
+            {
+                table.addValue("Volume", res.volume);
+                table.addValue("SurfaceArea", res.surfaceArea);
+                table.addValue("MeanBreadth", res.meanBreadth);
+                table.addValue("EulerNumber", res.eulerNumber);
+            }
+            if (computeBoundingBox)
+            {
+                Box3D box = res.box;
+                table.addValue("Box.X.Min", box.getXMin());
+                table.addValue("Box.X.Max", box.getXMax());
+                table.addValue("Box.Y.Min", box.getYMin());
+                table.addValue("Box.Y.Max", box.getYMax());
+                table.addValue("Box.Z.Min", box.getZMin());
+                table.addValue("Box.Z.Max", box.getZMax());
+            }
+            if (computeCentroid)
+            {
+                table.addValue("Centroid.X", res.centroid.getX());
+                table.addValue("Centroid.Y", res.centroid.getY());
+                table.addValue("Centroid.Z", res.centroid.getZ());
+            }
+            if (computeEllipsoid)
+            {
+                Ellipsoid elli = res.ellipsoid;
+                Point3D center = elli.center();
+                table.addValue("Ellipsoid.Center.X", center.getX());
+                table.addValue("Ellipsoid.Center.Y", center.getY());
+                table.addValue("Ellipsoid.Center.Z", center.getZ());
+                table.addValue("Ellipsoid.Radius1", elli.radius1());
+                table.addValue("Ellipsoid.Radius2", elli.radius2());
+                table.addValue("Ellipsoid.Radius3", elli.radius3());
+                table.addValue("Ellipsoid.Phi", elli.phi());
+                table.addValue("Ellipsoid.Theta", elli.theta());
+                table.addValue("Ellipsoid.Psi", elli.psi());
+            }
+        }
+    
+        return table;
+    }
+
+    @Override
+    public Result[] analyzeRegions(ImageStack image, int[] labels, Calibration calib)
+    {
+        if (calib == null)
+        {
+            calib = new Calibration();
+        }
+        
+        final int sizeZ = image.getSize();
+
+        // create associative array to know index of each label
+        final LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+        final int nLabels = labels.length;
+        
+        // the pool of accumulators that are not currently used by a thread
+        final ConcurrentLinkedQueue<Accumulator> idleAccumulators = new ConcurrentLinkedQueue<Accumulator>();
+        final ArrayList<Accumulator> accumulators = new ArrayList<Accumulator>();
+        
+        // when intrinsic volumes are computed, iterate over all the
+        // configurations of 2-by-2-by-2 voxels containing at least one voxel
+        // of the image
+        final int nPlanes = computeIntrinsicVolumes ? sizeZ + 1 : sizeZ;
+        final AtomicInteger planeCount = new AtomicInteger(0);
+        
+        fireStatusChanged(this, "Accumulate region features");
+        ParallelSlabs.process(nPlanes, this.getThreadCount(), (z0, z1) -> {
+            // retrieve an accumulator, or create a new one
+            Accumulator acc = idleAccumulators.poll();
+            if (acc == null)
+            {
+                acc = new Accumulator(nLabels);
+                synchronized (accumulators)
+                {
+                    accumulators.add(acc);
+                }
+            }
+            
+            try
+            {
+                for (int z = z0; z < z1; z++)
+                {
+                    if (computeIntrinsicVolumes)
+                    {
+                        processConfigurationPlane(image, z, labelIndices, acc);
+                    }
+                    else
+                    {
+                        processVoxelPlane(image, z, labelIndices, acc);
+                    }
+                    this.fireProgressChanged(this, planeCount.incrementAndGet(), nPlanes);
+                }
+            }
+            finally
+            {
+                idleAccumulators.add(acc);
+            }
+        });
+
+        // merge the results of individual accumulators
+        fireStatusChanged(this, "Merge region features");
+        Result[] results = new Result[nLabels];
+        for (int i = 0; i < nLabels; i++)
+        {
+            results[i] = new Result();
+        }
+        
+        mergeVoxelCounts(accumulators, results);
+        if (computeIntrinsicVolumes)
+        {
+            mergeIntrinsicVolumes(accumulators, results, calib);
+        }
+        if (computeBoundingBox)
+        {
+            mergeBoundingBoxes(accumulators, results, calib);
+        }
+        if (computeCentroid || computeEllipsoid)
+        {
+            mergeMoments(accumulators, results, calib);
+        }
+        
+        fireProgressChanged(this, 1, 1);
+        fireStatusChanged(this, "");
+        return results;
+    }
+    
+    /**
+     * Processes the configurations whose "lower-right" voxel is located within
+     * the plane with index z. The voxels of the plane (if any) are also
+     * added to the accumulator.
+     */
+    private void processConfigurationPlane(ImageStack image, int z, LabelUtils.LabelIndexMap labelIndices, Accumulator acc)
+    {
+        // size of image
+        int sizeX = image.getWidth();
+        int sizeY = image.getHeight();
+        int sizeZ = image.getSize();
+
+        // for each configuration of 2x2x2 voxels, we identify the labels
+        int[] localLabels = new int[8];
+        int nLocalLabels = 0;
+
+        // values of pixels within current 2-by-2-by-2 configuration
+        int[] configValues = new int[8];
+        
+        for (int y = 0; y < sizeY + 1; y++) 
+        {
+            // initialize left voxels
+            configValues[0] = 0;
+            configValues[2] = 0;
+            configValues[4] = 0;
+            configValues[6] = 0;
+
+            for (int x = 0; x < sizeX + 1; x++) 
+            {
+                // update pixel values of configuration
+                if (x < sizeX)
+                {
+                    configValues[1] = y > 0 & z > 0 ? (int) image.getVoxel(x, y - 1, z - 1) : 0;
+                    configValues[3] = y < sizeY & z > 0 ? (int) image.getVoxel(x, y, z - 1) : 0;
+                    configValues[5] = y > 0 & z < sizeZ ? (int) image.getVoxel(x, y - 1, z) : 0;
+                    configValues[7] = y < sizeY & z < sizeZ ? (int) image.getVoxel(x, y, z) : 0;
+                }
+                else
+                {
+                    // if reference voxel outside of image, the four new
+                    // values are outside, and are set to zero
+                    configValues[1] = configValues[3] = configValues[5] = configValues[7] = 0;   
+                }
+
+                // identify labels in current config
+                nLocalLabels = 0;
+                for (int label : configValues)
+                {
+                    if (label == 0)
+                        continue;
+                    // keep only one instance of each label
+                    if (!BinaryConfigurationsHistogram3D.containsLabel(localLabels, nLocalLabels, label))
+                        localLabels[nLocalLabels++] = label;
+                }
+
+                // For each label, update histogram of binary configurations
+                for (int i = 0; i < nLocalLabels; i++)
+                {
+                    int labelIndex = labelIndices.indexOf(localLabels[i]);
+                    if (labelIndex < 0)
+                        continue;
+                    int index = BinaryConfigurationsHistogram3D.configIndex(configValues, localLabels[i]);
+                    acc.addConfiguration(labelIndex, index);
+                }
+                
+                // the lower-right voxel is non zero only if it is within image
+                if (configValues[7] != 0)
+                {
+                    int labelIndex = labelIndices.indexOf(configValues[7]);
+                    if (labelIndex >= 0)
+                    {
+                        acc.addVoxel(labelIndex, x, y, z);
+                    }
+                }
+                
+                // update values of configuration for next iteration
+                configValues[0] = configValues[1];
+                configValues[2] = configValues[3];
+                configValues[4] = configValues[5];
+                configValues[6] = configValues[7];
+            }
+        }
+    }
+    
+    /**
+     * Adds the voxels of the plane with index z to the accumulator.
+     */
+    private void processVoxelPlane(ImageStack image, int z, LabelUtils.LabelIndexMap labelIndices, Accumulator acc)
+    {
+        int sizeX = image.getWidth();
+        int sizeY = image.getHeight();
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int x = 0; x < sizeX; x++)
+            {
+                int label = (int) image.getVoxel(x, y, z);
+                if (label == 0)
+                    continue;
+                
+                int labelIndex = labelIndices.indexOf(label);
+                if (labelIndex >= 0)
+                {
+                    acc.addVoxel(labelIndex, x, y, z);
+                }
+            }
+        }
+    }
+    
+    private void mergeVoxelCounts(ArrayList<Accumulator> accumulators, Result[] results)
+    {
+        for (Accumulator acc : accumulators)
+        {
+            for (int i = 0; i < results.length; i++)
+            {
+                results[i].voxelCount += acc.counts[i];
+            }
+        }
+    }
+    
+    private void mergeIntrinsicVolumes(ArrayList<Accumulator> accumulators, Result[] results, Calibration calib)
+    {
+        // sum the histograms of configurations
+        int nLabels = results.length;
+        int[][] histograms = new int[nLabels][256];
+        for (Accumulator acc : accumulators)
+        {
+            for (int i = 0; i < nLabels; i++)
+            {
+                int[] histo = acc.histograms[i];
+                if (histo == null)
+                    continue;
+                for (int k = 0; k < 256; k++)
+                {
+                    histograms[i][k] += histo[k];
+                }
+            }
+        }
+        
+        // use the same look-up tables as IntrinsicVolumesAnalyzer3D
+        double[] volumes = BinaryConfigurationsHistogram3D.applyLut(histograms, IntrinsicVolumes3DUtils.volumeLut(calib));
+        double[] areas = BinaryConfigurationsHistogram3D.applyLut(histograms, IntrinsicVolumes3DUtils.surfaceAreaLut(calib, this.directionNumber));
+        double[] breadths = BinaryConfigurationsHistogram3D.applyLut(histograms, IntrinsicVolumes3DUtils.meanBreadthLut(calib, this.directionNumber, 8));
+        double[] eulers = BinaryConfigurationsHistogram3D.applyLut(histograms, IntrinsicVolumes3DUtils.eulerNumberLut(this.connectivity));
+        for (int i = 0; i < nLabels; i++)
+        {
+            results[i].volume = volumes[i];
+            results[i].surfaceArea = areas[i];
+            results[i].meanBreadth = breadths[i];
+            results[i].eulerNumber = eulers[i];
+        }
+    }
+    
+    private void mergeBoundingBoxes(ArrayList<Accumulator> accumulators, Result[] results, Calibration calib)
+    {
+        double sx = calib.pixelWidth, sy = calib.pixelHeight, sz = calib.pixelDepth;
+        double ox = calib.xOrigin, oy = calib.yOrigin, oz = calib.zOrigin;
+        
+        for (int i = 0; i < results.length; i++)
+        {
+            // initialize to extreme values
+            double xmin = Double.POSITIVE_INFINITY;
+            double xmax = Double.NEGATIVE_INFINITY;
+            double ymin = Double.POSITIVE_INFINITY;
+            double ymax = Double.NEGATIVE_INFINITY;
+            double zmin = Double.POSITIVE_INFINITY;
+            double zmax = Double.NEGATIVE_INFINITY;
+            
+            for (Accumulator acc : accumulators)
+            {
+                if (acc.counts[i] == 0)
+                    continue;
+                xmin = Math.min(xmin, acc.bounds[6 * i]);
+                xmax = Math.max(xmax, acc.bounds[6 * i + 1] + 1);
+                ymin = Math.min(ymin, acc.bounds[6 * i + 2]);
+                ymax = Math.max(ymax, acc.bounds[6 * i + 3] + 1);
+                zmin = Math.min(zmin, acc.bounds[6 * i + 4]);
+                zmax = Math.max(zmax, acc.bounds[6 * i + 5] + 1);
+            }
+            
+            results[i].box = new Box3D(
+                    xmin * sx + ox, xmax * sx + ox,
+                    ymin * sy + oy, ymax * sy + oy, 
+                    zmin * sz + oz, zmax * sz + oz);
+        }
+    }
+    
+    private void mergeMoments(ArrayList<Accumulator> accumulators, Result[] results, Calibration calib)
+    {
+        double sx = calib.pixelWidth, sy = calib.pixelHeight, sz = calib.pixelDepth;
+        double ox = calib.xOrigin, oy = calib.yOrigin, oz = calib.zOrigin;
+        
+        EquivalentEllipsoid ellipsoidAlgo = new EquivalentEllipsoid();
+        
+        long[] sums = new long[9];
+        for (int i = 0; i < results.length; i++)
+        {
+            // choose the reference voxel of the first accumulator as common
+            // reference, and sum moments expressed relative to this voxel
+            long n = 0;
+            long rx = 0, ry = 0, rz = 0;
+            Arrays.fill(sums, 0);
+            for (Accumulator acc : accumulators)
+            {
+                long ni = acc.counts[i];
+                if (ni == 0)
+                    continue;
+                if (n == 0)
+                {
+                    rx = acc.refs[3 * i];
+                    ry = acc.refs[3 * i + 1];
+                    rz = acc.refs[3 * i + 2];
+                }
+                n += ni;
+                
+                // shift between reference of accumulator and common reference
+                long dx = acc.refs[3 * i] - rx;
+                long dy = acc.refs[3 * i + 1] - ry;
+                long dz = acc.refs[3 * i + 2] - rz;
+                
+                long[] s = acc.moments;
+                int o = 9 * i;
+                long sumX = s[o], sumY = s[o + 1], sumZ = s[o + 2];
+                sums[0] += sumX + ni * dx;
+                sums[1] += sumY + ni * dy;
+                sums[2] += sumZ + ni * dz;
+                sums[3] += s[o + 3] + 2 * dx * sumX + ni * dx * dx;
+                sums[4] += s[o + 4] + 2 * dy * sumY + ni * dy * dy;
+                sums[5] += s[o + 5] + 2 * dz * sumZ + ni * dz * dz;
+                sums[6] += s[o + 6] + dy * sumX + dx * sumY + ni * dx * dy;
+                sums[7] += s[o + 7] + dz * sumX + dx * sumZ + ni * dx * dz;
+                sums[8] += s[o + 8] + dz * sumY + dy * sumZ + ni * dy * dz;
+            }
+            
+            // mean coordinates, relative to reference voxel
+            double mx = ((double) sums[0]) / n;
+            double my = ((double) sums[1]) / n;
+            double mz = ((double) sums[2]) / n;
+            
+            // centroid, using same convention as Centroid3D
+            double cx = (rx + mx) * sx;
+            double cy = (ry + my) * sy;
+            double cz = (rz + mz) * sz;
+            results[i].centroid = new Point3D(cx + ox, cy + oy, cz + oz);
+
+            if (!computeEllipsoid)
+                continue;
+
+            // compute moments using same convention as EquivalentEllipsoid
+            EquivalentEllipsoid.Moments3D moments = ellipsoidAlgo.new Moments3D();
+            if (n > 0)
+            {
+                moments.count = (int) Math.min(n, Integer.MAX_VALUE);
+                
+                // centered second-order moments, normalized by voxel count
+                moments.Ixx = (sums[3] / (double) n - mx * mx) * sx * sx;
+                moments.Iyy = (sums[4] / (double) n - my * my) * sy * sy;
+                moments.Izz = (sums[5] / (double) n - mz * mz) * sz * sz;
+                moments.Ixy = (sums[6] / (double) n - mx * my) * sx * sy;
+                moments.Ixz = (sums[7] / (double) n - mx * mz) * sx * sz;
+                moments.Iyz = (sums[8] / (double) n - my * mz) * sy * sz;
+                
+                // Also adds the contribution of the central voxel
+                moments.Ixx += sx * sx / 12;
+                moments.Iyy += sy * sy / 12;
+                moments.Izz += sz * sz / 12;
+
+                // add coordinates of origin pixel (IJ coordinate system)
+                moments.cx = cx + .5 * sx + ox;
+                moments.cy = cy + .5 * sy + oy;
+                moments.cz = cz + .5 * sz + oz;
+            }
+            results[i].ellipsoid = moments.equivalentEllipsoid();
+        }
+    }
+    
+    
+    // ==================================================
+    // Inner class for accumulating features
+
+    /**
+     * Accumulates the features of each region for the set of planes
+     * processed by a single thread. Moments are computed using integer voxel
+     * coordinates relative to the first voxel of each region encountered by
+     * the accumulator, making them exact and easy to merge.
+     */
+    private class Accumulator
+    {
+        /** The number of voxels of each region */
+        long[] counts;
+        
+        /** The histogram of binary configurations, allocated on demand */
+        int[][] histograms;
+        
+        /** The bounds of each region, as (xmin, xmax, ymin, ymax, zmin, zmax) */
+        int[] bounds;
+        
+        /** The coordinates of the reference voxel of each region */
+        int[] refs;
+        
+        /** The moments of each region, as (x, y, z, xx, yy, zz, xy, xz, yz) */
+        long[] moments;
+        
+        Accumulator(int nLabels)
+        {
+            this.counts = new long[nLabels];
+            if (computeIntrinsicVolumes)
+            {
+                this.histograms = new int[nLabels][];
+            }
+            if (computeBoundingBox)
+            {
+                this.bounds = new int[6 * nLabels];
+            }
+            if (computeCentroid || computeEllipsoid)
+            {
+                this.refs = new int[3 * nLabels];
+                this.moments = new long[9 * nLabels];
+            }
+        }
+        
+        void addConfiguration(int labelIndex, int configIndex)
+        {
+            int[] histo = histograms[labelIndex];
+            if (histo == null)
+            {
+                histo = new int[256];
+                histograms[labelIndex] = histo;
+            }
+            histo[configIndex]++;
+        }
+        
+        void addVoxel(int labelIndex, int x, int y, int z)
+        {
+            boolean first = counts[labelIndex] == 0;
+            counts[labelIndex]++;
+            
+            if (bounds != null)
+            {
+                int o = 6 * labelIndex;
+                if (first)
+                {
+                    bounds[o] = bounds[o + 1] = x;
+                    bounds[o + 2] = bounds[o + 3] = y;
+                    bounds[o + 4] = bounds[o + 5] = z;
+                }
+                else
+                {
+                    bounds[o] = Math.min(bounds[o], x);
+                    bounds[o + 1] = Math.max(bounds[o + 1], x);
+                    bounds[o + 2] = Math.min(bounds[o + 2], y);
+                    bounds[o + 3] = Math.max(bounds[o + 3], y);
+                    bounds[o + 4] = Math.min(bounds[o + 4], z);
+                    bounds[o + 5] = Math.max(bounds[o + 5], z);
+                }
+            }
+            
+            if (moments != null)
+            {
+                int o = 3 * labelIndex;
+                if (first)
+                {
+                    refs[o] = x;
+                    refs[o + 1] = y;
+                    refs[o + 2] = z;
+                }
+                long dx = x - refs[o];
+                long dy = y - refs[o + 1];
+                long dz = z - refs[o + 2];
+                
+                o = 9 * labelIndex;
+                moments[o] += dx;
+                moments[o + 1] += dy;
+                moments[o + 2] += dz;
+                moments[o + 3] += dx * dx;
+                moments[o + 4] += dy * dy;
+                moments[o + 5] += dz * dz;
+                moments[o + 6] += dx * dy;
+                moments[o + 7] += dx * dz;
+                moments[o + 8] += dy * dz;
+            }
+        }
+    }
+    
+    
+    // ==================================================
+    // Inner class for storing results
+    
+    /**
+     * Stores the features computed for a region. The features that were not
+     * computed are left to their default value (NaN or null).
+     */
+    public static class Result
+    {
+        /**
+         * The number of voxels within the region.
+         */
+        public long voxelCount = 0;
+        
+        /**
+         * The volume of the region.
+         */
+        public double volume = Double.NaN;
+        
+        /**
+         * The surface area of the region.
+         */
+        public double surfaceArea = Double.NaN;
+        
+        /**
+         * The mean breadth of the region.
+         */
+        public double meanBreadth = Double.NaN;
+        
+        /**
+         * The Euler number of the region.
+         */
+        public double eulerNumber = Double.NaN;
+        
+        /**
+         * The bounding box of the region.
+         */
+        public Box3D box = null;
+        
+        /**
+         * The centroid of the region.
+         */
+        public Point3D centroid = null;
+        
+        /**
+         * The equivalent ellipsoid of the region.
+         */
+        public Ellipsoid ellipsoid = null;
+    }
+}
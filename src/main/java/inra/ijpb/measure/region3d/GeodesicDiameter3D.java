@@ -31,7 +31,8 @@ import inra.ijpb.algo.AlgoEvent;
 import inra.ijpb.algo.AlgoListener;
 import inra.ijpb.binary.distmap.ChamferMask3D;
 import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3D;
-import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3DFloat;
+import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3DBucketQueue;
+import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3DFloatHybrid;
 import inra.ijpb.data.Cursor3D;
 import inra.ijpb.data.image.Images3D;
 import inra.ijpb.label.LabelImages;
@@ -76,6 +77,12 @@ public class GeodesicDiameter3D extends RegionAnalyzer3D<GeodesicDiameter3D.Resu
 	 */
 	String currentStep = "";
 	
+	/**
+	 * The flag for processing each region independently within a crop of the
+	 * label image around the region.
+	 */
+	boolean cropLabels = false;
+	
 	
 	// ==================================================
 	// Constructors 
@@ -93,6 +100,34 @@ public class GeodesicDiameter3D extends RegionAnalyzer3D<GeodesicDiameter3D.Resu
 	}
 	
 
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return true if each region is processed independently within a crop
+	 *         of the label image around the region
+	 */
+	public boolean getCropLabels()
+	{
+		return cropLabels;
+	}
+	
+	/**
+	 * Chooses the execution mode. When set to true, each region is processed
+	 * independently within a crop of the label image corresponding to its
+	 * bounding box enlarged by one voxel, and regions are processed in
+	 * parallel. This is typically much faster and requires less memory for
+	 * small regions within large images. Default is false.
+	 * 
+	 * @param cropLabels
+	 *            the flag for processing each region within its own crop
+	 */
+	public void setCropLabels(boolean cropLabels)
+	{
+		this.cropLabels = cropLabels;
+	}
+	
+	
 	// ==================================================
 	// Processing methods
 	
@@ -158,6 +193,76 @@ public class GeodesicDiameter3D extends RegionAnalyzer3D<GeodesicDiameter3D.Resu
 			throw new RuntimeException("Requires image with cubic voxels");
 		}
 
+		if (this.cropLabels)
+		{
+			return analyzeCroppedRegions(labelImage, labels);
+		}
+		
+		// Create calculator for computing geodesic distances within label image
+		GeodesicDistanceTransform3D gdt = createGeodesicDistanceTransform();
+		gdt.addAlgoListener(this);
+		
+		return computeResults(labelImage, labels, gdt, true);
+	}
+	
+	/**
+	 * Processes each region independently within a crop of the label image
+	 * around the region, and merges the results. Regions are processed in
+	 * parallel using the thread count or the pool of this analyzer.
+	 */
+	private Result[] analyzeCroppedRegions(ImageStack labelImage, int[] labels)
+	{
+		int nLabels = labels.length;
+		
+		this.fireStatusChanged(this, "Compute bounding boxes");
+		int[][] bounds = LabelCrops3D.cropBounds(labelImage, labels, 1);
+		
+		this.fireStatusChanged(this, "Compute geodesic diameters");
+		Result[] result = new Result[nLabels];
+		processRegions(nLabels, i -> {
+			ImageStack crop = LabelCrops3D.crop(labelImage, labels[i], bounds[i]);
+			Result res = computeResults(crop, new int[] {255}, createGeodesicDistanceTransform(), false)[0];
+			
+			// convert positions to the coordinates of the whole image
+			int x0 = bounds[i][0], y0 = bounds[i][2], z0 = bounds[i][4];
+			res.initialPoint = translate(res.initialPoint, x0, y0, z0);
+			res.firstExtremity = translate(res.firstExtremity, x0, y0, z0);
+			res.secondExtremity = translate(res.secondExtremity, x0, y0, z0);
+			result[i] = res;
+		});
+		
+		return result;
+	}
+	
+	private static final Cursor3D translate(Cursor3D pos, int dx, int dy, int dz)
+	{
+		if (pos.getX() == -1)
+		{
+			return pos;
+		}
+		return new Cursor3D(pos.getX() + dx, pos.getY() + dy, pos.getZ() + dz);
+	}
+	
+	/**
+	 * Creates the algorithm for propagating geodesic distances, using integer
+	 * computations when the chamfer mask allows it.
+	 */
+	private GeodesicDistanceTransform3D createGeodesicDistanceTransform()
+	{
+		if (this.chamferMask.hasIntegerWeights())
+		{
+			return new GeodesicDistanceTransform3DBucketQueue(this.chamferMask, false);
+		}
+		return new GeodesicDistanceTransform3DFloatHybrid(this.chamferMask, false);
+	}
+	
+	/**
+	 * Computes the geodesic diameters of the specified regions within a label
+	 * image, using three distance propagations over the whole image.
+	 */
+	private Result[] computeResults(ImageStack labelImage, int[] labels,
+			GeodesicDistanceTransform3D gdt, boolean fireEvents)
+	{
 		// number of labels to process
 		int nLabels = labels.length;
 
@@ -166,17 +271,15 @@ public class GeodesicDiameter3D extends RegionAnalyzer3D<GeodesicDiameter3D.Resu
 		int sizeY = labelImage.getHeight();
 		int sizeZ = labelImage.size();
 
-		// Create calculator for computing geodesic distances within label image
-		GeodesicDistanceTransform3D gdt;
-		gdt = new GeodesicDistanceTransform3DFloat(this.chamferMask, false);
-		gdt.addAlgoListener(this);
-
 
 		ImageStack marker = ImageStack.create(sizeX, sizeY, sizeZ, 8);
 
 		// Compute distance map from label borders to identify centers
 		// (The distance map correctly processes adjacent borders)
-		this.fireStatusChanged(this, "Initializing pseudo geodesic centers...");
+		if (fireEvents)
+		{
+			this.fireStatusChanged(this, "Initializing pseudo geodesic centers...");
+		}
 		ImageStack distanceMap = LabelImages.distanceMap(labelImage, chamferMask, true, false);
 
 		// Extract position of maxima
@@ -196,7 +299,10 @@ public class GeodesicDiameter3D extends RegionAnalyzer3D<GeodesicDiameter3D.Resu
 			marker.setVoxel(center.getX(), center.getY(), center.getZ(), 255);
 		}
 
-		this.fireStatusChanged(this, "Computing first geodesic extremities...");
+		if (fireEvents)
+		{
+			this.fireStatusChanged(this, "Computing first geodesic extremities...");
+		}
 
 		// Second distance propagation from first maximum
 		distanceMap = gdt.geodesicDistanceMap(marker, labelImage);
@@ -219,7 +325,10 @@ public class GeodesicDiameter3D extends RegionAnalyzer3D<GeodesicDiameter3D.Resu
 			marker.setVoxel(pos.getX(), pos.getY(), pos.getZ(), 255);
 		}
 
-		this.fireStatusChanged(this, "Computing second geodesic extremities...");
+		if (fireEvents)
+		{
+			this.fireStatusChanged(this, "Computing second geodesic extremities...");
+		}
 
 		// third distance propagation from second maximum
 		distanceMap = gdt.geodesicDistanceMap(marker, labelImage);
@@ -30,7 +30,6 @@ import static java.lang.Math.sqrt;
 import static java.lang.Math.toDegrees;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 
 import Jama.Matrix;
@@ -41,7 +40,7 @@ import ij.measure.ResultsTable;
 import inra.ijpb.geometry.Ellipsoid;
 import inra.ijpb.geometry.Point3D;
 import inra.ijpb.geometry.Vector3D;
-import inra.ijpb.label.LabelImages;
+import inra.ijpb.label.LabelUtils;
 
 /**
  * Compute parameters of inertia ellipsoids from 3D binary / label images.
@@ -221,7 +220,7 @@ public class InertiaEllipsoid extends RegionAnalyzer3D<Ellipsoid>
         fireStatusChanged(this, "Ellipsoid: compute Moments");
 
         // create associative array to know index of each label
-	    HashMap<Integer, Integer> labelIndices = LabelImages.mapLabelIndices(labels);
+	    LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
 
 	    // allocate memory for result
 	    int nLabels = labels.length;
@@ -246,12 +245,12 @@ public class InertiaEllipsoid extends RegionAnalyzer3D<Ellipsoid>
 	                    continue;
 
 	                // convert label to its index
-	                if (!labelIndices.containsKey(label))
+	                int index = labelIndices.indexOf(label);
+	                if (index < 0)
 	                {
 	                    System.err.println("Label image contains unknown label: " + label);
 	                    continue;
 	                }
-	                int index = labelIndices.get(label);
 
 	                // update sum coordinates, taking into account the spatial calibration
 	                InertiaMoments3D moment = moments[index];
@@ -286,7 +285,9 @@ public class InertiaEllipsoid extends RegionAnalyzer3D<Ellipsoid>
                         continue;
 
                     // convert label to its index
-                    int index = labelIndices.get(label);
+                    int index = labelIndices.indexOf(label);
+                    if (index < 0)
+                        continue;
                     InertiaMoments3D moment = moments[index];
 
                     // convert coordinates relative to centroid 
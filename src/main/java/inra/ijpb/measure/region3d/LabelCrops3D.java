@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure.region3d;
+
+import ij.ImageStack;
+import inra.ijpb.geometry.Box3D;
+
+/**
+ * Utility methods for processing the regions of a 3D label image
+ * independently, by extracting for each region a binary image cropped to its
+ * bounding box. This allows the computation time and memory of region
+ * analyzers to scale with the volume of the regions rather than with the
+ * volume of the whole image.
+ * 
+ * @author dlegland
+ *
+ */
+class LabelCrops3D
+{
+	/**
+	 * Private constructor to prevent class instantiation.
+	 */
+	private LabelCrops3D()
+	{
+	}
+	
+	/**
+	 * Computes the bounds of the crop to extract for each label, as the voxel
+	 * bounding box of the region enlarged by the specified margin, and
+	 * clamped to the image bounds. The bounds are given as
+	 * <code>{xmin, xmax, ymin, ymax, zmin, zmax}</code>, with exclusive upper
+	 * bounds. Labels that are not present within the image are associated to
+	 * the single voxel at the image origin.
+	 * 
+	 * @param labelImage
+	 *            the 3D label image
+	 * @param labels
+	 *            the labels of the regions to crop
+	 * @param margin
+	 *            the number of voxels to add around each bounding box
+	 * @return the bounds of the crop of each label
+	 */
+	static final int[][] cropBounds(ImageStack labelImage, int[] labels, int margin)
+	{
+		int sizeX = labelImage.getWidth();
+		int sizeY = labelImage.getHeight();
+		int sizeZ = labelImage.getSize();
+		
+		// compute bounding boxes in voxel coordinates
+		Box3D[] boxes = new BoundingBox3D().analyzeRegions(labelImage, labels, null);
+		
+		int[][] bounds = new int[labels.length][];
+		for (int i = 0; i < labels.length; i++)
+		{
+			Box3D box = boxes[i];
+			if (Double.isInfinite(box.getXMin()))
+			{
+				bounds[i] = new int[] {0, 1, 0, 1, 0, 1};
+				continue;
+			}
+			bounds[i] = new int[] {
+					Math.max((int) box.getXMin() - margin, 0), 
+					Math.min((int) box.getXMax() + margin, sizeX), 
+					Math.max((int) box.getYMin() - margin, 0), 
+					Math.min((int) box.getYMax() + margin, sizeY), 
+					Math.max((int) box.getZMin() - margin, 0), 
+					Math.min((int) box.getZMax() + margin, sizeZ)};
+		}
+		return bounds;
+	}
+	
+	/**
+	 * Creates a binary image containing the voxels of the specified label
+	 * within the specified bounds.
+	 * 
+	 * @param labelImage
+	 *            the 3D label image
+	 * @param label
+	 *            the label of the region to extract
+	 * @param bounds
+	 *            the bounds of the crop, as
+	 *            <code>{xmin, xmax, ymin, ymax, zmin, zmax}</code>
+	 * @return a new 8-bits image, with value 255 for the voxels of the region
+	 *         and 0 elsewhere
+	 */
+	static final ImageStack crop(ImageStack labelImage, int label, int[] bounds)
+	{
+		int x0 = bounds[0];
+		int y0 = bounds[2];
+		int z0 = bounds[4];
+		int sizeX = bounds[1] - x0;
+		int sizeY = bounds[3] - y0;
+		int sizeZ = bounds[5] - z0;
+		
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			byte[] pixels = (byte[]) result.getPixels(z + 1);
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					if ((int) labelImage.getVoxel(x + x0, y + y0, z + z0) == label)
+					{
+						pixels[y * sizeX + x] = (byte) 255;
+					}
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -68,6 +68,16 @@ public class LargestInscribedBall extends RegionAnalyzer3D<Sphere>
 		return new LargestInscribedBall().analyzeRegions(labelImage, labels, calib);
 	}
 	
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The flag for processing each region independently within a crop of the
+	 * label image around the region.
+	 */
+	boolean cropLabels = false;
+	
+	
 	// ==================================================
 	// Constructors
 	
@@ -78,7 +88,35 @@ public class LargestInscribedBall extends RegionAnalyzer3D<Sphere>
 	{
 	}
 	
-
+	
+	// ==================================================
+	// Setters and getters
+	
+	/**
+	 * @return true if each region is processed independently within a crop
+	 *         of the label image around the region
+	 */
+	public boolean getCropLabels()
+	{
+		return cropLabels;
+	}
+	
+	/**
+	 * Chooses the execution mode. When set to true, the distance map of each
+	 * region is computed independently within a crop of the label image
+	 * corresponding to its bounding box enlarged by one voxel, and regions
+	 * are processed in parallel. This is typically much faster and requires
+	 * less memory for small regions within large images. Default is false.
+	 * 
+	 * @param cropLabels
+	 *            the flag for processing each region within its own crop
+	 */
+	public void setCropLabels(boolean cropLabels)
+	{
+		this.cropLabels = cropLabels;
+	}
+	
+	
 	// ==================================================
 	// Implementation of RegionAnalyzer interface
 
@@ -137,15 +175,25 @@ public class LargestInscribedBall extends RegionAnalyzer3D<Sphere>
     	// compute max label within image
     	int nLabels = labels.length;
     	
-		// first distance propagation to find an arbitrary center
-    	fireStatusChanged(this, "Compute distance map");
-		ImageStack distanceMap = LabelImages.distanceMap(labelImage);
-
-		// Extract position of maxima
-		fireStatusChanged(this, "Find inscribed balls center");
 		Cursor3D[] posCenter;
-		posCenter = LabelValues.findPositionOfMaxValues(distanceMap, labelImage, labels);
-		float[] radii = getValues(distanceMap, posCenter);
+		float[] radii;
+		if (this.cropLabels)
+		{
+			posCenter = new Cursor3D[nLabels];
+			radii = new float[nLabels];
+			computeCroppedCenters(labelImage, labels, posCenter, radii);
+		}
+		else
+		{
+			// first distance propagation to find an arbitrary center
+			fireStatusChanged(this, "Compute distance map");
+			ImageStack distanceMap = LabelImages.distanceMap(labelImage);
+			
+			// Extract position of maxima
+			fireStatusChanged(this, "Find inscribed balls center");
+			posCenter = LabelValues.findPositionOfMaxValues(distanceMap, labelImage, labels);
+			radii = getValues(distanceMap, posCenter);
+		}
 
 		// Create result data table
 		fireStatusChanged(this, "Create ball data");
@@ -162,6 +210,34 @@ public class LargestInscribedBall extends RegionAnalyzer3D<Sphere>
 		return balls;
     }
 	
+	/**
+	 * Computes the center and the radius of the inscribed ball of each region,
+	 * by computing the distance map within a crop of the label image around
+	 * each region. Regions are processed in parallel.
+	 */
+	private void computeCroppedCenters(ImageStack labelImage, int[] labels, Cursor3D[] posCenter, float[] radii)
+	{
+		int nLabels = labels.length;
+		
+		fireStatusChanged(this, "Compute bounding boxes");
+		int[][] bounds = LabelCrops3D.cropBounds(labelImage, labels, 1);
+		
+		fireStatusChanged(this, "Find inscribed balls center");
+		processRegions(nLabels, i -> {
+			ImageStack crop = LabelCrops3D.crop(labelImage, labels[i], bounds[i]);
+			ImageStack distanceMap = LabelImages.distanceMap(crop);
+			Cursor3D pos = LabelValues.findPositionOfMaxValues(distanceMap, crop, new int[] {255})[0];
+			radii[i] = getValues(distanceMap, new Cursor3D[] {pos})[0];
+			
+			// convert position to the coordinates of the whole image
+			if (pos.getX() != -1)
+			{
+				pos = new Cursor3D(pos.getX() + bounds[i][0], pos.getY() + bounds[i][2], pos.getZ() + bounds[i][4]);
+			}
+			posCenter[i] = pos;
+		});
+	}
+	
 	/**
 	 * Get values in input image for each specified position.
 	 */
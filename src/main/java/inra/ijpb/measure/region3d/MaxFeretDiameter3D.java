@@ -31,7 +31,9 @@ import ij.ImageStack;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import inra.ijpb.geometry.Point3D;
+import inra.ijpb.geometry.PointList3D;
 import inra.ijpb.geometry.PointPair3D;
+import inra.ijpb.geometry.QuickHull3D;
 
 /**
  * Computes maximum Feret Diameter for each region of a 3D binary or label
@@ -110,6 +112,7 @@ public class MaxFeretDiameter3D extends RegionAnalyzer3D<PointPair3D>
 	{
 	}
 
+	
 	// ==================================================
 	// Implementation of RegionAnalyzer interface
 
@@ -185,29 +188,33 @@ public class MaxFeretDiameter3D extends RegionAnalyzer3D<PointPair3D>
 
         // For each label, create a list of corner points
 		fireStatusChanged(this, "Find Label Corner Points");
-        ArrayList<Point3D>[] labelCornerPointsArray = RegionBoundaries3D.regionsCornersArray(image, labels);
+        PointList3D[] labelCornerPointsArray = RegionBoundaries3D.regionsCornerLists(image, labels);
                 
-        // Compute the oriented box of each set of corner points
+        // Compute the Feret diameter of each set of corner points
         PointPair3D[] labelMaxDiams = new PointPair3D[nLabels];
         fireStatusChanged(this, "Compute feret Diameters");
-        for (int i = 0; i < nLabels; i++)
-        {
-        	this.fireProgressChanged(this, i, nLabels);
+        final double sx2 = sx, sy2 = sy, sz2 = sz;
+        final double ox2 = ox, oy2 = oy, oz2 = oz;
+        processRegions(nLabels, i -> {
+        	PointList3D corners = labelCornerPointsArray[i];
         	
-        	ArrayList<Point3D> hull = labelCornerPointsArray[i];
-    		// calibrate coordinates of hull vertices
-    		for (int iv = 0; iv < hull.size(); iv++)
-    		{
-    			Point3D vertex = hull.get(iv);
-    			vertex = new Point3D(vertex.getX() * sx + ox, vertex.getY() * sy + oy, vertex.getZ() * sz + oz);
-    			hull.set(iv, vertex);
-    		}
-
-    		// compute Feret diameter of calibrated hull
+        	// The maximal distance is always obtained between two vertices
+        	// of the convex hull. The hull is computed on the (integer)
+        	// voxel corners, and vertices are kept in their original
+        	// order so that the result is the same as with all corners.
+        	int[] inds = QuickHull3D.convexHullVertexIndices(corners);
+        	
+        	// calibrate coordinates of hull vertices
+        	ArrayList<Point3D> hull = new ArrayList<Point3D>(inds.length);
+        	for (int ind : inds)
+        	{
+        		hull.add(new Point3D(corners.getX(ind) * sx2 + ox2, corners.getY(ind) * sy2 + oy2, corners.getZ(ind) * sz2 + oz2));
+        	}
+        	
+        	// compute Feret diameter of calibrated hull
         	labelMaxDiams[i] = maxFeretDiameter(hull);
-        }
+        });
         
-        fireProgressChanged(this, 1, 1);
         fireStatusChanged(this, "");
         return labelMaxDiams;
 	}
@@ -33,10 +33,9 @@ import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import inra.ijpb.algo.AlgoEvent;
 import inra.ijpb.algo.AlgoListener;
-import inra.ijpb.algo.AlgoStub;
 import inra.ijpb.label.LabelImages;
 import inra.ijpb.label.edit.FindAllLabels;
-import inra.ijpb.measure.RegionAnalyzer;
+import inra.ijpb.measure.RegionAnalyzerStub;
 
 /**
  * Base implementation of RegionAnalyzer interface for 3D binary/label
@@ -51,8 +50,11 @@ import inra.ijpb.measure.RegionAnalyzer;
  * @author dlegland
  *
  */
-public abstract class RegionAnalyzer3D<T> extends AlgoStub implements RegionAnalyzer<T>, AlgoListener
+public abstract class RegionAnalyzer3D<T> extends RegionAnalyzerStub<T> implements AlgoListener
 {
+	// ==================================================
+	// Implementation of RegionAnalyzer interface
+
 	/**
      * Utility method that convert an array of result into a map using labels as
      * keys.
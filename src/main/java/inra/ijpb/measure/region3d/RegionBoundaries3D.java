@@ -26,6 +26,8 @@ package inra.ijpb.measure.region3d;
 
 import ij.ImageStack;
 import inra.ijpb.geometry.Point3D;
+import inra.ijpb.geometry.PointList3D;
+import inra.ijpb.label.LabelUtils;
 
 import java.util.ArrayList;
 import java.util.Map;
@@ -58,17 +60,76 @@ public class RegionBoundaries3D
 	 * @return a list of points that can be used for convex hull computation
 	 */
 	public final static Map<Integer, ArrayList<Point3D>> regionsCorners(ImageStack image, int[] labels)
+	{
+		// compute corner points for each label
+		PointList3D[] cornerLists = regionsCornerLists(image, labels);
+		
+		// convert to map of point lists
+		Map<Integer, ArrayList<Point3D>> labelCornerPoints = new TreeMap<Integer, ArrayList<Point3D>>();
+		for (int i = 0; i < labels.length; i++)
+		{
+			labelCornerPoints.put(labels[i], cornerLists[i].toArrayList());
+		}
+		
+		return labelCornerPoints;
+	}
+	
+	/**
+	 * Returns a set of points located at the corners of a binary particle.
+	 * Point coordinates are integer (ImageJ locates pixels in a [0 1]^d area.
+	 * 
+	 * @param image
+	 *            a binary image representing the particle
+	 * @param labels
+	 *            the list of labels to process
+	 * @return for each label, an array of points
+	 */
+	public final static ArrayList<Point3D>[] regionsCornersArray(ImageStack image, int[] labels)
+	{
+		// Compute corner points for each label
+		PointList3D[] cornerLists = regionsCornerLists(image, labels);
+		
+		// allocate array
+		int nLabels = labels.length;
+		@SuppressWarnings("unchecked")
+		ArrayList<Point3D>[] labelCornerPoints = (ArrayList<Point3D>[]) new ArrayList<?>[nLabels];
+		
+		// convert packed lists to lists of points
+		for (int i = 0; i < nLabels; i++)
+		{
+			labelCornerPoints[i] = cornerLists[i].toArrayList();
+		}		
+		
+		return labelCornerPoints;
+	}
+	
+	/**
+	 * Returns the set of points located at the corners of each region, as
+	 * packed lists of coordinates. Point coordinates are integer (ImageJ
+	 * locates pixels in a [0 1]^d area. The points are the same, and in the
+	 * same order, as the ones returned by
+	 * {@link #regionsCornersArray(ImageStack, int[])}.
+	 * 
+	 * @param image
+	 *            a label image
+	 * @param labels
+	 *            the list of labels to process
+	 * @return for each label, the list of corner points
+	 */
+	public final static PointList3D[] regionsCornerLists(ImageStack image, int[] labels)
 	{
 		int sizeX = image.getWidth();
 		int sizeY = image.getHeight();
 		int sizeZ = image.getSize();
 		
-        // For each label, create an empty list of corner points
-        Map<Integer, ArrayList<Point3D>> labelCornerPoints = new TreeMap<Integer, ArrayList<Point3D>>();
-        for (int label : labels)
-        {
-        	labelCornerPoints.put(label, new ArrayList<Point3D>());
-        }
+		// For each label, create an empty list of corner points
+		int nLabels = labels.length;
+		LabelUtils.LabelIndexMap labelIndices = LabelUtils.createLabelIndexMap(labels);
+		PointList3D[] cornerLists = new PointList3D[nLabels];
+		for (int i = 0; i < nLabels; i++)
+		{
+			cornerLists[i] = new PointList3D();
+		}
 		
 		// for each row, add corner point for first and last pixel of each run-length
 		for (int z = 0; z < sizeZ; z++)
@@ -84,95 +145,45 @@ public class RegionBoundaries3D
 					int pixel = (int) image.getVoxel(x, y, z);
 					if (pixel != currentLabel)
 					{
-						// creates the four corners corresponding to the
-						// transition between previous and current voxels
-						ArrayList<Point3D> newPoints = new ArrayList<Point3D>(4);
-						newPoints.add(new Point3D(x, y, z));
-						newPoints.add(new Point3D(x, y + 1, z));
-						newPoints.add(new Point3D(x, y, z + 1));
-						newPoints.add(new Point3D(x, y + 1, z + 1));
-
-						// if leave a region, add a new corner points for the end of the region
-						if (currentLabel > 0 && labelCornerPoints.containsKey(currentLabel))
+						// if leave a region, add the four corners corresponding
+						// to the transition between previous and current voxels
+						if (currentLabel > 0)
 						{
-							ArrayList<Point3D> corners = labelCornerPoints.get(currentLabel);
-							for (Point3D p : newPoints)
-							{
-								if (!corners.contains(p))
-								{
-									corners.add(p);
-								}
-							}
+							int index = labelIndices.indexOf(currentLabel);
+							if (index >= 0)
+								addTransitionCorners(cornerLists[index], x, y, z);
 						}
 
 						// transition into a new region
-						if (pixel > 0 && labelCornerPoints.containsKey(pixel))
+						if (pixel > 0)
 						{
-							ArrayList<Point3D> corners = labelCornerPoints.get(pixel);
-							for (Point3D p : newPoints)
-							{
-								if (!corners.contains(p))
-								{
-									corners.add(p);
-								}
-							}
+							int index = labelIndices.indexOf(pixel);
+							if (index >= 0)
+								addTransitionCorners(cornerLists[index], x, y, z);
 						}
 					}
 					currentLabel = pixel;
 				}
 
-				// if particle touches right border, add another point
-				if (currentLabel > 0 &&  labelCornerPoints.containsKey(currentLabel))
+				// if particle touches right border, add the four corners
+				// corresponding to the transition with background
+				if (currentLabel > 0)
 				{
-                    // creates the four corners corresponding to the
-					// transition between current label and background
-					ArrayList<Point3D> newPoints = new ArrayList<Point3D>(4);
-					newPoints.add(new Point3D(sizeX, y, z));
-					newPoints.add(new Point3D(sizeX, y + 1, z));
-					newPoints.add(new Point3D(sizeX, y, z + 1));
-					newPoints.add(new Point3D(sizeX, y + 1, z + 1));
-					
-					ArrayList<Point3D> corners = labelCornerPoints.get(currentLabel);
-					for (Point3D p : newPoints)
-					{
-						if (!corners.contains(p))
-						{
-							corners.add(p);
-						}
-					}
+					int index = labelIndices.indexOf(currentLabel);
+					if (index >= 0)
+						addTransitionCorners(cornerLists[index], sizeX, y, z);
 				}
 			}
 		}
 		
-		return labelCornerPoints;
+		return cornerLists;
 	}
 	
-	/**
-	 * Returns a set of points located at the corners of a binary particle.
-	 * Point coordinates are integer (ImageJ locates pixels in a [0 1]^d area.
-	 * 
-	 * @param image
-	 *            a binary image representing the particle
-	 * @param labels
-	 *            the list of labels to process
-	 * @return for each label, an array of points
-	 */
-	public final static ArrayList<Point3D>[] regionsCornersArray(ImageStack image, int[] labels)
+	private static final void addTransitionCorners(PointList3D corners, int x, int y, int z)
 	{
-		// Compute corner points for each label
-		Map<Integer, ArrayList<Point3D>> cornerPointsMap = regionsCorners(image, labels);
-		
-		// allocate array
-		int nLabels = labels.length;
-		@SuppressWarnings("unchecked")
-		ArrayList<Point3D>[] labelCornerPoints = (ArrayList<Point3D>[]) new ArrayList<?>[nLabels];
-		
-		// convert map to array
-		for (int i = 0; i < nLabels; i++)
-		{
-			labelCornerPoints[i] = cornerPointsMap.get(labels[i]);
-		}		
-		
-		return labelCornerPoints;
+		corners.add(x, y, z);
+		corners.add(x, y + 1, z);
+		corners.add(x, y, z + 1);
+		corners.add(x, y + 1, z + 1);
 	}
 }
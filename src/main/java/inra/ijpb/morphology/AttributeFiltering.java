@@ -26,9 +26,10 @@ import ij.ImageStack;
 import ij.process.ImageProcessor;
 import inra.ijpb.algo.DefaultAlgoListener;
 import inra.ijpb.morphology.attrfilt.AreaOpening;
-import inra.ijpb.morphology.attrfilt.AreaOpeningQueue;
+import inra.ijpb.morphology.attrfilt.AreaOpeningMaxTree;
+import inra.ijpb.morphology.attrfilt.BoxDiagonalOpeningMaxTree;
 import inra.ijpb.morphology.attrfilt.SizeOpening3D;
-import inra.ijpb.morphology.attrfilt.SizeOpening3DQueue;
+import inra.ijpb.morphology.attrfilt.SizeOpening3DMaxTree;
 
 /**
  * Several static methods for computation of attribute filtering (opening,
@@ -88,11 +89,52 @@ public class AttributeFiltering
 	 */
 	public static final ImageProcessor areaOpening(ImageProcessor image, int minArea)
 	{
-		AreaOpening algo = new AreaOpeningQueue();
+		AreaOpening algo = new AreaOpeningMaxTree();
 		DefaultAlgoListener.monitor(algo);
 		return algo.process(image, minArea);
 	}
 
+	/**
+	 * Applies grayscale area opening on input image, by retaining only the
+	 * connected components that contain at least the specified number of pixels.
+	 * 
+	 * @param image
+	 *            input grayscale image
+	 * @param minArea
+	 *            the minimum number of pixels at a given gray level
+	 * @param connectivity
+	 *            planar connectivity to use, either 4 or 8
+	 * @return the result of grayscale size opening on the input image
+	 */
+	public static final ImageProcessor areaOpening(ImageProcessor image, int minArea, int connectivity)
+	{
+		AreaOpeningMaxTree algo = new AreaOpeningMaxTree();
+		algo.setConnectivity(connectivity);
+		DefaultAlgoListener.monitor(algo);
+		return algo.process(image, minArea);
+	}
+
+	/**
+	 * Applies grayscale opening on input image, by retaining only the
+	 * connected components whose bounding box has a diagonal larger than the
+	 * specified value.
+	 * 
+	 * @param image
+	 *            input grayscale image
+	 * @param minDiagonal
+	 *            the minimum length of the bounding box diagonal
+	 * @param connectivity
+	 *            planar connectivity to use, either 4 or 8
+	 * @return the result of grayscale box diagonal opening on the input image
+	 */
+	public static final ImageProcessor boxDiagonalOpening(ImageProcessor image, int minDiagonal, int connectivity)
+	{
+		BoxDiagonalOpeningMaxTree algo = new BoxDiagonalOpeningMaxTree();
+		algo.setConnectivity(connectivity);
+		DefaultAlgoListener.monitor(algo);
+		return algo.process(image, minDiagonal);
+	}
+
 	/**
 	 * Applies grayscale volume opening on input 3D image, by retaining only the
 	 * connected components that contain at least the specified number of voxels.
@@ -105,7 +147,7 @@ public class AttributeFiltering
 	 */
 	public static final ImageStack volumeOpening(ImageStack image, int minVolume)
 	{
-		SizeOpening3D algo = new SizeOpening3DQueue();
+		SizeOpening3D algo = new SizeOpening3DMaxTree();
 		DefaultAlgoListener.monitor(algo);
 		return algo.process(image, minVolume);
 	}
@@ -125,7 +167,7 @@ public class AttributeFiltering
 			int minVolume,
 			int connectivity )
 	{
-		SizeOpening3DQueue algo = new SizeOpening3DQueue();
+		SizeOpening3DMaxTree algo = new SizeOpening3DMaxTree();
 		algo.setConnectivity( connectivity );
 		DefaultAlgoListener.monitor( algo );
 		return algo.process( image, minVolume );
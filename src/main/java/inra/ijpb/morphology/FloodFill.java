@@ -25,9 +25,7 @@ import static java.lang.Math.max;
 import static java.lang.Math.min;
 import ij.ImageStack;
 import ij.process.ImageProcessor;
-
-import java.awt.Point;
-import java.util.ArrayList;
+import inra.ijpb.data.IndexDeque;
 
 /**
  * <p>
@@ -104,16 +102,16 @@ public class FloodFill
 			return ;
 		
 		// initialize the stack with original pixel
-		ArrayList<Point> stack = new ArrayList<Point>();
-		stack.add(new Point(x0, y0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Point p = stack.remove(stack.size()-1);
-			x0 = p.x;
-			y0 = p.y;
+			long p = stack.pollLast();
+			x0 = IndexDeque.unpackX(p);
+			y0 = IndexDeque.unpackY(p);
 			
 			// process only pixel with the same value
 			if (image.get(x0, y0) != oldValue) 
@@ -146,7 +144,7 @@ public class FloodFill
 					int val = image.get(i, y0 - 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 - 1));
+						stack.addLast(IndexDeque.pack(i, y0 - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -165,7 +163,7 @@ public class FloodFill
 					int val = image.getPixel(i, y0 + 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 + 1));
+						stack.addLast(IndexDeque.pack(i, y0 + 1));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -205,16 +203,16 @@ public class FloodFill
 			return;
 
 		// initialize the stack with original pixel
-		ArrayList<Point> stack = new ArrayList<Point>();
-		stack.add(new Point(x0, y0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, y0));
 
 		// process all items in stack
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Point p = stack.remove(stack.size() - 1);
-			x0 = p.x;
-			y0 = p.y;
+			long p = stack.pollLast();
+			x0 = IndexDeque.unpackX(p);
+			y0 = IndexDeque.unpackY(p);
 
 			// process only pixel with the same value
 			if (image.get(x0, y0) != oldValue)
@@ -247,7 +245,7 @@ public class FloodFill
 					int val = image.get(i, y0 - 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 - 1));
+						stack.addLast(IndexDeque.pack(i, y0 - 1));
 						inScanLine = true;
 					} else if (inScanLine && val != oldValue)
 						inScanLine = false;
@@ -263,7 +261,7 @@ public class FloodFill
 					int val = image.getPixel(i, y0 + 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 + 1));
+						stack.addLast(IndexDeque.pack(i, y0 + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -330,16 +328,16 @@ public class FloodFill
 			return ;
 		
 		// initialize the stack with original pixel
-		ArrayList<Point> stack = new ArrayList<Point>();
-		stack.add(new Point(x0, y0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Point p = stack.remove(stack.size() - 1);
-			x0 = p.x;
-			y0 = p.y;
+			long p = stack.pollLast();
+			x0 = IndexDeque.unpackX(p);
+			y0 = IndexDeque.unpackY(p);
 
 			// process only pixel of the same value
 			if (image.getf(x0, y0) != oldValue)
@@ -372,7 +370,7 @@ public class FloodFill
 					float val = image.getf(i, y0 - 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 - 1));
+						stack.addLast(IndexDeque.pack(i, y0 - 1));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -391,7 +389,7 @@ public class FloodFill
 					float val = image.getf(i, y0 + 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 + 1));
+						stack.addLast(IndexDeque.pack(i, y0 + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -433,16 +431,16 @@ public class FloodFill
 			return;
 
 		// initialize the stack with original pixel
-		ArrayList<Point> stack = new ArrayList<Point>();
-		stack.add(new Point(x0, y0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, y0));
 
 		// process all items in stack
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Point p = stack.remove(stack.size() - 1);
-			x0 = p.x;
-			y0 = p.y;
+			long p = stack.pollLast();
+			x0 = IndexDeque.unpackX(p);
+			y0 = IndexDeque.unpackY(p);
 
 			// process only pixel with the same value
 			if (image.getf(x0, y0) != oldValue)
@@ -475,7 +473,7 @@ public class FloodFill
 					float val = image.getf(i, y0 - 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 - 1));
+						stack.addLast(IndexDeque.pack(i, y0 - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -494,7 +492,7 @@ public class FloodFill
 					float val = image.getf(i, y0 + 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Point(i, y0 + 1));
+						stack.addLast(IndexDeque.pack(i, y0 + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -539,16 +537,16 @@ public class FloodFill
 		int oldValue = inputImage.getPixel(x0, y0);
 				
 		// initialize the stack with seed pixel
-		ArrayList<Point> stack = new ArrayList<Point>();
-		stack.add(new Point(x0, y0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty()) 
 		{
 			// retrieve coordinates of current marker pixel
-			Point p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p);
 			
 			// process only pixel of the same value
 			if (inputImage.get(px, py) != oldValue) 
@@ -582,7 +580,7 @@ public class FloodFill
 					int lab = (int) outputImage.get(i, py - 1);
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Point(i, py - 1));
+						stack.addLast(IndexDeque.pack(i, py - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -602,7 +600,7 @@ public class FloodFill
 					int lab = (int) outputImage.get(i, py + 1);
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Point(i, py + 1));
+						stack.addLast(IndexDeque.pack(i, py + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -647,16 +645,16 @@ public class FloodFill
 		float oldValue = inputImage.getf(x0, y0);
 		
 		// initialize the stack with seed pixel
-		ArrayList<Point> stack = new ArrayList<Point>();
-		stack.add(new Point(x0, y0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty()) 
 		{
             // retrieve coordinates of current marker pixel
-			Point p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p);
 			
 			// process only pixel of the same value
 			if (inputImage.getf(px, py) != oldValue) 
@@ -690,7 +688,7 @@ public class FloodFill
 					float lab = outputImage.getf(i, py - 1);
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Point(i, py - 1));
+						stack.addLast(IndexDeque.pack(i, py - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -710,7 +708,7 @@ public class FloodFill
 					float lab = outputImage.getf(i, py + 1);
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Point(i, py + 1));
+						stack.addLast(IndexDeque.pack(i, py + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -24,10 +24,9 @@ package inra.ijpb.morphology;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import ij.ImageStack;
+import inra.ijpb.data.IndexDeque;
 import inra.ijpb.data.image.Image3D;
 
-import java.util.ArrayList;
-
 /**
  * <p>
  * Implements various flood-fill algorithms for 3D stacks.
@@ -109,17 +108,17 @@ public class FloodFill3D
 			return ;
 		
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty()) 
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size() - 1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 			
 			// process only pixel of the same value
 			if (image.getVoxel(px, py, pz) != oldValue) 
@@ -152,7 +151,7 @@ public class FloodFill3D
 					int val = (int) image.getVoxel(i, py - 1, pz);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py - 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -171,7 +170,7 @@ public class FloodFill3D
 					int val = (int) image.getVoxel(i, py + 1, pz);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py + 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -190,7 +189,7 @@ public class FloodFill3D
 					int val = (int) image.getVoxel(i, py, pz - 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py, pz - 1));
+						stack.addLast(IndexDeque.pack(i, (pz - 1) * sizeY + py));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -209,7 +208,7 @@ public class FloodFill3D
 					int val = (int) image.getVoxel(i, py, pz + 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py, pz + 1));
+						stack.addLast(IndexDeque.pack(i, (pz + 1) * sizeY + py));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -253,17 +252,17 @@ public class FloodFill3D
 			return ;
 		
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 			
 			// process only pixel with the same value
 			if (image.getVoxel(px, py, pz) != oldValue) 
@@ -302,7 +301,7 @@ public class FloodFill3D
 						int val = (int) image.getVoxel(i, y2, z2);
 						if (!inScanLine && val == oldValue)
 						{
-							stack.add(new Cursor3D(i, y2, z2));
+							stack.addLast(IndexDeque.pack(i, z2 * sizeY + y2));
 							inScanLine = true;
 						} 
 						else if (inScanLine && val != oldValue)
@@ -378,17 +377,17 @@ public class FloodFill3D
 			return ;
 		
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty()) 
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 			
 			// process only pixel of the same value
 			if (image.getVoxel(px, py, pz) != oldValue) 
@@ -421,7 +420,7 @@ public class FloodFill3D
 					double val = image.getVoxel(i, py - 1, pz);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py - 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -440,7 +439,7 @@ public class FloodFill3D
 					double val = image.getVoxel(i, py + 1, pz);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py + 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py + 1));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -459,7 +458,7 @@ public class FloodFill3D
 					double val = image.getVoxel(i, py, pz - 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py, pz - 1));
+						stack.addLast(IndexDeque.pack(i, (pz - 1) * sizeY + py));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -478,7 +477,7 @@ public class FloodFill3D
 					double val = image.getVoxel(i, py, pz + 1);
 					if (!inScanLine && val == oldValue)
 					{
-						stack.add(new Cursor3D(i, py, pz + 1));
+						stack.addLast(IndexDeque.pack(i, (pz + 1) * sizeY + py));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -522,17 +521,17 @@ public class FloodFill3D
 			return ;
 		
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 			
 			// process only pixel with the same value
 			if (image.getVoxel(px, py, pz) != oldValue) 
@@ -571,7 +570,7 @@ public class FloodFill3D
 						double val = image.getVoxel(i, y2, z2);
 						if (!inScanLine && val == oldValue)
 						{
-							stack.add(new Cursor3D(i, y2, z2));
+							stack.addLast(IndexDeque.pack(i, z2 * sizeY + y2));
 							inScanLine = true;
 						} 
 						else if (inScanLine && val != oldValue)
@@ -656,17 +655,17 @@ public class FloodFill3D
 		int oldValue = (int) inputImage.getVoxel(x0, y0, z0);
 
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 
 		// process all items in stack
 		while (!stack.isEmpty()) 
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 
 			// process only pixel of the same value
 			if ((int) inputImage.getVoxel(px, py, pz) != oldValue)
@@ -705,7 +704,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Cursor3D(i, py - 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -726,7 +725,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Cursor3D(i, py + 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py + 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -747,7 +746,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Cursor3D(i, py, pz - 1));
+						stack.addLast(IndexDeque.pack(i, (pz - 1) * sizeY + py));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -768,7 +767,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Cursor3D(i, py, pz + 1));
+						stack.addLast(IndexDeque.pack(i, (pz + 1) * sizeY + py));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -812,17 +811,17 @@ public class FloodFill3D
 		int oldValue = (int) inputImage.getVoxel(x0, y0, z0);
 				
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 		
 		// process all items in stack
 		while (!stack.isEmpty()) 
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 			
 			// process only pixel of the same value
 			if ((int) inputImage.getVoxel(px, py, pz) != oldValue)
@@ -867,7 +866,7 @@ public class FloodFill3D
 						
 						if (!inScanLine && val == oldValue && lab != value)
 						{
-							stack.add(new Cursor3D(i, y2, z2));
+							stack.addLast(IndexDeque.pack(i, z2 * sizeY + y2));
 							inScanLine = true;
 						} 
 						else if (inScanLine && val != oldValue)
@@ -949,8 +948,8 @@ public class FloodFill3D
     	double oldValue = inputImage.getVoxel(x0, y0, z0);
     
     	// initialize the stack with original pixel
-    	ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-    	stack.add(new Cursor3D(x0, y0, z0));
+    	IndexDeque stack = new IndexDeque();
+    	stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
     
     	boolean inScanLine;
     
@@ -958,10 +957,10 @@ public class FloodFill3D
     	while (!stack.isEmpty()) 
     	{
     		// Extract current position
-    		Cursor3D p = stack.remove(stack.size()-1);
-    		int px = p.x;
-    		int py = p.y;
-    		int pz = p.z;
+    		long p = stack.pollLast();
+    		int px = IndexDeque.unpackX(p);
+    		int py = IndexDeque.unpackY(p) % sizeY;
+    		int pz = IndexDeque.unpackY(p) / sizeY;
     
     		// process only pixel of the same value
     		if (inputImage.getVoxel(px, py, pz) != oldValue)
@@ -1000,7 +999,7 @@ public class FloodFill3D
     
     				if (!inScanLine && val == oldValue && lab != value) 
     				{
-    					stack.add(new Cursor3D(i, py - 1, pz));
+    					stack.addLast(IndexDeque.pack(i, pz * sizeY + py - 1));
     					inScanLine = true;
     				} 
     				else if (inScanLine && val != oldValue)
@@ -1021,7 +1020,7 @@ public class FloodFill3D
     
     				if (!inScanLine && val == oldValue && lab != value) 
     				{
-    					stack.add(new Cursor3D(i, py + 1, pz));
+    					stack.addLast(IndexDeque.pack(i, pz * sizeY + py + 1));
     					inScanLine = true;
     				}
     				else if (inScanLine && val != oldValue)
@@ -1042,7 +1041,7 @@ public class FloodFill3D
     
     				if (!inScanLine && val == oldValue && lab != value) 
     				{
-    					stack.add(new Cursor3D(i, py, pz - 1));
+    					stack.addLast(IndexDeque.pack(i, (pz - 1) * sizeY + py));
     					inScanLine = true;
     				}
     				else if (inScanLine && val != oldValue)
@@ -1063,7 +1062,7 @@ public class FloodFill3D
     
     				if (!inScanLine && val == oldValue && lab != value)
     				{
-    					stack.add(new Cursor3D(i, py, pz + 1));
+    					stack.addLast(IndexDeque.pack(i, (pz + 1) * sizeY + py));
     					inScanLine = true;
     				} 
     				else if (inScanLine && val != oldValue)
@@ -1106,8 +1105,8 @@ public class FloodFill3D
     	double oldValue = inputImage.getVoxel(x0, y0, z0);
     			
     	// initialize the stack with original pixel
-    	ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-    	stack.add(new Cursor3D(x0, y0, z0));
+    	IndexDeque stack = new IndexDeque();
+    	stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
     	
     	boolean inScanLine;
     	
@@ -1115,10 +1114,10 @@ public class FloodFill3D
     	while (!stack.isEmpty())
     	{
     		// Extract current position
-    		Cursor3D p = stack.remove(stack.size()-1);
-    		int px = p.x;
-    		int py = p.y;
-    		int pz = p.z;
+    		long p = stack.pollLast();
+    		int px = IndexDeque.unpackX(p);
+    		int py = IndexDeque.unpackY(p) % sizeY;
+    		int pz = IndexDeque.unpackY(p) / sizeY;
     		
     		// process only pixel of the same value
     		if (inputImage.getVoxel(px, py, pz) != oldValue)
@@ -1163,7 +1162,7 @@ public class FloodFill3D
     					
     					if (!inScanLine && val == oldValue && lab != value) 
     					{
-    						stack.add(new Cursor3D(i, y2, z2));
+    						stack.addLast(IndexDeque.pack(i, z2 * sizeY + y2));
     						inScanLine = true;
     					}
     					else if (inScanLine && val != oldValue)
@@ -1245,8 +1244,8 @@ public class FloodFill3D
 		double oldValue = inputImage.getValue(x0, y0, z0);
 
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 
 		boolean inScanLine;
 
@@ -1254,10 +1253,10 @@ public class FloodFill3D
 		while (!stack.isEmpty()) 
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 
 			// process only pixel of the same value
 			if (inputImage.getValue(px, py, pz) != oldValue)
@@ -1296,7 +1295,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value) 
 					{
-						stack.add(new Cursor3D(i, py - 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py - 1));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -1317,7 +1316,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value) 
 					{
-						stack.add(new Cursor3D(i, py + 1, pz));
+						stack.addLast(IndexDeque.pack(i, pz * sizeY + py + 1));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -1338,7 +1337,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value) 
 					{
-						stack.add(new Cursor3D(i, py, pz - 1));
+						stack.addLast(IndexDeque.pack(i, (pz - 1) * sizeY + py));
 						inScanLine = true;
 					}
 					else if (inScanLine && val != oldValue)
@@ -1359,7 +1358,7 @@ public class FloodFill3D
 
 					if (!inScanLine && val == oldValue && lab != value)
 					{
-						stack.add(new Cursor3D(i, py, pz + 1));
+						stack.addLast(IndexDeque.pack(i, (pz + 1) * sizeY + py));
 						inScanLine = true;
 					} 
 					else if (inScanLine && val != oldValue)
@@ -1402,8 +1401,8 @@ public class FloodFill3D
 		double oldValue = inputImage.getValue(x0, y0, z0);
 				
 		// initialize the stack with original pixel
-		ArrayList<Cursor3D> stack = new ArrayList<Cursor3D>();
-		stack.add(new Cursor3D(x0, y0, z0));
+		IndexDeque stack = new IndexDeque();
+		stack.addLast(IndexDeque.pack(x0, z0 * sizeY + y0));
 		
 		boolean inScanLine;
 		
@@ -1411,10 +1410,10 @@ public class FloodFill3D
 		while (!stack.isEmpty())
 		{
 			// Extract current position
-			Cursor3D p = stack.remove(stack.size()-1);
-			int px = p.x;
-			int py = p.y;
-			int pz = p.z;
+			long p = stack.pollLast();
+			int px = IndexDeque.unpackX(p);
+			int py = IndexDeque.unpackY(p) % sizeY;
+			int pz = IndexDeque.unpackY(p) / sizeY;
 			
 			// process only pixel of the same value
 			if (inputImage.getValue(px, py, pz) != oldValue)
@@ -1459,7 +1458,7 @@ public class FloodFill3D
 						
 						if (!inScanLine && val == oldValue && lab != value) 
 						{
-							stack.add(new Cursor3D(i, y2, z2));
+							stack.addLast(IndexDeque.pack(i, z2 * sizeY + y2));
 							inScanLine = true;
 						}
 						else if (inScanLine && val != oldValue)
@@ -1479,22 +1478,4 @@ public class FloodFill3D
     private FloodFill3D()
     {
     }
-
-    /**
-	 * Defines a position within a 3D stack.
-	 * Needs to be a static class to be called by static methods.
-	 */
-	private static class Cursor3D 
-	{
-		int x;
-		int y;
-		int z;
-		
-		public Cursor3D(int x, int y, int z) 
-		{
-			this.x = x;
-			this.y = y;
-			this.z = z;
-		}
-	}
 }
@@ -193,6 +193,35 @@ public class Morphology
 					"Unable to process the " + this + " morphological operation");
 		}
 		
+		/**
+		 * Applies the current operator to the input 3D image, using the
+		 * specified number of threads. The thread count of the structuring
+		 * element is updated during processing, and restored afterwards.
+		 * 
+		 * @see Strel3D#setThreadCount(int)
+		 * 
+		 * @param image
+		 *            the image to process
+		 * @param strel
+		 *            the structuring element to use
+		 * @param nThreads
+		 *            the number of threads to use for processing
+		 * @return the result of morphological operation applied to image
+		 */
+		public ImageStack apply(ImageStack image, Strel3D strel, int nThreads)
+		{
+			int previousCount = strel.getThreadCount();
+			strel.setThreadCount(nThreads);
+			try
+			{
+				return apply(image, strel);
+			}
+			finally
+			{
+				strel.setThreadCount(previousCount);
+			}
+		}
+		
 		public String toString() 
 		{
 			return this.label;
@@ -30,6 +30,7 @@ import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DAlgo;
 import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DHybrid0Float;
 import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DHybrid0Gray16;
 import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DHybrid0Gray8;
+import inra.ijpb.morphology.geodrec.GeodesicReconstruction3DParallel;
 import inra.ijpb.morphology.geodrec.GeodesicReconstructionByDilation3DScanning;
 import inra.ijpb.morphology.geodrec.GeodesicReconstructionByDilation3DScanningGray8;
 import inra.ijpb.morphology.geodrec.GeodesicReconstructionByErosion3DScanning;
@@ -245,6 +246,45 @@ public abstract class Reconstruction3D
 		return algo.applyTo(marker, mask);
 	}
 
+	/**
+	 * Static method to computes the morphological reconstruction by dilation of
+	 * the marker image under the mask image, using several threads. If the number
+	 * of threads is greater than one, the image is processed by slabs of
+	 * slices using the GeodesicReconstruction3DParallel algorithm.
+	 * 
+	 * @see GeodesicReconstruction3DParallel
+	 * 
+	 * @param marker
+	 *            input marker image
+	 * @param mask
+	 *            mask image
+	 * @param connectivity
+	 *            3d connectivity (6 or 26)
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @return the result of 3D morphological reconstruction
+	 */
+	public final static ImageStack reconstructByDilation(ImageStack marker,
+			ImageStack mask, int connectivity, int nThreads)
+	{
+		if (nThreads <= 1)
+		{
+			return reconstructByDilation(marker, mask, connectivity);
+		}
+		
+		GeodesicReconstruction3DParallel algo = new GeodesicReconstruction3DParallel(
+				GeodesicReconstructionType.BY_DILATION, connectivity);
+		algo.setThreadCount(nThreads);
+		DefaultAlgoListener.monitor(algo);
+		
+		if (marker.getBitDepth() == 24 && mask.getBitDepth() == 24)
+		{
+			return applyAlgoToRGB(algo, marker, mask);
+		}
+
+		return algo.applyTo(marker, mask);
+	}
+
 	/**
 	 * Static method to computes the morphological reconstruction by dilation of
 	 * the marker image under the mask image, but restricted to a binary mask.
@@ -374,6 +414,45 @@ public abstract class Reconstruction3D
 
 		return algo.applyTo(marker, mask);
 	}
+
+	/**
+	 * Static method to computes the morphological reconstruction by erosion of
+	 * the marker image over the mask image, using several threads. If the number
+	 * of threads is greater than one, the image is processed by slabs of
+	 * slices using the GeodesicReconstruction3DParallel algorithm.
+	 * 
+	 * @see GeodesicReconstruction3DParallel
+	 * 
+	 * @param marker
+	 *            input marker image
+	 * @param mask
+	 *            mask image
+	 * @param connectivity
+	 *            3d connectivity (6 or 26)
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @return the result of 3D morphological reconstruction
+	 */
+	public final static ImageStack reconstructByErosion(ImageStack marker,
+			ImageStack mask, int connectivity, int nThreads)
+	{
+		if (nThreads <= 1)
+		{
+			return reconstructByErosion(marker, mask, connectivity);
+		}
+		
+		GeodesicReconstruction3DParallel algo = new GeodesicReconstruction3DParallel(
+				GeodesicReconstructionType.BY_EROSION, connectivity);
+		algo.setThreadCount(nThreads);
+		DefaultAlgoListener.monitor(algo);
+		
+		if (marker.getBitDepth() == 24 && mask.getBitDepth() == 24)
+		{
+			return applyAlgoToRGB(algo, marker, mask);
+		}
+
+		return algo.applyTo(marker, mask);
+	}
 	
 	/**
 	 * Applies an instance of morphological reconstruction algorithm to each
@@ -36,6 +36,7 @@ import inra.ijpb.morphology.strel.LinearDiagUpStrel;
 import inra.ijpb.morphology.strel.LinearHorizontalStrel;
 import inra.ijpb.morphology.strel.LinearVerticalStrel;
 import inra.ijpb.morphology.strel.OctagonStrel;
+import inra.ijpb.morphology.strel.PolyhedralBallStrel;
 import inra.ijpb.morphology.strel.SquareStrel;
 
 /**
@@ -67,6 +68,13 @@ public interface Strel3D extends Algo {
 		 */
 		BALL("Ball"),
 		
+		/** 
+		 * Polyhedral approximation of a ball, decomposed into linear
+		 * structuring elements
+		 * @see PolyhedralBallStrel 
+		 */
+		POLYHEDRAL_BALL("Polyhedral Ball"),
+		
 		/** 
 		 * Cube of a given side
 		 * @see SquareStrel 
@@ -168,6 +176,14 @@ public interface Strel3D extends Algo {
 				return EllipsoidStrel.fromRadiusList(radiusX, radiusY, radiusZ);
 			if (this == CUBE) 
 				return CuboidStrel.fromRadiusList(radiusX, radiusY, radiusZ);
+			if (this == POLYHEDRAL_BALL)
+			{
+				if (radiusX != radiusY || radiusX != radiusZ)
+				{
+					throw new IllegalArgumentException("For polyhedral balls, the radius must be the same in each direction");
+				}
+				return PolyhedralBallStrel.fromRadius(radiusX);
+			}
 			if (this == LINE_Z) 
 				return LinearDepthStrel3D.fromRadius(radiusZ);
 			
@@ -196,6 +212,8 @@ public interface Strel3D extends Algo {
 				return BallStrel.fromDiameter(diam);
 			if (this == CUBE) 
 				return CubeStrel.fromDiameter(diam);
+			if (this == POLYHEDRAL_BALL) 
+				return PolyhedralBallStrel.fromDiameter(diam);
 			if (this == LINE_Z) 
 				return LinearDepthStrel3D.fromDiameter(diam);
 			if (this == SQUARE) 
@@ -237,6 +255,14 @@ public interface Strel3D extends Algo {
 				return EllipsoidStrel.fromDiameterList(diamX, diamY, diamZ);
 			if (this == CUBE) 
 				return CuboidStrel.fromDiameterList(diamX, diamY, diamZ);
+			if (this == POLYHEDRAL_BALL)
+			{
+				if (diamX != diamY || diamX != diamZ)
+				{
+					throw new IllegalArgumentException("For polyhedral balls, the diameter must be the same in each direction");
+				}
+				return PolyhedralBallStrel.fromDiameter(diamX);
+			}
 			if (this == LINE_Z) 
 				return LinearDepthStrel3D.fromDiameter(diamZ);
 			
@@ -408,4 +434,23 @@ public interface Strel3D extends Algo {
 	 * @param b a boolean flag with value true if progress should be displayed
 	 */
 	public void showProgress(boolean b);
+
+	/**
+	 * Returns the number of threads used for processing 3D images with this
+	 * structuring element.
+	 * 
+	 * @return the number of threads used for processing 3D images
+	 */
+	public int getThreadCount();
+
+	/**
+	 * Specifies the number of threads used for processing 3D images with this
+	 * structuring element. Slices of the image are partitioned into slabs that
+	 * are processed concurrently. Values lower than or equal to 1 result in
+	 * sequential processing.
+	 * 
+	 * @param nThreads
+	 *            the number of threads used for processing 3D images
+	 */
+	public void setThreadCount(int nThreads);
 }
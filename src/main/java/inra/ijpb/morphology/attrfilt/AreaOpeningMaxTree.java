@@ -0,0 +1,84 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.attrfilt;
+
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+
+/**
+ * Area opening based on the max-tree of the image, computed using
+ * union-find. The complexity is quasi-linear in the number of pixels, and
+ * does not depend on the number of regional maxima.
+ * 
+ * @see MaxTree
+ * @see AreaOpeningQueue
+ * 
+ * @author dlegland
+ *
+ */
+public class AreaOpeningMaxTree extends AlgoStub implements AreaOpening
+{
+	/** Default connectivity is 4 */
+	int conn = 4;
+	
+	/**
+	 * Changes the connectivity of this algorithm.
+	 * 
+	 * @param connectivity the connectivity to use, either 4 or 8
+	 */
+	public void setConnectivity(int connectivity)
+	{
+		if (connectivity != 4 && connectivity != 8)
+		{
+			throw new IllegalArgumentException("Connectivity must be either 4 or 8, not " + connectivity);
+		}
+		this.conn = connectivity;
+	}
+
+	/**
+	 * Returns the current connectivity value for this algorithm.
+	 * 
+	 * @return the current connectivity value (either 4 or 8)
+	 */
+	public int getConnectivity()
+	{
+		return this.conn;
+	}
+	
+	/* (non-Javadoc)
+	 * @see inra.ijpb.morphology.attrfilt.AreaOpening#process(ij.process.ImageProcessor, int)
+	 */
+	@Override
+	public ImageProcessor process(ImageProcessor image, int minArea)
+	{
+		fireStatusChanged(this, "Compute max-tree...");
+		MaxTree tree = new MaxTree(image, this.conn);
+		
+		fireStatusChanged(this, "Compute areas...");
+		double[] attribute = tree.computeArea();
+		
+		fireStatusChanged(this, "Filter max-tree...");
+		ImageProcessor result = tree.filterImage(attribute, minArea);
+		fireStatusChanged(this, "");
+		return result;
+	}
+}
@@ -0,0 +1,577 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.attrfilt;
+
+import java.util.Arrays;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+
+/**
+ * <p>
+ * Max-tree (component tree of the upper level sets) of a 2D or 3D grayscale
+ * image, computed using the union-find algorithm of Berger et al. (2007),
+ * based on the work of Najman and Couprie (2006).
+ * </p>
+ * 
+ * <p>
+ * The tree is stored using one parent index per pixel or voxel. Each node of
+ * the tree (a connected component of an upper level set) is represented by its
+ * <i>canonical element</i>, that is the element of the node whose parent either
+ * has a lower value or is itself (for the root). Non-canonical elements point
+ * to the canonical element of the node they belong to.
+ * </p>
+ * 
+ * <p>
+ * Once the tree is built, attributes such as area (or volume) and bounding box
+ * diagonal can be computed in linear time, and the tree can be filtered
+ * according to any increasing attribute using the "direct" rule: each node
+ * whose attribute is below the threshold receives the value of its closest
+ * ancestor satisfying the criterion. This results in an attribute opening.
+ * Attribute closings are obtained by applying the opening on the inverted
+ * image.
+ * </p>
+ * 
+ * <p>
+ * Example of use:
+ * <pre>{@code
+ * MaxTree tree = new MaxTree(image, 4);
+ * ImageProcessor result = tree.filterImage(tree.computeArea(), 50);
+ * }</pre>
+ * 
+ * <p>
+ * References:
+ * <ul>
+ * <li>Berger, C., Geraud, T., Levillain, R., Widynski, N., Baillard, A. and
+ * Bertin, E. (2007). Effective component tree computation with application to
+ * pattern recognition in astronomical imaging. IEEE ICIP 2007.</li>
+ * <li>Najman, L. and Couprie, M. (2006). Building the component tree in
+ * quasi-linear time. IEEE Transactions on Image Processing, 15(11),
+ * 3531-3539.</li>
+ * </ul>
+ * 
+ * @see AreaOpeningMaxTree
+ * @see SizeOpening3DMaxTree
+ * 
+ * @author dlegland
+ *
+ */
+public class MaxTree
+{
+	// ==================================================
+	// Class members
+	
+	/** The size of the image in the X direction. */
+	final int sizeX;
+	
+	/** The size of the image in the Y direction. */
+	final int sizeY;
+	
+	/** The size of the image in the Z direction (1 for planar images). */
+	final int sizeZ;
+	
+	/** The bit depth of the image used to build the tree. */
+	final int bitDepth;
+	
+	/** The value of each element, in linear order. */
+	final float[] values;
+	
+	/**
+	 * The index of the parent of each element. The parent of the root is the
+	 * root itself.
+	 */
+	final int[] parent;
+	
+	/**
+	 * The indices of the elements sorted by processing order, from the
+	 * highest values to the lowest ones. Each element appears after its
+	 * descendants.
+	 */
+	final int[] order;
+	
+	/** The shifts used to identify neighbors, in each direction. */
+	final int[] dx, dy, dz;
+	
+	
+	// ==================================================
+	// Constructors
+	
+	/**
+	 * Computes the max-tree of a planar grayscale image.
+	 * 
+	 * @param image
+	 *            the grayscale image (8, 16 or 32 bits)
+	 * @param conn
+	 *            the connectivity, either 4 or 8
+	 */
+	public MaxTree(ImageProcessor image, int conn)
+	{
+		this.sizeX = image.getWidth();
+		this.sizeY = image.getHeight();
+		this.sizeZ = 1;
+		this.bitDepth = image.getBitDepth();
+		
+		switch (conn)
+		{
+		case 4:
+			this.dx = new int[] {0, -1, 1, 0};
+			this.dy = new int[] {-1, 0, 0, 1};
+			break;
+		case 8:
+			this.dx = new int[] {-1, 0, 1, -1, 1, -1, 0, 1};
+			this.dy = new int[] {-1, -1, -1, 0, 0, 1, 1, 1};
+			break;
+		default:
+			throw new IllegalArgumentException("Connectivity must be either 4 or 8, not " + conn);
+		}
+		this.dz = new int[dx.length];
+		
+		int n = sizeX * sizeY;
+		this.values = new float[n];
+		for (int i = 0; i < n; i++)
+		{
+			values[i] = image.getf(i);
+		}
+		
+		this.order = sortElements();
+		this.parent = new int[n];
+		computeTree();
+	}
+	
+	/**
+	 * Computes the max-tree of a 3D grayscale image.
+	 * 
+	 * @param image
+	 *            the grayscale image (8, 16 or 32 bits)
+	 * @param conn
+	 *            the connectivity, either 6 or 26
+	 */
+	public MaxTree(ImageStack image, int conn)
+	{
+		this.sizeX = image.getWidth();
+		this.sizeY = image.getHeight();
+		this.sizeZ = image.getSize();
+		this.bitDepth = image.getBitDepth();
+		
+		switch (conn)
+		{
+		case 6:
+			this.dx = new int[] {0, 0, -1, 1, 0, 0};
+			this.dy = new int[] {0, -1, 0, 0, 1, 0};
+			this.dz = new int[] {-1, 0, 0, 0, 0, 1};
+			break;
+		case 26:
+			this.dx = new int[26];
+			this.dy = new int[26];
+			this.dz = new int[26];
+			int k = 0;
+			for (int z = -1; z <= 1; z++)
+			{
+				for (int y = -1; y <= 1; y++)
+				{
+					for (int x = -1; x <= 1; x++)
+					{
+						if (x == 0 && y == 0 && z == 0)
+							continue;
+						dx[k] = x;
+						dy[k] = y;
+						dz[k] = z;
+						k++;
+					}
+				}
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Connectivity must be either 6 or 26, not " + conn);
+		}
+		
+		int sliceSize = sizeX * sizeY;
+		this.values = new float[sliceSize * sizeZ];
+		for (int z = 0; z < sizeZ; z++)
+		{
+			ImageProcessor slice = image.getProcessor(z + 1);
+			int offset = z * sliceSize;
+			for (int i = 0; i < sliceSize; i++)
+			{
+				values[offset + i] = slice.getf(i);
+			}
+		}
+		
+		this.order = sortElements();
+		this.parent = new int[values.length];
+		computeTree();
+	}
+	
+	/**
+	 * Sorts the indices of the elements by decreasing value. Integer images
+	 * use a counting sort, whereas floating point images use a sort of
+	 * primitive keys packing value and index.
+	 */
+	private int[] sortElements()
+	{
+		int n = values.length;
+		int[] sorted = new int[n];
+		
+		if (bitDepth == 8 || bitDepth == 16)
+		{
+			int nLevels = bitDepth == 8 ? 256 : 65536;
+			int[] counts = new int[nLevels + 1];
+			for (int i = 0; i < n; i++)
+			{
+				counts[(int) values[i] + 1]++;
+			}
+			// cumulative counts, from the highest level to the lowest
+			int[] starts = new int[nLevels];
+			int pos = 0;
+			for (int v = nLevels - 1; v >= 0; v--)
+			{
+				starts[v] = pos;
+				pos += counts[v + 1];
+			}
+			for (int i = 0; i < n; i++)
+			{
+				sorted[starts[(int) values[i]]++] = i;
+			}
+			return sorted;
+		}
+		
+		// float values: pack order-preserving value bits and index
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++)
+		{
+			int bits = Float.floatToIntBits(values[i]);
+			bits ^= (bits >> 31) & 0x7FFFFFFF;
+			keys[i] = ((long) bits << 32) | i;
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < n; i++)
+		{
+			sorted[i] = (int) keys[n - 1 - i];
+		}
+		return sorted;
+	}
+	
+	/**
+	 * Computes the parent of each element using union-find, then ensures that
+	 * each element points to the canonical element of its node.
+	 */
+	private void computeTree()
+	{
+		int n = values.length;
+		int sliceSize = sizeX * sizeY;
+		
+		// union-find structure, -1 for elements not processed yet
+		int[] zpar = new int[n];
+		Arrays.fill(zpar, -1);
+		
+		for (int i = 0; i < n; i++)
+		{
+			int p = order[i];
+			parent[p] = p;
+			zpar[p] = p;
+			
+			int z = p / sliceSize;
+			int rem = p - z * sliceSize;
+			int y = rem / sizeX;
+			int x = rem - y * sizeX;
+			
+			for (int k = 0; k < dx.length; k++)
+			{
+				int x2 = x + dx[k];
+				int y2 = y + dy[k];
+				int z2 = z + dz[k];
+				if (x2 < 0 || x2 >= sizeX || y2 < 0 || y2 >= sizeY || z2 < 0 || z2 >= sizeZ)
+					continue;
+				
+				int q = (z2 * sizeY + y2) * sizeX + x2;
+				if (zpar[q] == -1)
+					continue;
+				
+				int r = findRoot(zpar, q);
+				if (r != p)
+				{
+					parent[r] = p;
+					zpar[r] = p;
+				}
+			}
+		}
+		
+		// canonicalization, from the root to the leaves
+		for (int i = n - 1; i >= 0; i--)
+		{
+			int p = order[i];
+			int q = parent[p];
+			if (values[parent[q]] == values[q])
+				parent[p] = parent[q];
+		}
+	}
+	
+	private static final int findRoot(int[] zpar, int p)
+	{
+		int root = p;
+		while (zpar[root] != root)
+		{
+			root = zpar[root];
+		}
+		// path compression
+		while (zpar[p] != root)
+		{
+			int next = zpar[p];
+			zpar[p] = root;
+			p = next;
+		}
+		return root;
+	}
+	
+	
+	// ==================================================
+	// Tree exploration
+	
+	/**
+	 * @return the number of elements (pixels or voxels) of the image
+	 */
+	public int elementCount()
+	{
+		return values.length;
+	}
+	
+	/**
+	 * @return the number of nodes of the tree
+	 */
+	public int nodeCount()
+	{
+		int count = 0;
+		for (int p = 0; p < values.length; p++)
+		{
+			if (isCanonical(p))
+				count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * @return the index of the element representing the root of the tree
+	 */
+	public int root()
+	{
+		return order[order.length - 1];
+	}
+	
+	/**
+	 * Returns the parent of the specified element. For a canonical element,
+	 * this is the canonical element of the parent node. For other elements,
+	 * this is the canonical element of the node they belong to.
+	 * 
+	 * @param index
+	 *            the linear index of an element
+	 * @return the linear index of its parent
+	 */
+	public int parent(int index)
+	{
+		return parent[index];
+	}
+	
+	/**
+	 * Checks whether an element is the canonical element of a node.
+	 * 
+	 * @param index
+	 *            the linear index of an element
+	 * @return true if the element represents a node of the tree
+	 */
+	public boolean isCanonical(int index)
+	{
+		int q = parent[index];
+		return q == index || values[q] != values[index];
+	}
+	
+	/**
+	 * @param index
+	 *            the linear index of an element
+	 * @return the value of the element in the original image
+	 */
+	public float value(int index)
+	{
+		return values[index];
+	}
+	
+	
+	// ==================================================
+	// Attributes computation
+	
+	/**
+	 * Computes the area (or volume) of each node. The result array is indexed
+	 * by element, and is meaningful only for canonical elements.
+	 * 
+	 * @return the number of pixels or voxels of each node
+	 */
+	public double[] computeArea()
+	{
+		int n = values.length;
+		double[] area = new double[n];
+		Arrays.fill(area, 1.0);
+		
+		// propagate from leaves to root
+		int root = root();
+		for (int i = 0; i < n; i++)
+		{
+			int p = order[i];
+			if (p != root)
+				area[parent[p]] += area[p];
+		}
+		return area;
+	}
+	
+	/**
+	 * Computes the length of the diagonal of the bounding box of each node.
+	 * The result array is indexed by element, and is meaningful only for
+	 * canonical elements.
+	 * 
+	 * @return the length of the bounding box diagonal of each node
+	 */
+	public double[] computeBoxDiagonal()
+	{
+		int n = values.length;
+		int sliceSize = sizeX * sizeY;
+		int[] xmin = new int[n], xmax = new int[n];
+		int[] ymin = new int[n], ymax = new int[n];
+		int[] zmin = new int[n], zmax = new int[n];
+		for (int p = 0; p < n; p++)
+		{
+			int z = p / sliceSize;
+			int rem = p - z * sliceSize;
+			int y = rem / sizeX;
+			int x = rem - y * sizeX;
+			xmin[p] = xmax[p] = x;
+			ymin[p] = ymax[p] = y;
+			zmin[p] = zmax[p] = z;
+		}
+		
+		// propagate from leaves to root
+		int root = root();
+		for (int i = 0; i < n; i++)
+		{
+			int p = order[i];
+			if (p == root)
+				continue;
+			int q = parent[p];
+			xmin[q] = Math.min(xmin[q], xmin[p]);
+			xmax[q] = Math.max(xmax[q], xmax[p]);
+			ymin[q] = Math.min(ymin[q], ymin[p]);
+			ymax[q] = Math.max(ymax[q], ymax[p]);
+			zmin[q] = Math.min(zmin[q], zmin[p]);
+			zmax[q] = Math.max(zmax[q], zmax[p]);
+		}
+		
+		double[] diag = new double[n];
+		for (int p = 0; p < n; p++)
+		{
+			double ex = xmax[p] - xmin[p];
+			double ey = ymax[p] - ymin[p];
+			double ez = zmax[p] - zmin[p];
+			diag[p] = Math.sqrt(ex * ex + ey * ey + ez * ez);
+		}
+		return diag;
+	}
+	
+	
+	// ==================================================
+	// Filtering
+	
+	/**
+	 * Computes the filtered value of each element, by removing the nodes
+	 * whose attribute is strictly lower than the threshold. The attribute is
+	 * assumed to be increasing, and the root of the tree is always kept.
+	 * 
+	 * @param attribute
+	 *            the attribute of each node, indexed by canonical element
+	 * @param threshold
+	 *            the minimal attribute value of the nodes to keep
+	 * @return the filtered value of each element, in linear order
+	 */
+	public float[] filterValues(double[] attribute, double threshold)
+	{
+		int n = values.length;
+		float[] res = new float[n];
+		
+		// process from root to leaves
+		int root = root();
+		res[root] = values[root];
+		for (int i = n - 2; i >= 0; i--)
+		{
+			int p = order[i];
+			int q = parent[p];
+			if (isCanonical(p) && attribute[p] >= threshold)
+				res[p] = values[p];
+			else
+				res[p] = res[q];
+		}
+		return res;
+	}
+	
+	/**
+	 * Applies attribute filtering on the planar image used to build the tree.
+	 * 
+	 * @param attribute
+	 *            the attribute of each node, indexed by canonical element
+	 * @param threshold
+	 *            the minimal attribute value of the nodes to keep
+	 * @return the result of attribute opening, with the same type as the
+	 *         input image
+	 */
+	public ImageProcessor filterImage(double[] attribute, double threshold)
+	{
+		float[] res = filterValues(attribute, threshold);
+		ImageProcessor result = ImageStack.create(sizeX, sizeY, 1, bitDepth).getProcessor(1);
+		for (int i = 0; i < res.length; i++)
+		{
+			result.setf(i, res[i]);
+		}
+		return result;
+	}
+	
+	/**
+	 * Applies attribute filtering on the 3D image used to build the tree.
+	 * 
+	 * @param attribute
+	 *            the attribute of each node, indexed by canonical element
+	 * @param threshold
+	 *            the minimal attribute value of the nodes to keep
+	 * @return the result of attribute opening, with the same type as the
+	 *         input image
+	 */
+	public ImageStack filterStack(double[] attribute, double threshold)
+	{
+		float[] res = filterValues(attribute, threshold);
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, bitDepth);
+		int sliceSize = sizeX * sizeY;
+		for (int z = 0; z < sizeZ; z++)
+		{
+			ImageProcessor slice = result.getProcessor(z + 1);
+			int offset = z * sliceSize;
+			for (int i = 0; i < sliceSize; i++)
+			{
+				slice.setf(i, res[offset + i]);
+			}
+		}
+		return result;
+	}
+}
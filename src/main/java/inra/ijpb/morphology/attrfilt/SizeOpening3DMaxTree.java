@@ -0,0 +1,84 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.attrfilt;
+
+import ij.ImageStack;
+import inra.ijpb.algo.AlgoStub;
+
+/**
+ * Volume opening on 3D grayscale image based on the max-tree of the image,
+ * computed using union-find. The complexity is quasi-linear in the number of
+ * voxels, and does not depend on the number of regional maxima.
+ * 
+ * @see MaxTree
+ * @see SizeOpening3DQueue
+ * 
+ * @author dlegland
+ *
+ */
+public class SizeOpening3DMaxTree extends AlgoStub implements SizeOpening3D
+{
+	/** Default connectivity is 6 */
+	int conn = 6;
+	
+	/**
+	 * Changes the connectivity used by this algorithm.
+	 * 
+	 * @param connectivity the connectivity to use, either 6 or 26
+	 */
+	public void setConnectivity(int connectivity)
+	{
+		if (connectivity != 6 && connectivity != 26)
+		{
+			throw new IllegalArgumentException("Connectivity must be either 6 or 26, not " + connectivity);
+		}
+		this.conn = connectivity;
+	}
+
+	/**
+	 * Returns the current connectivity value for this algorithm.
+	 * 
+	 * @return the current connectivity value (either 6 or 26)
+	 */
+	public int getConnectivity()
+	{
+		return this.conn;
+	}
+	
+	/* (non-Javadoc)
+	 * @see inra.ijpb.morphology.attrfilt.SizeOpening3D#process(ij.ImageStack, int)
+	 */
+	@Override
+	public ImageStack process(ImageStack image, int minVolume)
+	{
+		fireStatusChanged(this, "Compute max-tree...");
+		MaxTree tree = new MaxTree(image, this.conn);
+		
+		fireStatusChanged(this, "Compute volumes...");
+		double[] volumes = tree.computeArea();
+		
+		fireStatusChanged(this, "Filter max-tree...");
+		ImageStack result = tree.filterStack(volumes, minVolume);
+		fireStatusChanged(this, "");
+		return result;
+	}
+}
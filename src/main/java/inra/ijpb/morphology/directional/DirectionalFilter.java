@@ -22,12 +22,14 @@
 package inra.ijpb.morphology.directional;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ij.process.ImageProcessor;
 import inra.ijpb.algo.AlgoStub;
 import inra.ijpb.data.border.BorderManager;
 import inra.ijpb.data.border.MirroringBorder;
 import inra.ijpb.morphology.Strel;
+import inra.ijpb.util.ParallelSlabs;
 
 /**
  * <p>
@@ -242,6 +244,12 @@ public class DirectionalFilter extends AlgoStub
 	 */
 	int nDirections;
 
+	/**
+	 * The number of threads used to process the orientations concurrently.
+	 * Default is 1.
+	 */
+	int threadCount = 1;
+
 	
 	// =======================================================================
 	// Constructors
@@ -291,6 +299,32 @@ public class DirectionalFilter extends AlgoStub
 	}
 	
 	
+	// =======================================================================
+	// Accessors
+
+	/**
+	 * @return the number of threads used to process orientations.
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * Sets the number of threads used to process the different orientations
+	 * concurrently. Each thread combines the results of its orientations into
+	 * its own accumulator, so that the result does not depend on the number
+	 * of threads.
+	 * 
+	 * @param threadCount
+	 *            the number of threads (at least 1)
+	 */
+	public void setThreadCount(int threadCount)
+	{
+		this.threadCount = Math.max(threadCount, 1);
+	}
+	
+	
 	// =======================================================================
 	// Methods
 
@@ -323,31 +357,51 @@ public class DirectionalFilter extends AlgoStub
 		
 		fireStatusChanged(this, "Directional Filter...");
 
-		// Iterate over the set of directions
-		for (int i = 0; i < nDirections; i++)
-		{
-			fireProgressChanged(this, i, nDirections);
+		// Iterate over the set of directions, by processing subsets of
+		// directions concurrently. Each subset of directions is combined into
+		// its own accumulator, that is merged into the global result at the
+		// end of the subset.
+		AtomicInteger counter = new AtomicInteger(0);
+		ParallelSlabs.process(nDirections, this.threadCount, (i0, i1) -> {
+			float[] accum = new float[sizeX * sizeY];
+			Arrays.fill(accum, Float.NEGATIVE_INFINITY);
 			
-			// Create the structuring element for current orientation
-			double theta = ((double) i) * 180.0 / nDirections;
-			Strel strel = this.strelFactory.createStrel(theta);
-
-			// Apply oriented filter
-			ImageProcessor oriented = this.operation.apply(image, strel);
-
-			// combine current result with global result
-			for (int y = 0; y < sizeY; y++)
+			for (int i = i0; i < i1; i++)
 			{
-				for (int x = 0; x < sizeX; x++)
+				// Create the structuring element for current orientation
+				double theta = ((double) i) * 180.0 / nDirections;
+				Strel strel = this.strelFactory.createStrel(theta);
+				
+				// Apply oriented filter
+				ImageProcessor oriented = this.operation.apply(image, strel);
+				
+				// combine current result with local accumulator
+				for (int y = 0, index = 0; y < sizeY; y++)
 				{
-					float value = oriented.getf(x, y);
-					if (value * sign > result.getf(x, y) * sign)
+					for (int x = 0; x < sizeX; x++, index++)
 					{
-						result.setf(x, y, value);
+						accum[index] = Math.max(accum[index], oriented.getf(x, y) * sign);
 					}
 				}
+				
+				fireProgressChanged(this, counter.incrementAndGet(), nDirections);
 			}
-		}
+			
+			// combine local accumulator with global result
+			synchronized (result)
+			{
+				for (int y = 0, index = 0; y < sizeY; y++)
+				{
+					for (int x = 0; x < sizeX; x++, index++)
+					{
+						if (accum[index] > result.getf(x, y) * sign)
+						{
+							result.setf(x, y, accum[index] * sign);
+						}
+					}
+				}
+			}
+		});
 		
 		fireProgressChanged(this, 1, 1);
 		
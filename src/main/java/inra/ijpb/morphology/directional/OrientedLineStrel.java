@@ -23,8 +23,6 @@ package inra.ijpb.morphology.directional;
 
 import static java.lang.Math.*;
 import ij.process.ImageProcessor;
-import inra.ijpb.data.border.BorderManager;
-import inra.ijpb.data.border.MirroringBorder;
 import inra.ijpb.morphology.Strel;
 import inra.ijpb.morphology.strel.AbstractStrel;
 
@@ -49,6 +47,18 @@ public class OrientedLineStrel extends AbstractStrel implements Strel
 	 */
 	int[][] shifts;
 
+	/**
+	 * The flag indicating whether the line is closer to the horizontal
+	 * direction (true) or to the vertical direction (false).
+	 */
+	boolean horizontal;
+
+	/**
+	 * The slope of the line with respect to its main direction, between -1
+	 * and 1: dy/dx for horizontal lines, and dx/dy for vertical lines.
+	 */
+	double slope;
+
 	/**
 	 * Creates an new instance of linear structuring element. The number of
 	 * pixels composing the line may differ from the specified length due to
@@ -90,7 +100,9 @@ public class OrientedLineStrel extends AbstractStrel implements Strel
 		this.shifts = new int[n][2];
 
 		// compute position of line pixels
-		if (abs(dx) >= abs(dy))
+		this.horizontal = abs(dx) >= abs(dy);
+		this.slope = this.horizontal ? dy / dx : dx / dy;
+		if (this.horizontal)
 		{
 			// process horizontal lines
 			for (int i = -n2; i <= n2; i++)
@@ -163,66 +175,165 @@ public class OrientedLineStrel extends AbstractStrel implements Strel
 		return this.shifts;
 	}
 
+	/**
+	 * Computes the dilation of the image by this structuring element.
+	 * 
+	 * The computation is performed along the discrete (Bresenham) lines with
+	 * the orientation of the structuring element, using the van
+	 * Herk/Gil-Werman algorithm, resulting in a computation time that does
+	 * not depend on the length of the line. The neighborhood of each pixel
+	 * is the segment of the discrete line passing through this pixel,
+	 * centered on the pixel. For orientations different from multiples of
+	 * 45 degrees, it may differ by one pixel from the translated shifts of
+	 * this structuring element (see Soille et al., 1996, "Recursive
+	 * implementation of erosions and dilations along discrete lines at
+	 * arbitrary angles").
+	 * 
+	 * Values outside image bounds are obtained by mirroring the image.
+	 */
 	@Override
 	public ImageProcessor dilation(ImageProcessor image)
 	{
-		// Allocate memory for result
 		ImageProcessor result = image.duplicate();
-
-		BorderManager bm = new MirroringBorder(image);
-
-		// Iterate on image pixels
-		for (int y = 0; y < image.getHeight(); y++)
-		{
-			for (int x = 0; x < image.getWidth(); x++)
-			{
-				// reset accumulator
-				double res = Double.MIN_VALUE;
-	
-				// iterate on neighbors
-				for (int i = 0; i < shifts.length; i++) 
-				{
-					double value = bm.getf(x + shifts[i][0], y + shifts[i][1]);
-					res = Math.max(res, value);
-				}
-				
-				// compute result
-				result.setf(x, y, (float) res);
-			}			
-		}
-		
+		runningExtremum(image, result, true);
 		return result;
 	}
 
+	/**
+	 * Computes the erosion of the image by this structuring element.
+	 * 
+	 * The computation is performed along the discrete lines with the
+	 * orientation of the structuring element, with a computation time that
+	 * does not depend on the length of the line (see
+	 * {@link #dilation(ImageProcessor)} for details).
+	 */
 	@Override
 	public ImageProcessor erosion(ImageProcessor image)
 	{
-		// Allocate memory for result
 		ImageProcessor result = image.duplicate();
+		runningExtremum(image, result, false);
+		return result;
+	}
+
+	/**
+	 * Computes the running maximum or minimum along each discrete line
+	 * parallel to the structuring element, and stores the result in the
+	 * output image.
+	 */
+	private void runningExtremum(ImageProcessor image, ImageProcessor result, boolean max)
+	{
+		int n = this.shifts.length;
+		if (n <= 1)
+		{
+			return;
+		}
+		int n2 = (n - 1) / 2;
 		
-		BorderManager bm = new MirroringBorder(image);
+		// size of image along the main direction of the line, and along the
+		// orthogonal direction
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeMain = this.horizontal ? sizeX : sizeY;
+		int sizeOrtho = this.horizontal ? sizeY : sizeX;
 		
-		// Iterate on image pixels
-		for (int y = 0; y < image.getHeight(); y++)
+		// offset along the orthogonal direction for each position along the
+		// main direction, including margins
+		int[] offsets = new int[sizeMain + 2 * n2];
+		int minOffset = Integer.MAX_VALUE;
+		int maxOffset = Integer.MIN_VALUE;
+		for (int k = -n2; k < sizeMain + n2; k++)
 		{
-			for (int x = 0; x < image.getWidth(); x++)
+			int offset = (int) round((double) k * this.slope);
+			offsets[k + n2] = offset;
+			if (k >= 0 && k < sizeMain)
 			{
-				// reset accumulator
-				double res = Double.MAX_VALUE;
-
-				// iterate on neighbors
-				for (int i = 0; i < shifts.length; i++)
+				minOffset = min(minOffset, offset);
+				maxOffset = max(maxOffset, offset);
+			}
+		}
+		
+		// allocate buffers for values along a line, and for van Herk/Gil-Werman
+		// prefix and suffix extrema
+		float[] values = new float[sizeMain + 2 * n2];
+		float[] prefix = new float[values.length];
+		float[] suffix = new float[values.length];
+		float sign = max ? 1 : -1;
+		
+		// iterate over the discrete lines crossing the image, each line being
+		// identified by its position at the origin of the main direction
+		for (int c = -maxOffset; c < sizeOrtho - minOffset; c++)
+		{
+			// find the range of positions of the line within image
+			int k0 = -1, k1 = -1;
+			for (int k = 0; k < sizeMain; k++)
+			{
+				int o = c + offsets[k + n2];
+				if (o >= 0 && o < sizeOrtho)
 				{
-					double value = bm.getf(x + shifts[i][0], y + shifts[i][1]);
-					res = Math.min(res, value);
+					if (k0 < 0)
+						k0 = k;
+					k1 = k;
 				}
-				
-				// compute result
-				result.setf(x, y, (float) res);
-			}			
+			}
+			if (k0 < 0)
+			{
+				continue;
+			}
+			
+			// extract values along the line, using mirroring outside image,
+			// with the sign chosen such that the maximum is computed
+			int length = k1 - k0 + 1 + 2 * n2;
+			for (int i = 0; i < length; i++)
+			{
+				int k = k0 - n2 + i;
+				int o = c + offsets[k + n2];
+				int x = this.horizontal ? k : o;
+				int y = this.horizontal ? o : k;
+				values[i] = sign * image.getf(mirror(x, sizeX), mirror(y, sizeY));
+			}
+			
+			// compute prefix and suffix maxima within blocks of size n
+			for (int b = 0; b < length; b += n)
+			{
+				int end = min(b + n, length);
+				prefix[b] = values[b];
+				for (int i = b + 1; i < end; i++)
+				{
+					prefix[i] = max(prefix[i - 1], values[i]);
+				}
+				suffix[end - 1] = values[end - 1];
+				for (int i = end - 2; i >= b; i--)
+				{
+					suffix[i] = max(suffix[i + 1], values[i]);
+				}
+			}
+			
+			// the maximum within window [i, i+n-1] is obtained by combining
+			// suffix of first block and prefix of second block
+			for (int k = k0; k <= k1; k++)
+			{
+				int i = k - k0;
+				float res = max(suffix[i], prefix[i + n - 1]);
+				int o = c + offsets[k + n2];
+				int x = this.horizontal ? k : o;
+				int y = this.horizontal ? o : k;
+				result.setf(x, y, sign * res);
+			}
 		}
-		
-		return result;
+	}
+	
+	/**
+	 * Computes the index within the range [0, size) obtained by mirroring the
+	 * specified index with respect to the range bounds.
+	 */
+	private static final int mirror(int index, int size)
+	{
+		index = index % (2 * size);
+		if (index < 0)
+			index = -index - 1;
+		if (index >= size)
+			index = 2 * size - 1 - index;
+		return index;
 	}
 
 	@Override
@@ -24,14 +24,10 @@ package inra.ijpb.morphology.geodrec;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import ij.ImageStack;
-import inra.ijpb.data.Cursor3D;
+import inra.ijpb.data.IndexDeque;
 import inra.ijpb.data.image.ImageUtils;
 import inra.ijpb.data.image.Images3D;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-
-
 /**
  * <p>
  * Geodesic reconstruction for 3D stacks of shorts, using hybrid algorithm. This
@@ -77,7 +73,7 @@ public class GeodesicReconstruction3DHybrid0Gray16 extends GeodesicReconstructio
 	int sizeZ = 0;
 
 	/** the queue containing the positions that need update */
-	Deque<Cursor3D> queue;
+	IndexDeque queue;
 	
 	/**
 	 * Creates a new instance of geodesic reconstruction by dilation algorithm,
@@ -179,7 +175,7 @@ public class GeodesicReconstruction3DHybrid0Gray16 extends GeodesicReconstructio
 							+ connectivity);
 		}
 
-		queue = new ArrayDeque<Cursor3D>();
+		queue = new IndexDeque();
 		
 		long t0 = System.currentTimeMillis();
 		trace("Initialize result ");
@@ -599,10 +595,10 @@ public class GeodesicReconstruction3DHybrid0Gray16 extends GeodesicReconstructio
 		
 		while (!queue.isEmpty()) 
 		{
-			Cursor3D p = queue.removeFirst();
-			int x = p.getX();
-			int y = p.getY();
-			int z = p.getZ();
+			long p = queue.pollFirst();
+			int x = IndexDeque.unpackX(p);
+			int y = IndexDeque.unpackY(p) % sizeY;
+			int z = IndexDeque.unpackY(p) / sizeY;
 			short[] slice = resultSlices[z];
 			int index = y * sizeX + x;
 			value = (slice[index] & 0x00FFFF) * sign;
@@ -662,10 +658,10 @@ public class GeodesicReconstruction3DHybrid0Gray16 extends GeodesicReconstructio
 		
 		while (!queue.isEmpty()) 
 		{
-			Cursor3D p = queue.removeFirst();
-			int x = p.getX();
-			int y = p.getY();
-			int z = p.getZ();
+			long p = queue.pollFirst();
+			int x = IndexDeque.unpackX(p);
+			int y = IndexDeque.unpackY(p) % sizeY;
+			int z = IndexDeque.unpackY(p) / sizeY;
 			short[] slice = resultSlices[z];
 			int index = y * sizeX + x;
 			value = (slice[index] & 0x00FFFF) * sign;
@@ -736,8 +732,7 @@ public class GeodesicReconstruction3DHybrid0Gray16 extends GeodesicReconstructio
 		int resultValue = (resultSlices[k][sizeX * j + i] & 0x00FFFF) * sign; 
 		if (value > resultValue) 
 		{
-			Cursor3D position = new Cursor3D(i, j, k);
-			queue.add(position);
+			queue.addLast(IndexDeque.pack(i, k * sizeY + j));
 		}
 	}
 
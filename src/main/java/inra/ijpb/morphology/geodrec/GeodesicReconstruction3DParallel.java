@@ -0,0 +1,677 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.geodrec;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.concurrent.ForkJoinPool;
+
+import ij.ImageStack;
+import inra.ijpb.data.IndexDeque;
+import inra.ijpb.data.image.ImageUtils;
+import inra.ijpb.data.image.Images3D;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * <p>
+ * Geodesic reconstruction for 3D stacks, using a hybrid algorithm that runs on
+ * several threads. This class manages both reconstructions by dilation and
+ * erosion, for 8-bits, 16-bits and 32-bits stacks.
+ * </p>
+ * 
+ * <p>
+ * The image is divided into slabs of consecutive slices, each slab being
+ * processed by a single thread. The algorithm first performs forward and
+ * backward scans within each slab, then checks the stability of the voxels
+ * located at slab boundaries, and finally propagates the values using one
+ * queue of voxel indices per slab. Voxels that need to be updated within
+ * another slab are exchanged between slabs after each propagation round, and
+ * rounds are repeated until all queues are empty.
+ * </p>
+ * 
+ * <p>
+ * For efficiency, values are processed as float arrays multiplied by the sign
+ * of the reconstruction, so that erosion is computed as a dilation. This
+ * requires two float buffers the size of the image, in addition to the result.
+ * </p>
+ * 
+ * @see GeodesicReconstruction3DHybrid0Gray8
+ * @see GeodesicReconstruction3DHybrid0Gray16
+ * @see GeodesicReconstruction3DHybrid0Float
+ * 
+ * @author David Legland
+ * 
+ */
+public class GeodesicReconstruction3DParallel extends GeodesicReconstruction3DAlgoStub
+{
+	GeodesicReconstructionType reconstructionType = GeodesicReconstructionType.BY_DILATION;
+	
+	/**
+	 * The number of threads used for computation.
+	 */
+	int threadCount = 1;
+	
+	/** image width */
+	int sizeX = 0;
+	/** image height */
+	int sizeY = 0;
+	/** image depth */
+	int sizeZ = 0;
+
+	/** the values of the result image, multiplied by the sign */
+	float[][] resultSlices;
+	/** the values of the mask image, multiplied by the sign */
+	float[][] maskSlices;
+	
+	/** the index of the first slice of each slab, followed by sizeZ */
+	int[] slabBounds;
+	
+	/** the queue of packed voxel indices that need update, for each slab */
+	IndexDeque[] queues;
+	/** the voxels of slab k-1 that need update, detected by slab k */
+	IndexDeque[] lowerOutboxes;
+	/** the voxels of slab k+1 that need update, detected by slab k */
+	IndexDeque[] upperOutboxes;
+	
+	/**
+	 * Creates a new instance of geodesic reconstruction by dilation algorithm,
+	 * using the default connectivity 6.
+	 */
+	public GeodesicReconstruction3DParallel() 
+	{
+	}
+	
+	/**
+	 * Creates a new instance of geodesic reconstruction algorithm, that
+	 * specifies the type of reconstruction, and using the connectivity 6.
+	 * 
+	 * @param type
+	 *            the type of reconstruction (erosion or dilation)
+	 */
+	public GeodesicReconstruction3DParallel(GeodesicReconstructionType type)
+	{
+		this.reconstructionType = type;
+	}
+
+	/**
+	 * Creates a new instance of geodesic reconstruction algorithm, that
+	 * specifies the type of reconstruction, and the connectivity to use.
+	 * 
+	 * @param type
+	 *            the type of reconstruction (erosion or dilation)
+	 * @param connectivity
+	 *            the 3D connectivity to use (either 6 or 26)
+	 */
+	public GeodesicReconstruction3DParallel(GeodesicReconstructionType type, int connectivity)
+	{
+		this.reconstructionType = type;
+		this.connectivity = connectivity;
+	}
+
+	/**
+	 * @return the reconstructionType
+	 */
+	public GeodesicReconstructionType getReconstructionType() 
+	{
+		return reconstructionType;
+	}
+
+	/**
+	 * @param reconstructionType the reconstructionType to set
+	 */
+	public void setReconstructionType(GeodesicReconstructionType reconstructionType) 
+	{
+		this.reconstructionType = reconstructionType;
+	}
+
+	/**
+	 * @return the number of threads used for computation
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * @param nThreads
+	 *            the number of threads used for computation
+	 */
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+
+	/**
+	 * Run the reconstruction algorithm using the images specified as argument.
+	 * The result has the same type as the mask image.
+	 */
+	public ImageStack applyTo(ImageStack marker, ImageStack mask) 
+	{
+		// Check sizes are consistent
+		if (!ImageUtils.isSameSize(marker, mask))
+		{
+			throw new IllegalArgumentException("Marker and Mask images must have the same size");
+		}
+		
+		// Check connectivity has a correct value
+		if (connectivity != 6 && connectivity != 26)
+		{
+			throw new RuntimeException(
+					"Connectivity for stacks must be either 6 or 26, not "
+							+ connectivity);
+		}
+		
+		this.sizeX = marker.getWidth();
+		this.sizeY = marker.getHeight();
+		this.sizeZ = marker.getSize();
+		
+		// split the image into one slab of slices per thread
+		int nSlabs = max(min(this.threadCount, sizeZ), 1);
+		this.slabBounds = new int[nSlabs + 1];
+		this.queues = new IndexDeque[nSlabs];
+		this.lowerOutboxes = new IndexDeque[nSlabs];
+		this.upperOutboxes = new IndexDeque[nSlabs];
+		for (int k = 0; k < nSlabs; k++)
+		{
+			this.slabBounds[k] = (int) (((long) sizeZ) * k / nSlabs);
+			this.queues[k] = new IndexDeque();
+			this.lowerOutboxes[k] = new IndexDeque();
+			this.upperOutboxes[k] = new IndexDeque();
+		}
+		this.slabBounds[nSlabs] = sizeZ;
+		
+		ImageStack result;
+		ForkJoinPool pool = new ForkJoinPool(nSlabs);
+		try
+		{
+			trace("Initialize result ");
+			initializeResult(marker, mask, pool);
+			
+			// Display current status
+			trace("Forward and backward iterations");
+			showStatus("Geod. Rec. Scans ");
+			ParallelSlabs.process(nSlabs, pool, (k0, k1) -> {
+				for (int k = k0; k < k1; k++)
+				{
+					forwardScan(k);
+					backwardScanInitQueue(k);
+				}
+			});
+			
+			// check voxels whose scan may have used outdated neighbor values
+			trace("Check slab boundaries");
+			ParallelSlabs.process(nSlabs, pool, (k0, k1) -> {
+				for (int k = k0; k < k1; k++)
+				{
+					checkSlabBoundaries(k);
+				}
+			});
+			
+			// Display current status
+			trace("Process queues");
+			showStatus("Process queues");
+			int round = 0;
+			while (exchangeOutboxes())
+			{
+				showProgress(round++ % 10, 10);
+				ParallelSlabs.process(nSlabs, pool, (k0, k1) -> {
+					for (int k = k0; k < k1; k++)
+					{
+						processQueue(k);
+					}
+				});
+			}
+			showProgress(1, 1);
+			
+			result = createResult(mask.getBitDepth(), pool);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		
+		// release buffers
+		this.resultSlices = null;
+		this.maskSlices = null;
+		this.queues = null;
+		this.lowerOutboxes = null;
+		this.upperOutboxes = null;
+		
+		return result;
+	}
+
+	/**
+	 * Run the reconstruction by dilation algorithm using the images specified
+	 * as argument.
+	 */
+	public ImageStack applyTo(
+			ImageStack marker, 
+			ImageStack mask,
+			ImageStack binaryMask ) 
+	{
+		throw new RuntimeException("Method not yet implemented");
+	}
+	
+	/** 
+	 * Initializes the result with the minimum value of marker and mask
+	 * images, after multiplication by the sign.
+	 */
+	private void initializeResult(ImageStack marker, ImageStack mask, ForkJoinPool pool) 
+	{
+		final float sign = this.reconstructionType.getSign();
+		final int sliceSize = sizeX * sizeY;
+		final Object[] markerArrays = marker.getImageArray();
+		final Object[] maskArrays = mask.getImageArray();
+		
+		this.resultSlices = new float[sizeZ][];
+		this.maskSlices = new float[sizeZ][];
+		ParallelSlabs.process(sizeZ, pool, (z0, z1) -> {
+			for (int z = z0; z < z1; z++)
+			{
+				float[] slice = Images3D.readFloats(markerArrays[z], 0, new float[sliceSize], sliceSize);
+				float[] maskSlice = Images3D.readFloats(maskArrays[z], 0, new float[sliceSize], sliceSize);
+				for (int i = 0; i < sliceSize; i++)
+				{
+					maskSlice[i] *= sign;
+					slice[i] = min(slice[i] * sign, maskSlice[i]);
+				}
+				this.resultSlices[z] = slice;
+				this.maskSlices[z] = maskSlice;
+			}
+		});
+	}
+	
+	/**
+	 * Converts the internal float buffers into a new image with the specified
+	 * bit depth.
+	 */
+	private ImageStack createResult(int bitDepth, ForkJoinPool pool)
+	{
+		final float sign = this.reconstructionType.getSign();
+		final int sliceSize = sizeX * sizeY;
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, bitDepth);
+		final Object[] arrays = result.getImageArray();
+		ParallelSlabs.process(sizeZ, pool, (z0, z1) -> {
+			for (int z = z0; z < z1; z++)
+			{
+				float[] slice = this.resultSlices[z];
+				for (int i = 0; i < sliceSize; i++)
+				{
+					slice[i] *= sign;
+				}
+				Images3D.writeFloats(slice, arrays[z], 0, sliceSize);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Updates the voxels of the specified slab using the values of the upper
+	 * left neighbors. The slice preceding the slab may be modified by another
+	 * thread at the same time: as values can only increase, the value read is
+	 * always a valid lower bound, and missed updates are caught by the
+	 * boundary check.
+	 */
+	private void forwardScan(int k)
+	{
+		int z0 = slabBounds[k];
+		int z1 = slabBounds[k + 1];
+		
+		for (int z = z0; z < z1; z++)
+		{
+			float[] slice = resultSlices[z];
+			float[] maskSlice = maskSlices[z];
+			float[] prevSlice = z > 0 ? resultSlices[z - 1] : null;
+			
+			for (int y = 0; y < sizeY; y++) 
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int index = y * sizeX + x;
+					float currentValue = slice[index];
+					float maxValue = currentValue;
+					
+					if (this.connectivity == 6)
+					{
+						// Iterate over the 3 'upper' neighbors of current voxel
+						if (x > 0) 
+							maxValue = max(maxValue, slice[index - 1]);
+						if (y > 0) 
+							maxValue = max(maxValue, slice[index - sizeX]);
+						if (prevSlice != null) 
+							maxValue = max(maxValue, prevSlice[index]);
+					}
+					else
+					{
+						// Iterate over the 13 'upper' neighbors of current voxel
+						for (int z2 = max(z - 1, 0); z2 <= z; z2++)
+						{
+							float[] slice2 = resultSlices[z2];
+							int ymax = z2 == z ? y : min(y + 1, sizeY - 1);
+							for (int y2 = max(y - 1, 0); y2 <= ymax; y2++)
+							{
+								int xmax = (z2 == z && y2 == y) ? x - 1 : min(x + 1, sizeX - 1);
+								for (int x2 = max(x - 1, 0); x2 <= xmax; x2++)
+								{
+									maxValue = max(maxValue, slice2[y2 * sizeX + x2]);
+								}
+							}
+						}
+					}
+					
+					// update value of current voxel
+					maxValue = min(maxValue, maskSlice[index]);
+					if (maxValue > currentValue) 
+					{
+						slice[index] = maxValue;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Updates the voxels of the specified slab using the values of the lower
+	 * right neighbors, and adds to the queues the neighbors that may be
+	 * updated from modified voxels.
+	 */
+	private void backwardScanInitQueue(int k)
+	{
+		int z0 = slabBounds[k];
+		int z1 = slabBounds[k + 1];
+		
+		for (int z = z1 - 1; z >= z0; z--)
+		{
+			float[] slice = resultSlices[z];
+			float[] maskSlice = maskSlices[z];
+			float[] nextSlice = z < sizeZ - 1 ? resultSlices[z + 1] : null;
+			
+			for (int y = sizeY - 1; y >= 0; y--) 
+			{
+				for (int x = sizeX - 1; x >= 0; x--) 
+				{
+					int index = y * sizeX + x;
+					float currentValue = slice[index];
+					float maxValue = currentValue;
+					
+					if (this.connectivity == 6)
+					{
+						// Iterate over the 3 'lower' neighbors of current voxel
+						if (x < sizeX - 1) 
+							maxValue = max(maxValue, slice[index + 1]);
+						if (y < sizeY - 1) 
+							maxValue = max(maxValue, slice[index + sizeX]);
+						if (nextSlice != null)
+							maxValue = max(maxValue, nextSlice[index]);
+					}
+					else
+					{
+						// Iterate over the 13 'lower' neighbors of current voxel
+						for (int z2 = min(z + 1, sizeZ - 1); z2 >= z; z2--)
+						{
+							float[] slice2 = resultSlices[z2];
+							int ymin = z2 == z ? y : max(y - 1, 0); 
+							for (int y2 = min(y + 1, sizeY - 1); y2 >= ymin; y2--)
+							{
+								int xmin = (z2 == z && y2 == y) ? x + 1 : max(x - 1, 0); 
+								for (int x2 = min(x + 1, sizeX - 1); x2 >= xmin; x2--)
+								{
+									maxValue = max(maxValue, slice2[y2 * sizeX + x2]);
+								}
+							}
+						}
+					}
+					
+					// combine with mask
+					maxValue = min(maxValue, maskSlice[index]);
+					
+					// check if modification is required
+					if (maxValue <= currentValue) 
+						continue;
+					
+					// update value of current voxel
+					slice[index] = maxValue;
+					
+					// eventually add lower-right neighbors to queue
+					if (this.connectivity == 6)
+					{
+						if (x < sizeX - 1) 
+							updateQueue(k, x + 1, y, z, maxValue);
+						if (y < sizeY - 1) 
+							updateQueue(k, x, y + 1, z, maxValue);
+						if (z < sizeZ - 1)
+							updateQueue(k, x, y, z + 1, maxValue);
+					}
+					else
+					{
+						for (int z2 = min(z + 1, sizeZ - 1); z2 >= z; z2--)
+						{
+							int ymin = z2 == z ? y : max(y - 1, 0); 
+							for (int y2 = min(y + 1, sizeY - 1); y2 >= ymin; y2--) 
+							{
+								int xmin = (z2 == z && y2 == y) ? x + 1 : max(x - 1, 0); 
+								for (int x2 = min(x + 1, sizeX - 1); x2 >= xmin; x2--)
+								{
+									updateQueue(k, x2, y2, z2, maxValue);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Adds to the queue of the slab the voxels of its first and last slices
+	 * that can still be updated from their neighbors. This catches the
+	 * updates missed by scans that read outdated values from adjacent slabs.
+	 */
+	private void checkSlabBoundaries(int k)
+	{
+		int z0 = slabBounds[k];
+		int z1 = slabBounds[k + 1];
+		
+		if (z0 > 0)
+		{
+			checkSlice(k, z0);
+		}
+		// a single-slice slab was already checked, unless it is the first one
+		if (z1 < sizeZ && (z1 - 1 != z0 || z0 == 0))
+		{
+			checkSlice(k, z1 - 1);
+		}
+	}
+	
+	private void checkSlice(int k, int z)
+	{
+		float[] slice = resultSlices[z];
+		float[] maskSlice = maskSlices[z];
+		for (int y = 0; y < sizeY; y++) 
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				int index = y * sizeX + x;
+				float value = min(neighborhoodMax(x, y, z), maskSlice[index]);
+				if (value > slice[index])
+				{
+					queues[k].addLast(IndexDeque.pack(index, z));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Propagates the values within the slab, using the voxels in the queue
+	 * of the slab. Neighbor voxels located within adjacent slabs are stored
+	 * in the outboxes of the slab.
+	 */
+	private void processQueue(int k)
+	{
+		IndexDeque queue = this.queues[k];
+		
+		while (!queue.isEmpty()) 
+		{
+			long key = queue.pollFirst();
+			int z = IndexDeque.unpackY(key);
+			int index = IndexDeque.unpackX(key);
+			int x = index % sizeX;
+			int y = index / sizeX;
+			
+			float[] slice = resultSlices[z];
+			float value = min(neighborhoodMax(x, y, z), maskSlices[z][index]);
+			
+			// if no update is needed, continue to next item in queue
+			if (value <= slice[index]) 
+				continue;
+			
+			// update result for current position
+			slice[index] = value;
+			
+			// Eventually add each neighbor
+			if (this.connectivity == 6)
+			{
+				if (x > 0)
+					updateQueue(k, x - 1, y, z, value);
+				if (x < sizeX - 1)
+					updateQueue(k, x + 1, y, z, value);
+				if (y > 0)
+					updateQueue(k, x, y - 1, z, value);
+				if (y < sizeY - 1)
+					updateQueue(k, x, y + 1, z, value);
+				if (z > 0)
+					updateQueue(k, x, y, z - 1, value);
+				if (z < sizeZ - 1)
+					updateQueue(k, x, y, z + 1, value);
+			}
+			else
+			{
+				int xmax = min(x + 1, sizeX - 1);
+				int ymax = min(y + 1, sizeY - 1);
+				int zmax = min(z + 1, sizeZ - 1);
+				for (int z2 = max(z - 1, 0); z2 <= zmax; z2++) 
+				{
+					for (int y2 = max(y - 1, 0); y2 <= ymax; y2++) 
+					{
+						for (int x2 = max(x - 1, 0); x2 <= xmax; x2++) 
+						{
+							updateQueue(k, x2, y2, z2, value);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Computes the maximum value within the neighborhood of the voxel,
+	 * including the voxel itself.
+	 */
+	private float neighborhoodMax(int x, int y, int z)
+	{
+		int index = y * sizeX + x;
+		float[] slice = resultSlices[z];
+		float value = slice[index];
+		
+		if (this.connectivity == 6)
+		{
+			if (x > 0) 
+				value = max(value, slice[index - 1]);
+			if (x < sizeX - 1) 
+				value = max(value, slice[index + 1]);
+			if (y > 0) 
+				value = max(value, slice[index - sizeX]);
+			if (y < sizeY - 1) 
+				value = max(value, slice[index + sizeX]);
+			if (z > 0) 
+				value = max(value, resultSlices[z - 1][index]);
+			if (z < sizeZ - 1) 
+				value = max(value, resultSlices[z + 1][index]);
+			return value;
+		}
+		
+		int xmax = min(x + 1, sizeX - 1);
+		int ymax = min(y + 1, sizeY - 1);
+		int zmax = min(z + 1, sizeZ - 1);
+		for (int z2 = max(z - 1, 0); z2 <= zmax; z2++)
+		{
+			float[] slice2 = resultSlices[z2];
+			for (int y2 = max(y - 1, 0); y2 <= ymax; y2++) 
+			{
+				for (int x2 = max(x - 1, 0); x2 <= xmax; x2++)
+				{
+					value = max(value, slice2[y2 * sizeX + x2]);
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Adds the specified voxel to the queue of the slab containing it if the
+	 * value propagated from a neighbor is greater than the current value. If
+	 * the voxel belongs to an adjacent slab, it is stored in the outbox of
+	 * the current slab. 
+	 */
+	private void updateQueue(int k, int x, int y, int z, float value)
+	{
+		int index = y * sizeX + x;
+		value = min(value, maskSlices[z][index]);
+		if (value <= resultSlices[z][index]) 
+			return;
+		
+		long key = IndexDeque.pack(index, z);
+		if (z < slabBounds[k])
+			lowerOutboxes[k].addLast(key);
+		else if (z >= slabBounds[k + 1])
+			upperOutboxes[k].addLast(key);
+		else
+			queues[k].addLast(key);
+	}
+	
+	/**
+	 * Moves the content of the outboxes into the queues of the slabs they
+	 * are addressed to.
+	 * 
+	 * @return true if at least one queue is not empty
+	 */
+	private boolean exchangeOutboxes()
+	{
+		int nSlabs = queues.length;
+		boolean notEmpty = false;
+		for (int k = 0; k < nSlabs; k++)
+		{
+			if (k > 0)
+				queues[k].addAll(upperOutboxes[k - 1]);
+			if (k < nSlabs - 1)
+				queues[k].addAll(lowerOutboxes[k + 1]);
+			notEmpty |= !queues[k].isEmpty();
+		}
+		for (int k = 0; k < nSlabs; k++)
+		{
+			lowerOutboxes[k].clear();
+			upperOutboxes[k].clear();
+		}
+		return notEmpty;
+	}
+}
@@ -24,13 +24,10 @@ package inra.ijpb.morphology.geodrec;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-
 import ij.IJ;
 import ij.process.ImageProcessor;
 import ij.process.FloatProcessor;
-import inra.ijpb.data.Cursor2D;
+import inra.ijpb.data.IndexDeque;
 
 /**
  * <p>
@@ -66,7 +63,7 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 	int sizeY = 0;
 
 	/** the queue containing the positions that need update */
-	Deque<Cursor2D> queue;
+	IndexDeque queue;
 
 	
 	// ==================================================
@@ -168,7 +165,7 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 							+ connectivity);
 		}
 
-		queue = new ArrayDeque<Cursor2D>();
+		queue = new IndexDeque();
 		
 		boolean isInteger = !(mask instanceof FloatProcessor);
 
@@ -756,9 +753,9 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 		
 		while (!queue.isEmpty())
 		{
-			Cursor2D p = queue.removeFirst();
-			int x = p.getX();
-			int y = p.getY();
+			long p = queue.pollFirst();
+			int x = IndexDeque.unpackX(p);
+			int y = IndexDeque.unpackY(p);
 			value = result.get(x, y) * sign;
 			
 			// compare with each one of the four neighbors
@@ -807,9 +804,9 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 		
 		while (!queue.isEmpty()) 
 		{
-			Cursor2D p = queue.removeFirst();
-			int x = p.getX();
-			int y = p.getY();
+			long p = queue.pollFirst();
+			int x = IndexDeque.unpackX(p);
+			int y = IndexDeque.unpackY(p);
 			value = result.getf(x, y) * sign;
 			
 			// compare with each one of the four neighbors
@@ -860,9 +857,9 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 		{
 //			System.out.println("  queue size: " + queue.size());
 			
-			Cursor2D p = queue.removeFirst();
-			int x = p.getX();
-			int y = p.getY();
+			long p = queue.pollFirst();
+			int x = IndexDeque.unpackX(p);
+			int y = IndexDeque.unpackY(p);
 			value = result.get(x, y) * sign;
 			
 			// compute bounds of neighborhood
@@ -917,9 +914,9 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 		{
 //			System.out.println("  queue size: " + queue.size());
 			
-			Cursor2D p = queue.removeFirst();
-			int x = p.getX();
-			int y = p.getY();
+			long p = queue.pollFirst();
+			int x = IndexDeque.unpackX(p);
+			int y = IndexDeque.unpackY(p);
 			value = result.getf(x, y) * sign;
 			
 			// compute bounds of neighborhood
@@ -973,8 +970,7 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 		
 		int resultValue = result.get(x, y) * sign; 
 		if (value > resultValue) {
-			Cursor2D position = new Cursor2D(x, y);
-			queue.add(position);
+			queue.addLast(IndexDeque.pack(x, y));
 		}
 	}
 
@@ -993,8 +989,7 @@ public class GeodesicReconstructionHybrid extends GeodesicReconstructionAlgoStub
 		
 		float resultValue = result.getf(x, y) * sign; 
 		if (value > resultValue) {
-			Cursor2D position = new Cursor2D(x, y);
-			queue.add(position);
+			queue.addLast(IndexDeque.pack(x, y));
 		}
 	}
 
@@ -36,6 +36,11 @@
  * <li>GeodesicReconstruction3DHybrid0Gray8 for images with 255 gray levels</li>
  * <li>GeodesicReconstructionByDilation3DScanning and GeodesicReconstructionByErosion3DScanning for 16 bits images</li>
  * </ul> 
+ * 
+ * <p>
+ * GeodesicReconstruction3DParallel processes 8, 16 or 32 bits stacks by slabs
+ * of slices on several threads.
+ * </p>
  */
 package inra.ijpb.morphology.geodrec;
 
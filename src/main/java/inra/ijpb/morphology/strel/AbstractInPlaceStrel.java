@@ -24,6 +24,7 @@ package inra.ijpb.morphology.strel;
 import ij.IJ;
 import ij.ImageStack;
 import ij.process.ImageProcessor;
+import inra.ijpb.util.ParallelSlabs;
 
 /**
  * Implementation stub for in place Structuring elements.
@@ -49,14 +50,18 @@ public abstract class AbstractInPlaceStrel extends AbstractStrel implements
 	public ImageStack closing(ImageStack stack) {
 		ImageStack result = this.addBorder(stack);
 		this.inPlaceDilation(result);
-		this.reverse().inPlaceErosion(result);
+		InPlaceStrel reverse = this.reverse();
+		reverse.setThreadCount(this.getThreadCount());
+		reverse.inPlaceErosion(result);
 		return cropBorder(result);
 	}
 	
 	public ImageStack opening(ImageStack stack) {
 		ImageStack result = this.addBorder(stack);
 		this.inPlaceErosion(result);
-		this.reverse().inPlaceDilation(result);
+		InPlaceStrel reverse = this.reverse();
+		reverse.setThreadCount(this.getThreadCount());
+		reverse.inPlaceDilation(result);
 		return cropBorder(result);
 	}
 	
@@ -65,14 +70,23 @@ public abstract class AbstractInPlaceStrel extends AbstractStrel implements
 		this.showProgress(false);
 		
 		int nSlices = stack.getSize();
-		for (int i = 1; i <= nSlices; i++) {
-			if (flag) {
-				IJ.showProgress(i-1, nSlices);
+		if (this.getThreadCount() > 1) {
+			// process slabs of slices in parallel (in-place on slice arrays)
+			ParallelSlabs.process(nSlices, this.getThreadCount(), (z0, z1) -> {
+				for (int i = z0 + 1; i <= z1; i++) {
+					this.inPlaceDilation(stack.getProcessor(i));
+				}
+			});
+		} else {
+			for (int i = 1; i <= nSlices; i++) {
+				if (flag) {
+					IJ.showProgress(i-1, nSlices);
+				}
+				
+				ImageProcessor img = stack.getProcessor(i);
+				this.inPlaceDilation(img);
+				stack.setProcessor(img, i);
 			}
-			
-			ImageProcessor img = stack.getProcessor(i);
-			this.inPlaceDilation(img);
-			stack.setProcessor(img, i);
 		}
 		
 		if (flag) {
@@ -86,16 +100,25 @@ public abstract class AbstractInPlaceStrel extends AbstractStrel implements
 		this.showProgress(false);
 		
 		int nSlices = stack.getSize();
-		for (int i = 1; i <= nSlices; i++) {
-			if (flag) {
-				IJ.showProgress(i-1, nSlices);
+		if (this.getThreadCount() > 1) {
+			// process slabs of slices in parallel (in-place on slice arrays)
+			ParallelSlabs.process(nSlices, this.getThreadCount(), (z0, z1) -> {
+				for (int i = z0 + 1; i <= z1; i++) {
+					this.inPlaceErosion(stack.getProcessor(i));
+				}
+			});
+		} else {
+			for (int i = 1; i <= nSlices; i++) {
+				if (flag) {
+					IJ.showProgress(i-1, nSlices);
+				}
+				
+				ImageProcessor img = stack.getProcessor(i);
+				this.inPlaceErosion(img);
+				stack.setProcessor(img, i);
 			}
-			
-			ImageProcessor img = stack.getProcessor(i);
-			this.inPlaceErosion(img);
-			stack.setProcessor(img, i);
 		}
-
+		
 		if (flag) {
 			IJ.showProgress(1);
 		}
@@ -52,7 +52,9 @@ public abstract class AbstractInPlaceStrel3D extends AbstractStrel3D implements
 	{
 		ImageStack result = stack.duplicate();
 		this.inPlaceDilation(result);
-		this.reverse().inPlaceErosion(result);
+		InPlaceStrel3D reverse = this.reverse();
+		reverse.setThreadCount(this.getThreadCount());
+		reverse.inPlaceErosion(result);
 		return result;
 	}
 
@@ -60,7 +62,9 @@ public abstract class AbstractInPlaceStrel3D extends AbstractStrel3D implements
 	{
 		ImageStack result = stack.duplicate();
 		this.inPlaceErosion(result);
-		this.reverse().inPlaceDilation(result);
+		InPlaceStrel3D reverse = this.reverse();
+		reverse.setThreadCount(this.getThreadCount());
+		reverse.inPlaceDilation(result);
 		return result;
 	}
 }
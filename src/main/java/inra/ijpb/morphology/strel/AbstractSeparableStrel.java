@@ -155,6 +155,7 @@ implements SeparableStrel, AlgoListener
 	private void runDilation(ImageProcessor image, InPlaceStrel strel)
 	{
 		strel.showProgress(this.showProgress());
+		strel.setThreadCount(this.getThreadCount());
 		strel.addAlgoListener(this);
 		strel.inPlaceDilation(image);
 		strel.removeAlgoListener(this);
@@ -163,6 +164,7 @@ implements SeparableStrel, AlgoListener
 	private void runErosion(ImageProcessor image, InPlaceStrel strel) 
 	{
 		strel.showProgress(this.showProgress());
+		strel.setThreadCount(this.getThreadCount());
 		strel.addAlgoListener(this);
 		strel.inPlaceErosion(image);
 		strel.removeAlgoListener(this);
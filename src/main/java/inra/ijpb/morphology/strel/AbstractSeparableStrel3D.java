@@ -149,6 +149,7 @@ public abstract class AbstractSeparableStrel3D extends AbstractStrel3D
 	private void runDilation(ImageStack image, InPlaceStrel3D strel) 
 	{
 		strel.showProgress(this.showProgress());
+		strel.setThreadCount(this.getThreadCount());
 		strel.addAlgoListener(this);
 		strel.inPlaceDilation(image);
 		strel.removeAlgoListener(this);
@@ -157,6 +158,7 @@ public abstract class AbstractSeparableStrel3D extends AbstractStrel3D
 	private void runErosion(ImageStack image, InPlaceStrel3D strel) 
 	{
 		strel.showProgress(this.showProgress());
+		strel.setThreadCount(this.getThreadCount());
 		strel.addAlgoListener(this);
 		strel.inPlaceErosion(image);
 		strel.removeAlgoListener(this);
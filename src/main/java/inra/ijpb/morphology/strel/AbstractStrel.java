@@ -21,10 +21,13 @@
  */
 package inra.ijpb.morphology.strel;
 
+import java.util.function.UnaryOperator;
+
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 import inra.ijpb.morphology.Strel;
 import inra.ijpb.shape.ImageShape;
+import inra.ijpb.util.ParallelSlabs;
 
 
 /**
@@ -386,91 +389,64 @@ public abstract class AbstractStrel extends AbstractStrel3D implements Strel
 
     public ImageStack dilation(ImageStack stack)
     {
-		boolean flag = this.showProgress();
-		this.showProgress(false);
-		
-		ImageStack result = stack.duplicate();
-		
-		int nSlices = stack.getSize();
-		for (int i = 1; i <= nSlices; i++) {
-			this.showProgress(flag);
-			fireProgressChanged(this, i-1, nSlices);
-			this.showProgress(false);
-			
-			ImageProcessor img = stack.getProcessor(i);
-			img = dilation(img);
-			result.setProcessor(img, i);
-		}
-		
-		// notify end of slices progression
-		this.showProgress(flag);
-		fireProgressChanged(this, nSlices, nSlices);
-		
-		return result;
+    	return processSlices(stack, img -> dilation(img));
 	}
 	
     public ImageStack erosion(ImageStack stack)
     {
-		boolean flag = this.showProgress();
-		
-		int nSlices = stack.getSize();
-		ImageStack result = stack.duplicate();
-		for (int i = 1; i <= nSlices; i++) {
-			this.showProgress(flag);
-			fireProgressChanged(this, i-1, nSlices);
-			this.showProgress(false);
-			
-			ImageProcessor img = stack.getProcessor(i);
-			img = erosion(img);
-			result.setProcessor(img, i);
-		}
-		
-		// notify end of slices progression
-		this.showProgress(flag);
-		fireProgressChanged(this, nSlices, nSlices);
-		
-		return result;
+    	return processSlices(stack, img -> erosion(img));
 	}
 	
     public ImageStack closing(ImageStack stack)
     {
-		boolean flag = this.showProgress();
-		this.showProgress(false);
-		
-		int nSlices = stack.getSize();
-		ImageStack result = stack.duplicate();
-		for (int i = 1; i <= nSlices; i++) {
-			this.showProgress(flag);
-			fireProgressChanged(this, i-1, nSlices);
-			this.showProgress(false);
-			
-			ImageProcessor img = stack.getProcessor(i);
-			img = closing(img);
-			result.setProcessor(img, i);
-		}
-		
-		// notify end of slices progression
-		this.showProgress(flag);
-		fireProgressChanged(this, nSlices, nSlices);
-		
-		return result;
+    	return processSlices(stack, img -> closing(img));
 	}
 	
     public ImageStack opening(ImageStack stack)
     {
-    	boolean flag = this.showProgress();
+    	return processSlices(stack, img -> opening(img));
+	}
+    
+	/**
+	 * Applies a planar operation on each slice of the input stack, and returns
+	 * the results in a new stack. If the thread count of this structuring
+	 * element is greater than 1, slices are processed concurrently, and only
+	 * the final progress is notified.
+	 * 
+	 * @param stack
+	 *            the input stack
+	 * @param op
+	 *            the operation to apply on each slice
+	 * @return the result of the operation applied on each slice
+	 */
+	private ImageStack processSlices(ImageStack stack, UnaryOperator<ImageProcessor> op)
+	{
+		boolean flag = this.showProgress();
 		this.showProgress(false);
 		
 		int nSlices = stack.getSize();
 		ImageStack result = stack.duplicate();
-		for (int i = 1; i <= nSlices; i++) {
-			this.showProgress(flag);
-			fireProgressChanged(this, i-1, nSlices);
-			this.showProgress(false);
-			
-			ImageProcessor img = stack.getProcessor(i);
-			img = opening(img);
-			result.setProcessor(img, i);
+		
+		if (this.getThreadCount() > 1)
+		{
+			ParallelSlabs.process(nSlices, this.getThreadCount(), (z0, z1) -> {
+				for (int i = z0 + 1; i <= z1; i++)
+				{
+					result.setProcessor(op.apply(stack.getProcessor(i)), i);
+				}
+			});
+		}
+		else
+		{
+			for (int i = 1; i <= nSlices; i++) {
+				this.showProgress(flag);
+				fireProgressChanged(this, i-1, nSlices);
+				this.showProgress(false);
+				
+				ImageProcessor img = stack.getProcessor(i);
+				img = op.apply(img);
+				result.setProcessor(img, i);
+			}
 		}
 		
 		// notify end of slices progression
@@ -479,5 +455,4 @@ public abstract class AbstractStrel extends AbstractStrel3D implements Strel
 		
 		return result;
 	}
-
 }
@@ -21,11 +21,14 @@
  */
 package inra.ijpb.morphology.strel;
 
+import java.util.concurrent.ForkJoinTask;
+
 import ij.ImageStack;
 import inra.ijpb.algo.AlgoEvent;
 import inra.ijpb.algo.AlgoStub;
 import inra.ijpb.morphology.Strel3D;
 import inra.ijpb.shape.ImageShape;
+import inra.ijpb.util.ParallelSlabs;
 
 
 /**
@@ -109,6 +112,13 @@ public abstract class AbstractStrel3D extends AlgoStub implements Strel3D
 	 */
 	private boolean showProgress = true;
 
+	/**
+	 * The number of threads used for processing 3D images, or the lines of
+	 * the images for separable structuring elements. Default is 1,
+	 * corresponding to sequential processing.
+	 */
+	private int threadCount = 1;
+
 	
     // ===================================================================
     // Utility methods
@@ -190,6 +200,29 @@ public abstract class AbstractStrel3D extends AlgoStub implements Strel3D
 		this.showProgress = b;
 	}
 
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	public void setThreadCount(int nThreads)
+	{
+		this.threadCount = Math.max(nThreads, 1);
+	}
+	
+	/**
+	 * Returns the number of threads to use for processing the rows or lines
+	 * of a single image. When called from a worker of a fork-join pool (for
+	 * example when the slices of a stack are already processed
+	 * concurrently), returns 1 to avoid nested parallelism.
+	 * 
+	 * @return the number of threads to use for processing image lines
+	 */
+	protected int getLineThreadCount()
+	{
+		return ForkJoinTask.inForkJoinPool() ? 1 : this.threadCount;
+	}
+
 
 	// ===================================================================
 	// Default implementation of some methods
@@ -217,33 +250,35 @@ public abstract class AbstractStrel3D extends AlgoStub implements Strel3D
 	    // allocate result
 	    ImageStack res = ImageStack.create(sizeX, sizeY, sizeZ, image.getBitDepth());
 
-	    // iterate over pixels
+	    // iterate over pixels, processing slabs of slices in parallel
 	    int[][] shifts = getShifts3D();
-	    for (int z = 0; z < sizeZ; z++)
-	    {
-	        for (int y = 0; y < sizeY; y++)
+	    ParallelSlabs.process(sizeZ, this.threadCount, (z0, z1) -> {
+	        for (int z = z0; z < z1; z++)
 	        {
-	            for (int x = 0; x < sizeX; x++)
+	            for (int y = 0; y < sizeY; y++)
 	            {
-	                double value = image.getVoxel(x, y, z);
-
-	                // iterate over neighbors
-	                for (int[] shift : shifts)
+	                for (int x = 0; x < sizeX; x++)
 	                {
-	                    int x2 = x + shift[0];
-	                    int y2 = y + shift[1];
-	                    int z2 = z + shift[2];
-	                    if (x2 < 0 || x2 >= sizeX) continue;
-	                    if (y2 < 0 || y2 >= sizeY) continue;
-	                    if (z2 < 0 || z2 >= sizeZ) continue;
-
-	                    value = Math.max(value, image.getVoxel(x2, y2, z2));
-	                }
+	                    double value = image.getVoxel(x, y, z);
+
+	                    // iterate over neighbors
+	                    for (int[] shift : shifts)
+	                    {
+	                        int x2 = x + shift[0];
+	                        int y2 = y + shift[1];
+	                        int z2 = z + shift[2];
+	                        if (x2 < 0 || x2 >= sizeX) continue;
+	                        if (y2 < 0 || y2 >= sizeY) continue;
+	                        if (z2 < 0 || z2 >= sizeZ) continue;
+
+	                        value = Math.max(value, image.getVoxel(x2, y2, z2));
+	                    }
 
-	                res.setVoxel(x, y, z, value);
+	                    res.setVoxel(x, y, z, value);
+	                }
 	            }
 	        }
-	    }
+	    });
 
 	    return res;
 	}
@@ -271,33 +306,35 @@ public abstract class AbstractStrel3D extends AlgoStub implements Strel3D
 	    // allocate result
 	    ImageStack res = ImageStack.create(sizeX, sizeY, sizeZ, image.getBitDepth());
 
-	    // iterate over pixels
+	    // iterate over pixels, processing slabs of slices in parallel
 	    int[][] shifts = getShifts3D();
-	    for (int z = 0; z < sizeZ; z++)
-	    {
-	        for (int y = 0; y < sizeY; y++)
+	    ParallelSlabs.process(sizeZ, this.threadCount, (z0, z1) -> {
+	        for (int z = z0; z < z1; z++)
 	        {
-	            for (int x = 0; x < sizeX; x++)
+	            for (int y = 0; y < sizeY; y++)
 	            {
-	                double value = image.getVoxel(x, y, z);
-
-	                // iterate over neighbors
-	                for (int[] shift : shifts)
+	                for (int x = 0; x < sizeX; x++)
 	                {
-	                    int x2 = x + shift[0];
-	                    int y2 = y + shift[1];
-	                    int z2 = z + shift[2];
-	                    if (x2 < 0 || x2 >= sizeX) continue;
-	                    if (y2 < 0 || y2 >= sizeY) continue;
-	                    if (z2 < 0 || z2 >= sizeZ) continue;
-
-	                    value = Math.min(value, image.getVoxel(x2, y2, z2));
-	                }
+	                    double value = image.getVoxel(x, y, z);
 
-	                res.setVoxel(x, y, z, value);
+	                    // iterate over neighbors
+	                    for (int[] shift : shifts)
+	                    {
+	                        int x2 = x + shift[0];
+	                        int y2 = y + shift[1];
+	                        int z2 = z + shift[2];
+	                        if (x2 < 0 || x2 >= sizeX) continue;
+	                        if (y2 < 0 || y2 >= sizeY) continue;
+	                        if (z2 < 0 || z2 >= sizeZ) continue;
+
+	                        value = Math.min(value, image.getVoxel(x2, y2, z2));
+	                    }
+
+	                    res.setVoxel(x, y, z, value);
+	                }
 	            }
 	        }
-	    }
+	    });
 
 	    return res;
 	}
@@ -335,7 +372,9 @@ public abstract class AbstractStrel3D extends AlgoStub implements Strel3D
         image = ImageShape.addBorders(image, padX0, padX1, padY0, padY1, padZ0, padZ1);
         
         // compute morphological closing on padded image
-        image = this.reverse().erosion(this.dilation(image));
+        Strel3D reverse = this.reverse();
+        reverse.setThreadCount(this.threadCount);
+        image = reverse.erosion(this.dilation(image));
         
         // crop result
         image = ImageShape.cropRect(image, padX0, padY0, padZ0, sizeX, sizeY, sizeZ);
@@ -376,7 +415,9 @@ public abstract class AbstractStrel3D extends AlgoStub implements Strel3D
         image = ImageShape.addBorders(image, padX0, padX1, padY0, padY1, padZ0, padZ1);
         
         // compute morphological closing on padded image
-        image = this.reverse().dilation(this.erosion(image));
+        Strel3D reverse = this.reverse();
+        reverse.setThreadCount(this.threadCount);
+        image = reverse.dilation(this.erosion(image));
         
         // crop result
         image = ImageShape.cropRect(image, padX0, padY0, padZ0, sizeX, sizeY, sizeZ);
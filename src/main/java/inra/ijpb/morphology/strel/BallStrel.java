@@ -23,6 +23,7 @@ package inra.ijpb.morphology.strel;
 
 import ij.ImageStack;
 import ij.plugin.Filters3D;
+import inra.ijpb.binary.BinaryImages;
 import inra.ijpb.morphology.Strel3D;
 
 /**
@@ -127,43 +128,7 @@ public class BallStrel extends AbstractStrel3D
 	@Override
 	public int[][] getShifts3D()
 	{
-		int intRadius = (int) Math.round(radius);
-		int[][][] mask = getMask3D();
-		int size = 2 * intRadius + 1;
-		
-		// first count the number of voxels
-		int n = 0;
-		for (int z = 0; z < size; z++)
-		{
-			for (int y = 0; y < size; y++)
-			{
-				for (int x = 0; x < size; x++)
-				{
-					if (mask[z][y][x] > 0)
-						n++;
-				}
-			}
-		}
-		
-		// second iteration to create the right number of offsets
-		int[][] offsets = new int[n][2];
-		int i = 0;
-		for (int z = 0; z < size; z++)
-		{
-			for (int y = 0; y < size; y++)
-			{
-				for (int x = 0; x < size; x++)
-				{
-					if (mask[z][y][x] > 0)
-					{
-						offsets[i][0] = x;
-						offsets[i][1] = y;
-						i++;
-					}
-				}
-			}
-		}		
-		return offsets;
+		return convertMaskToShifts(getMask3D());
 	}
 
 	@Override
@@ -175,6 +140,8 @@ public class BallStrel extends AbstractStrel3D
 	/**
 	 * Performs dilation with a ball structuring element by calling the ImageJ
 	 * Filters3D.filter method, using Filters3D.MAX option.
+	 * Binary images are processed by thresholding an Euclidean distance map,
+	 * making computation time independent of the radius.
 	 * 
 	 * @param image
 	 *            the 3D stack to process
@@ -182,6 +149,12 @@ public class BallStrel extends AbstractStrel3D
 	@Override
 	public ImageStack dilation(ImageStack image)
 	{
+		// binary images are processed by thresholding a distance map
+		if (BinaryImages.isBinaryImage(image))
+		{
+			return BinaryEllipsoidFilters.dilation(image, new double[] {this.radius, this.radius, this.radius}, this.getThreadCount());
+		}
+		
 		float r = (float) this.radius;
 		ImageStack result = Filters3D.filter(image, Filters3D.MAX, r, r, r);
 		result.setColorModel( image.getColorModel() );
@@ -191,6 +164,8 @@ public class BallStrel extends AbstractStrel3D
 	/**
 	 * Performs erosion with a ball structuring element by calling the ImageJ
 	 * Filters3D.filter method, using Filters3D.MIN option.
+	 * Binary images are processed by thresholding an Euclidean distance map,
+	 * making computation time independent of the radius.
 	 * 
 	 * @param image
 	 *            the 3D stack to process
@@ -198,6 +173,12 @@ public class BallStrel extends AbstractStrel3D
 	@Override
 	public ImageStack erosion(ImageStack image)
 	{
+		// binary images are processed by thresholding a distance map
+		if (BinaryImages.isBinaryImage(image))
+		{
+			return BinaryEllipsoidFilters.erosion(image, new double[] {this.radius, this.radius, this.radius}, this.getThreadCount());
+		}
+		
 		float r = (float) this.radius;
 		ImageStack result = Filters3D.filter(image, Filters3D.MIN, r, r, r);
 		result.setColorModel( image.getColorModel() );
@@ -0,0 +1,178 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat;
+
+/**
+ * Computes morphological dilations and erosions of 3D binary images by
+ * ellipsoids aligned with the image axes, by thresholding an Euclidean
+ * distance map. The computation time does not depend on the radii of the
+ * ellipsoid.
+ * 
+ * <p>
+ * The ellipsoid contains the shifts (dx, dy, dz) such that
+ * <code>(dx/rx)^2 + (dy/ry)^2 + (dz/rz)^2 &lt;= 1</code>. Both sides of the
+ * inequality are multiplied by the product of squared radii, so that the
+ * comparison is exact for integer radii. A null radius restricts the
+ * ellipsoid to the plane orthogonal to the corresponding axis.
+ * </p>
+ * 
+ * <p>
+ * As for the <code>ij.plugin.Filters3D</code> class, voxels outside of the
+ * image are ignored.
+ * </p>
+ * 
+ * @see BallStrel
+ * @see EllipsoidStrel
+ * @see inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat
+ * 
+ * @author David Legland
+ */
+final class BinaryEllipsoidFilters
+{
+	/**
+	 * Private constructor to prevent class instantiation.
+	 */
+	private BinaryEllipsoidFilters()
+	{
+	}
+	
+	/**
+	 * Computes the dilation of a binary image by an ellipsoid.
+	 * 
+	 * @param image
+	 *            the binary image to dilate, with 0 for background and 255
+	 *            for foreground
+	 * @param radii
+	 *            the radii of the ellipsoid in the x, y and z directions
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @return the result of the dilation
+	 */
+	static final ImageStack dilation(ImageStack image, double[] radii, int nThreads)
+	{
+		// compute distance from each voxel to the nearest foreground voxel
+		ImageStack complement = complement(image);
+		return threshold(complement, radii, nThreads, false);
+	}
+	
+	/**
+	 * Computes the erosion of a binary image by an ellipsoid.
+	 * 
+	 * @param image
+	 *            the binary image to erode, with 0 for background and 255
+	 *            for foreground
+	 * @param radii
+	 *            the radii of the ellipsoid in the x, y and z directions
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @return the result of the erosion
+	 */
+	static final ImageStack erosion(ImageStack image, double[] radii, int nThreads)
+	{
+		// compute distance from each voxel to the nearest background voxel
+		return threshold(image, radii, nThreads, true);
+	}
+	
+	/**
+	 * Computes the squared distance map of the input image, and thresholds
+	 * it with the ellipsoid criterion.
+	 * 
+	 * @param image
+	 *            the binary image used to compute distance map
+	 * @param radii
+	 *            the radii of the ellipsoid
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @param outside
+	 *            if true, keeps voxels whose distance is larger than the
+	 *            ellipsoid, otherwise keeps voxels within the ellipsoid
+	 * @return the binary result of threshold
+	 */
+	private static final ImageStack threshold(ImageStack image, double[] radii, int nThreads, boolean outside)
+	{
+		// replace null radii by one, and use infinite spacing for the
+		// corresponding axes 
+		double[] r = new double[3];
+		for (int d = 0; d < 3; d++)
+		{
+			r[d] = radii[d] > 0 ? radii[d] : 1.0;
+		}
+		double[] spacing = new double[] {r[1] * r[2], r[0] * r[2], r[0] * r[1]};
+		for (int d = 0; d < 3; d++)
+		{
+			if (radii[d] <= 0)
+			{
+				spacing[d] = Double.POSITIVE_INFINITY;
+			}
+		}
+		double prod = r[0] * r[1] * r[2];
+		double maxDist2 = prod * prod;
+		
+		// compute distance map
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat(spacing);
+		algo.setThreadCount(nThreads);
+		double[][] dist2 = algo.squaredDistanceMap(image);
+		
+		// apply threshold
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			byte[] resSlice = (byte[]) result.getPixels(z + 1);
+			double[] slice = dist2[z];
+			for (int i = 0; i < slice.length; i++)
+			{
+				boolean inside = slice[i] <= maxDist2;
+				if (inside != outside)
+				{
+					resSlice[i] = (byte) 255;
+				}
+			}
+		}
+		
+		result.setColorModel(image.getColorModel());
+		return result;
+	}
+	
+	private static final ImageStack complement(ImageStack image)
+	{
+		int sizeZ = image.getSize();
+		ImageStack result = ImageStack.create(image.getWidth(), image.getHeight(), sizeZ, 8);
+		for (int z = 1; z <= sizeZ; z++)
+		{
+			ImageProcessor slice = image.getProcessor(z);
+			byte[] resSlice = (byte[]) result.getPixels(z);
+			for (int i = 0; i < resSlice.length; i++)
+			{
+				resSlice[i] = slice.get(i) == 0 ? (byte) 255 : 0;
+			}
+		}
+		result.setColorModel(image.getColorModel());
+		return result;
+	}
+}
@@ -24,7 +24,9 @@ package inra.ijpb.morphology.strel;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import ij.ImageStack;
+import inra.ijpb.data.image.Images3D;
 import inra.ijpb.morphology.Strel3D;
+import inra.ijpb.util.ParallelSlabs;
 
 /**
  * 3D structuring element representing a 3x3x3 cross, that considers the 
@@ -83,71 +85,76 @@ public class Cross3DStrel extends AbstractStrel3D {
 
 	@Override
 	public ImageStack dilation(ImageStack image) {
-		int sizeX = image.getWidth();
-		int sizeY = image.getHeight();
-		int sizeZ = image.getSize();
-		
-		ImageStack result = image.duplicate();
-	
-		for (int z = 0; z < sizeZ; z++) {
-			for (int y = 0; y < sizeY; y++) {
-				for (int x = 0; x < sizeX; x++) {
-					double value = image.getVoxel(x, y, z);
-					double maxValue = value;
-					
-					// Iterate over the 3 'upper' neighbors of current pixel
-					if (x > 0) 
-						maxValue = max(maxValue, image.getVoxel(x-1, y, z));
-					if (x < sizeX-1) 
-						maxValue = max(maxValue, image.getVoxel(x+1, y, z));
-					if (y > 0) 
-						maxValue = max(maxValue, image.getVoxel(x, y-1, z));
-					if (y < sizeY - 1) 
-						maxValue = max(maxValue, image.getVoxel(x, y+1, z));
-					if (z > 0) 
-						maxValue = max(maxValue, image.getVoxel(x, y, z-1));
-					if (z < sizeZ - 1) 
-						maxValue = max(maxValue, image.getVoxel(x, y, z+1));
-					result.setVoxel(x, y, z, maxValue);
-				}
-			}
-		}
-		return result;
+		return process(image, true);
 	}
 
 	@Override
 	public ImageStack erosion(ImageStack image) {
+		return process(image, false);
+	}
+
+	/**
+	 * Computes dilation or erosion row by row: the values of the five rows
+	 * involved are copied into float buffers using loops specialized for
+	 * the data type, and combined with plain array loops.
+	 */
+	private ImageStack process(ImageStack image, boolean dilation) {
 		int sizeX = image.getWidth();
 		int sizeY = image.getHeight();
 		int sizeZ = image.getSize();
 		
 		ImageStack result = image.duplicate();
+		Object[] slices = image.getImageArray();
+		Object[] resSlices = result.getImageArray();
 	
-		for (int z = 0; z < sizeZ; z++) {
-			for (int y = 0; y < sizeY; y++) {
-				for (int x = 0; x < sizeX; x++) {
-					double value = image.getVoxel(x, y, z);
-					double minValue = value;
+		ParallelSlabs.process(sizeZ, this.getThreadCount(), (z0, z1) -> {
+			float[] row = new float[sizeX];
+			float[] res = new float[sizeX];
+			float[] tmp = new float[sizeX];
+			for (int z = z0; z < z1; z++) {
+				for (int y = 0; y < sizeY; y++) {
+					int offset = y * sizeX;
+					Images3D.readFloats(slices[z], offset, row, sizeX);
+					System.arraycopy(row, 0, res, 0, sizeX);
+					
+					// neighbors within the current row
+					for (int x = 1; x < sizeX; x++) {
+						res[x] = extremum(res[x], row[x - 1], dilation);
+					}
+					for (int x = 0; x < sizeX - 1; x++) {
+						res[x] = extremum(res[x], row[x + 1], dilation);
+					}
 					
-					// Iterate over the 3 'upper' neighbors of current pixel
-					if (x > 0) 
-						minValue = min(minValue, image.getVoxel(x-1, y, z));
-					if (x < sizeX-1) 
-						minValue = min(minValue, image.getVoxel(x+1, y, z));
+					// neighbors within adjacent rows and slices
 					if (y > 0) 
-						minValue = min(minValue, image.getVoxel(x, y-1, z));
+						combine(res, Images3D.readFloats(slices[z], offset - sizeX, tmp, sizeX), dilation);
 					if (y < sizeY - 1) 
-						minValue = min(minValue, image.getVoxel(x, y+1, z));
+						combine(res, Images3D.readFloats(slices[z], offset + sizeX, tmp, sizeX), dilation);
 					if (z > 0) 
-						minValue = min(minValue, image.getVoxel(x, y, z-1));
+						combine(res, Images3D.readFloats(slices[z - 1], offset, tmp, sizeX), dilation);
 					if (z < sizeZ - 1) 
-						minValue = min(minValue, image.getVoxel(x, y, z+1));
-					result.setVoxel(x, y, z, minValue);
+						combine(res, Images3D.readFloats(slices[z + 1], offset, tmp, sizeX), dilation);
+					
+					Images3D.writeFloats(res, resSlices[z], offset, sizeX);
 				}
 			}
-		}
+		});
 		return result;
 	}
+	
+	private static final void combine(float[] res, float[] values, boolean dilation) {
+		if (dilation) {
+			for (int x = 0; x < res.length; x++)
+				res[x] = max(res[x], values[x]);
+		} else {
+			for (int x = 0; x < res.length; x++)
+				res[x] = min(res[x], values[x]);
+		}
+	}
+	
+	private static final float extremum(float v1, float v2, boolean dilation) {
+		return dilation ? max(v1, v2) : min(v1, v2);
+	}
 
 	@Override
 	public ImageStack closing(ImageStack image) {
@@ -23,6 +23,7 @@ package inra.ijpb.morphology.strel;
 
 import ij.ImageStack;
 import ij.plugin.Filters3D;
+import inra.ijpb.binary.BinaryImages;
 import inra.ijpb.morphology.Strel3D;
 
 /**
@@ -181,51 +182,16 @@ public class EllipsoidStrel extends AbstractStrel3D
 	@Override
 	public int[] getOffset()
 	{
-		int intRadius = (int) Math.round(xRadius);
-		return new int[]{intRadius, intRadius, intRadius};
+		int offsetX = (int) Math.round(xRadius);
+		int offsetY = (int) Math.round(yRadius);
+		int offsetZ = (int) Math.round(zRadius);
+		return new int[]{offsetX, offsetY, offsetZ};
 	}
 
 	@Override
 	public int[][] getShifts3D()
 	{
-		int[][][] mask = getMask3D();
-		int sizeX = 2 * ((int) Math.round(xRadius)) + 1;
-		int sizeY = 2 * ((int) Math.round(yRadius)) + 1;
-		int sizeZ = 2 * ((int) Math.round(zRadius)) + 1;
-		
-		// first count the number of voxels
-		int n = 0;
-		for (int z = 0; z < sizeZ; z++)
-		{
-			for (int y = 0; y < sizeY; y++)
-			{
-				for (int x = 0; x < sizeX; x++)
-				{
-					if (mask[z][y][x] > 0)
-						n++;
-				}
-			}
-		}
-		
-		// second iteration to create the right number of offsets
-		int[][] offsets = new int[n][2];
-		int i = 0;
-		for (int z = 0; z < sizeZ; z++)
-		{
-			for (int y = 0; y < sizeY; y++)
-			{
-				for (int x = 0; x < sizeX; x++)
-				{
-					if (mask[z][y][x] > 0)
-					{
-						offsets[i][0] = x;
-						offsets[i][1] = y;
-						i++;
-					}
-				}
-			}
-		}		
-		return offsets;
+		return convertMaskToShifts(getMask3D());
 	}
 
 	/**
@@ -242,6 +208,8 @@ public class EllipsoidStrel extends AbstractStrel3D
 	/**
 	 * Performs dilation with a ball structuring element by calling the ImageJ
 	 * Filters3D.filter method, using Filters3D.MAX option.
+	 * Binary images are processed by thresholding an Euclidean distance map,
+	 * making computation time independent of the radius.
 	 * 
 	 * @param image
 	 *            the 3D stack to process
@@ -250,6 +218,12 @@ public class EllipsoidStrel extends AbstractStrel3D
 	@Override
 	public ImageStack dilation(ImageStack image)
 	{
+		// binary images are processed by thresholding a distance map
+		if (BinaryImages.isBinaryImage(image))
+		{
+			return BinaryEllipsoidFilters.dilation(image, new double[] {this.xRadius, this.yRadius, this.zRadius}, this.getThreadCount());
+		}
+		
 		float rx = (float) this.xRadius;
 		float ry = (float) this.yRadius;
 		float rz = (float) this.zRadius;
@@ -261,6 +235,8 @@ public class EllipsoidStrel extends AbstractStrel3D
 	/**
 	 * Performs erosion with a ball structuring element by calling the ImageJ
 	 * Filters3D.filter method, using Filters3D.MIN option.
+	 * Binary images are processed by thresholding an Euclidean distance map,
+	 * making computation time independent of the radius.
 	 * 
 	 * @param image
 	 *            the 3D stack to process
@@ -269,6 +245,12 @@ public class EllipsoidStrel extends AbstractStrel3D
 	@Override
 	public ImageStack erosion(ImageStack image)
 	{
+		// binary images are processed by thresholding a distance map
+		if (BinaryImages.isBinaryImage(image))
+		{
+			return BinaryEllipsoidFilters.erosion(image, new double[] {this.xRadius, this.yRadius, this.zRadius}, this.getThreadCount());
+		}
+		
 		float rx = (float) this.xRadius;
 		float ry = (float) this.yRadius;
 		float rz = (float) this.zRadius;
@@ -167,10 +167,12 @@ public class ExtrudedStrel extends AbstractStrel3D
 	@Override
 	public ImageStack dilation(ImageStack image)
 	{
+		this.strel2d.setThreadCount(this.getThreadCount());
 		ImageStack result = this.strel2d.dilation(image);
 		if (this.sizeZ > 1)
 		{
 			Strel3D zStrel = new LinearDepthStrel3D(this.sizeZ, this.offsetZ);
+			zStrel.setThreadCount(this.getThreadCount());
 			result = zStrel.dilation(result);
 		}
 		return result;
@@ -182,10 +184,12 @@ public class ExtrudedStrel extends AbstractStrel3D
 	@Override
 	public ImageStack erosion(ImageStack image)
 	{
+		this.strel2d.setThreadCount(this.getThreadCount());
 		ImageStack result = this.strel2d.erosion(image);
 		if (this.sizeZ > 1)
 		{
 			Strel3D zStrel = new LinearDepthStrel3D(this.sizeZ, this.offsetZ);
+			zStrel.setThreadCount(this.getThreadCount());
 			result = zStrel.erosion(result);
 		}
 		return result;
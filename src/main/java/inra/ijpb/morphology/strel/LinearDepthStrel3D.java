@@ -22,7 +22,8 @@
 package inra.ijpb.morphology.strel;
 
 import ij.ImageStack;
-import inra.ijpb.morphology.Strel;
+import ij.process.ImageProcessor;
+import inra.ijpb.util.ParallelSlabs;
 
 /**
  * An horizontal linear structuring element of a given length.
@@ -130,104 +131,7 @@ public class LinearDepthStrel3D extends AbstractInPlaceStrel3D  {
 			return;
 		}
 		
-		if (stack.getBitDepth() == 8)
-			inPlaceDilationGray8(stack);
-		else
-			inPlaceDilationFloat(stack);
-	}
-
-	/* (non-Javadoc)
-	 * @see inra.ijpb.morphology.InPlaceStrel#inPlaceDilation(ij.process.ImageStack)
-	 */
-	private void inPlaceDilationGray8(ImageStack stack) {
-		// get image size
-		int width 	= stack.getWidth(); 
-		int height 	= stack.getHeight();
-		int depth 	= stack.getSize();
-			
-		// shifts between reference position and last position
-		int shift = this.length - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferGray8 localMax = new LocalExtremumBufferGray8(
-				this.length, LocalExtremum.Type.MAXIMUM);		
-		
-		// Iterate on image z-columns
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			for (int x = 0; x < width; x++) {
-
-				// init local histogram with background values
-				localMax.fill(Strel.BACKGROUND);
-
-				// add neighbor values
-				for (int z = 0; z < Math.min(shift, depth); z++) {
-					localMax.add((int) stack.getVoxel(x, y, z));
-				}
-
-				// iterate along "middle" values
-				for (int z = 0; z < depth - shift; z++) {
-					localMax.add((int) stack.getVoxel(x, y, z + shift));
-					stack.setVoxel(x, y, z, localMax.getMax());
-				}
-
-				// process pixels at the end of the line
-				for (int z = Math.max(0, depth - shift); z < depth; z++) {
-					localMax.add(Strel.BACKGROUND);
-					stack.setVoxel(x, y, z, localMax.getMax());
-				}
-			}
-		}
-
-		// clear the progress bar
-		fireProgressChanged(this, height, height);		
-	}
-
-	/* (non-Javadoc)
-	 * @see inra.ijpb.morphology.InPlaceStrel#inPlaceDilation(ij.process.ImageStack)
-	 */
-	private void inPlaceDilationFloat(ImageStack stack) {
-		// get image size
-		int width 	= stack.getWidth(); 
-		int height 	= stack.getHeight();
-		int depth 	= stack.getSize();
-			
-		// shifts between reference position and last position
-		int shift = this.length - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMax = new LocalExtremumBufferDouble(
-				this.length, LocalExtremum.Type.MAXIMUM);		
-		
-		// Iterate on image z-columns
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			for (int x = 0; x < width; x++) {
-
-				// init local histogram with background values
-				localMax.fill(Float.NEGATIVE_INFINITY);
-
-				// add neighbor values
-				for (int z = 0; z < Math.min(shift, depth); z++) {
-					localMax.add((float) stack.getVoxel(x, y, z));
-				}
-
-				// iterate along "middle" values
-				for (int z = 0; z < depth - shift; z++) {
-					localMax.add((float) stack.getVoxel(x, y, z + shift));
-					stack.setVoxel(x, y, z, localMax.getMax());
-				}
-
-				// process pixels at the end of the line
-				for (int z = Math.max(0, depth - shift); z < depth; z++) {
-					localMax.add(Float.NEGATIVE_INFINITY);
-					stack.setVoxel(x, y, z, localMax.getMax());
-				}
-			}
-		}
-
-		// clear the progress bar
-		fireProgressChanged(this, height, height);		
+		processLines(stack, true);
 	}
 
 	/* (non-Javadoc)
@@ -239,109 +143,138 @@ public class LinearDepthStrel3D extends AbstractInPlaceStrel3D  {
 		if (length <= 1) { 
 			return;
 		}
-
-		if (stack.getBitDepth() == 8)
-			inPlaceErosionGray8(stack);
-		else
-			inPlaceErosionFloat(stack);
 		
+		processLines(stack, false);
 	}
 	
-	/* (non-Javadoc)
-	 * @see inra.ijpb.morphology.InPlaceStrel#inPlaceErosion(ij.process.ImageStack)
+	/**
+	 * Computes running maximum or minimum along each z-column of the stack.
+	 * For each y, the (x,z) plane is copied into a buffer with the same type
+	 * as the image, such that z-columns are contiguous, and planes are
+	 * processed in parallel. Stacks with other types (RGB) are processed
+	 * through a float buffer.
 	 */
-	private void inPlaceErosionGray8(ImageStack stack) {
+	private void processLines(ImageStack stack, boolean max) {
 		// get image size
 		int width 	= stack.getWidth(); 
 		int height 	= stack.getHeight();
 		int depth 	= stack.getSize();
 		
-		// shifts between reference position and last position
-		int shift = this.length - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMin = new LocalExtremumBufferDouble(this.length,
-				LocalExtremum.Type.MINIMUM);
-		
+		// keep a processor on each slice for efficient access
+		ImageProcessor[] slices = new ImageProcessor[depth];
+		for (int z = 0; z < depth; z++) {
+			slices[z] = stack.getProcessor(z + 1);
+		}
+		int bitDepth = stack.getBitDepth();
 		
-		// Iterate on image z-columns
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			for (int x = 0; x < width; x++) {
-
-				// init local histogram with background values
-				localMin.fill(Strel.FOREGROUND);
-
-				// add neighbor values
-				for (int z = 0; z < Math.min(shift, depth); z++) {
-					localMin.add((int) stack.getVoxel(x, y, z));
+		int nThreads = getLineThreadCount();
+		ParallelSlabs.process(height, nThreads, (y0, y1) -> {
+			RunningExtremum extremum = new RunningExtremum(this.length, this.offset);
+			Object buffer = createBuffer(bitDepth, width * depth);
+			for (int y = y0; y < y1; y++) {
+				if (nThreads <= 1) {
+					fireProgressChanged(this, y, height);
 				}
-
-				// iterate along "middle" values
-				for (int z = 0; z < depth - shift; z++) {
-					localMin.add((int) stack.getVoxel(x, y, z + shift));
-					stack.setVoxel(x, y, z, localMin.getMax());
+				
+				// copy the (x,z) plane, with contiguous z-columns
+				int offset = y * width;
+				for (int z = 0; z < depth; z++) {
+					copyRowToColumn(slices[z], offset, width, buffer, z, depth);
 				}
-
-				// process pixels at the end of the line
-				for (int z = Math.max(0, depth - shift); z < depth; z++) {
-					localMin.add(Strel.FOREGROUND);
-					stack.setVoxel(x, y, z, localMin.getMax());
+				
+				for (int x = 0; x < width; x++) {
+					if (buffer instanceof byte[]) {
+						extremum.process((byte[]) buffer, x * depth, 1, depth, max);
+					} else if (buffer instanceof short[]) {
+						extremum.process((short[]) buffer, x * depth, 1, depth, max);
+					} else {
+						extremum.process((float[]) buffer, x * depth, 1, depth, max);
+					}
+				}
+				
+				// copy back the result
+				for (int z = 0; z < depth; z++) {
+					copyColumnToRow(buffer, z, depth, slices[z], offset, width);
 				}
 			}
-		}
+		});
 		
 		// clear the progress bar
-		fireProgressChanged(this, height, height);		
+		fireProgressChanged(this, height, height);
 	}
-
-	/* (non-Javadoc)
-	 * @see inra.ijpb.morphology.InPlaceStrel#inPlaceErosion(ij.process.ImageStack)
+	
+	private static final Object createBuffer(int bitDepth, int size) {
+		switch (bitDepth) {
+		case 8: return new byte[size];
+		case 16: return new short[size];
+		default: return new float[size];
+		}
+	}
+	
+	/**
+	 * Copies a row of a slice into the buffer, such that the value of the
+	 * pixel x is stored at index x * depth + z.
 	 */
-	private void inPlaceErosionFloat(ImageStack stack) {
-		// get image size
-		int width 	= stack.getWidth(); 
-		int height 	= stack.getHeight();
-		int depth 	= stack.getSize();
-		
-		// shifts between reference position and last position
-		int shift = this.length - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMin = new LocalExtremumBufferDouble(
-				this.length, LocalExtremum.Type.MINIMUM);
-		
-		// Iterate on image z-columns
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
+	private static final void copyRowToColumn(ImageProcessor slice, int offset, int width, Object buffer, int z, int depth) {
+		Object pixels = slice.getPixels();
+		if (buffer instanceof byte[]) {
+			byte[] src = (byte[]) pixels;
+			byte[] dst = (byte[]) buffer;
 			for (int x = 0; x < width; x++) {
-
-				// init local histogram with background values
-				localMin.fill(Float.POSITIVE_INFINITY);
-
-				// add neighbor values
-				for (int z = 0; z < Math.min(shift, depth); z++) {
-					localMin.add((float) stack.getVoxel(x, y, z));
-				}
-
-				// iterate along "middle" values
-				for (int z = 0; z < depth - shift; z++) {
-					localMin.add((float) stack.getVoxel(x, y, z + shift));
-					stack.setVoxel(x, y, z, localMin.getMax());
-				}
-
-				// process pixels at the end of the line
-				for (int z = Math.max(0, depth - shift); z < depth; z++) {
-					localMin.add(Float.POSITIVE_INFINITY);
-					stack.setVoxel(x, y, z, localMin.getMax());
-				}
+				dst[x * depth + z] = src[offset + x];
+			}
+		} else if (buffer instanceof short[]) {
+			short[] src = (short[]) pixels;
+			short[] dst = (short[]) buffer;
+			for (int x = 0; x < width; x++) {
+				dst[x * depth + z] = src[offset + x];
+			}
+		} else if (pixels instanceof float[]) {
+			float[] src = (float[]) pixels;
+			float[] dst = (float[]) buffer;
+			for (int x = 0; x < width; x++) {
+				dst[x * depth + z] = src[offset + x];
+			}
+		} else {
+			float[] dst = (float[]) buffer;
+			for (int x = 0; x < width; x++) {
+				dst[x * depth + z] = slice.getf(offset + x);
 			}
 		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, height, height);		
 	}
-
+	
+	/**
+	 * Copies back the values stored in the buffer at indices x * depth + z
+	 * into a row of a slice.
+	 */
+	private static final void copyColumnToRow(Object buffer, int z, int depth, ImageProcessor slice, int offset, int width) {
+		Object pixels = slice.getPixels();
+		if (buffer instanceof byte[]) {
+			byte[] src = (byte[]) buffer;
+			byte[] dst = (byte[]) pixels;
+			for (int x = 0; x < width; x++) {
+				dst[offset + x] = src[x * depth + z];
+			}
+		} else if (buffer instanceof short[]) {
+			short[] src = (short[]) buffer;
+			short[] dst = (short[]) pixels;
+			for (int x = 0; x < width; x++) {
+				dst[offset + x] = src[x * depth + z];
+			}
+		} else if (pixels instanceof float[]) {
+			float[] src = (float[]) buffer;
+			float[] dst = (float[]) pixels;
+			for (int x = 0; x < width; x++) {
+				dst[offset + x] = src[x * depth + z];
+			}
+		} else {
+			float[] src = (float[]) buffer;
+			for (int x = 0; x < width; x++) {
+				slice.setf(offset + x, src[x * depth + z]);
+			}
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see inra.ijpb.morphology.Strel#getMask()
 	 */
@@ -21,9 +21,8 @@
  */
 package inra.ijpb.morphology.strel;
 
-import ij.process.ByteProcessor;
 import ij.process.ImageProcessor;
-import inra.ijpb.morphology.Strel;
+import inra.ijpb.util.ParallelSlabs;
 
 /**
  * An horizontal linear structuring element of a given length.
@@ -131,95 +130,9 @@ public class LinearHorizontalStrel extends AbstractInPlaceStrel  {
 			return;
 		}
 		
-		if (image instanceof ByteProcessor)
-			inPlaceDilationGray8(image);
-		else
-			inPlaceDilationFloat(image);
+		processLines(image, true);
 	}
 	
-	private void inPlaceDilationGray8(ImageProcessor image) {
-		// get image size
-		int width = image.getWidth(); 
-		int height = image.getHeight();
-			
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferGray8 localMax = new LocalExtremumBufferGray8(size,
-				LocalExtremum.Type.MAXIMUM);
-		
-		// Iterate on image rows
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			
-			// init local histogram with background values
-			localMax.fill(Strel.BACKGROUND);
-			
-			// add neighbor values
-			for (int x = 0; x < Math.min(shift, width); x++) {
-				localMax.add(image.get(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int x = 0; x < width - shift; x++) {
-				localMax.add(image.get(x + shift, y));
-				image.set(x, y, localMax.getMax());
-			}
-			
-			// process pixels at the end of the line
-			for (int x = Math.max(0, width - shift); x < width; x++) {
-				localMax.add(Strel.BACKGROUND);
-				image.set(x, y, localMax.getMax());
-			}
-		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, height, height);
-	}
-
-	private void inPlaceDilationFloat(ImageProcessor image) {
-		// get image size
-		int width = image.getWidth(); 
-		int height = image.getHeight();
-			
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMax = new LocalExtremumBufferDouble(size,
-				LocalExtremum.Type.MAXIMUM);
-		
-		// Iterate on image rows
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			
-			// init local histogram with background values
-			localMax.fill(Float.NEGATIVE_INFINITY);
-			
-			// add neighbor values
-			for (int x = 0; x < Math.min(shift, width); x++) {
-				localMax.add(image.getf(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int x = 0; x < width - shift; x++) {
-				localMax.add(image.getf(x + shift, y));
-				image.setf(x, y, (float) localMax.getMax());
-			}
-			
-			// process pixels at the end of the line
-			for (int x = Math.max(0, width - shift); x < width; x++) {
-				localMax.add(Float.NEGATIVE_INFINITY);
-				image.setf(x, y, (float) localMax.getMax());
-			}
-		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, height, height);
-	}
-
-
 	/* (non-Javadoc)
 	 * @see inra.ijpb.morphology.InPlaceStrel#inPlaceErosion(ij.process.ImageProcessor)
 	 */
@@ -230,95 +143,33 @@ public class LinearHorizontalStrel extends AbstractInPlaceStrel  {
 			return;
 		}
 		
-		if (image instanceof ByteProcessor)
-			inPlaceErosionGray8(image);
-		else
-			inPlaceErosionFloat(image);
+		processLines(image, false);
 	}
 	
-	private void inPlaceErosionGray8(ImageProcessor image) {
-		// get image size
-		int width = image.getWidth(); 
-		int height = image.getHeight();
-		
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferGray8 localMin = new LocalExtremumBufferGray8(size,
-				LocalExtremum.Type.MINIMUM);
-		
-		// Iterate on image rows
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			
-			// reset local histogram
-			localMin.fill(Strel.FOREGROUND);
-			
-			// init local histogram with neighbor values
-			for (int x = 0; x < Math.min(shift, width); x++) {
-				localMin.add(image.get(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int x = 0; x < width - shift; x++) {
-				localMin.add(image.get(x + shift, y));
-				image.set(x, y, localMin.getMax());
-			}
-			
-			// process pixels at the end of the line
-			for (int x = Math.max(0, width - shift); x < width; x++) {
-				localMin.add(Strel.FOREGROUND);
-				image.set(x, y, localMin.getMax());
-			}
-		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, height, height);
-	}
-
-	private void inPlaceErosionFloat(ImageProcessor image) {
+	/**
+	 * Computes running maximum or minimum along each of the image rows,
+	 * processing bands of rows in parallel.
+	 */
+	private void processLines(ImageProcessor image, boolean max) {
 		// get image size
 		int width = image.getWidth(); 
 		int height = image.getHeight();
 		
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMin = new LocalExtremumBufferDouble(size,
-				LocalExtremum.Type.MINIMUM);
-		
-		// Iterate on image rows
-		for (int y = 0; y < height; y++) {
-			fireProgressChanged(this, y, height);
-			
-			// reset local histogram
-			localMin.fill(Float.POSITIVE_INFINITY);
-			
-			// init local histogram with neighbor values
-			for (int x = 0; x < Math.min(shift, width); x++) {
-				localMin.add(image.getf(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int x = 0; x < width - shift; x++) {
-				localMin.add(image.getf(x + shift, y));
-				image.setf(x, y, (float) localMin.getMax());
+		int nThreads = getLineThreadCount();
+		ParallelSlabs.process(height, nThreads, (y0, y1) -> {
+			RunningExtremum extremum = new RunningExtremum(this.size, this.offset);
+			for (int y = y0; y < y1; y++) {
+				if (nThreads <= 1) {
+					fireProgressChanged(this, y, height);
+				}
+				extremum.process(image, y * width, 1, width, max);
 			}
-			
-			// process pixels at the end of the line
-			for (int x = Math.max(0, width - shift); x < width; x++) {
-				localMin.add(Float.POSITIVE_INFINITY);
-				image.setf(x, y, (float) localMin.getMax());
-			}
-		}
+		});
 		
 		// clear the progress bar
 		fireProgressChanged(this, height, height);
 	}
 
-	
 	/* (non-Javadoc)
 	 * @see inra.ijpb.morphology.Strel#getMask()
 	 */
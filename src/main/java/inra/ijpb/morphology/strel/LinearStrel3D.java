@@ -0,0 +1,308 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.util.ParallelSlabs;
+
+/**
+ * A 3D linear structuring element oriented along one of the thirteen
+ * directions of the 26-neighborhood: the three axes, the six face diagonals,
+ * and the four body diagonals. Each step of the direction vector is either
+ * -1, 0, or +1.
+ * 
+ * <p>
+ * Dilation and erosion are performed in place, by iterating over each
+ * discrete line of the image along the direction of the structuring element
+ * and updating a local extremum buffer. Voxels outside of the image are
+ * ignored.
+ * </p>
+ * 
+ * @see LinearDepthStrel3D
+ * @see PolyhedralBallStrel
+ * 
+ * @author David Legland
+ */
+public class LinearStrel3D extends AbstractInPlaceStrel3D
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The step of the structuring element in the x, y and z directions.
+	 */
+	int[] direction;
+	
+	/**
+	 * The number of voxels of the structuring element.
+	 */
+	int length;
+	
+	/**
+	 * The position of the reference voxel, as the number of steps from the
+	 * first voxel of the structuring element.
+	 */
+	int offset;
+	
+	
+	// ==================================================
+	// Constructors 
+	
+	/**
+	 * Creates a new 3D linear structuring element with the given direction and
+	 * length, and with an offset located at the middle of the line.
+	 * 
+	 * @param dx
+	 *            the step in the x direction, between -1 and +1
+	 * @param dy
+	 *            the step in the y direction, between -1 and +1
+	 * @param dz
+	 *            the step in the z direction, between -1 and +1
+	 * @param length
+	 *            the number of voxels of the structuring element
+	 */
+	public LinearStrel3D(int dx, int dy, int dz, int length)
+	{
+		this(dx, dy, dz, length, (length - 1) / 2);
+	}
+	
+	/**
+	 * Creates a new 3D linear structuring element with the given direction,
+	 * length and offset.
+	 * 
+	 * @param dx
+	 *            the step in the x direction, between -1 and +1
+	 * @param dy
+	 *            the step in the y direction, between -1 and +1
+	 * @param dz
+	 *            the step in the z direction, between -1 and +1
+	 * @param length
+	 *            the number of voxels of the structuring element
+	 * @param offset
+	 *            the position of the reference voxel, as the number of steps
+	 *            from the first voxel
+	 */
+	public LinearStrel3D(int dx, int dy, int dz, int length, int offset)
+	{
+		if (Math.abs(dx) > 1 || Math.abs(dy) > 1 || Math.abs(dz) > 1)
+		{
+			throw new IllegalArgumentException("Direction steps must be between -1 and +1");
+		}
+		if (dx == 0 && dy == 0 && dz == 0)
+		{
+			throw new IllegalArgumentException("Requires a non null direction");
+		}
+		if (length < 1)
+		{
+			throw new IllegalArgumentException("Requires a positive length");
+		}
+		if (offset < 0 || offset >= length)
+		{
+			throw new IllegalArgumentException("Offset must be comprised between 0 and length-1");
+		}
+		this.direction = new int[] {dx, dy, dz};
+		this.length = length;
+		this.offset = offset;
+	}
+	
+	
+	// ==================================================
+	// Implementation of the InPlaceStrel3D interface 
+
+	@Override
+	public void inPlaceDilation(ImageStack image)
+	{
+		processLines(image, true);
+	}
+
+	@Override
+	public void inPlaceErosion(ImageStack image)
+	{
+		processLines(image, false);
+	}
+	
+	private void processLines(ImageStack image, boolean max)
+	{
+		// If size is one, there is no need to compute
+		if (this.length <= 1)
+		{
+			return;
+		}
+		
+		// get image size
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		
+		int dx = direction[0];
+		int dy = direction[1];
+		int dz = direction[2];
+		
+		// keep a processor on each slice for efficient access
+		ImageProcessor[] slices = new ImageProcessor[sizeZ];
+		for (int z = 0; z < sizeZ; z++)
+		{
+			slices[z] = image.getProcessor(z + 1);
+		}
+		
+		// identify the first voxel of each line, as the voxels whose
+		// predecessor along the direction is outside of the image
+		// (coordinates are stored as consecutive triplets)
+		int nLines = countLines(sizeX, sizeY, sizeZ);
+		int[] starts = new int[3 * nLines];
+		int iStart = 0;
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					if (!contains(x - dx, y - dy, z - dz, sizeX, sizeY, sizeZ))
+					{
+						starts[iStart++] = x;
+						starts[iStart++] = y;
+						starts[iStart++] = z;
+					}
+				}
+			}
+		}
+		
+		// lines are independent, and can be processed concurrently
+		ParallelSlabs.process(nLines, this.getThreadCount(), (i0, i1) -> {
+			RunningExtremum extremum = new RunningExtremum(this.length, this.offset);
+			float[] values = new float[Math.max(Math.max(sizeX, sizeY), sizeZ)];
+			
+			for (int iLine = i0; iLine < i1; iLine++)
+			{
+				int x0 = starts[3 * iLine];
+				int y0 = starts[3 * iLine + 1];
+				int z0 = starts[3 * iLine + 2];
+				
+				// collect the values along the line
+				int n = 0;
+				int x = x0, y = y0, z = z0;
+				while (contains(x, y, z, sizeX, sizeY, sizeZ))
+				{
+					values[n++] = slices[z].getf(x, y);
+					x += dx; y += dy; z += dz;
+				}
+				
+				// compute running extremum
+				extremum.process(values, 0, 1, n, max);
+				
+				// copy back the values along the line
+				x = x0; y = y0; z = z0;
+				for (int i = 0; i < n; i++)
+				{
+					slices[z].setf(x, y, values[i]);
+					x += dx; y += dy; z += dz;
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Computes the number of lines with the direction of this structuring
+	 * element that intersect an image with the specified size.
+	 */
+	private int countLines(int sizeX, int sizeY, int sizeZ)
+	{
+		// count the voxels whose predecessor is outside of the image, as the
+		// complement of the voxels whose predecessor is inside the image
+		long nInside = 1;
+		nInside *= sizeX - Math.abs(direction[0]);
+		nInside *= sizeY - Math.abs(direction[1]);
+		nInside *= sizeZ - Math.abs(direction[2]);
+		return (int) ((long) sizeX * sizeY * sizeZ - Math.max(nInside, 0));
+	}
+	
+	private static final boolean contains(int x, int y, int z, int sizeX, int sizeY, int sizeZ)
+	{
+		return x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ;
+	}
+
+	
+	// ==================================================
+	// Implementation of the Strel3D interface 
+	
+	@Override
+	public int[] getSize()
+	{
+		int[] size = new int[3];
+		for (int d = 0; d < 3; d++)
+		{
+			size[d] = Math.abs(direction[d]) * (this.length - 1) + 1;
+		}
+		return size;
+	}
+
+	@Override
+	public int[][][] getMask3D()
+	{
+		int[] size = getSize();
+		int[] offset = getOffset();
+		int[][][] mask = new int[size[2]][size[1]][size[0]];
+		for (int i = 0; i < this.length; i++)
+		{
+			int x = offset[0] + (i - this.offset) * direction[0];
+			int y = offset[1] + (i - this.offset) * direction[1];
+			int z = offset[2] + (i - this.offset) * direction[2];
+			mask[z][y][x] = 255;
+		}
+		return mask;
+	}
+
+	@Override
+	public int[] getOffset()
+	{
+		int[] offset = new int[3];
+		for (int d = 0; d < 3; d++)
+		{
+			if (direction[d] > 0)
+				offset[d] = this.offset;
+			else if (direction[d] < 0)
+				offset[d] = this.length - 1 - this.offset;
+		}
+		return offset;
+	}
+
+	@Override
+	public int[][] getShifts3D()
+	{
+		int[][] shifts = new int[this.length][3];
+		for (int i = 0; i < this.length; i++)
+		{
+			for (int d = 0; d < 3; d++)
+			{
+				shifts[i][d] = (i - this.offset) * direction[d];
+			}
+		}
+		return shifts;
+	}
+
+	@Override
+	public LinearStrel3D reverse()
+	{
+		return new LinearStrel3D(direction[0], direction[1], direction[2], this.length, this.length - this.offset - 1);
+	}
+}
@@ -21,9 +21,8 @@
  */
 package inra.ijpb.morphology.strel;
 
-import ij.process.ByteProcessor;
 import ij.process.ImageProcessor;
-import inra.ijpb.morphology.Strel;
+import inra.ijpb.util.ParallelSlabs;
 
 /**
  * A vertical linear structuring element of a given length.
@@ -131,97 +130,11 @@ public class LinearVerticalStrel extends AbstractInPlaceStrel {
 			return;
 		}
 		
-		if (image instanceof ByteProcessor)
-			inPlaceDilationGray8(image);
-		else
-			inPlaceDilationFloat(image);
+		processLines(image, true);
 	}
 	
-	private void inPlaceDilationGray8(ImageProcessor image) {
-		// get image size
-		int width = image.getWidth(); 
-		int height = image.getHeight();
-	
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferGray8 localMax = new LocalExtremumBufferGray8(size,
-				LocalExtremum.Type.MAXIMUM);
-
-		// Iterate on image columns
-		for (int x = 0; x < width; x++) {
-			fireProgressChanged(this, x, width);
-			
-			// reset local histogram
-			localMax.fill(Strel.BACKGROUND);
-			
-			// init local histogram with neighbor values
-			for (int y = 0; y < Math.min(shift, height); y++) {
-				localMax.add(image.get(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int y = 0; y < height - shift; y++) {
-				localMax.add(image.get(x, y + shift));
-				image.set(x, y, (int) localMax.getMax());
-			}
-			
-			// process pixels at the end of the line
-			for (int y = Math.max(0, height - shift); y < height; y++) {
-				localMax.add(Strel.BACKGROUND);
-				image.set(x, y, (int) localMax.getMax());
-			}
-		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, width, width);
-	}
-
-	
-	private void inPlaceDilationFloat(ImageProcessor image) {
-		// get image size
-		int width = image.getWidth(); 
-		int height = image.getHeight();
-	
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMax = new LocalExtremumBufferDouble(size,
-				LocalExtremum.Type.MAXIMUM);
-		
-		// Iterate on image columns
-		for (int x = 0; x < width; x++) {
-			fireProgressChanged(this, x, width);
-			
-			// reset local histogram
-			localMax.fill(Float.NEGATIVE_INFINITY);
-			
-			// init local histogram with neighbor values
-			for (int y = 0; y < Math.min(shift, height); y++) {
-				localMax.add(image.getf(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int y = 0; y < height - shift; y++) {
-				localMax.add(image.getf(x, y + shift));
-				image.setf(x, y, (float) localMax.getMax());
-			}
-			
-			// process pixels at the end of the line
-			for (int y = Math.max(0, height - shift); y < height; y++) {
-				localMax.add(Float.NEGATIVE_INFINITY);
-				image.setf(x, y, (float) localMax.getMax());
-			}
-		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, width, width);
-	}
-
 	/* (non-Javadoc)
-	 * @see ijt.morphology.InPlaceStrel#inPlaceErosion(ij.process.ImageProcessor)
+	 * @see inra.ijpb.morphology.InPlaceStrel#inPlaceErosion(ij.process.ImageProcessor)
 	 */
 	@Override
 	public void inPlaceErosion(ImageProcessor image) {
@@ -230,97 +143,33 @@ public class LinearVerticalStrel extends AbstractInPlaceStrel {
 			return;
 		}
 		
-		if (image instanceof ByteProcessor)
-			inPlaceErosionGray8(image);
-		else
-			inPlaceErosionFloat(image);
+		processLines(image, false);
 	}
 	
-	private void inPlaceErosionGray8(ImageProcessor image) {
-		// get image size
-		int width = image.getWidth(); 
-		int height = image.getHeight();
-	
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferGray8 localMin = new LocalExtremumBufferGray8(size,
-				LocalExtremum.Type.MINIMUM);
-
-
-		// Iterate on image columns
-		for (int x = 0; x < width; x++) {
-			fireProgressChanged(this, x, width);
-			
-			// reset local histogram
-			localMin.fill(Strel.FOREGROUND);
-			
-			// init local histogram with neighbor values
-			for (int y = 0; y < Math.min(shift, height); y++) {
-				localMin.add(image.get(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int y = 0; y < height - shift; y++) {
-				localMin.add(image.get(x, y + shift));
-				image.set(x, y, localMin.getMax());
-			}
-			
-			// process pixels at the end of the line
-			for (int y = Math.max(0, height - shift); y < height; y++) {
-				localMin.add(Strel.FOREGROUND);
-				image.set(x, y, localMin.getMax());
-			}
-		}
-		
-		// clear the progress bar
-		fireProgressChanged(this, width, width);
-	}
-
-	private void inPlaceErosionFloat(ImageProcessor image) {
+	/**
+	 * Computes running maximum or minimum along each of the image columns,
+	 * processing bands of columns in parallel.
+	 */
+	private void processLines(ImageProcessor image, boolean max) {
 		// get image size
 		int width = image.getWidth(); 
 		int height = image.getHeight();
-	
-		// shifts between reference position and last position
-		int shift = this.size - this.offset - 1;
-		
-		// create local histogram instance
-		LocalExtremumBufferDouble localMin = new LocalExtremumBufferDouble(size,
-				LocalExtremum.Type.MINIMUM);
-
 		
-		// Iterate on image columns
-		for (int x = 0; x < width; x++) {
-			fireProgressChanged(this, x, width);
-			
-			// reset local histogram
-			localMin.fill(Float.POSITIVE_INFINITY);
-			
-			// init local histogram with neighbor values
-			for (int y = 0; y < Math.min(shift, height); y++) {
-				localMin.add(image.getf(x, y));
-			}
-			
-			// iterate along "middle" values
-			for (int y = 0; y < height - shift; y++) {
-				localMin.add(image.getf(x, y + shift));
-				image.setf(x, y, (float) localMin.getMax());
+		int nThreads = getLineThreadCount();
+		ParallelSlabs.process(width, nThreads, (x0, x1) -> {
+			RunningExtremum extremum = new RunningExtremum(this.size, this.offset);
+			for (int x = x0; x < x1; x++) {
+				if (nThreads <= 1) {
+					fireProgressChanged(this, x, width);
+				}
+				extremum.process(image, x, width, height, max);
 			}
-			
-			// process pixels at the end of the line
-			for (int y = Math.max(0, height - shift); y < height; y++) {
-				localMin.add(Float.POSITIVE_INFINITY);
-				image.setf(x, y, (float) localMin.getMax());
-			}
-		}
+		});
 		
 		// clear the progress bar
 		fireProgressChanged(this, width, width);
 	}
 
-	
 	/* (non-Javadoc)
 	 * @see ijt.morphology.Strel#getMask()
 	 */
@@ -0,0 +1,276 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import ij.ImageStack;
+
+/**
+ * A structuring element that approximates a ball by a convex polyhedron,
+ * obtained as the Minkowski sum of linear structuring elements along the
+ * thirteen directions of the 26-neighborhood. This is the 3D equivalent of
+ * the decomposition of the octagon in 2D.
+ * 
+ * <p>
+ * The structuring element is decomposed into the three orthogonal lines, the
+ * six face-diagonal lines, and the four body-diagonal lines. The lengths of
+ * the lines are chosen such that the extent of the polyhedron along the axis
+ * equals the radius, and that the extent along the diagonal directions is
+ * as close as possible to the radius. As the lengths of the lines do not
+ * depend on the radius, the computation time of morphological operations
+ * does not depend on the radius.
+ * </p>
+ * 
+ * @see BallStrel
+ * @see OctagonStrel
+ * @see LinearStrel3D
+ * 
+ * @author David Legland
+ *
+ */
+public class PolyhedralBallStrel extends AbstractSeparableStrel3D
+{
+	// ==================================================
+	// Static methods 
+	
+	/**
+	 * Creates a new polyhedral approximation of a ball with the specified
+	 * radius.
+	 * 
+	 * @param radius
+	 *            the radius of the ball, in voxels
+	 * @return a new PolyhedralBallStrel instance
+	 */
+	public final static PolyhedralBallStrel fromRadius(int radius)
+	{
+		return new PolyhedralBallStrel(radius);
+	}
+	
+	/**
+	 * Creates a new polyhedral approximation of a ball with the specified
+	 * diameter.
+	 * 
+	 * @param diam
+	 *            the diameter of the ball, in voxels
+	 * @return a new PolyhedralBallStrel instance
+	 */
+	public final static PolyhedralBallStrel fromDiameter(int diam)
+	{
+		return new PolyhedralBallStrel((diam - 1) / 2);
+	}
+	
+	/**
+	 * The directions of the face-diagonal lines.
+	 */
+	private static final int[][] FACE_DIAGONALS = new int[][] {
+		{1, 1, 0}, {1, -1, 0}, {1, 0, 1}, {1, 0, -1}, {0, 1, 1}, {0, 1, -1}
+	};
+	
+	/**
+	 * The directions of the body-diagonal lines.
+	 */
+	private static final int[][] BODY_DIAGONALS = new int[][] {
+		{1, 1, 1}, {-1, 1, 1}, {1, -1, 1}, {1, 1, -1}
+	};
+	
+	
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The radius of the ball, corresponding to the extent along the axes.
+	 */
+	int radius;
+	
+	/**
+	 * The half-length (number of steps on each side) of the orthogonal lines.
+	 */
+	int axisSteps;
+	
+	/**
+	 * The half-length of the face-diagonal lines.
+	 */
+	int faceSteps;
+	
+	/**
+	 * The half-length of the body-diagonal lines.
+	 */
+	int bodySteps;
+	
+	
+	// ==================================================
+	// Constructors 
+	
+	/**
+	 * Creates a new polyhedral approximation of a ball with the specified
+	 * radius.
+	 * 
+	 * @param radius
+	 *            the radius of the ball, in voxels
+	 */
+	public PolyhedralBallStrel(int radius)
+	{
+		if (radius < 0)
+		{
+			throw new IllegalArgumentException("Requires a non-negative radius");
+		}
+		this.radius = radius;
+		
+		// Choose the lengths of diagonal lines that minimize the largest
+		// difference between the extent of the polyhedron and the radius, 
+		// for the directions of the axes, of the face diagonals, and of 
+		// the body diagonals. The extent along the axes always equals the
+		// radius.
+		double minError = Double.POSITIVE_INFINITY;
+		for (int c = 0; 4 * c <= radius; c++)
+		{
+			for (int b = 0; 4 * b + 4 * c <= radius; b++)
+			{
+				int a = radius - 4 * b - 4 * c;
+				double faceExtent = Math.sqrt(2) * (a + 3 * b + 2 * c);
+				double bodyExtent = Math.sqrt(3) * (a + 2 * b + 2 * c);
+				double error = Math.max(Math.abs(faceExtent - radius), Math.abs(bodyExtent - radius));
+				if (error < minError)
+				{
+					minError = error;
+					this.axisSteps = a;
+					this.faceSteps = b;
+					this.bodySteps = c;
+				}
+			}
+		}
+	}
+	
+	
+	// ==================================================
+	// General methods 
+	
+	/**
+	 * Returns a collection of linear structuring elements along the
+	 * orthogonal, face-diagonal and body-diagonal directions.
+	 * 
+	 * @return a collection of in place structuring elements
+	 * 
+	 * @see inra.ijpb.morphology.strel.SeparableStrel3D#decompose()
+	 */
+	@Override
+	public Collection<InPlaceStrel3D> decompose()
+	{
+		ArrayList<InPlaceStrel3D> strels = new ArrayList<InPlaceStrel3D>(13);
+		if (this.axisSteps > 0)
+		{
+			int size = 2 * this.axisSteps + 1;
+			strels.add(new LinearHorizontalStrel(size, this.axisSteps));
+			strels.add(new LinearVerticalStrel(size, this.axisSteps));
+			strels.add(new LinearDepthStrel3D(size, this.axisSteps));
+		}
+		if (this.faceSteps > 0)
+		{
+			int size = 2 * this.faceSteps + 1;
+			for (int[] dir : FACE_DIAGONALS)
+			{
+				strels.add(new LinearStrel3D(dir[0], dir[1], dir[2], size, this.faceSteps));
+			}
+		}
+		if (this.bodySteps > 0)
+		{
+			int size = 2 * this.bodySteps + 1;
+			for (int[] dir : BODY_DIAGONALS)
+			{
+				strels.add(new LinearStrel3D(dir[0], dir[1], dir[2], size, this.bodySteps));
+			}
+		}
+		return strels;
+	}
+
+	/**
+	 * Computes the mask by dilating a single voxel.
+	 * 
+	 * @see inra.ijpb.morphology.Strel3D#getMask3D()
+	 */
+	@Override
+	public int[][][] getMask3D()
+	{
+		// Create an empty image with just a white voxel in the middle
+		int size = 2 * this.radius + 1;
+		ImageStack img = ImageStack.create(size, size, size, 8);
+		img.setVoxel(this.radius, this.radius, this.radius, 255);
+		
+		// apply dilation
+		img = this.dilation(img);
+		
+		// convert to int array
+		int[][][] mask = new int[size][size][size];
+		for (int z = 0; z < size; z++)
+		{
+			for (int y = 0; y < size; y++)
+			{
+				for (int x = 0; x < size; x++)
+				{
+					mask[z][y][x] = (int) img.getVoxel(x, y, z);
+				}
+			}
+		}
+		return mask;
+	}
+
+	/* (non-Javadoc)
+	 * @see inra.ijpb.morphology.Strel3D#getOffset()
+	 */
+	@Override
+	public int[] getOffset()
+	{
+		return new int[]{this.radius, this.radius, this.radius};
+	}
+
+	/* (non-Javadoc)
+	 * @see inra.ijpb.morphology.Strel3D#getShifts3D()
+	 */
+	@Override
+	public int[][] getShifts3D()
+	{
+		return convertMaskToShifts(getMask3D());
+	}
+
+	/* (non-Javadoc)
+	 * @see inra.ijpb.morphology.Strel3D#getSize()
+	 */
+	@Override
+	public int[] getSize()
+	{
+		int size = 2 * this.radius + 1;
+		return new int[]{size, size, size};
+	}
+
+	/**
+	 * Returns this structuring element, as it is symmetric.
+	 * 
+	 * @see inra.ijpb.morphology.Strel3D#reverse()
+	 */
+	@Override
+	public PolyhedralBallStrel reverse()
+	{
+		return this;
+	}
+}
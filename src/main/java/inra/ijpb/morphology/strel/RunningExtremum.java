@@ -0,0 +1,393 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import ij.process.ImageProcessor;
+
+/**
+ * <p>
+ * Computes running minimum or maximum values along lines of pixels, using the
+ * algorithm of van Herk (1992) and Gil and Werman (1993).
+ * </p>
+ * 
+ * <p>
+ * The line is split into blocks whose length equals the length of the
+ * window. Within each block, cumulative extrema are computed in forward and
+ * backward directions, and the extremum within each window is obtained as the
+ * extremum of one backward and one forward value. The computation requires
+ * three comparisons per element, independently of the window length and of
+ * the image content, whereas the buffers used by
+ * {@link LocalExtremumBufferGray8} or {@link LocalExtremumBufferDouble} need to
+ * rescan the whole window when the current extremum leaves it.
+ * </p>
+ * 
+ * <p>
+ * Lines are processed directly on the primitive pixel arrays of the images
+ * (byte, short or float). The value at position <code>i</code> of the line is
+ * replaced by the extremum of the values at positions between
+ * <code>i-offset</code> and <code>i-offset+length-1</code>. Positions outside
+ * of the line are ignored. As the working buffers are stored within the
+ * instance, each thread must use its own instance.
+ * </p>
+ * 
+ * <p>
+ * References:
+ * <ul>
+ * <li>van Herk, M. (1992). A fast algorithm for local minimum and maximum
+ * filters on rectangular and octagonal kernels. Pattern Recognition Letters,
+ * 13(7), 517-521.</li>
+ * <li>Gil, J. and Werman, M. (1993). Computing 2-D min, median, and max
+ * filters. IEEE Transactions on Pattern Analysis and Machine Intelligence,
+ * 15(5), 504-507.</li>
+ * </ul>
+ * 
+ * @see LinearHorizontalStrel
+ * @see LinearVerticalStrel
+ * @see LinearDepthStrel3D
+ * 
+ * @author David Legland
+ *
+ */
+public class RunningExtremum
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The number of elements within the window.
+	 */
+	final int length;
+	
+	/**
+	 * The number of elements of the window located before the current
+	 * element.
+	 */
+	final int offset;
+	
+	/**
+	 * Working buffers for integer values: extended line, forward and backward
+	 * cumulative maxima.
+	 */
+	int[] intLine = new int[0], intForward = new int[0], intBackward = new int[0];
+	
+	/**
+	 * Working buffers for floating point values.
+	 */
+	float[] floatLine = new float[0], floatForward = new float[0], floatBackward = new float[0];
+	
+	
+	// ==================================================
+	// Constructor
+	
+	/**
+	 * Creates a new running extremum computer for a given window.
+	 * 
+	 * @param length
+	 *            the number of elements within the window
+	 * @param offset
+	 *            the position of the reference element within the window,
+	 *            between 0 and length-1
+	 */
+	public RunningExtremum(int length, int offset)
+	{
+		if (length < 1)
+		{
+			throw new IllegalArgumentException("Requires a positive length");
+		}
+		if (offset < 0 || offset >= length)
+		{
+			throw new IllegalArgumentException("Offset must be comprised between 0 and length-1");
+		}
+		this.length = length;
+		this.offset = offset;
+	}
+	
+	
+	// ==================================================
+	// Processing of image lines
+	
+	/**
+	 * Replaces the values along a line of the image by the running maximum
+	 * or minimum. The pixel array of the image is accessed directly for 8, 16
+	 * and 32 bits images.
+	 * 
+	 * @param image
+	 *            the image to modify
+	 * @param start
+	 *            the linear index of the first pixel of the line
+	 * @param stride
+	 *            the difference of linear indices between two consecutive
+	 *            pixels of the line
+	 * @param n
+	 *            the number of pixels of the line
+	 * @param max
+	 *            true for computing the maximum, false for the minimum
+	 */
+	public void process(ImageProcessor image, int start, int stride, int n, boolean max)
+	{
+		Object pixels = image.getPixels();
+		if (pixels instanceof byte[])
+		{
+			process((byte[]) pixels, start, stride, n, max);
+		}
+		else if (pixels instanceof short[])
+		{
+			process((short[]) pixels, start, stride, n, max);
+		}
+		else if (pixels instanceof float[])
+		{
+			process((float[]) pixels, start, stride, n, max);
+		}
+		else
+		{
+			// generic access through float values
+			float[] line = new float[n];
+			for (int i = 0, index = start; i < n; i++, index += stride)
+			{
+				line[i] = image.getf(index);
+			}
+			process(line, 0, 1, n, max);
+			for (int i = 0, index = start; i < n; i++, index += stride)
+			{
+				image.setf(index, line[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the values along a line of a byte array by the running maximum
+	 * or minimum.
+	 * 
+	 * @param array
+	 *            the array containing the values, considered as unsigned
+	 * @param start
+	 *            the index of the first element of the line
+	 * @param stride
+	 *            the difference of indices between two consecutive elements
+	 * @param n
+	 *            the number of elements of the line
+	 * @param max
+	 *            true for computing the maximum, false for the minimum
+	 */
+	public void process(byte[] array, int start, int stride, int n, boolean max)
+	{
+		// minimum is computed as the maximum of the complemented values
+		int sign = max ? 0 : 0xFF;
+		int[] line = initIntLine(n);
+		for (int i = 0, index = start; i < n; i++, index += stride)
+		{
+			line[offset + i] = (array[index] & 0xFF) ^ sign;
+		}
+		runningMaxInt(n);
+		for (int i = 0, index = start; i < n; i++, index += stride)
+		{
+			array[index] = (byte) (line[i] ^ sign);
+		}
+	}
+	
+	/**
+	 * Replaces the values along a line of a short array by the running
+	 * maximum or minimum.
+	 * 
+	 * @param array
+	 *            the array containing the values, considered as unsigned
+	 * @param start
+	 *            the index of the first element of the line
+	 * @param stride
+	 *            the difference of indices between two consecutive elements
+	 * @param n
+	 *            the number of elements of the line
+	 * @param max
+	 *            true for computing the maximum, false for the minimum
+	 */
+	public void process(short[] array, int start, int stride, int n, boolean max)
+	{
+		// minimum is computed as the maximum of the complemented values
+		int sign = max ? 0 : 0xFFFF;
+		int[] line = initIntLine(n);
+		for (int i = 0, index = start; i < n; i++, index += stride)
+		{
+			line[offset + i] = (array[index] & 0xFFFF) ^ sign;
+		}
+		runningMaxInt(n);
+		for (int i = 0, index = start; i < n; i++, index += stride)
+		{
+			array[index] = (short) (line[i] ^ sign);
+		}
+	}
+	
+	/**
+	 * Replaces the values along a line of a float array by the running
+	 * maximum or minimum.
+	 * 
+	 * @param array
+	 *            the array containing the values
+	 * @param start
+	 *            the index of the first element of the line
+	 * @param stride
+	 *            the difference of indices between two consecutive elements
+	 * @param n
+	 *            the number of elements of the line
+	 * @param max
+	 *            true for computing the maximum, false for the minimum
+	 */
+	public void process(float[] array, int start, int stride, int n, boolean max)
+	{
+		// minimum is computed as the opposite of the maximum of opposite values
+		float sign = max ? 1.0f : -1.0f;
+		float[] line = initFloatLine(n);
+		for (int i = 0, index = start; i < n; i++, index += stride)
+		{
+			line[offset + i] = array[index] * sign;
+		}
+		runningMaxFloat(n);
+		for (int i = 0, index = start; i < n; i++, index += stride)
+		{
+			array[index] = line[i] * sign;
+		}
+	}
+	
+	
+	// ==================================================
+	// Computation of running maximum
+	
+	/**
+	 * Returns the number of elements of the extended line (the line padded
+	 * before and after), rounded to a multiple of the window length.
+	 */
+	private int extendedLength(int n)
+	{
+		int m = n + length - 1;
+		return ((m + length - 1) / length) * length;
+	}
+	
+	private int[] initIntLine(int n)
+	{
+		int m = extendedLength(n);
+		if (intLine.length < m)
+		{
+			intLine = new int[m];
+			intForward = new int[m];
+			intBackward = new int[m];
+		}
+		// padding values
+		for (int i = 0; i < offset; i++)
+		{
+			intLine[i] = Integer.MIN_VALUE;
+		}
+		for (int i = offset + n; i < m; i++)
+		{
+			intLine[i] = Integer.MIN_VALUE;
+		}
+		return intLine;
+	}
+	
+	private float[] initFloatLine(int n)
+	{
+		ensureFloatCapacity(n);
+		int m = extendedLength(n);
+		for (int i = 0; i < offset; i++)
+		{
+			floatLine[i] = Float.NEGATIVE_INFINITY;
+		}
+		for (int i = offset + n; i < m; i++)
+		{
+			floatLine[i] = Float.NEGATIVE_INFINITY;
+		}
+		return floatLine;
+	}
+	
+	private void ensureFloatCapacity(int n)
+	{
+		int m = extendedLength(n);
+		if (floatLine.length < m)
+		{
+			floatLine = new float[m];
+			floatForward = new float[m];
+			floatBackward = new float[m];
+		}
+	}
+	
+	/**
+	 * Computes the running maximum of the extended integer line, and stores
+	 * the result in the first n elements of the line buffer.
+	 */
+	private void runningMaxInt(int n)
+	{
+		int m = extendedLength(n);
+		int[] line = intLine;
+		int[] fwd = intForward;
+		int[] bwd = intBackward;
+		
+		for (int b = 0; b < m; b += length)
+		{
+			int end = b + length - 1;
+			fwd[b] = line[b];
+			for (int i = b + 1; i <= end; i++)
+			{
+				fwd[i] = Math.max(fwd[i - 1], line[i]);
+			}
+			bwd[end] = line[end];
+			for (int i = end - 1; i >= b; i--)
+			{
+				bwd[i] = Math.max(bwd[i + 1], line[i]);
+			}
+		}
+		
+		for (int i = 0; i < n; i++)
+		{
+			line[i] = Math.max(bwd[i], fwd[i + length - 1]);
+		}
+	}
+	
+	/**
+	 * Computes the running maximum of the extended float line, and stores
+	 * the result in the first n elements of the line buffer.
+	 */
+	private void runningMaxFloat(int n)
+	{
+		int m = extendedLength(n);
+		float[] line = floatLine;
+		float[] fwd = floatForward;
+		float[] bwd = floatBackward;
+		
+		for (int b = 0; b < m; b += length)
+		{
+			int end = b + length - 1;
+			fwd[b] = line[b];
+			for (int i = b + 1; i <= end; i++)
+			{
+				fwd[i] = Math.max(fwd[i - 1], line[i]);
+			}
+			bwd[end] = line[end];
+			for (int i = end - 1; i >= b; i--)
+			{
+				bwd[i] = Math.max(bwd[i + 1], line[i]);
+			}
+		}
+		
+		for (int i = 0; i < n; i++)
+		{
+			line[i] = Math.max(bwd[i], fwd[i + length - 1]);
+		}
+	}
+}
@@ -38,7 +38,8 @@
  * 	{@link inra.ijpb.morphology.strel.Cross3x3Strel}...</li>
  * <li>Utility classes that manage local extremum: {@link inra.ijpb.morphology.strel.LocalExtremum}, 
  * 	{@link inra.ijpb.morphology.strel.LocalExtremumBufferGray8},
- * {@link inra.ijpb.morphology.strel.LocalExtremumBufferDouble}</li> 
+ * {@link inra.ijpb.morphology.strel.LocalExtremumBufferDouble},
+ * {@link inra.ijpb.morphology.strel.RunningExtremum}</li> 
  * </ul>
  */
 package inra.ijpb.morphology.strel;
@@ -26,6 +26,7 @@ import java.awt.geom.Point2D;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.gui.GenericDialog;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
@@ -156,6 +157,7 @@ public class AnalyzeRegions implements PlugInFilter
         {
             IJ.showStatus("Convexity");
             Convexity algo = new Convexity();
+            algo.setThreadCount(Prefs.getThreads());
             DefaultAlgoListener.monitor(algo);
             results.convexities = algo.analyzeRegions(image, labels, calib);
         }
@@ -171,6 +173,7 @@ public class AnalyzeRegions implements PlugInFilter
         {
             IJ.showStatus("Oriented Bounding Boxes");
             OrientedBoundingBox2D algo = new OrientedBoundingBox2D();
+            algo.setThreadCount(Prefs.getThreads());
             DefaultAlgoListener.monitor(algo);
             results.orientedBoxes = algo.analyzeRegions(image, labels, calib);
         }
@@ -179,6 +182,7 @@ public class AnalyzeRegions implements PlugInFilter
         {
             IJ.showStatus("Geodesic diameters");
             GeodesicDiameter algo = new GeodesicDiameter();
+            algo.setThreadCount(Prefs.getThreads());
             DefaultAlgoListener.monitor(algo);
             results.geodDiams = algo.analyzeRegions(image, labels, calib);
         }
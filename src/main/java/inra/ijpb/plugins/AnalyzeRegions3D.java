@@ -25,6 +25,7 @@ package inra.ijpb.plugins;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.Prefs;
 import ij.gui.GenericDialog;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
@@ -36,10 +37,7 @@ import inra.ijpb.geometry.Point3D;
 import inra.ijpb.geometry.Sphere;
 import inra.ijpb.label.LabelImages;
 import inra.ijpb.measure.IntrinsicVolumes3D;
-import inra.ijpb.measure.region3d.BoundingBox3D;
-import inra.ijpb.measure.region3d.Centroid3D;
-import inra.ijpb.measure.region3d.EquivalentEllipsoid;
-import inra.ijpb.measure.region3d.IntrinsicVolumesAnalyzer3D;
+import inra.ijpb.measure.region3d.FusedRegionAnalyzer3D;
 import inra.ijpb.measure.region3d.LargestInscribedBall;
 
 /**
@@ -214,9 +212,7 @@ public class AnalyzeRegions3D implements PlugIn
         }
 
         // declare arrays for results
-        int[] voxelCounts = null;
-        IntrinsicVolumesAnalyzer3D.Result[] intrinsicVolumes = null; 
-        Box3D[] boxes = null;
+        FusedRegionAnalyzer3D.Result[] features = null;
         Point3D[] centroids = null;
         Ellipsoid[] ellipsoids = null;
         double[][] elongations = null;
@@ -226,53 +222,40 @@ public class AnalyzeRegions3D implements PlugIn
         // Identifies labels within image
         int[] labels = LabelImages.findAllLabels(image);
 
-    	// compute voxel count
-    	if (computeVoxelCount)
-    	{
-    	    IJ.showStatus("Voxel Count");
-            voxelCounts = LabelImages.voxelCount(image, labels); 
-    	}
-
-    	// compute intrinsic volumes
-        if (computeVolume || computeSurface || computeEulerNumber || computeMeanBreadth || computeSphericity)
+        // compute all the features based on voxel coordinates and binary
+        // configurations within a single pass over the image
+        boolean computeIntrinsicVolumes = computeVolume || computeSurface || computeEulerNumber || computeMeanBreadth || computeSphericity;
+        if (computeVoxelCount || computeIntrinsicVolumes || computeBoundingBox || computeCentroid || computeEllipsoid)
         {
-            IJ.showStatus("Intrinsic Volumes");
+            IJ.showStatus("Region Features");
             
             long tic = System.nanoTime();
             // Create and setup computation class
-            IntrinsicVolumesAnalyzer3D algo = new IntrinsicVolumesAnalyzer3D();
+            FusedRegionAnalyzer3D algo = new FusedRegionAnalyzer3D();
+            algo.setComputeVoxelCount(computeVoxelCount);
+            algo.setComputeIntrinsicVolumes(computeIntrinsicVolumes);
+            algo.setComputeBoundingBox(computeBoundingBox);
+            algo.setComputeCentroid(computeCentroid);
+            algo.setComputeEllipsoid(computeEllipsoid);
             algo.setDirectionNumber(this.surfaceAreaDirs);
             algo.setConnectivity(this.connectivity.getValue());
+            algo.setThreadCount(Prefs.getThreads());
             DefaultAlgoListener.monitor(algo);
             
             // run analysis
-            intrinsicVolumes = algo.analyzeRegions(image, labels, calib);
+            features = algo.analyzeRegions(image, labels, calib);
             long toc = System.nanoTime();
-            IJ.log(String.format("Intrinsic volumes: %7.2f ms", (toc - tic) / 1000000.0));
+            IJ.log(String.format("Region features: %7.2f ms", (toc - tic) / 1000000.0));
         }
 
-        // compute image-aligned bounding box
-        if (computeBoundingBox)
-        {
-        	IJ.showStatus("Bounding Boxes");
-            long tic = System.nanoTime();
-            BoundingBox3D algo = new BoundingBox3D();
-        	DefaultAlgoListener.monitor(algo);
-            boxes = algo.analyzeRegions(image, labels, calib);
-            long toc = System.nanoTime();
-            IJ.log(String.format("Bounding boxes: %7.2f ms", (toc - tic) / 1000000.0));
-        }
-        
         // compute inertia ellipsoids and their elongations
         if (computeEllipsoid)
         {
-        	IJ.showStatus("Equivalent Ellipsoids");
-            long tic = System.nanoTime();
-        	EquivalentEllipsoid algo = new EquivalentEllipsoid();
-        	DefaultAlgoListener.monitor(algo);
-            ellipsoids = algo.analyzeRegions(image, labels, calib);
-            long toc = System.nanoTime();
-            IJ.log(String.format("Equivalent ellipsoids: %7.2f ms", (toc - tic) / 1000000.0));
+            ellipsoids = new Ellipsoid[labels.length];
+            for (int i = 0; i < labels.length; i++)
+            {
+                ellipsoids[i] = features[i].ellipsoid;
+            }
 
             if (computeCentroid)
             {
@@ -282,11 +265,11 @@ public class AnalyzeRegions3D implements PlugIn
         } 
         else if (computeCentroid)
         {
-            // Compute centroids if not computed from inertia ellipsoid
-            IJ.showStatus("Centroid");
-            Centroid3D algo = new Centroid3D();
-            DefaultAlgoListener.monitor(algo);
-            centroids = algo.analyzeRegions(image, labels, calib);
+            centroids = new Point3D[labels.length];
+            for (int i = 0; i < labels.length; i++)
+            {
+                centroids[i] = features[i].centroid;
+            }
         }
         
         if (computeElongations)
@@ -301,6 +284,8 @@ public class AnalyzeRegions3D implements PlugIn
         	IJ.showStatus("Inscribed Balls");
             long tic = System.nanoTime();
         	LargestInscribedBall algo = new LargestInscribedBall();
+        	algo.setCropLabels(true);
+        	algo.setThreadCount(Prefs.getThreads());
         	DefaultAlgoListener.monitor(algo);
         	inscribedBalls = algo.analyzeRegions(image, labels, calib);
             long toc = System.nanoTime();
@@ -319,27 +304,27 @@ public class AnalyzeRegions3D implements PlugIn
         	
         	// voxel count
         	if (computeVoxelCount)
-        		table.addValue("VoxelCount", voxelCounts[i]);
+        		table.addValue("VoxelCount", features[i].voxelCount);
         	
         	// geometrical quantities
         	if (computeVolume)
-        		table.addValue("Volume", intrinsicVolumes[i].volume);
+        		table.addValue("Volume", features[i].volume);
         	if (computeSurface)
-        		table.addValue("SurfaceArea", intrinsicVolumes[i].surfaceArea);
+        		table.addValue("SurfaceArea", features[i].surfaceArea);
         	if (computeMeanBreadth)
-        		table.addValue("MeanBreadth", intrinsicVolumes[i].meanBreadth);
+        		table.addValue("MeanBreadth", features[i].meanBreadth);
         	if (computeSphericity)
         	{
-                double vol =  intrinsicVolumes[i].volume;
-                double surf =  intrinsicVolumes[i].surfaceArea;
+                double vol =  features[i].volume;
+                double surf =  features[i].surfaceArea;
         		table.addValue("Sphericity", IntrinsicVolumes3D.sphericity(vol, surf));
         	}
         	if (computeEulerNumber)
-        		table.addValue("EulerNumber", intrinsicVolumes[i].eulerNumber);
+        		table.addValue("EulerNumber", features[i].eulerNumber);
 
             if (computeBoundingBox)
             {
-            	Box3D box = boxes[i];
+            	Box3D box = features[i].box;
                 table.addValue("Box.X.Min", box.getXMin());
                 table.addValue("Box.X.Max", box.getXMax());
                 table.addValue("Box.Y.Min", box.getYMin());
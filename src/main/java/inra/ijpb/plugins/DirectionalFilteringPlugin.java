@@ -23,6 +23,7 @@ package inra.ijpb.plugins;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.gui.DialogListener;
 import ij.gui.GenericDialog;
 import ij.plugin.filter.ExtendedPlugInFilter;
@@ -144,6 +145,7 @@ public class DirectionalFilteringPlugin implements ExtendedPlugInFilter, DialogL
 		IJ.log("Run directional filter");
 		
 		DirectionalFilter filter = new DirectionalFilter(this.type, this.op, this.lineLength, this.nDirections);
+		filter.setThreadCount(Prefs.getThreads());
 		DefaultAlgoListener.monitor(filter);
 		
 		this.result = filter.process(image);
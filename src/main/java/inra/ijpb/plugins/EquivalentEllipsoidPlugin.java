@@ -24,6 +24,7 @@ package inra.ijpb.plugins;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.Prefs;
 import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.plugin.PlugIn;
@@ -84,6 +85,7 @@ public class EquivalentEllipsoidPlugin implements PlugIn
         {
             // create algo instance
         	EquivalentEllipsoid algo = new EquivalentEllipsoid();
+        	algo.setThreadCount(Prefs.getThreads());
         	DefaultAlgoListener.monitor(algo);
         	
         	// compute results
@@ -23,6 +23,7 @@ package inra.ijpb.plugins;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.measure.ResultsTable;
@@ -99,6 +100,8 @@ public class GeodesicDiameter3DPlugin implements PlugIn
 		// Compute geodesic diameters, using floating-point calculations
 		long start = System.nanoTime();
 		GeodesicDiameter3D algo = new GeodesicDiameter3D(chamferMask);
+		algo.setCropLabels(true);
+		algo.setThreadCount(Prefs.getThreads());
 		DefaultAlgoListener.monitor(algo);
 		ResultsTable table = algo.computeTable(labelPlus);
 		long finalTime = System.nanoTime();
@@ -28,6 +28,7 @@ import java.util.Map;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.gui.Overlay;
@@ -106,6 +107,7 @@ public class GeodesicDiameterPlugin implements PlugIn
 		
 		// Create and configure the class for computing geodesic diameter
 		GeodesicDiameter algo = new GeodesicDiameter(chamferMask);
+		algo.setThreadCount(Prefs.getThreads());
 		algo.setComputePaths(overlayPaths || createPathRois);
 		DefaultAlgoListener.monitor(algo);
 		
@@ -32,7 +32,8 @@ import inra.ijpb.algo.DefaultAlgoListener;
 import inra.ijpb.binary.distmap.ChamferMask3D;
 import inra.ijpb.binary.distmap.ChamferMasks3D;
 import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3D;
-import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3DFloat;
+import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3DBucketQueue;
+import inra.ijpb.binary.geodesic.GeodesicDistanceTransform3DFloatHybrid;
 import inra.ijpb.color.ColorMaps;
 import inra.ijpb.data.image.Images3D;
 
@@ -164,7 +165,10 @@ public class GeodesicDistanceMap3D implements PlugIn
 
 		// Initialize calculator
 		GeodesicDistanceTransform3D algo;
-		algo = new GeodesicDistanceTransform3DFloat(chamferMask, normalize);
+		if (chamferMask.hasIntegerWeights())
+			algo = new GeodesicDistanceTransform3DBucketQueue(chamferMask, normalize);
+		else
+			algo = new GeodesicDistanceTransform3DFloatHybrid(chamferMask, normalize);
 		DefaultAlgoListener.monitor(algo);
 
 		// Compute distance on specified images
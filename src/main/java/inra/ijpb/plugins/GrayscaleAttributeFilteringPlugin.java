@@ -29,8 +29,8 @@ import ij.plugin.filter.PlugInFilterRunner;
 import ij.process.FloatProcessor;
 import ij.process.ImageProcessor;
 import inra.ijpb.algo.DefaultAlgoListener;
-import inra.ijpb.morphology.attrfilt.AreaOpeningQueue;
-import inra.ijpb.morphology.attrfilt.BoxDiagonalOpeningQueue;
+import inra.ijpb.morphology.attrfilt.AreaOpeningMaxTree;
+import inra.ijpb.morphology.attrfilt.BoxDiagonalOpeningMaxTree;
 
 import java.awt.AWTEvent;
 
@@ -236,14 +236,14 @@ public class GrayscaleAttributeFilteringPlugin implements ExtendedPlugInFilter,
 		// switch depending on attribute to use
 		if (attribute == Attribute.AREA)
 		{
-			AreaOpeningQueue algo = new AreaOpeningQueue();
+			AreaOpeningMaxTree algo = new AreaOpeningMaxTree();
 			algo.setConnectivity(this.connectivity.getValue());
 			DefaultAlgoListener.monitor(algo);
 			this.result = algo.process(image2, this.minimumValue);
 		}
 		else
 		{
-			BoxDiagonalOpeningQueue algo = new BoxDiagonalOpeningQueue();
+			BoxDiagonalOpeningMaxTree algo = new BoxDiagonalOpeningMaxTree();
 			algo.setConnectivity(this.connectivity.getValue());
 			DefaultAlgoListener.monitor(algo);
 			this.result = algo.process(image2, this.minimumValue);
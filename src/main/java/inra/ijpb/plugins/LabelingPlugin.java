@@ -26,11 +26,12 @@ import java.awt.image.ColorModel;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.gui.GenericDialog;
 import ij.plugin.PlugIn;
 import inra.ijpb.algo.DefaultAlgoListener;
 import inra.ijpb.binary.conncomp.FloodFillComponentsLabeling;
-import inra.ijpb.binary.conncomp.FloodFillComponentsLabeling3D;
+import inra.ijpb.binary.conncomp.UnionFindComponentsLabeling3D;
 import inra.ijpb.color.ColorMaps;
 import inra.ijpb.color.ColorMaps.CommonLabelMaps;
 import inra.ijpb.util.IJUtils;
@@ -97,9 +98,10 @@ public class LabelingPlugin implements PlugIn
             } 
             else
             {
-                FloodFillComponentsLabeling3D algo = new FloodFillComponentsLabeling3D(connValue, bitDepth);
+                UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(connValue, bitDepth);
+                algo.setThreadCount(Prefs.getThreads());
                 DefaultAlgoListener.monitor(algo);
-                FloodFillComponentsLabeling3D.Result res = algo.computeResult(imagePlus.getStack());
+                UnionFindComponentsLabeling3D.Result res = algo.computeResult(imagePlus.getStack());
                 resultPlus = new ImagePlus(newName, res.labelMap);
                 // uses colored colormap
                 resultPlus.getProcessor().setColorModel(cm);
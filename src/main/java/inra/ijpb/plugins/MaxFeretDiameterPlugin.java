@@ -28,6 +28,7 @@ import java.util.Map;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.gui.Overlay;
@@ -113,6 +114,7 @@ public class MaxFeretDiameterPlugin implements PlugIn
 		
 		// Compute max Feret diameters
 		MaxFeretDiameter op = new MaxFeretDiameter();
+		op.setThreadCount(Prefs.getThreads());
 		Map<Integer, PointPair2D> maxDiamsMap = op.analyzeRegions(labelPlus);
 		
 		// Display the result Table
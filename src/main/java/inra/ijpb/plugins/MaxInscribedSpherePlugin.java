@@ -24,6 +24,7 @@ package inra.ijpb.plugins;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.measure.ResultsTable;
@@ -101,6 +102,8 @@ public class MaxInscribedSpherePlugin implements PlugIn
         
 		// Execute the plugin
 		LargestInscribedBall algo = new LargestInscribedBall();
+		algo.setCropLabels(true);
+		algo.setThreadCount(Prefs.getThreads());
 		DefaultAlgoListener.monitor(algo);
 		ResultsTable table = algo.computeTable(labelImage);
         
@@ -24,6 +24,7 @@ package inra.ijpb.plugins;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.plugin.PlugIn;
@@ -78,6 +79,7 @@ public class MorphologicalFilter3DPlugin implements PlugIn
 		gd.addNumericField("Y-Radius (in voxels)", 2, 0);
 		gd.addNumericField("Z-Radius (in voxels)", 2, 0);
 		gd.addCheckbox("Show Element", false);
+		gd.addNumericField("Number of Threads", Prefs.getThreads(), 0);
 		
 		// Could also add an option for the type of operation
 		gd.showDialog();
@@ -94,10 +96,12 @@ public class MorphologicalFilter3DPlugin implements PlugIn
 		int radiusY = (int) gd.getNextNumber();		
 		int radiusZ = (int) gd.getNextNumber();		
 		boolean showStrel = gd.getNextBoolean();
+		int nThreads = (int) gd.getNextNumber();
 		
 		// Create structuring element of the given size
 		Strel3D strel = strelShape.fromRadiusList(radiusX, radiusY, radiusZ);
 		strel.showProgress(true);
+		strel.setThreadCount(nThreads);
 		DefaultAlgoListener.monitor(strel);
 		
 		// Eventually display the structuring element used for processing 
@@ -42,12 +42,10 @@ import inra.ijpb.color.ColorMaps.CommonLabelMaps;
 import inra.ijpb.data.image.ColorImages;
 import inra.ijpb.data.image.Images3D;
 import inra.ijpb.label.LabelImages;
-import inra.ijpb.morphology.MinimaAndMaxima;
-import inra.ijpb.morphology.MinimaAndMaxima3D;
 import inra.ijpb.morphology.Morphology;
 import inra.ijpb.morphology.Strel;
 import inra.ijpb.morphology.Strel3D;
-import inra.ijpb.watershed.Watershed;
+import inra.ijpb.watershed.WatershedHierarchy;
 
 import java.awt.Color;
 import java.awt.Dimension;
@@ -112,6 +110,12 @@ public class MorphologicalSegmentation implements PlugIn {
 	/** gradient image stack */
 	ImageStack gradientStack = null;
 
+	/** hierarchy of watershed basins, re-used when only the dynamic changes */
+	WatershedHierarchy hierarchy = null;
+
+	/** the parameters used to compute the watershed hierarchy */
+	String hierarchyKey = null;
+
 	/** image containing the final results of the watershed segmentation (basins with or without dams) */
 	ImagePlus resultImage = null;		
 
@@ -1136,134 +1140,62 @@ public class MorphologicalSegmentation implements PlugIn {
 							record( SET_GRADIENT_TYPE, arg );
 						}
 
-						IJ.log( "Running extended minima with dynamic value " + dynamic + "..." );
-						final long step0 = System.currentTimeMillis();				
-
-						// Run extended minima
-						final ImageStack regionalMinimaStack;
-						if( !inputIs2D ) // 3D processing
-							regionalMinimaStack = MinimaAndMaxima3D.extendedMinima( image, dynamic, connectivity );
-						else // 2D processing
-						{
-							ImageProcessor regionalMinimaProcessor =
-									MinimaAndMaxima.extendedMinima(
-											image.getProcessor(1), dynamic, connectivity );
-							regionalMinimaStack = new ImageStack(image.getWidth(), image.getHeight());
-							regionalMinimaStack.addSlice( regionalMinimaProcessor );
-						}
-
-						if( null == regionalMinimaStack )
+						// Build the watershed hierarchy, or re-use the cached
+						// one if the input of the watershed did not change
+						final String key = applyGradient + "/" + gradientList.getSelectedItem() 
+								+ "/" + gradientRadius + "/" + connectivity;
+						if( null == hierarchy || !key.equals( hierarchyKey ) )
 						{
-							IJ.log( "The segmentation was interrupted!" );
-							IJ.showStatus( "The segmentation was interrupted!" );
-							IJ.showProgress( 1.0 );
-							return;
-						}
-
-						final long step1 = System.currentTimeMillis();		
-						IJ.log( "Regional minima took " + (step1-step0) + " ms.");
+							IJ.log( "Building watershed hierarchy (connectivity = " + readConn + ")..." );
+							final long step0 = System.currentTimeMillis();
 
-						IJ.log( "Imposing regional minima on original image (connectivity = " + readConn + ")..." );
-
-						// Impose regional minima over the original image
-						final ImageStack imposedMinimaStack;
-						if( !inputIs2D ) // 3D processing
-							imposedMinimaStack = MinimaAndMaxima3D.imposeMinima(
-									image, regionalMinimaStack, connectivity );
-						else // 2D processing
-						{
-							ImageProcessor imposedMinimaProcesor =
-									MinimaAndMaxima.imposeMinima(
-											image.getProcessor(1),
-											regionalMinimaStack.getProcessor(1),
-											connectivity );
-							imposedMinimaStack = new ImageStack(image.getWidth(), image.getHeight());
-							imposedMinimaStack.addSlice( imposedMinimaProcesor );
-						}
-
-						if( null == imposedMinimaStack )
-						{
-							IJ.log( "The segmentation was interrupted!" );
-							IJ.showStatus( "The segmentation was interrupted!" );
-							IJ.showProgress( 1.0 );
-							return;
-						}
-
-						final long step2 = System.currentTimeMillis();
-						IJ.log( "Imposition took " + (step2-step1) + " ms." );
-
-						IJ.log( "Labeling regional minima..." );
+							WatershedHierarchy newHierarchy = new WatershedHierarchy( connectivity );
+							try{
+								if( !inputIs2D ) // 3D processing
+									newHierarchy.build( image );
+								else // 2D processing
+									newHierarchy.build( image.getProcessor( 1 ) );
+							}
+							catch( Exception ex )
+							{
+								ex.printStackTrace();
+								IJ.log( "Error while runing watershed: " + ex.getMessage() );
+								newHierarchy = null;
+							}
+							catch( OutOfMemoryError err )
+							{
+								err.printStackTrace();
+								IJ.log( "Error: the plugin run out of memory. Please use a smaller input image." );
+								newHierarchy = null;
+							}
+							if( null == newHierarchy )
+							{
+								IJ.log( "The segmentation was interrupted!" );
+								IJ.showStatus( "The segmentation was interrupted!" );
+								IJ.showProgress( 1.0 );
+								// set button back to initial text
+								segmentButton.setText( segmentText );
+								segmentButton.setToolTipText( segmentTip );
+								return;
+							}
+							hierarchy = newHierarchy;
+							hierarchyKey = key;
 
-						// Label regional minima
-						final ImageStack labeledMinimaStack;
-						if( !inputIs2D ) // 3D processing
-							labeledMinimaStack = BinaryImages.componentsLabeling( regionalMinimaStack, connectivity, 32 );
-						else // 2D processing
-						{
-							ImageProcessor labeledMinimaProcessor =
-									BinaryImages.componentsLabeling(
-											regionalMinimaStack.getProcessor(1),connectivity, 32 );
-							labeledMinimaStack = new ImageStack( image.getWidth(), image.getHeight() );
-							labeledMinimaStack.addSlice( labeledMinimaProcessor );
-						}
-						if( null == labeledMinimaStack )
-						{
-							IJ.log( "The segmentation was interrupted!" );
-							IJ.showStatus( "The segmentation was interrupted!" );
-							IJ.showProgress( 1.0 );
-							return;
+							final long step1 = System.currentTimeMillis();
+							IJ.log( "Watershed hierarchy with " + hierarchy.getBasinCount() 
+									+ " basins took " + (step1-step0) + " ms.");
 						}
 
+						// Extract segmentation from the hierarchy
+						IJ.log( "Extracting segmentation with dynamic value " + dynamic + "..." );
 						final long step3 = System.currentTimeMillis();
-						IJ.log( "Connected components took " + (step3-step2) + " ms." );
-
-						// Apply watershed		
-						IJ.log("Running watershed...");
-
-						ImageStack resultStack = null;
-						
-						try{
-							if( !inputIs2D ) // 3D processing
-								resultStack = Watershed.computeWatershed(
-										imposedMinimaStack, labeledMinimaStack, 
-										connectivity, calculateDams );
-							else // 2D processing
-							{
-								ImageProcessor resultProcessor =
-										Watershed.computeWatershed(
-												imposedMinimaStack.getProcessor(1),
-												labeledMinimaStack.getProcessor(1), 
-												connectivity, calculateDams );
-								resultStack = new ImageStack( image.getWidth(), image.getHeight() );
-								resultStack.addSlice( resultProcessor );
-							}
-						}
-						catch( Exception ex )
-						{							
-							ex.printStackTrace();
-							IJ.log( "Error while runing watershed: " + ex.getMessage() );							
-						}
-						catch( OutOfMemoryError err )
-						{
-							err.printStackTrace();
-							IJ.log( "Error: the plugin run out of memory. Please use a smaller input image." );
-						}
-						if( null == resultStack )
-						{
-							IJ.log( "The segmentation was interrupted!" );
-							IJ.showStatus( "The segmentation was interrupted!" );
-							IJ.showProgress( 1.0 );
-							// set button back to initial text
-							segmentButton.setText( segmentText );
-							segmentButton.setToolTipText( segmentTip );
-							return;
-						}
+						ImageStack resultStack = hierarchy.labelMap( dynamic, calculateDams );
 
 						resultImage = new ImagePlus( "watershed", resultStack );
 						resultImage.setCalibration( inputImage.getCalibration() );
 
 						final long end = System.currentTimeMillis();
-						IJ.log( "Watershed 3d took " + (end-step3) + " ms.");
+						IJ.log( "Extraction of segmentation took " + (end-step3) + " ms.");
 						IJ.log( "Whole plugin took " + (end-start) + " ms.");
 
 						// Adjust min and max values to display
@@ -28,6 +28,7 @@ import java.util.Map;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.Prefs;
 import ij.WindowManager;
 import ij.gui.GenericDialog;
 import ij.gui.Overlay;
@@ -99,6 +100,7 @@ public class OrientedBoundingBoxPlugin implements PlugIn
 
         // Execute the plugin
 		OrientedBoundingBox2D op = new OrientedBoundingBox2D();
+		op.setThreadCount(Prefs.getThreads());
 		Map<Integer, OrientedBox2D> boxes = op.analyzeRegions(labelImage);
         ResultsTable results = op.createTable(boxes);
         
@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Utility methods for processing 3D images by partitioning them into slabs of
+ * consecutive slices, and processing the slabs concurrently on a fork-join
+ * pool.
+ * 
+ * <p>
+ * Example of use:
+ * <pre><code>
+ * ParallelSlabs.process(sizeZ, 4, (z0, z1) -&gt; {
+ *     for (int z = z0; z &lt; z1; z++)
+ *     {
+ *         // process slice z
+ *     }
+ * });
+ * </code></pre>
+ * 
+ * @author David Legland
+ *
+ */
+public class ParallelSlabs
+{
+	/**
+	 * The number of slabs created for each thread, to balance work between
+	 * threads when slices do not require the same amount of computation.
+	 */
+	private static final int SLABS_PER_THREAD = 4;
+	
+	/**
+	 * Private constructor to prevent class instantiation.
+	 */
+	private ParallelSlabs()
+	{
+	}
+	
+	/**
+	 * The operation to apply on each slab.
+	 */
+	public interface SlabOperation
+	{
+		/**
+		 * Processes the slices within the specified range.
+		 * 
+		 * @param zMin
+		 *            the index of the first slice to process (inclusive)
+		 * @param zMax
+		 *            the index of the last slice to process (exclusive)
+		 */
+		public void process(int zMin, int zMax);
+	}
+	
+	/**
+	 * Applies the operation on the range of slices [0, sizeZ), by splitting it
+	 * into slabs processed on a new fork-join pool with the specified number
+	 * of threads. If the number of threads is 1 or less, the operation is
+	 * applied on the whole range within the calling thread.
+	 * 
+	 * @param sizeZ
+	 *            the number of slices to process
+	 * @param nThreads
+	 *            the number of threads to use
+	 * @param op
+	 *            the operation to apply on each slab
+	 */
+	public static final void process(int sizeZ, int nThreads, SlabOperation op)
+	{
+		if (nThreads <= 1 || sizeZ <= 1)
+		{
+			op.process(0, sizeZ);
+			return;
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(nThreads);
+		try
+		{
+			process(sizeZ, pool, op);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Applies the operation on the range of slices [0, sizeZ), by splitting it
+	 * into slabs processed on the specified fork-join pool.
+	 * 
+	 * @param sizeZ
+	 *            the number of slices to process
+	 * @param pool
+	 *            the fork-join pool used to run the operation
+	 * @param op
+	 *            the operation to apply on each slab
+	 */
+	public static final void process(int sizeZ, ForkJoinPool pool, SlabOperation op)
+	{
+		int nSlabs = Math.max(pool.getParallelism() * SLABS_PER_THREAD, 1);
+		int grain = Math.max((sizeZ + nSlabs - 1) / nSlabs, 1);
+		pool.invoke(new SlabTask(op, 0, sizeZ, grain));
+	}
+	
+	/**
+	 * Recursively splits the range of slices until its length is below the
+	 * grain size.
+	 */
+	private static final class SlabTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		final SlabOperation op;
+		final int zMin;
+		final int zMax;
+		final int grain;
+		
+		SlabTask(SlabOperation op, int zMin, int zMax, int grain)
+		{
+			this.op = op;
+			this.zMin = zMin;
+			this.zMax = zMax;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (zMax - zMin <= grain)
+			{
+				op.process(zMin, zMax);
+				return;
+			}
+			
+			int zMid = (zMin + zMax) >>> 1;
+			invokeAll(new SlabTask(op, zMin, zMid, grain), new SlabTask(op, zMid, zMax, grain));
+		}
+	}
+}
@@ -30,9 +30,14 @@ import java.util.PriorityQueue;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.process.ByteProcessor;
 import ij.process.FloatProcessor;
 import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
 import inra.ijpb.data.Cursor2D;
+import inra.ijpb.data.HierarchicalQueue;
+import inra.ijpb.data.IndexHeap;
+import inra.ijpb.data.IndexPriorityQueue;
 import inra.ijpb.data.Neighborhood2D;
 import inra.ijpb.data.Neighborhood2DC8;
 import inra.ijpb.data.Neighborhood2DC4;
@@ -1697,6 +1702,300 @@ public class MarkerControlledWatershedTransform2D extends WatershedTransform2D
 	}
 	
 	
+	/**
+	 * Apply watershed transform on inputImage, using the labeled 
+	 * markers from markerImage and restricted to the white areas 
+	 * of maskImage. This implementation follows the same flooding 
+	 * order as {@link #applyWithPriorityQueue()}, but stores the 
+	 * pixels to process as linear indices within a hierarchical 
+	 * queue (8 and 16-bit images) or a primitive heap (other cases), 
+	 * avoiding the creation of one object per flooded pixel.
+	 * 
+	 * @return watershed domains image (no dams)
+	 */
+	public ImageProcessor applyWithHierarchicalQueue()
+	{
+		final int size1 = inputImage.getWidth();
+		final int size2 = inputImage.getHeight();
+
+		final int[] labels = floodWithIndexQueue( false );
+		if ( null == labels )
+			return null;
+
+		// unreached pixels keep the INIT value, as in applyWithPriorityQueue
+		final float[] pixels = new float[ size1 * size2 ];
+		for ( int i = 0; i < pixels.length; i++ )
+			pixels[ i ] = labels[ i ];
+		
+		return new FloatProcessor( size1, size2, pixels );
+	}
+
+	/**
+	 * Apply watershed transform on inputImage, using the labeled 
+	 * markers from markerImage and restricted to the white areas 
+	 * of maskImage (optionally). This implementation follows the 
+	 * same flooding order as {@link #applyWithPriorityQueueAndDams()}, 
+	 * but stores the pixels to process as linear indices within a 
+	 * hierarchical queue (8 and 16-bit images) or a primitive heap 
+	 * (other cases), avoiding the creation of one object per flooded 
+	 * pixel.
+	 * 
+	 * @return watershed domains image (with dams)
+	 */
+	public ImageProcessor applyWithHierarchicalQueueAndDams()
+	{
+		final int size1 = inputImage.getWidth();
+		final int size2 = inputImage.getHeight();
+
+		final int[] labels = floodWithIndexQueue( true );
+		if ( null == labels )
+			return null;
+		
+		// Create result label image
+		ImageProcessor labelProcessor = markerImage.duplicate();
+		for ( int i = 0; i < size1 * size2; i++ )
+		{
+			if( labels[ i ] == INIT ) // set unlabeled pixels to WSHED
+				labelProcessor.setf( i, 0 );
+			else
+				labelProcessor.setf( i, labels[ i ] );
+		}
+		return labelProcessor;
+	}
+	
+	/**
+	 * Creates the queue used to store the pixels to flood. A hierarchical
+	 * queue is used for 8 and 16-bit images when no compactness constraint
+	 * is set, and a primitive heap otherwise.
+	 * 
+	 * @return a new empty priority queue of pixel indices
+	 */
+	private IndexPriorityQueue createIndexQueue()
+	{
+		if ( compactness == 0 )
+		{
+			if ( inputImage instanceof ByteProcessor )
+				return new HierarchicalQueue( 256 );
+			if ( inputImage instanceof ShortProcessor )
+				return new HierarchicalQueue( 65536 );
+		}
+		return new IndexHeap();
+	}
+
+	/**
+	 * Floods the input image from the markers using a priority queue of
+	 * linear pixel indices. The processing order is the same as for the
+	 * methods based on a priority queue of PixelRecord.
+	 * 
+	 * @param dams
+	 *            if true, pixels adjacent to several basins are labeled as
+	 *            WSHED
+	 * @return the array of pixel labels, in row-major order, or null if the
+	 *         process was interrupted
+	 */
+	private int[] floodWithIndexQueue( final boolean dams )
+	{
+		final int size1 = inputImage.getWidth();
+		final int size2 = inputImage.getHeight();
+
+		if (size1 != markerImage.getWidth() || size2 != markerImage.getHeight())
+		{
+			throw new IllegalArgumentException("Marker and input images must have the same size");
+		}
+
+		// Check connectivity has a correct value
+		if ( connectivity != 4 && connectivity != 8 ) 
+		{
+			throw new RuntimeException(
+					"Connectivity for 2D images must be either 4 or 8, not "
+							+ connectivity);
+		}
+
+		// neighbor shifts, in the same order as in Neighborhood2DC4/C8
+		final int[][] shifts = connectivity == 8 ?
+				new int[][] { {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1} } :
+				new int[][] { {-1, 0}, {0, -1}, {1, 0}, {0, 1} };
+		final int nNeighbors = shifts.length;
+		final int[] dx = new int[ nNeighbors ];
+		final int[] dy = new int[ nNeighbors ];
+		final double[] dists = new double[ nNeighbors ];
+		for ( int n = 0; n < nNeighbors; n++ )
+		{
+			dx[ n ] = shifts[ n ][ 0 ];
+			dy[ n ] = shifts[ n ][ 1 ];
+			dists[ n ] = Math.sqrt( (double) dx[ n ] * dx[ n ] + (double) dy[ n ] * dy[ n ] );
+		}
+		
+		// output labels
+		final int[] labels = new int[ size1 * size2 ];
+		// value INIT is assigned to each pixel of the output labels
+		if ( null == maskImage || dams )
+		{
+			Arrays.fill( labels, INIT );
+		}
+		else
+		{
+			for ( int i = 0; i < labels.length; i++ )
+				if ( maskImage.getf( i ) > 0 )
+					labels[ i ] = INIT;
+		}
+
+		// Create initial priority queue with the neighbors of seeds
+		IJ.showStatus( "Extracting pixel values..." );
+		if( verbose ) IJ.log("  Extracting pixel values..." );
+		final long t0 = System.currentTimeMillis();
+
+		final IndexPriorityQueue queue = createIndexQueue();
+		final double c = this.compactness;
+		
+		for ( int x = 0; x < size1; ++x )
+		{
+			if ( Thread.currentThread().isInterrupted() )
+				return null;
+			
+			for ( int y = 0; y < size2; ++y )
+			{
+				final int index = y * size1 + x;
+				if ( null != maskImage && maskImage.getf( index ) <= 0 )
+					continue;
+				
+				final int label = (int) markerImage.getf( index );
+				if ( label <= 0 )
+					continue;
+
+				// add unlabeled neighbors to priority queue
+				for ( int n = 0; n < nNeighbors; n++ )
+				{
+					final int u = x + dx[ n ];
+					final int v = y + dy[ n ];
+					if ( u < 0 || u >= size1 || v < 0 || v >= size2 )
+						continue;
+					
+					final int index2 = v * size1 + u;
+					if ( (int) markerImage.getf( index2 ) == 0 && labels[ index2 ] != INQUEUE )
+					{
+						if ( c == 0 )
+							queue.add( index2, inputImage.getf( index2 ) );
+						else
+							queue.add( index2, inputImage.getf( index2 ) + c * dists[ n ] );
+						labels[ index2 ] = INQUEUE;
+					}
+				}
+				labels[ index ] = label;
+			}
+		}
+
+		final long t1 = System.currentTimeMillis();		
+		if( verbose ) IJ.log("  Extraction took " + (t1-t0) + " ms.");
+
+		// Watershed
+		final long start = System.currentTimeMillis();
+
+		final int count = queue.size();
+		if( verbose )  IJ.log( "  Flooding from " + count + " pixels..." );
+		IJ.showStatus("Flooding from " + count + " pixels...");
+
+		final double maxValue = inputImage.getMax();
+		
+		// arrays to store neighbor labels and unlabeled neighbor pixels
+		final int[] neighborLabels = new int[ nNeighbors ];
+		final int[] neighborIndices = new int[ nNeighbors ];
+		final double[] neighborValues = new double[ nNeighbors ];
+		
+		double currentValue = Double.NEGATIVE_INFINITY;
+		
+		while ( queue.isEmpty() == false )
+		{
+			if ( Thread.currentThread().isInterrupted() )
+				return null;
+
+			final double value = queue.minValue();
+			final int index = queue.poll();
+			
+			// show progression along pixel values
+			if ( value > currentValue )
+			{
+				currentValue = value;
+				IJ.showProgress( (value + 1) / (maxValue + 1) );
+			}
+			
+			final int i = index % size1;
+			final int j = index / size1;
+			
+			int nLabels = 0;
+			int nPixels = 0;
+			for ( int n = 0; n < nNeighbors; n++ )
+			{
+				final int u = i + dx[ n ];
+				final int v = j + dy[ n ];
+				if ( u < 0 || u >= size1 || v < 0 || v >= size2 )
+					continue;
+				
+				final int index2 = v * size1 + u;
+				final int label2 = labels[ index2 ];
+				
+				// Unlabeled neighbors go into the queue if they are not there yet
+				if ( label2 == INIT && ( null == maskImage || maskImage.getf( index2 ) > 0 ) )
+				{
+					neighborIndices[ nPixels ] = index2;
+					if( c == 0 ) // regular watershed
+						neighborValues[ nPixels ] = inputImage.getf( index2 );
+					else // compact watershed
+					{
+						// update distance from seed
+						final double cDist2p = value - inputImage.getf( index );
+						final double cDist2cur = cDist2p + c * dists[ n ];
+						neighborValues[ nPixels ] = inputImage.getf( index2 ) + cDist2cur;
+					}
+					nPixels++;
+				}
+				else if ( label2 > 0 && !contains( neighborLabels, nLabels, label2 ) )
+				{
+					// store labels of neighbors without repetitions
+					neighborLabels[ nLabels++ ] = label2;
+				}
+			}
+			
+			// if the pixel has a labeled neighbor (or exactly one labeled 
+			// neighbor when computing dams), it is labeled with its label
+			if ( dams ? nLabels == 1 : nLabels > 0 )
+			{
+				labels[ index ] = neighborLabels[ 0 ];
+				// now that we know the pixel is labeled, add unlabeled
+				// neighbors to queue
+				for ( int n = 0; n < nPixels; n++ )
+				{
+					labels[ neighborIndices[ n ] ] = INQUEUE;
+					queue.add( neighborIndices[ n ], neighborValues[ n ] );
+				}
+			}
+			else if ( dams && nLabels > 1 )
+			{
+				labels[ index ] = WSHED;
+			}
+		}
+
+		final long end = System.currentTimeMillis();
+		if( verbose ) IJ.log("  Flooding took: " + (end-start) + " ms");
+		IJ.showStatus("");
+		IJ.showProgress( 1.0 );
+
+		return labels;
+	}
+	
+	/**
+	 * Checks if the first elements of an array contain a given value.
+	 */
+	private static final boolean contains( int[] array, int length, int value )
+	{
+		for ( int i = 0; i < length; i++ )
+		{
+			if ( array[ i ] == value )
+				return true;
+		}
+		return false;
+	}
+	
 	/**
 	 * Extract pixel values from input and seed images
 	 * 
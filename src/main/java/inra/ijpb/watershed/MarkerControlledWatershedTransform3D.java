@@ -35,6 +35,9 @@ import ij.Prefs;
 import ij.process.ImageProcessor;
 import ij.util.ThreadUtil;
 import inra.ijpb.data.Cursor3D;
+import inra.ijpb.data.HierarchicalQueue;
+import inra.ijpb.data.IndexHeap;
+import inra.ijpb.data.IndexPriorityQueue;
 import inra.ijpb.data.Neighborhood3D;
 import inra.ijpb.data.Neighborhood3DC26;
 import inra.ijpb.data.Neighborhood3DC6;
@@ -981,6 +984,371 @@ public class MarkerControlledWatershedTransform3D extends WatershedTransform3D
 	}
 	
 	
+	/**
+	 * Apply watershed transform on inputImage, using the labeled 
+	 * markers from markerImage and restricted to the white areas 
+	 * of maskImage. This implementation follows the same flooding 
+	 * order as {@link #applyWithPriorityQueue()}, but stores the 
+	 * voxels to process as linear indices within a hierarchical 
+	 * queue (8 and 16-bit images) or a primitive heap (other cases), 
+	 * avoiding the creation of one object per flooded voxel.
+	 * 
+	 * @return watershed domains image (no dams)
+	 */
+	public ImagePlus applyWithHierarchicalQueue()
+	{
+		final int[] labels = floodWithIndexQueue( false );
+		if ( null == labels )
+			return null;
+		return createResultImage( labels );
+	}
+
+	/**
+	 * Apply watershed transform on inputImage, using the labeled 
+	 * markers from markerImage and restricted to the white areas 
+	 * of maskImage (optionally). This implementation follows the 
+	 * same flooding order as {@link #applyWithPriorityQueueAndDams()}, 
+	 * but stores the voxels to process as linear indices within a 
+	 * hierarchical queue (8 and 16-bit images) or a primitive heap 
+	 * (other cases), avoiding the creation of one object per flooded 
+	 * voxel.
+	 * 
+	 * @return watershed domains image (with dams)
+	 */
+	public ImagePlus applyWithHierarchicalQueueAndDams()
+	{
+		final int[] labels = floodWithIndexQueue( true );
+		if ( null == labels )
+			return null;
+		return createResultImage( labels );
+	}
+	
+	/**
+	 * Creates the result image from the array of voxel labels, by setting
+	 * unlabeled voxels to WSHED.
+	 */
+	private ImagePlus createResultImage( final int[] labels )
+	{
+		final int size1 = inputImage.getWidth();
+		final int size2 = inputImage.getHeight();
+		final int size3 = inputImage.getStackSize();
+		final int sliceSize = size1 * size2;
+		
+		// Create result label image
+		ImageStack labelStack = markerImage.duplicate().getStack();
+		for ( int k = 0; k < size3; ++k )
+		{
+			ImageProcessor labelProcessor = labelStack.getProcessor( k+1 );
+			final int offset = k * sliceSize;
+			for ( int i = 0; i < sliceSize; ++i )
+			{
+				final int label = labels[ offset + i ];
+				if( label == INIT ) // set unlabeled voxels to WSHED
+					labelProcessor.setf( i, WSHED );
+				else
+					labelProcessor.setf( i, label );
+			}
+		}
+
+		String title = inputImage.getTitle();
+		String ext = "";
+		int index = title.lastIndexOf( "." );
+		if( index != -1 )
+		{
+			ext = title.substring( index );
+			title = title.substring( 0, index );
+		}
+
+		final ImagePlus ws = new ImagePlus( title + "-watershed" + ext, labelStack );
+		ws.setCalibration( inputImage.getCalibration() );
+		return ws;
+	}
+	
+	/**
+	 * Creates the queue used to store the voxels to flood. A hierarchical
+	 * queue is used for 8 and 16-bit images when no compactness constraint
+	 * is set, and a primitive heap otherwise.
+	 * 
+	 * @return a new empty priority queue of voxel indices
+	 */
+	private IndexPriorityQueue createIndexQueue()
+	{
+		if ( compactness == 0 )
+		{
+			if ( inputImage.getBitDepth() == 8 )
+				return new HierarchicalQueue( 256 );
+			if ( inputImage.getBitDepth() == 16 )
+				return new HierarchicalQueue( 65536 );
+		}
+		return new IndexHeap();
+	}
+
+	/**
+	 * Floods the input image from the markers using a priority queue of
+	 * linear voxel indices. The processing order is the same as for the
+	 * methods based on a priority queue of VoxelRecord.
+	 * 
+	 * @param dams
+	 *            if true, voxels adjacent to several basins are labeled as
+	 *            WSHED
+	 * @return the array of voxel labels, indexed by
+	 *         <code>x + y * sizeX + z * sizeX * sizeY</code>, or null if the
+	 *         process was interrupted
+	 */
+	private int[] floodWithIndexQueue( final boolean dams )
+	{
+		final ImageStack inputStack = inputImage.getStack();
+		final int size1 = inputStack.getWidth();
+		final int size2 = inputStack.getHeight();
+		final int size3 = inputStack.getSize();
+
+		if (size1 != markerImage.getWidth() || size2 != markerImage.getHeight()
+				|| size3 != markerImage.getStackSize())
+		{
+			throw new IllegalArgumentException("Marker and input images must have the same size");
+		}
+
+		// Check connectivity has a correct value
+		if ( connectivity != 6 && connectivity != 26 ) 
+		{
+			throw new RuntimeException(
+					"Connectivity for stacks must be either 6 or 26, not "
+							+ connectivity);
+		}
+		
+		if ( (long) size1 * size2 * size3 > Integer.MAX_VALUE )
+		{
+			throw new IllegalArgumentException(
+					"Number of voxels is too large for hierarchical queue: " 
+							+ ((long) size1 * size2 * size3) );
+		}
+		final int sliceSize = size1 * size2;
+
+		// neighbor shifts, in the same order as in Neighborhood3DC6/C26
+		final int[][] shifts;
+		if ( connectivity == 26 )
+		{
+			shifts = new int[26][];
+			int n = 0;
+			for ( int dz = -1; dz <= 1; dz++ )
+				for ( int dx = -1; dx <= 1; dx++ )
+					for ( int dy = -1; dy <= 1; dy++ )
+						if ( dx != 0 || dy != 0 || dz != 0 )
+							shifts[ n++ ] = new int[] { dx, dy, dz };
+		}
+		else
+		{
+			shifts = new int[][] { { 0, 0, -1 }, { -1, 0, 0 }, { 0, -1, 0 },
+				{ 0, 1, 0 }, { 1, 0, 0 }, { 0, 0, 1 } };
+		}
+		final int nNeighbors = shifts.length;
+		final int[] dx = new int[ nNeighbors ];
+		final int[] dy = new int[ nNeighbors ];
+		final int[] dz = new int[ nNeighbors ];
+		final double[] dists = new double[ nNeighbors ];
+		for ( int n = 0; n < nNeighbors; n++ )
+		{
+			dx[ n ] = shifts[ n ][ 0 ];
+			dy[ n ] = shifts[ n ][ 1 ];
+			dz[ n ] = shifts[ n ][ 2 ];
+			dists[ n ] = Math.sqrt( (double) dx[ n ] * dx[ n ] 
+					+ (double) dy[ n ] * dy[ n ] + (double) dz[ n ] * dz[ n ] );
+		}
+		
+		// slice processors, to access voxels using linear indices
+		final ImageStack markerStack = markerImage.getStack();
+		final ImageStack maskStack = null != maskImage ? maskImage.getStack() : null;
+		final ImageProcessor[] inputSlices = new ImageProcessor[ size3 ];
+		final ImageProcessor[] markerSlices = new ImageProcessor[ size3 ];
+		final ImageProcessor[] maskSlices = new ImageProcessor[ size3 ];
+		for ( int k = 0; k < size3; k++ )
+		{
+			inputSlices[ k ] = inputStack.getProcessor( k+1 );
+			markerSlices[ k ] = markerStack.getProcessor( k+1 );
+			if ( null != maskStack )
+				maskSlices[ k ] = maskStack.getProcessor( k+1 );
+		}
+		
+		// output labels, with value INIT assigned to each voxel
+		final int[] labels = new int[ sliceSize * size3 ];
+		Arrays.fill( labels, INIT );
+
+		// Extract voxels to process
+		IJ.showStatus( "Extracting voxel values..." );
+		if( verbose ) IJ.log("  Extracting voxel values..." );
+		final long t0 = System.currentTimeMillis();
+		if( verbose ) IJ.log("  Using "+connectivity+"-connectivity..." );
+
+		final IndexPriorityQueue queue = createIndexQueue();
+		final double c = this.compactness;
+		
+		for ( int z = 0; z < size3; ++z )
+		{
+			IJ.showProgress( z+1, size3 );
+			if ( Thread.currentThread().isInterrupted() )
+			{
+				IJ.showProgress( 1.0 );
+				return null;
+			}
+			
+			final ImageProcessor ipSeed = markerSlices[ z ];
+			final ImageProcessor ipMask = maskSlices[ z ];
+
+			for ( int x = 0; x < size1; ++x )
+			{
+				for ( int y = 0; y < size2; ++y )
+				{
+					final int index2d = y * size1 + x;
+					if ( null != ipMask && ipMask.getf( index2d ) <= 0 )
+						continue;
+
+					final int label = (int) ipSeed.getf( index2d );
+					if ( label <= 0 )
+						continue;
+
+					// add unlabeled neighbors to priority queue
+					for ( int n = 0; n < nNeighbors; n++ )
+					{
+						final int u = x + dx[ n ];
+						final int v = y + dy[ n ];
+						final int w = z + dz[ n ];
+						if ( u < 0 || u >= size1 || v < 0 || v >= size2 || w < 0 || w >= size3 )
+							continue;
+
+						final int neighIndex2d = v * size1 + u;
+						final int neighIndex = w * sliceSize + neighIndex2d;
+						if ( (int) markerSlices[ w ].getf( neighIndex2d ) == 0 
+								&& labels[ neighIndex ] != INQUEUE )
+						{
+							if ( c == 0 )
+								queue.add( neighIndex, inputSlices[ w ].getf( neighIndex2d ) );
+							else
+								queue.add( neighIndex, inputSlices[ w ].getf( neighIndex2d ) + c * dists[ n ] );
+							labels[ neighIndex ] = INQUEUE;
+						}
+					}
+					labels[ z * sliceSize + index2d ] = label;
+				}
+			}
+		}
+		IJ.showProgress( 1.0 );
+
+		final long t1 = System.currentTimeMillis();		
+		if( verbose ) IJ.log("  Extraction took " + (t1-t0) + " ms.");
+
+		// Watershed
+		final long start = System.currentTimeMillis();
+
+		final int count = queue.size();
+		if( verbose ) IJ.log( "  Flooding from " + count + " voxels..." );
+		IJ.showStatus("Flooding from " + count + " voxels...");
+
+		final double[] extent = Images3D.findMinAndMax( inputImage );
+		final double maxValue = extent[ 1 ];
+
+		// arrays to store neighbor labels and unlabeled neighbor voxels
+		final int[] neighborLabels = new int[ nNeighbors ];
+		final int[] neighborIndices = new int[ nNeighbors ];
+		final double[] neighborValues = new double[ nNeighbors ];
+		
+		double currentValue = Double.NEGATIVE_INFINITY;
+		
+		while ( queue.isEmpty() == false )
+		{
+			if ( Thread.currentThread().isInterrupted() )
+				return null;
+
+			final double value = queue.minValue();
+			final int index = queue.poll();
+
+			// show progression along voxel values
+			if ( value > currentValue )
+			{
+				currentValue = value;
+				IJ.showProgress( (value + 1) / (maxValue + 1) );
+			}
+
+			final int k = index / sliceSize;
+			final int index2d = index - k * sliceSize;
+			final int i = index2d % size1;
+			final int j = index2d / size1;
+			
+			int nLabels = 0;
+			int nVoxels = 0;
+			for ( int n = 0; n < nNeighbors; n++ )
+			{
+				final int u = i + dx[ n ];
+				final int v = j + dy[ n ];
+				final int w = k + dz[ n ];
+				if ( u < 0 || u >= size1 || v < 0 || v >= size2 || w < 0 || w >= size3 )
+					continue;
+
+				final int neighIndex2d = v * size1 + u;
+				final int neighIndex = w * sliceSize + neighIndex2d;
+				final int label2 = labels[ neighIndex ];
+
+				// Unlabeled neighbors go into the queue if they are not there yet
+				if ( label2 == INIT && ( null == maskStack || maskSlices[ w ].getf( neighIndex2d ) > 0 ) )
+				{
+					neighborIndices[ nVoxels ] = neighIndex;
+					if( c == 0 ) // regular watershed
+						neighborValues[ nVoxels ] = inputSlices[ w ].getf( neighIndex2d );
+					else // compact watershed
+					{
+						// update distance from seed
+						final double cDist2p = value - inputSlices[ k ].getf( index2d );
+						final double cDist2cur = cDist2p + c * dists[ n ];
+						neighborValues[ nVoxels ] = inputSlices[ w ].getf( neighIndex2d ) + cDist2cur;
+					}
+					nVoxels++;
+				}
+				else if ( label2 > 0 && !contains( neighborLabels, nLabels, label2 ) )
+				{
+					// store labels of neighbors without repetitions
+					neighborLabels[ nLabels++ ] = label2;
+				}
+			}
+
+			// if the voxel has a labeled neighbor (or exactly one labeled 
+			// neighbor when computing dams), it is labeled with its label
+			if ( dams ? nLabels == 1 : nLabels > 0 )
+			{
+				labels[ index ] = neighborLabels[ 0 ];
+				// now that we know the voxel is labeled, add unlabeled
+				// neighbors to queue
+				for ( int n = 0; n < nVoxels; n++ )
+				{
+					labels[ neighborIndices[ n ] ] = INQUEUE;
+					queue.add( neighborIndices[ n ], neighborValues[ n ] );
+				}
+			}
+			else if ( dams && nLabels > 1 )
+			{
+				labels[ index ] = WSHED;
+			}
+		}
+
+		final long end = System.currentTimeMillis();
+		if( verbose ) IJ.log("  Flooding took: " + (end-start) + " ms");
+		IJ.showStatus("");
+		IJ.showProgress( 1.0 );
+
+		return labels;
+	}
+
+	/**
+	 * Checks if the first elements of an array contain a given value.
+	 */
+	private static final boolean contains( int[] array, int length, int value )
+	{
+		for ( int i = 0; i < length; i++ )
+		{
+			if ( array[ i ] == value )
+				return true;
+		}
+		return false;
+	}
+	
 	/**
 	 * Extract voxel values from input and seed images
 	 * 
@@ -0,0 +1,626 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.watershed;
+
+import java.util.Arrays;
+
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import inra.ijpb.algo.AlgoStub;
+import inra.ijpb.binary.BinaryImages;
+import inra.ijpb.morphology.MinimaAndMaxima;
+import inra.ijpb.morphology.MinimaAndMaxima3D;
+
+/**
+ * <p>
+ * Hierarchical watershed based on the dynamics of the regional minima.
+ * </p>
+ * 
+ * <p>
+ * The hierarchy is built once from a grayscale image: the image is first
+ * partitioned into the catchment basins of all its regional minima, then the
+ * basins are merged along the minimum spanning tree of their adjacency graph
+ * (weighted by the altitude of the pass between basins), in increasing order
+ * of pass altitude. Each time two components merge, the component with the
+ * highest minimum disappears, and its dynamic is the difference between the
+ * altitude of the pass and its minimum.
+ * </p>
+ * 
+ * <p>
+ * The segmentation for a given tolerance (dynamic) is then obtained by
+ * merging the basins whose dynamic is lower than or equal to the tolerance,
+ * in linear time with respect to the number of voxels. The resulting regions
+ * correspond to the extended minima of the image for the same tolerance, as
+ * used by the {@link ExtendedMinimaWatershed} class. As regions are unions of
+ * the initial catchment basins, their boundaries may slightly differ from the
+ * ones obtained by recomputing the watershed from the extended minima.
+ * </p>
+ * 
+ * Example of use:
+ * <pre><code>
+ *  WatershedHierarchy hierarchy = new WatershedHierarchy(6);
+ *  hierarchy.build(image);
+ *  // extract segmentations for several tolerance values
+ *  ImageStack basins10 = hierarchy.labelMap(10, true);
+ *  ImageStack basins20 = hierarchy.labelMap(20, true);
+ * </code></pre>
+ * 
+ * @see ExtendedMinimaWatershed
+ * @see Watershed
+ * 
+ * @author David Legland
+ */
+public class WatershedHierarchy extends AlgoStub
+{
+	// ==================================================
+	// Class variables
+	
+	/**
+	 * The connectivity used for computing minima and basins, either 4 or 8
+	 * for planar images, and 6 or 26 for 3D images.
+	 */
+	int connectivity;
+	
+	/** The size of the image in each direction */
+	int sizeX, sizeY, sizeZ;
+	
+	/**
+	 * The index of the initial basin of each voxel, or -1 for voxels that do
+	 * not belong to any basin.
+	 */
+	int[] basinMap = null;
+	
+	/** The number of initial basins */
+	int nBasins;
+	
+	/** The dynamic of each initial basin */
+	double[] dynamics;
+	
+	/** The number of merge events */
+	int nMerges;
+	
+	/** For each merge event, the index of the basin that disappears */
+	int[] mergedBasins;
+	
+	/** For each merge event, the index of the basin that absorbs the other */
+	int[] targetBasins;
+	
+	
+	// ==================================================
+	// Constructor
+	
+	/**
+	 * Creates a new hierarchical watershed algorithm.
+	 * 
+	 * @param connectivity
+	 *            the connectivity to use, either 4 or 8 for planar images, and
+	 *            6 or 26 for 3D images
+	 */
+	public WatershedHierarchy(int connectivity)
+	{
+		if (connectivity != 4 && connectivity != 8 && connectivity != 6 && connectivity != 26)
+		{
+			throw new IllegalArgumentException("Connectivity must be either 4, 8, 6 or 26, not " + connectivity);
+		}
+		this.connectivity = connectivity;
+	}
+	
+	
+	// ==================================================
+	// Construction of the hierarchy
+	
+	/**
+	 * Builds the hierarchy of a planar grayscale image.
+	 * 
+	 * @param image
+	 *            the image to segment, usually a gradient image
+	 */
+	public void build(ImageProcessor image)
+	{
+		if (connectivity != 4 && connectivity != 8)
+		{
+			throw new IllegalArgumentException("Connectivity for planar images must be either 4 or 8, not " + connectivity);
+		}
+		
+		fireStatusChanged(this, "Compute regional minima");
+		ImageProcessor minima = MinimaAndMaxima.regionalMinima(image, connectivity);
+		ImageProcessor labels = BinaryImages.componentsLabeling(minima, connectivity, 32);
+		
+		fireStatusChanged(this, "Compute catchment basins");
+		ImageProcessor basins = Watershed.computeWatershed(image, labels, connectivity, false);
+		if (basins == null)
+		{
+			throw new RuntimeException("Computation of catchment basins was interrupted");
+		}
+		
+		ImageStack imageStack = new ImageStack(image.getWidth(), image.getHeight());
+		imageStack.addSlice(image);
+		ImageStack basinStack = new ImageStack(image.getWidth(), image.getHeight());
+		basinStack.addSlice(basins);
+		buildTree(imageStack, basinStack);
+	}
+	
+	/**
+	 * Builds the hierarchy of a 3D grayscale image.
+	 * 
+	 * @param image
+	 *            the image to segment, usually a gradient image
+	 */
+	public void build(ImageStack image)
+	{
+		if (connectivity != 6 && connectivity != 26)
+		{
+			throw new IllegalArgumentException("Connectivity for 3D images must be either 6 or 26, not " + connectivity);
+		}
+		
+		fireStatusChanged(this, "Compute regional minima");
+		ImageStack minima = MinimaAndMaxima3D.regionalMinima(image, connectivity);
+		ImageStack labels = BinaryImages.componentsLabeling(minima, connectivity, 32);
+		
+		fireStatusChanged(this, "Compute catchment basins");
+		ImageStack basins = Watershed.computeWatershed(image, labels, connectivity, false);
+		if (basins == null)
+		{
+			throw new RuntimeException("Computation of catchment basins was interrupted");
+		}
+		
+		buildTree(image, basins);
+	}
+	
+	/**
+	 * Computes the adjacency graph of the basins, the altitude of the pass
+	 * between adjacent basins, and the merge events along the minimum
+	 * spanning tree.
+	 */
+	private void buildTree(ImageStack image, ImageStack basins)
+	{
+		this.sizeX = image.getWidth();
+		this.sizeY = image.getHeight();
+		this.sizeZ = image.getSize();
+		int[][] offsets = forwardOffsets();
+		
+		// convert basin image into array of basin indices, and compute
+		// the minimum value within each basin
+		fireStatusChanged(this, "Compute basin minima");
+		this.basinMap = new int[sizeX * sizeY * sizeZ];
+		int maxLabel = 0;
+		for (int z = 0, i = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++, i++)
+				{
+					int label = (int) basins.getVoxel(x, y, z);
+					basinMap[i] = label - 1;
+					maxLabel = Math.max(maxLabel, label);
+				}
+			}
+		}
+		this.nBasins = maxLabel;
+		double[] minValues = new double[nBasins];
+		Arrays.fill(minValues, Double.POSITIVE_INFINITY);
+		
+		// compute pass altitude between adjacent basins, as the minimum over
+		// the pairs of adjacent voxels of the maximum of their values
+		fireStatusChanged(this, "Compute pass values");
+		LongDoubleMinMap passValues = new LongDoubleMinMap(nBasins * 4 + 16);
+		for (int z = 0, i = 0; z < sizeZ; z++)
+		{
+			fireProgressChanged(this, z, sizeZ);
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++, i++)
+				{
+					int basin = basinMap[i];
+					if (basin < 0)
+						continue;
+					double value = image.getVoxel(x, y, z);
+					minValues[basin] = Math.min(minValues[basin], value);
+					
+					for (int[] offset : offsets)
+					{
+						int x2 = x + offset[0];
+						int y2 = y + offset[1];
+						int z2 = z + offset[2];
+						if (x2 < 0 || x2 >= sizeX || y2 < 0 || y2 >= sizeY || z2 >= sizeZ)
+							continue;
+						
+						int basin2 = basinMap[(z2 * sizeY + y2) * sizeX + x2];
+						if (basin2 < 0 || basin2 == basin)
+							continue;
+						
+						double pass = Math.max(value, image.getVoxel(x2, y2, z2));
+						passValues.putMin(Math.min(basin, basin2), Math.max(basin, basin2), pass);
+					}
+				}
+			}
+		}
+		fireProgressChanged(this, 1, 1);
+		
+		// sort edges of the adjacency graph by increasing pass altitude
+		fireStatusChanged(this, "Compute dynamics");
+		Edge[] edges = passValues.toEdges();
+		Arrays.sort(edges);
+		
+		// Kruskal algorithm: merge components along minimum spanning tree,
+		// keeping track of the basin with lowest minimum of each component
+		this.dynamics = new double[nBasins];
+		Arrays.fill(dynamics, Double.POSITIVE_INFINITY);
+		this.mergedBasins = new int[Math.max(nBasins - 1, 0)];
+		this.targetBasins = new int[Math.max(nBasins - 1, 0)];
+		this.nMerges = 0;
+		int[] parents = new int[nBasins];
+		for (int b = 0; b < nBasins; b++)
+		{
+			parents[b] = b;
+		}
+		
+		for (Edge edge : edges)
+		{
+			// the roots of union-find are the basins with lowest minimum
+			int root1 = find(parents, edge.basin1);
+			int root2 = find(parents, edge.basin2);
+			if (root1 == root2)
+				continue;
+			
+			// identify the component that disappears 
+			int merged = root1, target = root2;
+			if (minValues[root1] < minValues[root2] 
+					|| (minValues[root1] == minValues[root2] && root1 < root2))
+			{
+				merged = root2;
+				target = root1;
+			}
+			
+			dynamics[merged] = edge.pass - minValues[merged];
+			mergedBasins[nMerges] = merged;
+			targetBasins[nMerges] = target;
+			nMerges++;
+			parents[merged] = target;
+		}
+	}
+	
+	/**
+	 * Returns the offsets of the neighbors located after the current voxel
+	 * in raster order, for the current connectivity.
+	 */
+	private int[][] forwardOffsets()
+	{
+		switch (connectivity)
+		{
+		case 4:
+			return new int[][] {{1, 0, 0}, {0, 1, 0}};
+		case 8:
+			return new int[][] {{1, 0, 0}, {-1, 1, 0}, {0, 1, 0}, {1, 1, 0}};
+		case 6:
+			return new int[][] {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+		default:
+			int[][] offsets = new int[13][];
+			int k = 0;
+			for (int dz = 0; dz <= 1; dz++)
+			{
+				for (int dy = -1; dy <= 1; dy++)
+				{
+					for (int dx = -1; dx <= 1; dx++)
+					{
+						if (dz == 0 && (dy < 0 || (dy == 0 && dx <= 0)))
+							continue;
+						offsets[k++] = new int[] {dx, dy, dz};
+					}
+				}
+			}
+			return offsets;
+		}
+	}
+	
+	private static final int find(int[] parents, int index)
+	{
+		int root = index;
+		while (parents[root] != root)
+		{
+			root = parents[root];
+		}
+		// path compression
+		while (parents[index] != root)
+		{
+			int next = parents[index];
+			parents[index] = root;
+			index = next;
+		}
+		return root;
+	}
+	
+	
+	// ==================================================
+	// Extraction of segmentations
+	
+	/**
+	 * @return the number of catchment basins of the finest segmentation,
+	 *         corresponding to the number of regional minima of the image.
+	 */
+	public int getBasinCount()
+	{
+		checkBuilt();
+		return nBasins;
+	}
+	
+	/**
+	 * Returns the dynamic of each initial basin. The basin containing the
+	 * global minimum of each connected component of the image has an
+	 * infinite dynamic.
+	 * 
+	 * @return the dynamic of each initial basin
+	 */
+	public double[] getDynamics()
+	{
+		checkBuilt();
+		return Arrays.copyOf(dynamics, nBasins);
+	}
+	
+	/**
+	 * Computes the number of regions obtained for the specified tolerance.
+	 * 
+	 * @param dynamic
+	 *            the tolerance, corresponding to the maximum dynamic of the
+	 *            merged basins
+	 * @return the number of regions obtained for the specified tolerance
+	 */
+	public int regionCount(double dynamic)
+	{
+		checkBuilt();
+		int count = nBasins;
+		for (int k = 0; k < nMerges; k++)
+		{
+			if (dynamics[mergedBasins[k]] <= dynamic)
+			{
+				count--;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Computes the segmentation corresponding to the specified tolerance,
+	 * by merging the basins whose dynamic is lower than or equal to the
+	 * tolerance.
+	 * 
+	 * @param dynamic
+	 *            the tolerance, corresponding to the maximum dynamic of the
+	 *            merged basins
+	 * @param dams
+	 *            if true, one voxel thick boundaries between regions are
+	 *            set to zero
+	 * @return a new 32-bits label image, with the same size as the image used
+	 *         to build the hierarchy
+	 */
+	public ImageStack labelMap(double dynamic, boolean dams)
+	{
+		checkBuilt();
+		
+		// merge basins with small dynamic
+		int[] parents = new int[nBasins];
+		for (int b = 0; b < nBasins; b++)
+		{
+			parents[b] = b;
+		}
+		for (int k = 0; k < nMerges; k++)
+		{
+			int merged = mergedBasins[k];
+			if (dynamics[merged] <= dynamic)
+			{
+				parents[find(parents, merged)] = find(parents, targetBasins[k]);
+			}
+		}
+		
+		// assign consecutive labels to regions, in the order of initial basins
+		int[] basinLabels = new int[nBasins];
+		int[] rootLabels = new int[nBasins];
+		int nLabels = 0;
+		for (int b = 0; b < nBasins; b++)
+		{
+			int root = find(parents, b);
+			if (rootLabels[root] == 0)
+			{
+				rootLabels[root] = ++nLabels;
+			}
+			basinLabels[b] = rootLabels[root];
+		}
+		
+		// create result image
+		ImageStack result = ImageStack.create(sizeX, sizeY, sizeZ, 32);
+		int[][] offsets = dams ? neighborOffsets() : new int[0][];
+		for (int z = 0, i = 0; z < sizeZ; z++)
+		{
+			float[] pixels = (float[]) result.getPixels(z + 1);
+			for (int y = 0, j = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++, i++, j++)
+				{
+					int basin = basinMap[i];
+					if (basin < 0)
+						continue;
+					int label = basinLabels[basin];
+					
+					// voxels adjacent to a region with larger label become dams
+					for (int[] offset : offsets)
+					{
+						int x2 = x + offset[0];
+						int y2 = y + offset[1];
+						int z2 = z + offset[2];
+						if (x2 < 0 || x2 >= sizeX || y2 < 0 || y2 >= sizeY || z2 < 0 || z2 >= sizeZ)
+							continue;
+						int basin2 = basinMap[(z2 * sizeY + y2) * sizeX + x2];
+						if (basin2 >= 0 && basinLabels[basin2] > label)
+						{
+							label = 0;
+							break;
+						}
+					}
+					pixels[j] = label;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the offsets of all the neighbors of a voxel, for the current
+	 * connectivity.
+	 */
+	private int[][] neighborOffsets()
+	{
+		int[][] forward = forwardOffsets();
+		int[][] offsets = new int[forward.length * 2][];
+		for (int k = 0; k < forward.length; k++)
+		{
+			offsets[2 * k] = forward[k];
+			offsets[2 * k + 1] = new int[] {-forward[k][0], -forward[k][1], -forward[k][2]};
+		}
+		return offsets;
+	}
+	
+	private void checkBuilt()
+	{
+		if (basinMap == null)
+		{
+			throw new IllegalStateException("The hierarchy must be built before being used");
+		}
+	}
+	
+	
+	// ==================================================
+	// Inner classes
+	
+	/**
+	 * An edge of the basin adjacency graph, weighted by the altitude of the
+	 * pass between the two basins.
+	 */
+	private static final class Edge implements Comparable<Edge>
+	{
+		final int basin1;
+		final int basin2;
+		final double pass;
+		
+		Edge(int basin1, int basin2, double pass)
+		{
+			this.basin1 = basin1;
+			this.basin2 = basin2;
+			this.pass = pass;
+		}
+		
+		@Override
+		public int compareTo(Edge that)
+		{
+			return Double.compare(this.pass, that.pass);
+		}
+	}
+	
+	/**
+	 * An open-addressing hash map from pairs of basin indices to the minimum
+	 * of the values associated to the pair, avoiding the boxing of keys and
+	 * values for each pair of adjacent voxels.
+	 */
+	private static final class LongDoubleMinMap
+	{
+		static final long EMPTY = -1L;
+		
+		long[] keys;
+		double[] values;
+		int size = 0;
+		
+		LongDoubleMinMap(int capacity)
+		{
+			int n = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+			keys = new long[n];
+			values = new double[n];
+			Arrays.fill(keys, EMPTY);
+		}
+		
+		void putMin(int basin1, int basin2, double value)
+		{
+			long key = ((long) basin1 << 32) | basin2;
+			int mask = keys.length - 1;
+			int pos = hash(key) & mask;
+			while (keys[pos] != EMPTY)
+			{
+				if (keys[pos] == key)
+				{
+					if (value < values[pos])
+					{
+						values[pos] = value;
+					}
+					return;
+				}
+				pos = (pos + 1) & mask;
+			}
+			keys[pos] = key;
+			values[pos] = value;
+			if (++size * 2 > keys.length)
+			{
+				rehash();
+			}
+		}
+		
+		private void rehash()
+		{
+			long[] oldKeys = keys;
+			double[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new double[oldKeys.length * 2];
+			Arrays.fill(keys, EMPTY);
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++)
+			{
+				if (oldKeys[i] == EMPTY)
+					continue;
+				int pos = hash(oldKeys[i]) & mask;
+				while (keys[pos] != EMPTY)
+				{
+					pos = (pos + 1) & mask;
+				}
+				keys[pos] = oldKeys[i];
+				values[pos] = oldValues[i];
+			}
+		}
+		
+		private static final int hash(long key)
+		{
+			key *= 0x9E3779B97F4A7C15L;
+			return (int) (key ^ (key >>> 32));
+		}
+		
+		Edge[] toEdges()
+		{
+			Edge[] edges = new Edge[size];
+			int k = 0;
+			for (int i = 0; i < keys.length; i++)
+			{
+				if (keys[i] != EMPTY)
+				{
+					edges[k++] = new Edge((int) (keys[i] >>> 32), (int) keys[i], values[i]);
+				}
+			}
+			return edges;
+		}
+	}
+}
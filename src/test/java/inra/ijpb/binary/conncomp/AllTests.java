@@ -30,6 +30,7 @@ import org.junit.runners.Suite;
 	// generic classes
 	FloodFillComponentsLabelingTest.class, 
 	FloodFillComponentsLabeling3DTest.class, 
+	UnionFindComponentsLabeling3DTest.class, 
 	})
 public class AllTests {
   //nothing
@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.conncomp;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomBinaryStack;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+
+public class UnionFindComponentsLabeling3DTest
+{
+    /**
+     * Default settings are 6 connectivity, 16 bits image.
+     */
+    @Test
+    public void testComputeLabels_Default()
+    {
+        ImageStack image = createNineCubesImage();
+        
+        UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D();
+        ImageStack result = algo.computeLabels(image);
+        
+        assertEquals(16, result.getBitDepth());
+        assertEquals(9, result.getVoxel(7, 7, 7), .1);
+    }
+    
+    /**
+     * Using 26 connectivity should result in one connected component, also
+     * when cubes are split into several slabs.
+     */
+    @Test
+    public void testComputeLabels_C26_Byte_Threads()
+    {
+        ImageStack image = createNineCubesImage();
+        
+        UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(26, 8);
+        algo.setThreadCount(4);
+        UnionFindComponentsLabeling3D.Result res = algo.computeResult(image);
+        
+        assertEquals(8, res.labelMap.getBitDepth());
+        assertEquals(1, res.nLabels);
+        assertEquals(1, res.labelMap.getVoxel(7, 7, 7), .1);
+    }
+    
+    /**
+     * Compares with the results of flood-fill labeling on random images, for
+     * both connectivities and several bit depths.
+     */
+    @Test
+    public void testComputeLabels_SameAsFloodFill()
+    {
+        ImageStack image = createRandomBinaryStack(30, 25, 40, 0.45);
+        
+        for (int conn : new int[] {6, 26})
+        {
+            for (int bitDepth : new int[] {16, 32})
+            {
+                FloodFillComponentsLabeling3D.Result exp = new FloodFillComponentsLabeling3D(conn, bitDepth).computeResult(image);
+                for (int nThreads : new int[] {1, 3, 8})
+                {
+                    UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(conn, bitDepth);
+                    algo.setThreadCount(nThreads);
+                    UnionFindComponentsLabeling3D.Result res = algo.computeResult(image);
+                    
+                    assertEquals(bitDepth, res.labelMap.getBitDepth());
+                    assertEquals(exp.nLabels, res.nLabels);
+                    assertSameContent(exp.labelMap, res.labelMap);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Two touching regions with different non zero values should result in two
+     * labels, as for flood-fill labeling.
+     */
+    @Test
+    public void testComputeLabels_TouchingDifferentValues()
+    {
+        ImageStack image = ImageStack.create(4, 1, 1, 8);
+        image.setVoxel(0, 0, 0, 255);
+        image.setVoxel(1, 0, 0, 255);
+        image.setVoxel(2, 0, 0, 128);
+        image.setVoxel(3, 0, 0, 128);
+        
+        UnionFindComponentsLabeling3D.Result res = new UnionFindComponentsLabeling3D().computeResult(image);
+        
+        assertEquals(2, res.nLabels);
+        assertEquals(1, res.labelMap.getVoxel(1, 0, 0), .1);
+        assertEquals(2, res.labelMap.getVoxel(2, 0, 0), .1);
+    }
+    
+    /**
+     * Compares with the results of flood-fill labeling on random images with
+     * several non zero values, also when regions touch across slab boundaries.
+     */
+    @Test
+    public void testComputeLabels_MultiValues_SameAsFloodFill()
+    {
+        ImageStack image = createRandomBinaryStack(20, 15, 24, 0.7);
+        Random random = new Random(42);
+        for (int z = 0; z < 24; z++)
+        {
+            for (int y = 0; y < 15; y++)
+            {
+                for (int x = 0; x < 20; x++)
+                {
+                    if (image.getVoxel(x, y, z) > 0 && random.nextBoolean())
+                    {
+                        image.setVoxel(x, y, z, 128);
+                    }
+                }
+            }
+        }
+        
+        for (int conn : new int[] {6, 26})
+        {
+            FloodFillComponentsLabeling3D.Result exp = new FloodFillComponentsLabeling3D(conn, 16).computeResult(image);
+            for (int nThreads : new int[] {1, 3, 8})
+            {
+                UnionFindComponentsLabeling3D algo = new UnionFindComponentsLabeling3D(conn, 16);
+                algo.setThreadCount(nThreads);
+                UnionFindComponentsLabeling3D.Result res = algo.computeResult(image);
+                
+                assertEquals(exp.nLabels, res.nLabels);
+                assertSameContent(exp.labelMap, res.labelMap);
+            }
+        }
+    }
+    
+    /**
+     * Checks that an exception is thrown when the number of labels exceeds the
+     * capacity of the output type.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testComputeLabels_TooManyLabels()
+    {
+        // isolated voxels in a 8-bit output
+        ImageStack image = ImageStack.create(40, 40, 1, 8);
+        for (int y = 0; y < 40; y += 2)
+        {
+            for (int x = 0; x < 40; x += 2)
+            {
+                image.setVoxel(x, y, 0, 255);
+            }
+        }
+        new UnionFindComponentsLabeling3D(6, 8).computeLabels(image);
+    }
+    
+    /**
+     * Create a 10-by-10-by-10 byte stack containing nine cubes that touch by
+     * their corners. The value within each cube is 255.
+     * 
+     * @return an image containing nine cubes touching by corners
+     */
+    private final static ImageStack createNineCubesImage()
+    {
+        ImageStack image = ImageStack.create(10, 10, 10, 8);
+        for (int z = 0; z < 2; z++)
+        {
+            for (int y = 0; y < 2; y++)
+            {
+                for (int x = 0; x < 2; x++)
+                {
+                    image.setVoxel(x + 2, y + 2, z + 2, 255);
+                    image.setVoxel(x + 2, y + 6, z + 2, 255);
+                    image.setVoxel(x + 6, y + 2, z + 2, 255);
+                    image.setVoxel(x + 6, y + 6, z + 2, 255);
+                    image.setVoxel(x + 4, y + 4, z + 4, 255);
+                    image.setVoxel(x + 2, y + 2, z + 6, 255);
+                    image.setVoxel(x + 2, y + 6, z + 6, 255);
+                    image.setVoxel(x + 6, y + 2, z + 6, 255);
+                    image.setVoxel(x + 6, y + 6, z + 6, 255);
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -35,7 +35,9 @@ import org.junit.runners.Suite;
 		ChamferMask3DW3FloatTest.class, 
 		ChamferMask3DW4Test.class, 
 		ChamferMask3DW5Test.class, 
-		ChamferMask3DW6Test.class, })
+		ChamferMask3DW6Test.class, 
+		EuclideanDistanceTransform2DFloatTest.class, 
+		EuclideanDistanceTransform3DFloatTest.class, })
 public class AllTests
 {
 	  //nothing
@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.distmap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+
+/**
+ * @author dlegland
+ *
+ */
+public class EuclideanDistanceTransform2DFloatTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.binary.distmap.EuclideanDistanceTransform2DFloat#distanceMap(ij.process.ImageProcessor)}.
+	 */
+	@Test
+	public final void testDistanceMap_Square()
+	{
+		ImageProcessor image = new ByteProcessor(11, 11);
+		for (int y = 1; y < 10; y++)
+		{
+			for (int x = 1; x < 10; x++)
+			{
+				image.set(x, y, 255);
+			}
+		}
+		
+		EuclideanDistanceTransform2DFloat algo = new EuclideanDistanceTransform2DFloat();
+		ImageProcessor result = algo.distanceMap(image);
+		
+		assertEquals(0, result.getf(0, 0), 0.01);
+		assertEquals(1, result.getf(1, 1), 0.01);
+		assertEquals(3, result.getf(3, 5), 0.01);
+		assertEquals(5, result.getf(5, 5), 0.01);
+	}
+
+	/**
+	 * Compares squared distances with a brute-force computation, using an
+	 * anisotropic spacing and several threads.
+	 */
+	@Test
+	public final void testSquaredDistanceMap_BruteForce()
+	{
+		int sizeX = 40, sizeY = 30;
+		ImageProcessor image = new ByteProcessor(sizeX, sizeY);
+		Random random = new Random(42);
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				if (random.nextDouble() > 0.02)
+				{
+					image.set(x, y, 255);
+				}
+			}
+		}
+		
+		double[] spacing = new double[] {1.5, 0.5};
+		EuclideanDistanceTransform2DFloat algo = new EuclideanDistanceTransform2DFloat(spacing);
+		algo.setThreadCount(3);
+		double[] dist2 = algo.squaredDistanceMap(image);
+		
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				double exp = Double.POSITIVE_INFINITY;
+				for (int y2 = 0; y2 < sizeY; y2++)
+				{
+					for (int x2 = 0; x2 < sizeX; x2++)
+					{
+						if (image.get(x2, y2) != 0) continue;
+						double dx = (x2 - x) * spacing[0];
+						double dy = (y2 - y) * spacing[1];
+						exp = Math.min(exp, dx * dx + dy * dy);
+					}
+				}
+				assertEquals(exp, dist2[y * sizeX + x], 1e-10);
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.distmap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+
+/**
+ * @author dlegland
+ *
+ */
+public class EuclideanDistanceTransform3DFloatTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.binary.distmap.EuclideanDistanceTransform3DFloat#distanceMap(ij.ImageStack)}.
+	 */
+	@Test
+	public final void testDistanceMap_Cube()
+	{
+		ImageStack image = ImageStack.create(11, 11, 11, 8);
+		for (int z = 1; z < 10; z++)
+		{
+			for (int y = 1; y < 10; y++)
+			{
+				for (int x = 1; x < 10; x++)
+				{
+					image.setVoxel(x, y, z, 255);
+				}
+			}
+		}
+		
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat();
+		ImageStack result = algo.distanceMap(image);
+		
+		assertEquals(32, result.getBitDepth());
+		assertEquals(0, result.getVoxel(0, 0, 0), 0.01);
+		assertEquals(1, result.getVoxel(1, 1, 1), 0.01);
+		assertEquals(3, result.getVoxel(3, 5, 5), 0.01);
+		assertEquals(5, result.getVoxel(5, 5, 5), 0.01);
+	}
+
+	/**
+	 * Compares squared distances with a brute-force computation, using an
+	 * anisotropic spacing and several threads.
+	 */
+	@Test
+	public final void testSquaredDistanceMap_BruteForce()
+	{
+		int sizeX = 14, sizeY = 12, sizeZ = 10;
+		ImageStack image = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		Random random = new Random(42);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					if (random.nextDouble() > 0.05)
+					{
+						image.setVoxel(x, y, z, 255);
+					}
+				}
+			}
+		}
+		
+		double[] spacing = new double[] {1.0, 2.0, 3.0};
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat(spacing);
+		algo.setThreadCount(3);
+		double[][] dist2 = algo.squaredDistanceMap(image);
+		
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					double exp = Double.POSITIVE_INFINITY;
+					for (int z2 = 0; z2 < sizeZ; z2++)
+					{
+						for (int y2 = 0; y2 < sizeY; y2++)
+						{
+							for (int x2 = 0; x2 < sizeX; x2++)
+							{
+								if (image.getVoxel(x2, y2, z2) != 0) continue;
+								double dx = (x2 - x) * spacing[0];
+								double dy = (y2 - y) * spacing[1];
+								double dz = (z2 - z) * spacing[2];
+								exp = Math.min(exp, dx * dx + dy * dy + dz * dz);
+							}
+						}
+					}
+					assertEquals(exp, dist2[z][y * sizeX + x], 1e-10);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks that an infinite spacing prevents propagation along the z axis.
+	 */
+	@Test
+	public final void testSquaredDistanceMap_InfiniteSpacing()
+	{
+		ImageStack image = ImageStack.create(5, 5, 3, 8);
+		for (int y = 0; y < 5; y++)
+		{
+			for (int x = 0; x < 5; x++)
+			{
+				image.setVoxel(x, y, 1, 255);
+				image.setVoxel(x, y, 2, 255);
+			}
+		}
+		image.setVoxel(2, 2, 2, 0);
+		
+		double[] spacing = new double[] {1.0, 1.0, Double.POSITIVE_INFINITY};
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat(spacing);
+		double[][] dist2 = algo.squaredDistanceMap(image);
+		
+		assertEquals(Double.POSITIVE_INFINITY, dist2[1][2 * 5 + 2], 0.0);
+		assertEquals(8.0, dist2[2][0], 0.0);
+	}
+}
@@ -28,6 +28,8 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	// generic classes
+	GeodesicDistanceTransform3DBucketQueueTest.class,
+	GeodesicDistanceTransform3DFloatHybridTest.class,
 	GeodesicDistanceTransformFloatTest.class,
 	GeodesicDistanceTransformShortTest.class,
 })
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.binary.geodesic;
+
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import inra.ijpb.binary.distmap.ChamferMask3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class GeodesicDistanceTransform3DFloatHybridTest
+{
+	/**
+	 * Creates a 3D cube.
+	 * Computes geodesic distance map between two extreme corners.
+	 */
+	@Test
+	public void testGeodesicDistanceMap_Cube_ChessBoard()
+	{
+		ImageStack mask = ImageStack.create(12, 12, 12, 8);
+		for (int z = 1; z < 11; z++)
+			for (int y = 1; y < 11; y++)
+				for (int x = 1; x < 11; x++)
+					mask.setVoxel(x, y, z, 255);
+		ImageStack marker = ImageStack.create(12, 12, 12, 8);
+		marker.setVoxel(1, 1, 1, 255);
+
+		GeodesicDistanceTransform3D gdt = new GeodesicDistanceTransform3DFloatHybrid(ChamferMask3D.CHESSBOARD, false);
+		ImageStack distMap = gdt.geodesicDistanceMap(marker, mask);
+		
+		assertEquals(9, distMap.getVoxel(10, 10, 10), .1);
+		assertTrue(Double.isNaN(distMap.getVoxel(0, 0, 0)));
+	}
+	
+	/**
+	 * Computes geodesic distance within a random porous label image, and
+	 * compares with the result of the iterative algorithm.
+	 */
+	@Test
+	public void testGeodesicDistanceMap_RandomLabels_CompareIterative()
+	{
+		// random porous structure, split into two labels along the x direction
+		ImageStack labels = createRandomStack(30, 25, 20, 8, new Random(42),
+				(r, x, y, z) -> r.nextDouble() < 0.65 ? (x < 15 ? 1 : 2) : 0);
+		ImageStack markers = ImageStack.create(30, 25, 20, 8);
+		markers.setVoxel(2, 2, 2, 255);
+		markers.setVoxel(27, 22, 17, 255);
+		markers.setVoxel(15, 12, 10, 255);
+		
+		for (ChamferMask3D chamferMask : new ChamferMask3D[] {ChamferMask3D.BORGEFORS, ChamferMask3D.SVENSSON_3_4_5_7, ChamferMask3D.QUASI_EUCLIDEAN})
+		{
+			ImageStack exp = new GeodesicDistanceTransform3DFloat(chamferMask, true).geodesicDistanceMap(markers, labels);
+			ImageStack res = new GeodesicDistanceTransform3DFloatHybrid(chamferMask, true).geodesicDistanceMap(markers, labels);
+			
+			for (int z = 0; z < 20; z++)
+			{
+				for (int y = 0; y < 25; y++)
+				{
+					for (int x = 0; x < 30; x++)
+					{
+						double v0 = exp.getVoxel(x, y, z);
+						double v = res.getVoxel(x, y, z);
+						if (Double.isNaN(v0))
+							assertTrue(Double.isNaN(v));
+						else
+							assertEquals(v0, v, Math.max(1e-4, v0 * 1e-6));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Ignacio Arganda-Carreras
+ *
+ */
+public class HierarchicalQueueTest
+{
+	/**
+	 * Checks that elements are returned by increasing level, and in insertion
+	 * order within the same level.
+	 */
+	@Test
+	public final void testPoll()
+	{
+		HierarchicalQueue queue = new HierarchicalQueue(256);
+		queue.add(10, 5);
+		queue.add(11, 3);
+		queue.add(12, 5);
+		queue.add(13, 3);
+		
+		assertEquals(4, queue.size());
+		assertEquals(3, queue.minValue(), 0);
+		assertEquals(11, queue.poll());
+		assertEquals(13, queue.poll());
+		
+		// add an element with lower priority during processing
+		queue.add(14, 2);
+		assertEquals(14, queue.poll());
+		assertEquals(10, queue.poll());
+		assertEquals(12, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Checks that the order is preserved when buffers grow.
+	 */
+	@Test
+	public final void testPoll_ManyElements()
+	{
+		HierarchicalQueue queue = new HierarchicalQueue(4);
+		for (int i = 0; i < 100; i++)
+		{
+			queue.add(i, i % 4);
+			// consume some elements to make the circular buffers wrap
+			if (i % 7 == 6)
+				queue.poll();
+		}
+		
+		int previousLevel = 0;
+		int previousIndex = -1;
+		while (!queue.isEmpty())
+		{
+			int level = (int) queue.minValue();
+			int index = queue.poll();
+			assertEquals(level, index % 4);
+			assertTrue(level >= previousLevel);
+			if (level == previousLevel)
+				assertTrue(index > previousIndex);
+			previousLevel = level;
+			previousIndex = index;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author dlegland
+ *
+ */
+public class IndexDequeTest
+{
+	/**
+	 * Checks that elements are returned in the same order as with an
+	 * ArrayDeque, when mixing queue and stack operations and growing the
+	 * buffer while it wraps around.
+	 */
+	@Test
+	public final void testPoll_SameOrderAsArrayDeque()
+	{
+		IndexDeque deque = new IndexDeque(4);
+		ArrayDeque<Long> ref = new ArrayDeque<Long>();
+		
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++)
+		{
+			int op = random.nextInt(5);
+			if (op < 3 || ref.isEmpty())
+			{
+				long value = random.nextLong();
+				deque.addLast(value);
+				ref.addLast(value);
+			}
+			else if (op == 3)
+			{
+				assertEquals(ref.pollFirst().longValue(), deque.pollFirst());
+			}
+			else
+			{
+				assertEquals(ref.pollLast().longValue(), deque.pollLast());
+			}
+			assertEquals(ref.size(), deque.size());
+		}
+		
+		while (!ref.isEmpty())
+		{
+			assertEquals(ref.pollFirst().longValue(), deque.pollFirst());
+		}
+		assertTrue(deque.isEmpty());
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.IndexDeque#addAll(IndexDeque)}.
+	 */
+	@Test
+	public final void testAddAll()
+	{
+		IndexDeque deque1 = new IndexDeque(2);
+		deque1.addLast(1);
+		deque1.addLast(2);
+		IndexDeque deque2 = new IndexDeque(2);
+		deque2.addLast(3);
+		deque2.addLast(4);
+		deque2.addLast(5);
+		
+		deque1.addAll(deque2);
+		
+		assertEquals(5, deque1.size());
+		for (int i = 1; i <= 5; i++)
+		{
+			assertEquals(i, deque1.pollFirst());
+		}
+	}
+
+	/**
+	 * Test method for {@link inra.ijpb.data.IndexDeque#pack(int, int)}.
+	 */
+	@Test
+	public final void testPackUnpack()
+	{
+		long key = IndexDeque.pack(123456, 7890123);
+		assertEquals(123456, IndexDeque.unpackX(key));
+		assertEquals(7890123, IndexDeque.unpackY(key));
+		
+		key = IndexDeque.pack(Integer.MAX_VALUE, 0);
+		assertEquals(Integer.MAX_VALUE, IndexDeque.unpackX(key));
+		assertEquals(0, IndexDeque.unpackY(key));
+	}
+}
@@ -0,0 +1,68 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Ignacio Arganda-Carreras
+ *
+ */
+public class IndexHeapTest
+{
+	/**
+	 * Checks that elements are returned in the same order as with a priority
+	 * queue of PixelRecord.
+	 */
+	@Test
+	public final void testPoll_SameOrderAsPixelRecord()
+	{
+		IndexHeap heap = new IndexHeap(4);
+		PriorityQueue<PixelRecord> queue = new PriorityQueue<PixelRecord>();
+		
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++)
+		{
+			double value = random.nextInt(20) * 0.5;
+			heap.add(i, value);
+			queue.add(new PixelRecord(i, 0, value));
+			
+			if (i % 3 == 2)
+			{
+				assertEquals(queue.peek().getValue(), heap.minValue(), 0);
+				assertEquals(queue.poll().getCursor().getX(), heap.poll());
+			}
+		}
+		
+		while (!queue.isEmpty())
+		{
+			assertEquals(queue.poll().getCursor().getX(), heap.poll());
+		}
+		assertTrue(heap.isEmpty());
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data.image;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import inra.ijpb.morphology.Strel3D;
+import inra.ijpb.morphology.strel.CubeStrel;
+import inra.ijpb.morphology.strel.LinearDepthStrel3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class BlockProcessor3DTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.data.image.BlockProcessor3D#footprintMargin(inra.ijpb.morphology.Strel3D)}.
+	 */
+	@Test
+	public final void testFootprintMargin()
+	{
+		int[] margin = BlockProcessor3D.footprintMargin(CubeStrel.fromRadius(2));
+		assertEquals(2, margin[0]);
+		assertEquals(2, margin[1]);
+		assertEquals(2, margin[2]);
+		
+		margin = BlockProcessor3D.footprintMargin(LinearDepthStrel3D.fromDiameter(4));
+		assertEquals(0, margin[0]);
+		assertEquals(0, margin[1]);
+		assertEquals(2, margin[2]);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.BlockProcessor3D#process(ij.ImageStack, java.util.function.UnaryOperator)}.
+	 */
+	@Test
+	public final void testProcess_Dilation()
+	{
+		ImageStack image = createRandomStack(37, 29, 23, 8);
+		Strel3D strel = CubeStrel.fromRadius(2);
+		ImageStack expected = strel.dilation(image);
+		
+		BlockProcessor3D algo = new BlockProcessor3D(new int[] {10, 8, 7}, BlockProcessor3D.footprintMargin(strel));
+		ImageStack result = algo.process(image, block -> strel.dilation(block));
+		
+		assertSameContent(expected, result);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.BlockProcessor3D#process(ij.ImageStack, java.util.function.UnaryOperator)}.
+	 */
+	@Test
+	public final void testProcess_Closing_MultiThread()
+	{
+		ImageStack image = createRandomStack(31, 27, 25, 16);
+		Strel3D strel = CubeStrel.fromRadius(1);
+		ImageStack expected = strel.closing(image);
+		
+		int[] margin = BlockProcessor3D.footprintMargin(strel);
+		for (int d = 0; d < 3; d++)
+		{
+			margin[d] *= 2;
+		}
+		BlockProcessor3D algo = new BlockProcessor3D(new int[] {8, 8, 8}, margin);
+		algo.setThreadCount(3);
+		ImageStack result = algo.process(image, block -> strel.closing(block));
+		
+		assertSameContent(expected, result);
+	}
+	
+	/**
+	 * Processes an image stored in a raw file, and stores the result in
+	 * another raw file.
+	 * 
+	 * @throws IOException
+	 *             if temporary files can not be created
+	 */
+	@Test
+	public final void testProcess_MappedFiles() throws IOException
+	{
+		int sizeX = 25, sizeY = 20, sizeZ = 15;
+		ImageStack image = createRandomStack(sizeX, sizeY, sizeZ, 8);
+		Strel3D strel = CubeStrel.fromRadius(1);
+		ImageStack expected = strel.erosion(image);
+		
+		File sourceFile = File.createTempFile("blocks_source", ".raw");
+		File targetFile = File.createTempFile("blocks_target", ".raw");
+		sourceFile.deleteOnExit();
+		targetFile.deleteOnExit();
+		
+		// write the source file
+		try (MappedRawImage3D source = MappedRawImage3D.create(sourceFile, sizeX, sizeY, sizeZ, 8, true))
+		{
+			for (int z = 0; z < sizeZ; z++)
+			{
+				for (int y = 0; y < sizeY; y++)
+				{
+					for (int x = 0; x < sizeX; x++)
+					{
+						source.setValue(x, y, z, image.getVoxel(x, y, z));
+					}
+				}
+			}
+		}
+		
+		try (MappedRawImage3D source = MappedRawImage3D.open(sourceFile, sizeX, sizeY, sizeZ, 8, true);
+				MappedRawImage3D target = MappedRawImage3D.create(targetFile, sizeX, sizeY, sizeZ, 8, true))
+		{
+			BlockProcessor3D algo = new BlockProcessor3D(new int[] {8, 8, 8}, BlockProcessor3D.footprintMargin(strel));
+			algo.setThreadCount(2);
+			algo.process(source, target, 8, block -> strel.erosion(block));
+			
+			for (int z = 0; z < sizeZ; z++)
+			{
+				for (int y = 0; y < sizeY; y++)
+				{
+					for (int x = 0; x < sizeX; x++)
+					{
+						assertEquals(expected.getVoxel(x, y, z), target.getValue(x, y, z), 0.0);
+					}
+				}
+			}
+		}
+	}
+}
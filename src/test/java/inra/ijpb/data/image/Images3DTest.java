@@ -69,5 +69,104 @@ public class Images3DTest
 		assertEquals(155, (int) image.getVoxel(5, 5, 5));
 		assertEquals(  0, (int) image.getVoxel(6, 6, 6));
 	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.Images3D#readInts(Object, int, int[], int)}.
+	 */
+	@Test
+	public final void testReadInts_AllTypes()
+	{
+		for (int bitDepth : new int[] {8, 16, 24, 32})
+		{
+			ImageStack image = ImageStack.create(10, 8, 6, bitDepth);
+			image.setVoxel(2, 3, 4, 200);
+			image.setVoxel(9, 3, 4, 7);
+			
+			int[] row = Images3D.readInts(image.getPixels(5), 3 * 10, new int[10], 10);
+			
+			assertEquals(200, row[2]);
+			assertEquals(7, row[9]);
+			assertEquals(0, row[0]);
+		}
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.Images3D#writeInts(int[], Object, int, int)}.
+	 */
+	@Test
+	public final void testWriteInts_ClampsByteValues()
+	{
+		ImageStack image = ImageStack.create(4, 3, 2, 8);
+		int[] row = new int[] {-5, 12, 255, 1000};
+		
+		Images3D.writeInts(row, image.getPixels(2), 4, 4);
+		
+		assertEquals(  0, (int) image.getVoxel(0, 1, 1));
+		assertEquals( 12, (int) image.getVoxel(1, 1, 1));
+		assertEquals(255, (int) image.getVoxel(2, 1, 1));
+		assertEquals(255, (int) image.getVoxel(3, 1, 1));
+		assertEquals(  0, (int) image.getVoxel(3, 0, 1));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.Images3D#readInts(Object, int, int[], int)}
+	 * and {@link inra.ijpb.data.image.Images3D#writeInts(int[], Object, int, int)}
+	 * on RGB stacks, using the 24 lower bits.
+	 */
+	@Test
+	public final void testReadWriteInts_RGB()
+	{
+		ImageStack image = ImageStack.create(4, 3, 2, 24);
+		int[] pixels = (int[]) image.getPixels(1);
+		pixels[5] = 0xFF000000 | 300;
+		
+		int[] row = Images3D.readInts(pixels, 4, new int[4], 4);
+		assertEquals(300, row[1]);
+		
+		row[2] = -3;
+		row[3] = 0x7FFFFFFF;
+		Images3D.writeInts(row, image.getPixels(2), 4, 4);
+		assertEquals(300, (int) image.getVoxel(1, 1, 1));
+		assertEquals(  0, (int) image.getVoxel(2, 1, 1));
+		assertEquals(0xFFFFFF, (int) image.getVoxel(3, 1, 1));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.Images3D#readFloats(Object, int, float[], int)}
+	 * and {@link inra.ijpb.data.image.Images3D#writeFloats(float[], Object, int, int)}.
+	 */
+	@Test
+	public final void testReadWriteFloats_Short()
+	{
+		ImageStack image = ImageStack.create(5, 4, 3, 16);
+		image.setVoxel(1, 2, 0, 40000);
+		
+		float[] row = Images3D.readFloats(image.getPixels(1), 2 * 5, new float[5], 5);
+		assertEquals(40000, row[1], .01);
+		
+		row[3] = 12.6f;
+		Images3D.writeFloats(row, image.getPixels(3), 2 * 5, 5);
+		assertEquals(40000, (int) image.getVoxel(1, 2, 2));
+		assertEquals(13, (int) image.getVoxel(3, 2, 2));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.data.image.Image3D#getValueAt(int, int)}.
+	 */
+	@Test
+	public final void testGetValueAt_Wrappers()
+	{
+		for (int bitDepth : new int[] {8, 16, 32})
+		{
+			ImageStack image = ImageStack.create(10, 8, 6, bitDepth);
+			image.setVoxel(2, 3, 4, 200);
+			Image3D wrapper = Images3D.createWrapper(image);
+			
+			assertEquals(200, wrapper.getValueAt(3 * 10 + 2, 4), .01);
+			
+			wrapper.setValueAt(7 * 10 + 9, 5, 12);
+			assertEquals(12, image.getVoxel(9, 7, 5), .01);
+		}
+	}
 
 }
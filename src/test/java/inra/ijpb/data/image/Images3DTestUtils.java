@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data.image;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import ij.ImageStack;
+
+/**
+ * Utility methods shared by the tests of 3D operators, for creating random
+ * images and comparing the content of two images.
+ * 
+ * @author dlegland
+ *
+ */
+public class Images3DTestUtils
+{
+	/**
+	 * Computes the value of a voxel from a random generator and the voxel
+	 * position.
+	 */
+	public interface VoxelGenerator
+	{
+		/**
+		 * @param random
+		 *            the random generator
+		 * @param x
+		 *            the x-coordinate of the voxel
+		 * @param y
+		 *            the y-coordinate of the voxel
+		 * @param z
+		 *            the z-coordinate of the voxel
+		 * @return the value of the voxel
+		 */
+		public double value(Random random, int x, int y, int z);
+	}
+	
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private Images3DTestUtils()
+	{
+	}
+	
+	/**
+	 * Creates a new image by computing the value of each voxel in raster
+	 * order from the specified random generator.
+	 * 
+	 * @param sizeX
+	 *            the size of the image in the x direction
+	 * @param sizeY
+	 *            the size of the image in the y direction
+	 * @param sizeZ
+	 *            the size of the image in the z direction
+	 * @param bitDepth
+	 *            the bit depth of the image
+	 * @param random
+	 *            the random generator
+	 * @param generator
+	 *            the function that computes the value of each voxel
+	 * @return a new random image
+	 */
+	public static final ImageStack createRandomStack(int sizeX, int sizeY, int sizeZ, int bitDepth, Random random, VoxelGenerator generator)
+	{
+		ImageStack image = ImageStack.create(sizeX, sizeY, sizeZ, bitDepth);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					image.setVoxel(x, y, z, generator.value(random, x, y, z));
+				}
+			}
+		}
+		return image;
+	}
+	
+	/**
+	 * Creates a new image with integer values uniformly distributed between
+	 * 0 and 255, using a generator initialized with seed 42.
+	 * 
+	 * @param sizeX
+	 *            the size of the image in the x direction
+	 * @param sizeY
+	 *            the size of the image in the y direction
+	 * @param sizeZ
+	 *            the size of the image in the z direction
+	 * @param bitDepth
+	 *            the bit depth of the image
+	 * @return a new random image
+	 */
+	public static final ImageStack createRandomStack(int sizeX, int sizeY, int sizeZ, int bitDepth)
+	{
+		return createRandomStack(sizeX, sizeY, sizeZ, bitDepth, new Random(42), (r, x, y, z) -> r.nextInt(256));
+	}
+	
+	/**
+	 * Creates a new 8-bits binary image, where each voxel equals 255 with the
+	 * specified probability, using a generator initialized with seed 42.
+	 * 
+	 * @param sizeX
+	 *            the size of the image in the x direction
+	 * @param sizeY
+	 *            the size of the image in the y direction
+	 * @param sizeZ
+	 *            the size of the image in the z direction
+	 * @param density
+	 *            the probability for a voxel to be foreground
+	 * @return a new random binary image
+	 */
+	public static final ImageStack createRandomBinaryStack(int sizeX, int sizeY, int sizeZ, double density)
+	{
+		return createRandomStack(sizeX, sizeY, sizeZ, 8, new Random(42), (r, x, y, z) -> r.nextDouble() < density ? 255 : 0);
+	}
+	
+	/**
+	 * Checks that two images have the same size and the same voxel values.
+	 * 
+	 * @param expected
+	 *            the expected image
+	 * @param actual
+	 *            the image to check
+	 */
+	public static final void assertSameContent(ImageStack expected, ImageStack actual)
+	{
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.getSize(), actual.getSize());
+		for (int z = 0; z < expected.getSize(); z++)
+		{
+			for (int y = 0; y < expected.getHeight(); y++)
+			{
+				for (int x = 0; x < expected.getWidth(); x++)
+				{
+					assertEquals(expected.getVoxel(x, y, z), actual.getVoxel(x, y, z), 0.0);
+				}
+			}
+		}
+	}
+}
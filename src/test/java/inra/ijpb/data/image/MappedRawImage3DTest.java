@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.data.image;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+
+/**
+ * @author dlegland
+ *
+ */
+public class MappedRawImage3DTest
+{
+	/**
+	 * Writes 16-bits values into a new file, and reads them back.
+	 * 
+	 * @throws IOException
+	 *             if temporary file can not be created
+	 */
+	@Test
+	public final void testCreateAndOpen_Short() throws IOException
+	{
+		File file = File.createTempFile("mapped", ".raw");
+		file.deleteOnExit();
+		
+		int sizeX = 7, sizeY = 6, sizeZ = 5;
+		try (MappedRawImage3D image = MappedRawImage3D.create(file, sizeX, sizeY, sizeZ, 16, false))
+		{
+			assertEquals(sizeX, image.getSize(0));
+			assertEquals(sizeY, image.getSize(1));
+			assertEquals(sizeZ, image.getSize(2));
+			image.set(1, 2, 3, 1000);
+			image.setValue(6, 5, 4, 70000);
+			image.setValue(0, 0, 0, -5);
+			image.setValue(2, 2, 2, 99.5);
+		}
+		assertEquals(sizeX * sizeY * sizeZ * 2, file.length());
+		
+		try (MappedRawImage3D image = MappedRawImage3D.open(file, sizeX, sizeY, sizeZ, 16, false))
+		{
+			assertEquals(1000, image.get(1, 2, 3));
+			assertEquals(65535, image.get(6, 5, 4));
+			assertEquals(0, image.get(0, 0, 0));
+			assertEquals(100, image.get(2, 2, 2));
+			assertEquals(0, image.get(3, 3, 3));
+		}
+		
+		// check byte order of stored values
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.BIG_ENDIAN);
+		assertEquals(1000, buffer.getShort(((3 * sizeY + 2) * sizeX + 1) * 2));
+	}
+	
+	/**
+	 * Fractional values written into 8-bits images are clamped and rounded,
+	 * as for the in-memory stack wrappers.
+	 * 
+	 * @throws IOException
+	 *             if temporary file can not be created
+	 */
+	@Test
+	public final void testSetValue_Byte_Rounds() throws IOException
+	{
+		File file = File.createTempFile("mapped", ".raw");
+		file.deleteOnExit();
+		
+		ImageStack stack = ImageStack.create(4, 3, 2, 8);
+		Image3D wrapper = new ByteStackWrapper(stack);
+		try (MappedRawImage3D image = MappedRawImage3D.create(file, 4, 3, 2, 8, false))
+		{
+			double[] values = new double[] {12.7, 12.2, 254.6, 300.5, -0.7};
+			for (int i = 0; i < values.length; i++)
+			{
+				image.setValue(i % 4, i / 4, 1, values[i]);
+				wrapper.setValue(i % 4, i / 4, 1, values[i]);
+			}
+			
+			assertEquals(13, image.get(0, 0, 1));
+			assertEquals(12, image.get(1, 0, 1));
+			assertEquals(255, image.get(2, 0, 1));
+			assertEquals(255, image.get(3, 0, 1));
+			assertEquals(0, image.get(0, 1, 1));
+			for (int i = 0; i < values.length; i++)
+			{
+				assertEquals(wrapper.get(i % 4, i / 4, 1), image.get(i % 4, i / 4, 1));
+			}
+		}
+	}
+	
+	/**
+	 * Writes floating point values into a new file, and reads them back.
+	 * 
+	 * @throws IOException
+	 *             if temporary file can not be created
+	 */
+	@Test
+	public final void testCreateAndOpen_Float() throws IOException
+	{
+		File file = File.createTempFile("mapped", ".raw");
+		file.deleteOnExit();
+		
+		try (MappedRawImage3D image = MappedRawImage3D.create(file, 4, 3, 2, 32, true))
+		{
+			image.setValue(3, 2, 1, 2.5);
+			image.setValue(0, 1, 0, -1.25);
+		}
+		
+		try (MappedRawImage3D image = MappedRawImage3D.open(file, 4, 3, 2, 32, true))
+		{
+			assertEquals(2.5, image.getValue(3, 2, 1), 0.0);
+			assertEquals(-1.25, image.getValue(0, 1, 0), 0.0);
+			assertEquals(2, image.get(3, 2, 1));
+		}
+	}
+	
+	/**
+	 * Opening a file smaller than the image should throw an exception.
+	 * 
+	 * @throws IOException
+	 *             if temporary file can not be created
+	 */
+	@Test(expected = IOException.class)
+	public final void testOpen_FileTooSmall() throws IOException
+	{
+		File file = File.createTempFile("mapped", ".raw");
+		file.deleteOnExit();
+		MappedRawImage3D.open(file, 10, 10, 10, 8, true).close();
+	}
+}
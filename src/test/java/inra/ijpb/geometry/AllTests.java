@@ -30,8 +30,10 @@ import org.junit.runners.Suite;
 	// generic classes
 	Polygon2DTest.class,
 	Polygons2DTest.class,
+	PointList2DTest.class,
 	StraightLine2DTest.class,
 	Vector3DTest.class,
+	QuickHull3DTest.class,
 	})
 public class AllTests {
   //nothing
@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+/**
+ * 
+ */
+package inra.ijpb.geometry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author dlegland
+ *
+ */
+public class PointList2DTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.geometry.PointList2D#add(double, double)}.
+	 */
+	@Test
+	public final void testAdd_Resize()
+	{
+		PointList2D points = new PointList2D(2);
+		for (int i = 0; i < 100; i++)
+		{
+			points.add(i, 2 * i + 0.5);
+		}
+		
+		assertEquals(100, points.size());
+		assertEquals(42, points.getX(42), 0.0);
+		assertEquals(84.5, points.getY(42), 0.0);
+		assertEquals(new Point2D.Double(99, 198.5), points.get(99));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.geometry.PointList2D#get(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public final void testGet_OutOfBounds()
+	{
+		PointList2D points = new PointList2D();
+		points.add(1, 2);
+		points.get(1);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.geometry.Polygons2D#convexHull(PointList2D)}.
+	 */
+	@Test
+	public final void testConvexHull_SameAsArrayList()
+	{
+		ArrayList<Point2D> list = createRandomPoints(200);
+		PointList2D points = new PointList2D(list);
+		
+		Polygon2D exp = Polygons2D.convexHull(list);
+		Polygon2D hull = Polygons2D.convexHull(points);
+		
+		assertEquals(exp.vertexNumber(), hull.vertexNumber());
+		for (int i = 0; i < exp.vertexNumber(); i++)
+		{
+			assertEquals(exp.getVertex(i), hull.getVertex(i));
+		}
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.geometry.FeretDiameters#maxFeretDiameter(PointList2D)}.
+	 */
+	@Test
+	public final void testMaxFeretDiameter_Rectangle()
+	{
+		PointList2D points = new PointList2D();
+		points.add(10, 20);
+		points.add(40, 20);
+		points.add(40, 60);
+		points.add(10, 60);
+		
+		PointPair2D diam = FeretDiameters.maxFeretDiameter(points);
+		
+		assertEquals(50, diam.diameter(), 1e-10);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.geometry.FeretDiameters#minFeretDiameter(PointList2D)}.
+	 */
+	@Test
+	public final void testMinFeretDiameter_Rectangle()
+	{
+		PointList2D points = new PointList2D();
+		points.add(10, 20);
+		points.add(40, 20);
+		points.add(40, 60);
+		points.add(10, 60);
+		
+		AngleDiameterPair minFeret = FeretDiameters.minFeretDiameter(points);
+		
+		assertEquals(30, minFeret.diameter, 1e-10);
+	}
+	
+	private static final ArrayList<Point2D> createRandomPoints(int n)
+	{
+		Random random = new Random(42);
+		ArrayList<Point2D> points = new ArrayList<Point2D>(n);
+		for (int i = 0; i < n; i++)
+		{
+			points.add(new Point2D.Double(random.nextInt(100), random.nextInt(100)));
+		}
+		return points;
+	}
+}
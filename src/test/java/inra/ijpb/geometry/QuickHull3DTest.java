@@ -0,0 +1,180 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author dlegland
+ *
+ */
+public class QuickHull3DTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.geometry.QuickHull3D#convexHullVertexIndices(java.util.List)}.
+	 */
+	@Test
+	public void testConvexHullVertexIndices_Cube()
+	{
+		ArrayList<Point3D> points = new ArrayList<Point3D>();
+		// interior and boundary points first, then cube corners
+		points.add(new Point3D(1, 1, 1));
+		points.add(new Point3D(1, 0, 1));
+		points.add(new Point3D(2, 2, 0));
+		for (int z = 0; z <= 2; z += 2)
+		{
+			for (int y = 0; y <= 2; y += 2)
+			{
+				for (int x = 0; x <= 2; x += 2)
+				{
+					points.add(new Point3D(x, y, z));
+				}
+			}
+		}
+		
+		int[] inds = QuickHull3D.convexHullVertexIndices(points);
+		
+		// duplicate corner (2,2,0) is represented by its first occurrence
+		assertEquals(8, inds.length);
+		assertTrue(Arrays.binarySearch(inds, 2) >= 0);
+		assertTrue(Arrays.binarySearch(inds, 0) < 0);
+		assertTrue(Arrays.binarySearch(inds, 1) < 0);
+	}
+
+	/**
+	 * Cube corners repeated many times in random order should result in the
+	 * index of the first occurrence of each corner.
+	 */
+	@Test
+	public void testConvexHullVertexIndices_ManyDuplicates()
+	{
+		ArrayList<Point3D> points = new ArrayList<Point3D>();
+		int[] firstIndices = new int[8];
+		Arrays.fill(firstIndices, -1);
+		Random random = new Random(42);
+		for (int i = 0; i < 400; i++)
+		{
+			int corner = random.nextInt(8);
+			if (firstIndices[corner] < 0)
+			{
+				firstIndices[corner] = i;
+			}
+			points.add(new Point3D(corner & 1, (corner >> 1) & 1, (corner >> 2) & 1));
+		}
+		
+		int[] inds = QuickHull3D.convexHullVertexIndices(points);
+		
+		Arrays.sort(firstIndices);
+		assertArrayEquals(firstIndices, inds);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.geometry.QuickHull3D#convexHullVertexIndices(java.util.List)}.
+	 */
+	@Test
+	public void testConvexHullVertexIndices_Coplanar()
+	{
+		ArrayList<Point3D> points = new ArrayList<Point3D>();
+		points.add(new Point3D(0, 0, 3));
+		points.add(new Point3D(4, 0, 3));
+		points.add(new Point3D(4, 4, 3));
+		points.add(new Point3D(0, 4, 3));
+		points.add(new Point3D(4, 0, 3));
+		
+		int[] inds = QuickHull3D.convexHullVertexIndices(points);
+		
+		assertEquals(4, inds.length);
+	}
+
+	/**
+	 * Checks that all points of a random set are within the hull, and that
+	 * the extreme points of the set are hull vertices.
+	 */
+	@Test
+	public void testFaceIndices_RandomPoints()
+	{
+		Random random = new Random(42);
+		int n = 500;
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double[] zs = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			xs[i] = random.nextInt(30);
+			ys[i] = random.nextInt(20);
+			zs[i] = random.nextInt(10);
+		}
+		
+		QuickHull3D hull = new QuickHull3D(xs, ys, zs);
+		int[] inds = hull.vertexIndices();
+		int[][] faces = hull.faceIndices();
+		
+		// Euler formula for triangulated closed surfaces
+		assertEquals(2 * inds.length - 4, faces.length);
+		
+		// all points must be inside or on the boundary of each face
+		for (int[] face : faces)
+		{
+			for (int i = 0; i < n; i++)
+			{
+				assertTrue(orient(xs, ys, zs, face, i) <= 0);
+			}
+		}
+		
+		// extreme points in random directions must be vertices
+		for (int k = 0; k < 100; k++)
+		{
+			double dx = random.nextGaussian();
+			double dy = random.nextGaussian();
+			double dz = random.nextGaussian();
+			int iMax = 0;
+			double maxProj = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < n; i++)
+			{
+				double proj = xs[i] * dx + ys[i] * dy + zs[i] * dz;
+				if (proj > maxProj)
+				{
+					iMax = i;
+					maxProj = proj;
+				}
+			}
+			assertTrue(Arrays.binarySearch(inds, iMax) >= 0);
+		}
+	}
+	
+	private static final double orient(double[] xs, double[] ys, double[] zs, int[] face, int i)
+	{
+		int i0 = face[0], i1 = face[1], i2 = face[2];
+		double ux = xs[i1] - xs[i0], uy = ys[i1] - ys[i0], uz = zs[i1] - zs[i0];
+		double vx = xs[i2] - xs[i0], vy = ys[i2] - ys[i0], vz = zs[i2] - zs[i0];
+		double wx = xs[i] - xs[i0], wy = ys[i] - ys[i0], wz = zs[i] - zs[i0];
+		return (uy * vz - uz * vy) * wx + (uz * vx - ux * vz) * wy + (ux * vy - uy * vx) * wz;
+	}
+}
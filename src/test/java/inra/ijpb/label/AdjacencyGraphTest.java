@@ -0,0 +1,194 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import inra.ijpb.label.RegionAdjacencyGraph.LabelPair;
+
+/**
+ * @author dlegland
+ *
+ */
+public class AdjacencyGraphTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.label.AdjacencyGraph#compute(ImageProcessor, ImageProcessor, int)}.
+	 */
+	@Test
+	public final void testCompute_FiveRegions()
+	{
+		byte[] data = new byte[]{
+				1, 1, 1, 0, 2, 2, 2, 
+				1, 1, 0, 5, 0, 2, 2, 
+				1, 0, 5, 5, 5, 0, 2, 
+				0, 5, 5, 5, 5, 5, 0,
+				3, 0, 5, 5, 5, 0, 4, 
+				3, 3, 0, 5, 0, 4, 4, 
+				3, 3, 3, 0, 4, 4, 4
+		};
+		ImageProcessor image = new ByteProcessor(7, 7, data);
+		
+		AdjacencyGraph graph = AdjacencyGraph.compute(image, null, 1);
+		
+		assertEquals(5, graph.nodeCount());
+		assertEquals(8, graph.edgeCount());
+		assertEquals(RegionAdjacencyGraph.computeAdjacencies(image), graph.toLabelPairs());
+		assertArrayEquals(new int[] {2, 3, 5}, graph.neighborLabels(1));
+		assertArrayEquals(new int[] {1, 2, 3, 4}, graph.neighborLabels(5));
+		assertEquals(-1, graph.edgeIndex(1, 4));
+		assertEquals(graph.edgeIndex(1, 2), graph.edgeIndex(2, 1));
+		assertTrue(Double.isNaN(graph.meanBoundaryIntensity(0)));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.AdjacencyGraph#compute(ImageProcessor, ImageProcessor, int)}.
+	 */
+	@Test
+	public final void testCompute_EdgeStatistics()
+	{
+		// two regions separated by a vertical line of boundary pixels
+		ImageProcessor image = new ByteProcessor(5, 4);
+		ImageProcessor intensity = new FloatProcessor(5, 4);
+		for (int y = 0; y < 4; y++)
+		{
+			image.set(0, y, 3);
+			image.set(1, y, 3);
+			image.set(3, y, 7);
+			image.set(4, y, 7);
+			intensity.setf(2, y, 10 * y);
+		}
+		
+		AdjacencyGraph graph = AdjacencyGraph.compute(image, intensity, 1);
+		
+		assertEquals(1, graph.edgeCount());
+		int edge = graph.edgeIndex(7, 3);
+		assertEquals(0, edge);
+		assertEquals(3, graph.edgeLabel1(edge));
+		assertEquals(7, graph.edgeLabel2(edge));
+		// one contact per row, between x=1 and x=3
+		assertEquals(4, graph.contactCount(edge));
+		assertEquals(15.0, graph.meanBoundaryIntensity(edge), 1e-10);
+	}
+	
+	/**
+	 * Checks the parallel computation on a 3D image gives the same result as
+	 * the single-threaded one, and the same adjacencies as the
+	 * RegionAdjacencyGraph class.
+	 */
+	@Test
+	public final void testCompute_Random3D_Parallel()
+	{
+		int sizeX = 20, sizeY = 15, sizeZ = 12;
+		ImageStack labels = ImageStack.create(sizeX, sizeY, sizeZ, 16);
+		ImageStack intensity = ImageStack.create(sizeX, sizeY, sizeZ, 32);
+		Random random = new Random(42);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					// blocks of 3x3x3 voxels, with some background voxels
+					int label = random.nextInt(8) == 0 ? 0 : 1 + (x / 3) + 7 * (y / 3) + 35 * (z / 3);
+					labels.setVoxel(x, y, z, label);
+					intensity.setVoxel(x, y, z, random.nextInt(100));
+				}
+			}
+		}
+		
+		AdjacencyGraph graph1 = AdjacencyGraph.compute(labels, intensity, 1);
+		AdjacencyGraph graph4 = AdjacencyGraph.compute(labels, intensity, 4);
+		
+		Set<LabelPair> pairs = RegionAdjacencyGraph.computeAdjacencies(labels);
+		assertEquals(pairs, graph1.toLabelPairs());
+		assertEquals(pairs, graph4.toLabelPairs());
+		
+		assertArrayEquals(graph1.getLabels(), graph4.getLabels());
+		for (int e = 0; e < graph1.edgeCount(); e++)
+		{
+			assertEquals(graph1.contactCount(e), graph4.contactCount(e));
+			assertEquals(graph1.meanBoundaryIntensity(e), graph4.meanBoundaryIntensity(e), 1e-10);
+		}
+		
+		// check symmetry of neighborhoods
+		for (int label : graph1.getLabels())
+		{
+			int[] edges = graph1.incidentEdges(label);
+			int[] neighbors = graph1.neighborLabels(label);
+			for (int i = 0; i < neighbors.length; i++)
+			{
+				assertEquals(edges[i], graph1.edgeIndex(label, neighbors[i]));
+				assertTrue(Arrays.binarySearch(graph1.neighborLabels(neighbors[i]), label) >= 0);
+			}
+		}
+	}
+	
+	/**
+	 * Checks that repeated parallel computations give exactly the same mean
+	 * boundary intensities, whatever the order of completion of the threads.
+	 */
+	@Test
+	public final void testCompute_Parallel_Deterministic()
+	{
+		int sizeX = 16, sizeY = 12, sizeZ = 20;
+		ImageStack labels = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		ImageStack intensity = ImageStack.create(sizeX, sizeY, sizeZ, 32);
+		Random random = new Random(42);
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					labels.setVoxel(x, y, z, 1 + (x / 4) + 4 * (z / 5));
+					intensity.setVoxel(x, y, z, random.nextDouble() * 1e4);
+				}
+			}
+		}
+		
+		AdjacencyGraph ref = AdjacencyGraph.compute(labels, intensity, 6);
+		for (int i = 0; i < 10; i++)
+		{
+			AdjacencyGraph graph = AdjacencyGraph.compute(labels, intensity, 6);
+			assertEquals(ref.edgeCount(), graph.edgeCount());
+			for (int e = 0; e < ref.edgeCount(); e++)
+			{
+				assertEquals(ref.edgeLabel1(e), graph.edgeLabel1(e));
+				assertEquals(ref.edgeLabel2(e), graph.edgeLabel2(e));
+				assertEquals(ref.meanBoundaryIntensity(e), graph.meanBoundaryIntensity(e), 0.0);
+			}
+		}
+	}
+}
@@ -28,8 +28,12 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	// generic classes
+	AdjacencyGraphTest.class, 
 	LabelImagesTest.class, 
+	LabelUtilsTest.class, 
 	RegionAdjacencyGraphTest.class, 
+	RegionMergingTest.class, 
+	RunLengthLabelImageTest.class, 
 	})
 public class AllTests {
   //nothing
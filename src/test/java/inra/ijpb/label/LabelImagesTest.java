@@ -366,6 +366,25 @@ public class LabelImagesTest
         assertEquals(8.9, res.getVoxel(7, 6, 2), 0.01);
     }
     
+    /**
+     * Labels stored within RGB stacks are read from the 24 lower bits.
+     */
+    @Test
+    public final void testKeepLabels_3D_RGB()
+    {
+        ImageStack labelMap = ImageStack.create(12, 10, 8, 24);
+        ImageUtils.fillRect3d(labelMap, 1, 1, 2, 4, 3, 3, 1);
+        ImageUtils.fillRect3d(labelMap, 6, 1, 2, 4, 3, 3, 2);
+        ((int[]) labelMap.getPixels(3))[7 + 2 * 12] |= 0xFF000000;
+        
+        ImageStack res = LabelImages.keepLabels(labelMap, new int[] {2});
+        
+        assertEquals(24, res.getBitDepth());
+        assertEquals(0, res.getVoxel(2, 2, 2), 0.01);
+        assertEquals(2, res.getVoxel(7, 2, 2), 0.01);
+        assertEquals(2, res.getVoxel(8, 2, 2), 0.01);
+    }
+    
 	@Test
 	public final void testDilateLabels_SeparatedLabels()
 	{
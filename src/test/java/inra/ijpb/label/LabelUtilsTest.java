@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author dlegland
+ *
+ */
+public class LabelUtilsTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.label.LabelUtils#createLabelIndexMap(int[])}.
+	 */
+	@Test
+	public void testCreateLabelIndexMap_SmallLabels()
+	{
+		int[] labels = new int[] {3, 12, 5, 255, 1};
+		LabelUtils.LabelIndexMap map = LabelUtils.createLabelIndexMap(labels);
+		
+		assertEquals(5, map.size());
+		for (int i = 0; i < labels.length; i++)
+		{
+			assertEquals(i, map.indexOf(labels[i]));
+		}
+		assertEquals(-1, map.indexOf(0));
+		assertEquals(-1, map.indexOf(4));
+		assertEquals(-1, map.indexOf(256));
+		assertEquals(-1, map.indexOf(-3));
+		assertFalse(map.containsLabel(2));
+		assertTrue(map.containsLabel(12));
+	}
+
+	/**
+	 * Test method for {@link inra.ijpb.label.LabelUtils#createLabelIndexMap(int[])}.
+	 */
+	@Test
+	public void testCreateLabelIndexMap_SparseLabels()
+	{
+		// large and negative values force the use of the hash table
+		int nLabels = 1000;
+		int[] labels = new int[nLabels];
+		for (int i = 0; i < nLabels; i++)
+		{
+			labels[i] = (i - 500) * 70001;
+		}
+		LabelUtils.LabelIndexMap map = LabelUtils.createLabelIndexMap(labels);
+		
+		assertEquals(nLabels, map.size());
+		for (int i = 0; i < nLabels; i++)
+		{
+			assertEquals(i, map.indexOf(labels[i]));
+			assertEquals(-1, map.indexOf(labels[i] + 1));
+		}
+	}
+	
+	/**
+	 * Checks that the map is consistent with LabelImages.mapLabelIndices for
+	 * duplicate labels.
+	 */
+	@Test
+	public void testCreateLabelIndexMap_DuplicateLabels()
+	{
+		int[] labels = new int[] {4, 7, 4, 40000000};
+		LabelUtils.LabelIndexMap map = LabelUtils.createLabelIndexMap(labels);
+		
+		assertEquals((int) LabelImages.mapLabelIndices(labels).get(4), map.indexOf(4));
+		assertEquals(1, map.indexOf(7));
+		assertEquals(3, map.indexOf(40000000));
+	}
+}
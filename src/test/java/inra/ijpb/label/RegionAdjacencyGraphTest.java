@@ -30,6 +30,7 @@ import java.util.Set;
 import org.junit.Test;
 
 import ij.process.ByteProcessor;
+import ij.process.ColorProcessor;
 import ij.process.ImageProcessor;
 import inra.ijpb.label.RegionAdjacencyGraph.LabelPair;
 
@@ -64,5 +65,29 @@ public class RegionAdjacencyGraphTest {
 		assertTrue(adjacencies.contains(new LabelPair(3, 5)));
 		assertTrue(adjacencies.contains(new LabelPair(4, 5)));
 	}
-
+	
+	/**
+	 * Labels stored within the pixels of a ColorProcessor are processed
+	 * through generic pixel access.
+	 */
+	@Test
+	public void testRegionAdjacencyGraphImageProcessor_ColorProcessor() 
+	{
+		int[] data = new int[]{
+				1, 1, 1, 0, 2, 2, 2, 
+				1, 1, 0, 5, 0, 2, 2, 
+				1, 0, 5, 5, 5, 0, 2, 
+				0, 5, 5, 5, 5, 5, 0,
+				3, 0, 5, 5, 5, 0, 4, 
+				3, 3, 0, 5, 0, 4, 4, 
+				3, 3, 3, 0, 4, 4, 4
+		};
+		ImageProcessor image = new ColorProcessor(7, 7, data);
+		
+		Set<RegionAdjacencyGraph.LabelPair> adjacencies =
+				RegionAdjacencyGraph.computeAdjacencies(image);
+		assertEquals(8, adjacencies.size());
+		assertTrue(adjacencies.contains(new LabelPair(1, 5)));
+		assertFalse(adjacencies.contains(new LabelPair(2, 3)));
+	}
 }
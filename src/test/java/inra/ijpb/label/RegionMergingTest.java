@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+
+/**
+ * @author dlegland
+ *
+ */
+public class RegionMergingTest
+{
+	/**
+	 * Creates a 9x9 label image with four square regions separated by
+	 * one-pixel wide watershed lines, and a gradient image with low values on
+	 * the line between regions 1 and 2.
+	 */
+	private static final ImageProcessor createLabelImage()
+	{
+		ImageProcessor image = new ByteProcessor(9, 9);
+		for (int y = 0; y < 9; y++)
+		{
+			for (int x = 0; x < 9; x++)
+			{
+				if (x == 4 || y == 4)
+					continue;
+				int label = 1 + (x > 4 ? 1 : 0) + (y > 4 ? 2 : 0);
+				image.set(x, y, label);
+			}
+		}
+		return image;
+	}
+	
+	private static final ImageProcessor createGradientImage()
+	{
+		ImageProcessor image = new FloatProcessor(9, 9);
+		for (int y = 0; y < 9; y++)
+		{
+			for (int x = 0; x < 9; x++)
+			{
+				if (x == 4 || y == 4)
+					image.setf(x, y, 50);
+				else
+					image.setf(x, y, 2);
+			}
+		}
+		// low boundary between regions 1 and 2
+		for (int y = 0; y < 4; y++)
+		{
+			image.setf(4, y, 5);
+		}
+		return image;
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RegionMerging#process(ImageProcessor, ImageProcessor)}.
+	 */
+	@Test
+	public final void testProcess_BoundaryMean()
+	{
+		ImageProcessor labels = createLabelImage();
+		ImageProcessor gradient = createGradientImage();
+		
+		RegionMerging algo = new RegionMerging(RegionMerging.Criterion.BOUNDARY_MEAN, 10.0);
+		ImageProcessor result = algo.process(labels, gradient);
+		
+		int[] newLabels = LabelImages.findAllLabels(result);
+		assertEquals(3, newLabels.length);
+		assertEquals(1, result.get(0, 0));
+		assertEquals(1, result.get(8, 0));
+		assertEquals(3, result.get(0, 8));
+		assertEquals(4, result.get(8, 8));
+		
+		// the watershed line between regions 1 and 2 is filled
+		assertEquals(1, result.get(4, 2));
+		// the other lines are preserved
+		assertEquals(0, result.get(4, 6));
+		assertEquals(0, result.get(2, 4));
+		assertEquals(0, result.get(4, 4));
+	}
+
+	/**
+	 * Test method for {@link inra.ijpb.label.RegionMerging#process(ImageProcessor, ImageProcessor)}.
+	 */
+	@Test
+	public final void testProcess_BoundaryMean_NoFillGaps()
+	{
+		RegionMerging algo = new RegionMerging(RegionMerging.Criterion.BOUNDARY_MEAN, 10.0);
+		algo.setFillGaps(false);
+		ImageProcessor result = algo.process(createLabelImage(), createGradientImage());
+		
+		assertEquals(1, result.get(8, 0));
+		assertEquals(0, result.get(4, 2));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RegionMerging#process(ImageProcessor, ImageProcessor)}.
+	 */
+	@Test
+	public final void testProcess_MinSize()
+	{
+		ImageProcessor labels = createLabelImage();
+		// add a small region within region 4, separated by a line of zeros
+		labels.set(7, 7, 5);
+		labels.set(6, 7, 0);
+		ImageProcessor gradient = createGradientImage();
+		
+		RegionMerging algo = new RegionMerging(RegionMerging.Criterion.MIN_SIZE, 10);
+		ImageProcessor result = algo.process(labels, gradient);
+		
+		assertEquals(4, LabelImages.findAllLabels(result).length);
+		assertEquals(4, result.get(7, 7));
+		assertEquals(4, result.get(6, 7));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RegionMerging#process(ImageProcessor, ImageProcessor)}.
+	 */
+	@Test
+	public final void testProcess_Dynamic()
+	{
+		ImageProcessor labels = createLabelImage();
+		ImageProcessor gradient = createGradientImage();
+		
+		// dynamic of boundary 1-2 is 5-2=3, the other ones are 48
+		RegionMerging algo = new RegionMerging(RegionMerging.Criterion.DYNAMIC, 3.5);
+		int[] merged = algo.computeMergedLabels(wrap(labels), wrap(gradient), new int[] {1, 2, 3, 4});
+		assertEquals(1, merged[0]);
+		assertEquals(1, merged[1]);
+		assertEquals(3, merged[2]);
+		assertEquals(4, merged[3]);
+		
+		// with a larger threshold, all regions are merged
+		algo = new RegionMerging(RegionMerging.Criterion.DYNAMIC, 100.0);
+		ImageProcessor result = algo.process(labels, gradient);
+		int[] newLabels = LabelImages.findAllLabels(result);
+		assertEquals(1, newLabels.length);
+		assertEquals(1, result.get(4, 6));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RegionMerging#process(ImageStack, ImageStack)}.
+	 */
+	@Test
+	public final void testProcess_3D()
+	{
+		// two cubic regions separated by a plane of zeros, and a third region
+		ImageStack labels = ImageStack.create(9, 5, 5, 8);
+		ImageStack gradient = ImageStack.create(9, 5, 5, 32);
+		for (int z = 0; z < 5; z++)
+		{
+			for (int y = 0; y < 5; y++)
+			{
+				for (int x = 0; x < 9; x++)
+				{
+					if (x < 3)
+						labels.setVoxel(x, y, z, 2);
+					else if (x > 3 && x < 6)
+						labels.setVoxel(x, y, z, 5);
+					else if (x > 6)
+						labels.setVoxel(x, y, z, 9);
+					gradient.setVoxel(x, y, z, x == 3 ? 1 : (x == 6 ? 20 : 0));
+				}
+			}
+		}
+		
+		RegionMerging algo = new RegionMerging(RegionMerging.Criterion.BOUNDARY_MEAN, 10.0);
+		algo.setThreadCount(2);
+		ImageStack result = algo.process(labels, gradient);
+		
+		assertEquals(2, (int) result.getVoxel(4, 2, 2));
+		assertEquals(2, (int) result.getVoxel(3, 2, 2));
+		assertEquals(0, (int) result.getVoxel(6, 2, 2));
+		assertEquals(9, (int) result.getVoxel(8, 2, 2));
+	}
+	
+	/**
+	 * Checks that an exception is thrown if intensity is required but not
+	 * provided.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testProcess_MissingIntensity()
+	{
+		RegionMerging algo = new RegionMerging(RegionMerging.Criterion.DYNAMIC, 10.0);
+		algo.process(createLabelImage(), null);
+	}
+	
+	private static final ImageStack wrap(ImageProcessor image)
+	{
+		ImageStack stack = new ImageStack(image.getWidth(), image.getHeight());
+		stack.addSlice(image);
+		return stack;
+	}
+}
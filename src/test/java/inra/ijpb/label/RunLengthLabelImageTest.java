@@ -0,0 +1,271 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+
+/**
+ * @author dlegland
+ *
+ */
+public class RunLengthLabelImageTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#toImageStack()}.
+	 */
+	@Test
+	public final void testToImageStack()
+	{
+		ImageStack image = createLabelImage();
+		
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		ImageStack res = rle.toImageStack();
+		
+		assertEquals(8, res.getBitDepth());
+		assertSameContent(image, res);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#getLabels()}.
+	 */
+	@Test
+	public final void testGetLabels_VoxelCount()
+	{
+		ImageStack image = createLabelImage();
+		
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		int[] labels = rle.getLabels();
+		
+		assertArrayEquals(LabelImages.findAllLabels(image), labels);
+		assertArrayEquals(LabelImages.voxelCount(image, labels), rle.voxelCount(labels));
+		assertEquals(0, rle.voxelCount(100));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#cropLabel(int, int)}.
+	 */
+	@Test
+	public final void testCropLabel()
+	{
+		ImageStack image = createLabelImage();
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		
+		for (int label : rle.getLabels())
+		{
+			assertSameContent(LabelImages.cropLabel(image, label, 2), rle.cropLabel(label, 2));
+		}
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#replaceLabels(int[], int)}.
+	 */
+	@Test
+	public final void testReplaceLabels()
+	{
+		ImageStack image = createLabelImage();
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		
+		rle.replaceLabels(new int[] {2, 5}, 3);
+		rle.replaceLabels(new int[] {4}, 9);
+		rle.replaceLabels(new int[] {1}, 0);
+		LabelImages.replaceLabels(image, new int[] {2, 5}, 3);
+		LabelImages.replaceLabels(image, new int[] {4}, 9);
+		LabelImages.replaceLabels(image, new int[] {1}, 0);
+		
+		assertArrayEquals(new int[] {3, 6, 9}, rle.getLabels());
+		assertArrayEquals(LabelImages.voxelCount(image, rle.getLabels()), rle.voxelCount(rle.getLabels()));
+		assertSameContent(image, rle.toImageStack());
+		
+		// touching runs of merged labels are merged
+		assertEquals(countRuns(image, 3), rle.runCount(3));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#keepLabels(int[])}.
+	 */
+	@Test
+	public final void testKeepLabels()
+	{
+		ImageStack image = createLabelImage();
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		
+		rle.keepLabels(new int[] {2, 4, 8});
+		
+		assertArrayEquals(new int[] {2, 4}, rle.getLabels());
+		assertSameContent(LabelImages.keepLabels(image, new int[] {2, 4, 8}), rle.toImageStack());
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#removeBorderLabels()}.
+	 */
+	@Test
+	public final void testRemoveBorderLabels()
+	{
+		ImageStack image = ImageStack.create(10, 8, 6, 8);
+		fillBox(image, 1, 0, 3, 2, 4, 2, 4);
+		fillBox(image, 2, 4, 6, 3, 5, 2, 3);
+		fillBox(image, 3, 5, 8, 5, 7, 1, 2);
+		fillBox(image, 4, 2, 4, 2, 4, 4, 5);
+		
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		assertArrayEquals(new int[] {1, 3, 4}, rle.findBorderLabels());
+		
+		rle.removeBorderLabels();
+		LabelImages.removeBorderLabels(image);
+		
+		assertFalse(rle.containsLabel(1));
+		assertSameContent(image, rle.toImageStack());
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#removeBorderLabels()}
+	 * on a planar image.
+	 */
+	@Test
+	public final void testRemoveBorderLabels_Planar()
+	{
+		ImageProcessor image = new ByteProcessor(10, 10);
+		for (int y = 0; y < 10; y++)
+		{
+			for (int x = 0; x < 10; x++)
+			{
+				image.set(x, y, 1);
+			}
+		}
+		for (int y = 3; y < 7; y++)
+		{
+			for (int x = 3; x < 7; x++)
+			{
+				image.set(x, y, 2);
+			}
+		}
+		
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		assertArrayEquals(new int[] {1}, rle.findBorderLabels());
+		
+		rle.removeBorderLabels();
+		LabelImages.removeBorderLabels(image);
+		
+		assertFalse(rle.containsLabel(1));
+		assertTrue(rle.containsLabel(2));
+		ImageProcessor res = rle.toImageProcessor();
+		for (int i = 0; i < 100; i++)
+		{
+			assertEquals(image.get(i), res.get(i));
+		}
+		assertEquals(2, image.get(5, 5));
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.label.RunLengthLabelImage#toImageProcessor()}.
+	 */
+	@Test
+	public final void testToImageProcessor_Planar()
+	{
+		ImageProcessor image = new ByteProcessor(20, 15);
+		Random random = new Random(42);
+		for (int i = 0; i < 20 * 15; i++)
+		{
+			image.set(i, random.nextInt(4));
+		}
+		
+		RunLengthLabelImage rle = new RunLengthLabelImage(image);
+		ImageProcessor res = rle.toImageProcessor();
+		
+		for (int i = 0; i < 20 * 15; i++)
+		{
+			assertEquals(image.get(i), res.get(i));
+		}
+		assertArrayEquals(new int[] {0, 19, 0, 14, 0, 0}, rle.bounds(1));
+	}
+	
+	private static final ImageStack createLabelImage()
+	{
+		// random labels within a sub-box, to have both small and large runs
+		ImageStack image = ImageStack.create(20, 15, 10, 8);
+		Random random = new Random(42);
+		for (int z = 1; z < 9; z++)
+		{
+			for (int y = 2; y < 13; y++)
+			{
+				int label = 0;
+				for (int x = 3; x < 18; x++)
+				{
+					if (random.nextInt(3) == 0)
+					{
+						label = random.nextInt(7);
+					}
+					image.setVoxel(x, y, z, label);
+				}
+			}
+		}
+		return image;
+	}
+	
+	private static final void fillBox(ImageStack image, int label, int x0, int x1, int y0, int y1, int z0, int z1)
+	{
+		for (int z = z0; z <= z1; z++)
+		{
+			for (int y = y0; y <= y1; y++)
+			{
+				for (int x = x0; x <= x1; x++)
+				{
+					image.setVoxel(x, y, z, label);
+				}
+			}
+		}
+	}
+	
+	private static final int countRuns(ImageStack image, int label)
+	{
+		int count = 0;
+		for (int z = 0; z < image.getSize(); z++)
+		{
+			for (int y = 0; y < image.getHeight(); y++)
+			{
+				boolean inside = false;
+				for (int x = 0; x < image.getWidth(); x++)
+				{
+					boolean current = ((int) image.getVoxel(x, y, z)) == label;
+					if (current && !inside)
+					{
+						count++;
+					}
+					inside = current;
+				}
+			}
+		}
+		return count;
+	}
+}
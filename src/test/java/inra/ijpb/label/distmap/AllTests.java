@@ -29,6 +29,8 @@ import org.junit.runners.Suite;
 	// generic classes
 	ChamferDistanceTransform3DShortTest.class,
 	ChamferDistanceTransform3DFloatTest.class,
+	EuclideanDistanceTransform2DFloatTest.class,
+	EuclideanDistanceTransform3DFloatTest.class,
 	})
 public class AllTests {
   //nothing
@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label.distmap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+
+/**
+ * @author dlegland
+ *
+ */
+public class EuclideanDistanceTransform2DFloatTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.label.distmap.EuclideanDistanceTransform2DFloat#distanceMap(ij.process.ImageProcessor)}.
+	 */
+	@Test
+	public final void testDistanceMap_TouchingSquares()
+	{
+		// two adjacent 5x5 squares surrounded by background
+		ImageProcessor image = new ShortProcessor(12, 7);
+		for (int y = 1; y < 6; y++)
+		{
+			for (int x = 1; x < 6; x++)
+			{
+				image.set(x, y, 3);
+				image.set(x + 5, y, 7);
+			}
+		}
+		
+		EuclideanDistanceTransform2DFloat algo = new EuclideanDistanceTransform2DFloat();
+		ImageProcessor result = algo.distanceMap(image);
+		
+		assertEquals(0, result.getf(0, 0), 0.01);
+		assertEquals(1, result.getf(1, 1), 0.01);
+		assertEquals(3, result.getf(3, 3), 0.01);
+		assertEquals(1, result.getf(5, 3), 0.01);
+		assertEquals(1, result.getf(6, 3), 0.01);
+		assertEquals(2, result.getf(7, 3), 0.01);
+	}
+
+	/**
+	 * Compares squared distances with a brute-force computation, using an
+	 * anisotropic spacing and several threads.
+	 */
+	@Test
+	public final void testSquaredDistanceMap_BruteForce()
+	{
+		int sizeX = 40, sizeY = 30;
+		ImageProcessor image = createRandomLabelImage(sizeX, sizeY, new Random(42));
+		
+		double[] spacing = new double[] {1.5, 0.5};
+		EuclideanDistanceTransform2DFloat algo = new EuclideanDistanceTransform2DFloat(spacing);
+		algo.setThreadCount(3);
+		double[] dist2 = algo.squaredDistanceMap(image);
+		
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				int label = image.get(x, y);
+				double exp = label == 0 ? 0 : Double.POSITIVE_INFINITY;
+				for (int y2 = 0; y2 < sizeY && label != 0; y2++)
+				{
+					for (int x2 = 0; x2 < sizeX; x2++)
+					{
+						if (image.get(x2, y2) == label) continue;
+						double dx = (x2 - x) * spacing[0];
+						double dy = (y2 - y) * spacing[1];
+						exp = Math.min(exp, dx * dx + dy * dy);
+					}
+				}
+				assertEquals(exp, dist2[y * sizeX + x], 1e-10);
+			}
+		}
+	}
+	
+	/**
+	 * Creates a label image made of rectangles with random labels, few of
+	 * them being background.
+	 */
+	private static final ImageProcessor createRandomLabelImage(int sizeX, int sizeY, Random random)
+	{
+		ImageProcessor image = new ShortProcessor(sizeX, sizeY);
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				image.set(x, y, 1);
+			}
+		}
+		for (int i = 0; i < 15; i++)
+		{
+			int x0 = random.nextInt(sizeX), y0 = random.nextInt(sizeY);
+			int w = 1 + random.nextInt(15), h = 1 + random.nextInt(15);
+			int label = random.nextInt(5);
+			for (int y = y0; y < Math.min(y0 + h, sizeY); y++)
+			{
+				for (int x = x0; x < Math.min(x0 + w, sizeX); x++)
+				{
+					image.set(x, y, label);
+				}
+			}
+		}
+		return image;
+	}
+}
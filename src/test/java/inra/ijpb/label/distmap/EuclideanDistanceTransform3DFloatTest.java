@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.label.distmap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+
+/**
+ * @author dlegland
+ *
+ */
+public class EuclideanDistanceTransform3DFloatTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.label.distmap.EuclideanDistanceTransform3DFloat#distanceMap(ij.ImageStack)}.
+	 */
+	@Test
+	public final void testDistanceMap_TouchingCubes()
+	{
+		// two adjacent 5x5x5 cubes surrounded by background
+		ImageStack image = ImageStack.create(12, 7, 7, 8);
+		for (int z = 1; z < 6; z++)
+		{
+			for (int y = 1; y < 6; y++)
+			{
+				for (int x = 1; x < 6; x++)
+				{
+					image.setVoxel(x, y, z, 3);
+					image.setVoxel(x + 5, y, z, 7);
+				}
+			}
+		}
+		
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat();
+		ImageStack result = algo.distanceMap(image);
+		
+		assertEquals(32, result.getBitDepth());
+		assertEquals(0, result.getVoxel(0, 0, 0), 0.01);
+		assertEquals(1, result.getVoxel(1, 1, 1), 0.01);
+		assertEquals(3, result.getVoxel(3, 3, 3), 0.01);
+		assertEquals(1, result.getVoxel(5, 3, 3), 0.01);
+		assertEquals(2, result.getVoxel(7, 3, 3), 0.01);
+	}
+
+	/**
+	 * Compares squared distances with a brute-force computation, using an
+	 * anisotropic spacing and several threads.
+	 */
+	@Test
+	public final void testSquaredDistanceMap_BruteForce()
+	{
+		int sizeX = 14, sizeY = 12, sizeZ = 10;
+		ImageStack image = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		Random random = new Random(42);
+		
+		// fill image with a single label, and add a background voxel
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					image.setVoxel(x, y, z, 1);
+				}
+			}
+		}
+		image.setVoxel(3, 4, 5, 0);
+		
+		// add boxes with random labels
+		for (int i = 0; i < 12; i++)
+		{
+			int x0 = random.nextInt(sizeX), y0 = random.nextInt(sizeY), z0 = random.nextInt(sizeZ);
+			int label = random.nextInt(5);
+			for (int z = z0; z < Math.min(z0 + 6, sizeZ); z++)
+			{
+				for (int y = y0; y < Math.min(y0 + 7, sizeY); y++)
+				{
+					for (int x = x0; x < Math.min(x0 + 8, sizeX); x++)
+					{
+						image.setVoxel(x, y, z, label);
+					}
+				}
+			}
+		}
+		
+		double[] spacing = new double[] {1.0, 2.0, 3.0};
+		EuclideanDistanceTransform3DFloat algo = new EuclideanDistanceTransform3DFloat(spacing);
+		algo.setThreadCount(3);
+		double[][] dist2 = algo.squaredDistanceMap(image);
+		
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					int label = (int) image.getVoxel(x, y, z);
+					double exp = label == 0 ? 0 : Double.POSITIVE_INFINITY;
+					for (int z2 = 0; z2 < sizeZ && label != 0; z2++)
+					{
+						for (int y2 = 0; y2 < sizeY; y2++)
+						{
+							for (int x2 = 0; x2 < sizeX; x2++)
+							{
+								if ((int) image.getVoxel(x2, y2, z2) == label) continue;
+								double dx = (x2 - x) * spacing[0];
+								double dy = (y2 - y) * spacing[1];
+								double dz = (z2 - z) * spacing[2];
+								exp = Math.min(exp, dx * dx + dy * dy + dz * dz);
+							}
+						}
+					}
+					assertEquals(exp, dist2[z][y * sizeX + x], 1e-10);
+				}
+			}
+		}
+	}
+}
@@ -30,10 +30,12 @@ import org.junit.runners.Suite;
 	// generic classes
 	GeometricMeasures2DTest.class,
 	GeometricMeasures3DTest.class,
+    IntensityHistogramTest.class,
     IntensityMeasuresTest.class,
     IntrinsicVolumes2DTest.class,
     IntrinsicVolumes3DTest.class,
 	ResultsBuilderTest.class,
+	RunningMomentsTest.class,
 	})
 public class AllTests {
   //nothing
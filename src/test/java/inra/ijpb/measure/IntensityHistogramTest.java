@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author dlegland
+ *
+ */
+public class IntensityHistogramTest
+{
+	/**
+	 * Median, percentiles and mode are exact in exact mode.
+	 */
+	@Test
+	public final void testExact_compareSorted()
+	{
+		Random random = new Random(42);
+		double[] values = new double[1001];
+		IntensityHistogram hist = new IntensityHistogram(true);
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = random.nextInt(4000);
+			hist.add(values[i]);
+		}
+		Arrays.sort(values);
+		
+		assertEquals(values.length, hist.count());
+		assertEquals(values[values.length / 2], hist.median(), 0);
+		assertEquals(values[0], hist.percentile(0), 0);
+		assertEquals(values[250], hist.percentile(25), 0);
+		assertEquals(values[values.length - 1], hist.percentile(100), 0);
+	}
+	
+	/**
+	 * In case of ties, mode returns the smallest value.
+	 */
+	@Test
+	public final void testMode_ties()
+	{
+		IntensityHistogram hist = new IntensityHistogram(true);
+		for (double v : new double[] {5, 300, 300, 12, 5, 40000, 40000})
+			hist.add(v);
+		
+		assertEquals(5, hist.mode(), 0);
+	}
+	
+	/**
+	 * Merging two histograms gives the same result as a single accumulation.
+	 */
+	@Test
+	public final void testAdd_merge()
+	{
+		Random random = new Random(42);
+		IntensityHistogram all = new IntensityHistogram(true);
+		IntensityHistogram part1 = new IntensityHistogram(true);
+		IntensityHistogram part2 = new IntensityHistogram(true);
+		for (int i = 0; i < 500; i++)
+		{
+			double v = random.nextInt(65536);
+			all.add(v);
+			(i % 3 == 0 ? part1 : part2).add(v);
+		}
+		part1.add(part2);
+		
+		assertEquals(all.count(), part1.count());
+		assertEquals(all.median(), part1.median(), 0);
+		assertEquals(all.mode(), part1.mode(), 0);
+	}
+	
+	/**
+	 * Float values have a relative error bounded by 2^-7.
+	 */
+	@Test
+	public final void testFloat_relativeError()
+	{
+		Random random = new Random(42);
+		double[] values = new double[1000];
+		IntensityHistogram hist = new IntensityHistogram(false);
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = (float) (random.nextGaussian() * 1000);
+			hist.add(values[i]);
+		}
+		Arrays.sort(values);
+		
+		double tol = Math.pow(2, -7);
+		for (double p : new double[] {10, 50, 90})
+		{
+			double exp = values[(int) Math.ceil(p * values.length / 100) - 1];
+			assertEquals(exp, hist.percentile(p), Math.abs(exp) * tol);
+		}
+	}
+	
+	/**
+	 * Float mode with identical values in a bin is exact.
+	 */
+	@Test
+	public final void testFloat_mode()
+	{
+		IntensityHistogram hist = new IntensityHistogram(false);
+		for (double v : new double[] {-2.5, 1.75, 1.75, 1.75, 3.0, 3.0})
+			hist.add(v);
+		
+		assertEquals(1.75, hist.mode(), 0);
+		assertEquals(1.75, hist.median(), 0);
+		assertEquals(-2.5, hist.percentile(0), 0);
+	}
+	
+	/**
+	 * Merging histograms with different modes is not allowed.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testAdd_incompatible()
+	{
+		new IntensityHistogram(true).add(new IntensityHistogram(false));
+	}
+}
@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author dlegland
+ *
+ */
+public class RunningMomentsTest
+{
+	/**
+	 * Compare the moments with the values obtained by two-pass algorithm.
+	 */
+	@Test
+	public final void testAdd_compareTwoPass()
+	{
+		Random random = new Random(42);
+		double[] values = new double[1000];
+		RunningMoments moments = new RunningMoments();
+		for (int i = 0; i < values.length; i++)
+		{
+			// use an exponential distribution to obtain non-zero skewness
+			values[i] = 100 - 20 * Math.log(random.nextDouble());
+			moments.add(values[i]);
+		}
+		
+		double sum = 0;
+		for (double v : values) sum += v;
+		double mean = sum / values.length;
+		double m2 = 0, m3 = 0, m4 = 0;
+		for (double v : values)
+		{
+			double d = v - mean;
+			m2 += d * d;
+			m3 += d * d * d;
+			m4 += d * d * d * d;
+		}
+		m2 /= values.length;
+		m3 /= values.length;
+		m4 /= values.length;
+		
+		assertEquals(values.length, moments.count());
+		assertEquals(sum, moments.sum(), 1e-8);
+		assertEquals(mean, moments.mean(), 1e-10);
+		assertEquals(m2, moments.variance(), 1e-8);
+		assertEquals(Math.sqrt(m2), moments.stdDev(), 1e-10);
+		assertEquals(m3 / Math.pow(m2, 1.5), moments.skewness(), 1e-10);
+		assertEquals(m4 / (m2 * m2) - 3, moments.kurtosis(), 1e-10);
+	}
+	
+	/**
+	 * Merging two partial accumulators must give the same result as a single
+	 * sequential accumulation.
+	 */
+	@Test
+	public final void testAdd_merge()
+	{
+		Random random = new Random(42);
+		RunningMoments all = new RunningMoments();
+		RunningMoments part1 = new RunningMoments();
+		RunningMoments part2 = new RunningMoments();
+		for (int i = 0; i < 500; i++)
+		{
+			double v = random.nextGaussian() * 10 + 50;
+			all.add(v);
+			(i < 120 ? part1 : part2).add(v);
+		}
+		part1.add(part2);
+		
+		assertEquals(all.count(), part1.count());
+		assertEquals(all.min(), part1.min(), 0);
+		assertEquals(all.max(), part1.max(), 0);
+		assertEquals(all.mean(), part1.mean(), 1e-10);
+		assertEquals(all.variance(), part1.variance(), 1e-8);
+		assertEquals(all.skewness(), part1.skewness(), 1e-10);
+		assertEquals(all.kurtosis(), part1.kurtosis(), 1e-10);
+	}
+	
+	/**
+	 * Empty accumulator has undefined mean.
+	 */
+	@Test
+	public final void testMean_empty()
+	{
+		RunningMoments moments = new RunningMoments();
+		assertEquals(0, moments.count());
+		assertTrue(Double.isNaN(moments.mean()));
+	}
+}
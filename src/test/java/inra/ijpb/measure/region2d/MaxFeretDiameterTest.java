@@ -80,4 +80,27 @@ public class MaxFeretDiameterTest
 		ResultsTable table = algo.createTable(maxFeretDiams);
 		assertEquals(96, table.size());
 	}
+
+	/**
+	 * Checks the results do not depend on the number of threads.
+	 */
+	@Test
+	public void testAnalyzeRegions_riceGrains_threadCount()
+	{
+		ImagePlus imagePlus = IJ.openImage(getClass().getResource("/files/grains-med-WTH-lbl.tif").getFile());
+	
+		MaxFeretDiameter algo = new MaxFeretDiameter();
+		Map<Integer, PointPair2D> exp = algo.analyzeRegions(imagePlus);
+		
+		algo.setThreadCount(4);
+		Map<Integer, PointPair2D> res = algo.analyzeRegions(imagePlus);
+		
+		assertEquals(exp.keySet(), res.keySet());
+		for (int label : exp.keySet())
+		{
+			assertEquals(exp.get(label).diameter(), res.get(label).diameter(), 0.0);
+			assertEquals(exp.get(label).p1, res.get(label).p1);
+			assertEquals(exp.get(label).p2, res.get(label).p2);
+		}
+	}
 }
@@ -29,6 +29,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
@@ -38,6 +39,7 @@ import ij.measure.Calibration;
 import ij.process.ByteProcessor;
 import ij.process.ImageProcessor;
 import inra.ijpb.geometry.OrientedBox2D;
+import inra.ijpb.label.LabelImages;
 
 /**
  * @author dlegland
@@ -140,6 +142,38 @@ public class OrientedBoundingBox2DTest
 		assertTrue(box1.length() > 4.2);
 		assertTrue(box1.width() > 2.0);
 	}
-
-
+	/**
+	 * Checks the results obtained when sharing a pool between analyzers.
+	 */
+	@Test
+	public final void testAnalyzeRegions_riceGrains_pool()
+	{
+		ImagePlus imagePlus = IJ.openImage(getClass().getResource("/files/grains-med-WTH-lbl.tif").getFile());
+		ImageProcessor image = imagePlus.getProcessor();
+		int[] labels = LabelImages.findAllLabels(image);
+		Calibration calib = imagePlus.getCalibration();
+		
+		OrientedBoundingBox2D algo = new OrientedBoundingBox2D();
+		OrientedBox2D[] exp = algo.analyzeRegions(image, labels, calib);
+		
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try
+		{
+			algo.setPool(pool);
+			OrientedBox2D[] res = algo.analyzeRegions(image, labels, calib);
+			
+			assertEquals(exp.length, res.length);
+			for (int i = 0; i < exp.length; i++)
+			{
+				assertEquals(exp[i].center(), res[i].center());
+				assertEquals(exp[i].length(), res[i].length(), 0.0);
+				assertEquals(exp[i].width(), res[i].width(), 0.0);
+				assertEquals(exp[i].orientation(), res[i].orientation(), 0.0);
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
 }
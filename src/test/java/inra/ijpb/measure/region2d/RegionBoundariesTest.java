@@ -28,11 +28,13 @@ import static org.junit.Assert.*;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.junit.Test;
 
 import ij.process.ByteProcessor;
 import ij.process.ImageProcessor;
+import inra.ijpb.geometry.PointList2D;
 
 /**
  * @author dlegland
@@ -111,4 +113,50 @@ public class RegionBoundariesTest
         assertTrue(points2.contains(new Point2D.Double(3.0, 2.5))); // right corner
         assertTrue(points2.contains(new Point2D.Double(2.5, 3.0))); // bottom corner
     }
+
+    /**
+     * Test method for {@link inra.ijpb.measure.region2d.RegionBoundaries#runLengthsCornerLists(ij.process.ImageProcessor, int[])}.
+     */
+    @Test
+    public final void testRunLengthsCornerLists_RandomLabels()
+    {
+        // create an image with random labels, resulting in many touching
+        // and nested run-lengths
+        ImageProcessor image = new ByteProcessor(30, 20);
+        Random random = new Random(42);
+        for (int i = 0; i < 30 * 20; i++)
+        {
+            image.set(i, random.nextInt(4));
+        }
+        int[] labels = new int[] {1, 2, 3};
+        
+        PointList2D[] lists = RegionBoundaries.runLengthsCornerLists(image, labels);
+        
+        // compare with the corners computed by checking duplicates over the
+        // whole list of points
+        for (int i = 0; i < labels.length; i++)
+        {
+            ArrayList<Point2D> exp = new ArrayList<Point2D>();
+            for (int y = 0; y < 20; y++)
+            {
+                int previous = 0;
+                for (int x = 0; x <= 30; x++)
+                {
+                    int current = x < 30 ? image.get(x, y) : 0;
+                    if (current != previous && (current == labels[i] || previous == labels[i]))
+                    {
+                        Point2D p = new Point2D.Double(x, y);
+                        if (!exp.contains(p))
+                        {
+                            exp.add(p);
+                        }
+                        exp.add(new Point2D.Double(x, y + 1));
+                    }
+                    previous = current;
+                }
+            }
+            
+            assertEquals(exp, lists[i].toArrayList());
+        }
+    }
 }
@@ -30,8 +30,10 @@ import org.junit.runners.Suite;
     // generic classes
     GeometryUtilsTest.class, 
     EquivalentEllipsoidTest.class,
+    FusedRegionAnalyzer3DTest.class,
     GeodesicDiameter3DTest.class,
     InterfaceSurfaceAreaTest.class,
+    LargestInscribedBallTest.class,
     MaxFeretDiameter3DTest.class })
 public class AllTests
 {
@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure.region3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import inra.ijpb.geometry.Box3D;
+import inra.ijpb.geometry.Ellipsoid;
+import inra.ijpb.geometry.Point3D;
+import inra.ijpb.label.LabelImages;
+
+/**
+ * @author dlegland
+ *
+ */
+public class FusedRegionAnalyzer3DTest
+{
+    /**
+     * Compares the results with the ones of the individual analyzers, on an
+     * image containing an ellipsoid.
+     */
+    @Test
+    public final void testAnalyzeRegions_Ellipsoid()
+    {
+        String fileName = getClass().getResource("/files/ellipsoid_A30_B20_C10_T30_P30.tif").getFile();
+        ImagePlus imagePlus = IJ.openImage(fileName);
+        assertNotNull(imagePlus);
+        ImageStack image = imagePlus.getStack();
+        Calibration calib = imagePlus.getCalibration();
+        
+        checkSameResults(image, new int[] {255}, calib, 3);
+    }
+
+    /**
+     * Compares the results with the ones of the individual analyzers, on a
+     * random label image with anisotropic calibration.
+     */
+    @Test
+    public final void testAnalyzeRegions_RandomLabels()
+    {
+        ImageStack image = ImageStack.create(25, 20, 18, 8);
+        Random random = new Random(42);
+        for (int z = 0; z < 18; z++)
+        {
+            for (int y = 0; y < 20; y++)
+            {
+                for (int x = 0; x < 25; x++)
+                {
+                    // labels organized in slabs, with random background voxels
+                    int label = 1 + (x / 9) + 3 * (z / 7);
+                    image.setVoxel(x, y, z, random.nextInt(5) == 0 ? 0 : label);
+                }
+            }
+        }
+        int[] labels = LabelImages.findAllLabels(image);
+        
+        Calibration calib = new Calibration();
+        calib.pixelWidth = 0.5;
+        calib.pixelHeight = 0.8;
+        calib.pixelDepth = 1.5;
+        calib.xOrigin = -3;
+        calib.zOrigin = 10;
+        
+        checkSameResults(image, labels, calib, 1);
+        checkSameResults(image, labels, calib, 4);
+    }
+    
+    private static final void checkSameResults(ImageStack image, int[] labels, Calibration calib, int nThreads)
+    {
+        FusedRegionAnalyzer3D algo = new FusedRegionAnalyzer3D();
+        algo.setThreadCount(nThreads);
+        FusedRegionAnalyzer3D.Result[] results = algo.analyzeRegions(image, labels, calib);
+        
+        int[] counts = LabelImages.voxelCount(image, labels);
+        IntrinsicVolumesAnalyzer3D.Result[] volumes = new IntrinsicVolumesAnalyzer3D().analyzeRegions(image, labels, calib);
+        Box3D[] boxes = new BoundingBox3D().analyzeRegions(image, labels, calib);
+        Point3D[] centroids = new Centroid3D().analyzeRegions(image, labels, calib);
+        Ellipsoid[] ellipsoids = new EquivalentEllipsoid().analyzeRegions(image, labels, calib);
+        
+        double eps = 1e-8;
+        for (int i = 0; i < labels.length; i++)
+        {
+            FusedRegionAnalyzer3D.Result res = results[i];
+            assertEquals(counts[i], res.voxelCount);
+            
+            assertEquals(volumes[i].volume, res.volume, eps);
+            assertEquals(volumes[i].surfaceArea, res.surfaceArea, eps);
+            assertEquals(volumes[i].meanBreadth, res.meanBreadth, eps);
+            assertEquals(volumes[i].eulerNumber, res.eulerNumber, eps);
+            
+            assertEquals(boxes[i].getXMin(), res.box.getXMin(), eps);
+            assertEquals(boxes[i].getXMax(), res.box.getXMax(), eps);
+            assertEquals(boxes[i].getYMin(), res.box.getYMin(), eps);
+            assertEquals(boxes[i].getYMax(), res.box.getYMax(), eps);
+            assertEquals(boxes[i].getZMin(), res.box.getZMin(), eps);
+            assertEquals(boxes[i].getZMax(), res.box.getZMax(), eps);
+            
+            assertEquals(centroids[i].getX(), res.centroid.getX(), eps);
+            assertEquals(centroids[i].getY(), res.centroid.getY(), eps);
+            assertEquals(centroids[i].getZ(), res.centroid.getZ(), eps);
+            
+            Ellipsoid exp = ellipsoids[i];
+            Ellipsoid elli = res.ellipsoid;
+            assertEquals(exp.center().getX(), elli.center().getX(), eps);
+            assertEquals(exp.center().getY(), elli.center().getY(), eps);
+            assertEquals(exp.center().getZ(), elli.center().getZ(), eps);
+            assertEquals(exp.radius1(), elli.radius1(), eps);
+            assertEquals(exp.radius2(), elli.radius2(), eps);
+            assertEquals(exp.radius3(), elli.radius3(), eps);
+            assertEquals(exp.phi(), elli.phi(), 1e-6);
+            assertEquals(exp.theta(), elli.theta(), 1e-6);
+            assertEquals(exp.psi(), elli.psi(), 1e-6);
+        }
+    }
+}
@@ -100,4 +100,65 @@ public class GeodesicDiameter3DTest
 		assertEquals(15.06, table.getValue("GeodesicDiameter", 0), 0.1);
 		assertEquals(5.0, table.getValue("Radius", 0), 0.1);
 	}
+
+	/**
+	 * Checks that processing each label within its own crop gives the same
+	 * results as processing the whole image.
+	 */
+	@Test
+	public void testAnalyzeRegions_CropLabels()
+	{
+		ImageStack image = createLabelImage();
+		int[] labels = new int[] {2, 3, 5, 7};
+		Calibration calib = new Calibration();
+		
+		GeodesicDiameter3D algo = new GeodesicDiameter3D(ChamferMask3D.BORGEFORS);
+		Result[] exp = algo.analyzeRegions(image, labels, calib);
+		
+		algo.setCropLabels(true);
+		algo.setThreadCount(3);
+		Result[] res = algo.analyzeRegions(image, labels, calib);
+		
+		assertEquals(labels.length, res.length);
+		for (int i = 0; i < labels.length; i++)
+		{
+			assertEquals(exp[i].diameter, res[i].diameter, 1e-6);
+			assertEquals(exp[i].innerRadius, res[i].innerRadius, 1e-6);
+			assertEquals(exp[i].initialPoint, res[i].initialPoint);
+			assertEquals(exp[i].firstExtremity, res[i].firstExtremity);
+			assertEquals(exp[i].secondExtremity, res[i].secondExtremity);
+		}
+	}
+	
+	/**
+	 * Creates a label image containing touching regions, and regions touching
+	 * the image border.
+	 */
+	static final ImageStack createLabelImage()
+	{
+		ImageStack image = ImageStack.create(30, 25, 20, 8);
+		for (int z = 0; z < 20; z++)
+		{
+			for (int y = 0; y < 25; y++)
+			{
+				for (int x = 0; x < 30; x++)
+				{
+					// a box touching the image border
+					if (x < 8 && y < 10 && z < 6)
+						image.setVoxel(x, y, z, 2);
+					// an elongated L-shaped region, touching the previous one
+					else if ((x < 20 && y >= 10 && y < 13 && z >= 2 && z < 5) 
+							|| (x >= 17 && x < 20 && y >= 13 && y < 24 && z >= 2 && z < 5))
+						image.setVoxel(x, y, z, 3);
+					// a ball
+					else if (Math.hypot(Math.hypot(x - 22, y - 8), z - 12) < 5.5)
+						image.setVoxel(x, y, z, 5);
+					// a small region
+					else if (x >= 3 && x < 6 && y >= 18 && y < 21 && z >= 15 && z < 17)
+						image.setVoxel(x, y, z, 7);
+				}
+			}
+		}
+		return image;
+	}
 }
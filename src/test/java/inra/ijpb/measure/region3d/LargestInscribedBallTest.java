@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.measure.region3d;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.measure.Calibration;
+import inra.ijpb.geometry.Sphere;
+
+/**
+ * @author dlegland
+ *
+ */
+public class LargestInscribedBallTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.measure.region3d.LargestInscribedBall#analyzeRegions(ij.ImageStack, int[], ij.measure.Calibration)}.
+	 */
+	@Test
+	public void testAnalyzeRegions_Cube()
+	{
+		ImageStack image = ImageStack.create(12, 12, 12, 8);
+		for (int z = 1; z < 10; z++)
+		{
+			for (int y = 1; y < 10; y++)
+			{
+				for (int x = 1; x < 10; x++)
+				{
+					image.setVoxel(x, y, z, 1);
+				}
+			}
+		}
+		
+		Sphere[] balls = new LargestInscribedBall().analyzeRegions(image, new int[] {1}, new Calibration());
+		
+		assertEquals(1, balls.length);
+		assertEquals(5, balls[0].center().getX(), 0.01);
+		assertEquals(5, balls[0].center().getY(), 0.01);
+		assertEquals(5, balls[0].center().getZ(), 0.01);
+		assertEquals(5, balls[0].radius(), 0.01);
+	}
+	
+	/**
+	 * Checks that processing each label within its own crop gives the same
+	 * results as processing the whole image.
+	 */
+	@Test
+	public void testAnalyzeRegions_CropLabels()
+	{
+		ImageStack image = GeodesicDiameter3DTest.createLabelImage();
+		int[] labels = new int[] {2, 3, 5, 7};
+		Calibration calib = new Calibration();
+		calib.pixelWidth = 0.5;
+		calib.pixelHeight = 0.5;
+		calib.pixelDepth = 0.5;
+		
+		LargestInscribedBall algo = new LargestInscribedBall();
+		Sphere[] exp = algo.analyzeRegions(image, labels, calib);
+		
+		algo.setCropLabels(true);
+		algo.setThreadCount(3);
+		Sphere[] res = algo.analyzeRegions(image, labels, calib);
+		
+		assertEquals(labels.length, res.length);
+		for (int i = 0; i < labels.length; i++)
+		{
+			assertEquals(exp[i].center().getX(), res[i].center().getX(), 1e-6);
+			assertEquals(exp[i].center().getY(), res[i].center().getY(), 1e-6);
+			assertEquals(exp[i].center().getZ(), res[i].center().getZ(), 1e-6);
+			assertEquals(exp[i].radius(), res[i].radius(), 1e-6);
+		}
+	}
+}
@@ -25,8 +25,13 @@
 package inra.ijpb.measure.region3d;
 
 import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
 import ij.ImageStack;
 import ij.measure.Calibration;
+import inra.ijpb.geometry.Point3D;
 import inra.ijpb.geometry.PointPair3D;
 
 import org.junit.Test;
@@ -60,4 +65,53 @@ public class MaxFeretDiameter3DTest
 		assertEquals(8*Math.sqrt(3), pair.diameter(), .1);
 	}
 
+	/**
+	 * Compares the result of analyzeRegions with the brute-force computation
+	 * over all the calibrated corners, using several threads.
+	 */
+	@Test
+	public void testAnalyzeRegions_SameAsBruteForce()
+	{
+		ImageStack stack = ImageStack.create(20, 15, 12, 8);
+		Random random = new Random(42);
+		for (int z = 0; z < 12; z++)
+		{
+			for (int y = 0; y < 15; y++)
+			{
+				for (int x = 0; x < 20; x++)
+				{
+					stack.setVoxel(x, y, z, random.nextInt(4));
+				}
+			}
+		}
+		int[] labels = new int[]{1, 2, 3};
+		Calibration calib = new Calibration();
+		calib.pixelWidth = 0.5;
+		calib.pixelHeight = 0.7;
+		calib.pixelDepth = 1.2;
+		calib.xOrigin = -2.0;
+		
+		MaxFeretDiameter3D algo = new MaxFeretDiameter3D();
+		algo.setThreadCount(3);
+		PointPair3D[] result = algo.analyzeRegions(stack, labels, calib);
+		
+		ArrayList<Point3D>[] cornersArray = RegionBoundaries3D.regionsCornersArray(stack, labels);
+		for (int i = 0; i < labels.length; i++)
+		{
+			ArrayList<Point3D> points = new ArrayList<Point3D>();
+			for (Point3D p : cornersArray[i])
+			{
+				points.add(new Point3D(p.getX() * 0.5 - 2.0, p.getY() * 0.7, p.getZ() * 1.2));
+			}
+			PointPair3D exp = MaxFeretDiameter3D.maxFeretDiameter(points);
+			
+			assertEquals(exp.diameter(), result[i].diameter(), 0.0);
+			assertEquals(exp.p1.getX(), result[i].p1.getX(), 0.0);
+			assertEquals(exp.p1.getY(), result[i].p1.getY(), 0.0);
+			assertEquals(exp.p1.getZ(), result[i].p1.getZ(), 0.0);
+			assertEquals(exp.p2.getX(), result[i].p2.getX(), 0.0);
+			assertEquals(exp.p2.getY(), result[i].p2.getY(), 0.0);
+			assertEquals(exp.p2.getZ(), result[i].p2.getZ(), 0.0);
+		}
+	}
 }
@@ -29,6 +29,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 	// generic classes
 	AreaOpeningQueueTest.class,
+	MaxTreeTest.class,
 	SizeOpening3DQueueTest.class,
 	})
 public class AllTests {
@@ -0,0 +1,227 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.attrfilt;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+
+/**
+ * @author dlegland
+ *
+ */
+public class MaxTreeTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.morphology.attrfilt.MaxTree#computeArea()}.
+	 */
+	@Test
+	public final void testComputeArea_TwoMaxima()
+	{
+		// same image as in AreaOpeningQueueTest
+		ImageProcessor image = new ByteProcessor(6, 4);
+		image.set(1, 1, 5);
+		image.set(1, 2, 4);
+		image.set(2, 1, 3);
+		image.set(2, 2, 2);
+		image.set(3, 1, 6);
+		image.set(3, 2, 5);
+		
+		MaxTree tree = new MaxTree(image, 4);
+		double[] area = tree.computeArea();
+		
+		// root contains all pixels
+		assertEquals(24, area[tree.root()], 0.0);
+		assertEquals(0, tree.value(tree.root()), 0.0);
+		// node at level 2 contains the six non-zero pixels
+		int index = 2 * 6 + 2;
+		int node = tree.isCanonical(index) ? index : tree.parent(index);
+		assertEquals(6, area[node], 0.0);
+		// regional maximum at (3,1)
+		assertEquals(1, area[1 * 6 + 3], 0.0);
+		// levels: 0, 2, 3, 4, 5 (two nodes), 6
+		assertEquals(7, tree.nodeCount());
+		
+		ImageProcessor output = tree.filterImage(area, 4);
+		assertEquals(3, output.get(1, 1));
+		assertEquals(3, output.get(2, 1));
+		assertEquals(3, output.get(3, 1));
+		assertEquals(3, output.get(1, 2));
+		assertEquals(2, output.get(2, 2));
+		assertEquals(3, output.get(3, 2));
+	}
+	
+	/**
+	 * Compares the result of area opening with the naive algorithm on random
+	 * images.
+	 */
+	@Test
+	public final void testAreaOpening_CompareNaive()
+	{
+		Random random = new Random(42);
+		ImageProcessor image = new ByteProcessor(30, 20);
+		for (int i = 0; i < image.getPixelCount(); i++)
+		{
+			image.set(i, random.nextInt(10));
+		}
+		
+		for (int minArea : new int[] {2, 5, 20})
+		{
+			ImageProcessor exp = new AreaOpeningNaive().process(image, minArea);
+			ImageProcessor res = new AreaOpeningMaxTree().process(image, minArea);
+			for (int i = 0; i < image.getPixelCount(); i++)
+			{
+				assertEquals(exp.get(i), res.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Compares the result of area opening with the queue-based algorithm, for
+	 * both connectivities.
+	 */
+	@Test
+	public final void testAreaOpening_CompareQueue()
+	{
+		Random random = new Random(42);
+		ImageProcessor image = new ShortProcessor(25, 25);
+		for (int i = 0; i < image.getPixelCount(); i++)
+		{
+			image.set(i, 1000 + random.nextInt(20) * 10);
+		}
+		
+		for (int conn : new int[] {4, 8})
+		{
+			AreaOpeningQueue algo1 = new AreaOpeningQueue();
+			algo1.setConnectivity(conn);
+			AreaOpeningMaxTree algo2 = new AreaOpeningMaxTree();
+			algo2.setConnectivity(conn);
+			
+			ImageProcessor exp = algo1.process(image, 6);
+			ImageProcessor res = algo2.process(image, 6);
+			for (int i = 0; i < image.getPixelCount(); i++)
+			{
+				assertEquals(exp.get(i), res.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Checks that floating point images are processed with the same result
+	 * as integer ones.
+	 */
+	@Test
+	public final void testAreaOpening_Float()
+	{
+		Random random = new Random(42);
+		ImageProcessor image = new ByteProcessor(20, 20);
+		for (int i = 0; i < image.getPixelCount(); i++)
+		{
+			image.set(i, random.nextInt(15));
+		}
+		ImageProcessor floatImage = image.convertToFloatProcessor();
+		// use negative and fractional values
+		for (int i = 0; i < floatImage.getPixelCount(); i++)
+		{
+			floatImage.setf(i, floatImage.getf(i) * 0.5f - 3.0f);
+		}
+		
+		ImageProcessor exp = new AreaOpeningMaxTree().process(image, 8);
+		ImageProcessor res = new AreaOpeningMaxTree().process(floatImage, 8);
+		assertEquals(true, res instanceof FloatProcessor);
+		for (int i = 0; i < image.getPixelCount(); i++)
+		{
+			assertEquals(exp.get(i) * 0.5f - 3.0f, res.getf(i), 1e-6);
+		}
+	}
+	
+	/**
+	 * Compares the result of box diagonal opening with the queue-based
+	 * algorithm.
+	 */
+	@Test
+	public final void testBoxDiagonalOpening_CompareQueue()
+	{
+		Random random = new Random(42);
+		ImageProcessor image = new ByteProcessor(25, 25);
+		for (int i = 0; i < image.getPixelCount(); i++)
+		{
+			image.set(i, random.nextInt(12));
+		}
+		
+		ImageProcessor exp = new BoxDiagonalOpeningQueue().process(image, 4);
+		ImageProcessor res = new BoxDiagonalOpeningMaxTree().process(image, 4);
+		for (int i = 0; i < image.getPixelCount(); i++)
+		{
+			assertEquals(exp.get(i), res.get(i));
+		}
+	}
+	
+	/**
+	 * Compares the result of volume opening with the queue-based algorithm.
+	 */
+	@Test
+	public final void testVolumeOpening_CompareQueue()
+	{
+		Random random = new Random(42);
+		ImageStack image = ImageStack.create(12, 10, 8, 8);
+		for (int z = 0; z < 8; z++)
+		{
+			for (int y = 0; y < 10; y++)
+			{
+				for (int x = 0; x < 12; x++)
+				{
+					image.setVoxel(x, y, z, random.nextInt(8));
+				}
+			}
+		}
+		
+		for (int conn : new int[] {6, 26})
+		{
+			SizeOpening3DQueue algo1 = new SizeOpening3DQueue();
+			algo1.setConnectivity(conn);
+			SizeOpening3DMaxTree algo2 = new SizeOpening3DMaxTree();
+			algo2.setConnectivity(conn);
+			
+			ImageStack exp = algo1.process(image, 10);
+			ImageStack res = algo2.process(image, 10);
+			for (int z = 0; z < 8; z++)
+			{
+				for (int y = 0; y < 10; y++)
+				{
+					for (int x = 0; x < 12; x++)
+					{
+						assertEquals(exp.getVoxel(x, y, z), res.getVoxel(x, y, z), 0.0);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.directional;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+import inra.ijpb.morphology.directional.DirectionalFilter.Operation;
+import inra.ijpb.morphology.directional.DirectionalFilter.Type;
+
+/**
+ * @author dlegland
+ *
+ */
+public class DirectionalFilterTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.morphology.directional.DirectionalFilter#process(ij.process.ImageProcessor)}.
+	 */
+	@Test
+	public final void testProcess_ThinLine()
+	{
+		// create an image with a thin diagonal line
+		ByteProcessor image = new ByteProcessor(30, 30);
+		for (int i = 2; i < 28; i++)
+		{
+			image.set(i, i, 200);
+		}
+		
+		DirectionalFilter filter = new DirectionalFilter(Type.MAX, Operation.OPENING, 11, 8);
+		ImageProcessor res = filter.process(image);
+		
+		// the line is preserved by the opening in the orientation of the line
+		assertEquals(200, res.get(15, 15));
+		assertEquals(0, res.get(15, 5));
+	}
+
+	/**
+	 * Checks the result does not depend on the number of threads.
+	 */
+	@Test
+	public final void testProcess_ThreadCount()
+	{
+		ByteProcessor image = new ByteProcessor(40, 30);
+		Random random = new Random(42);
+		for (int i = 0; i < 40 * 30; i++)
+		{
+			image.set(i, random.nextInt(256));
+		}
+		
+		for (Type type : Type.values())
+		{
+			DirectionalFilter filter = new DirectionalFilter(type, Operation.CLOSING, 9, 12);
+			ImageProcessor exp = filter.process(image);
+			filter.setThreadCount(4);
+			ImageProcessor res = filter.process(image);
+			
+			for (int i = 0; i < 40 * 30; i++)
+			{
+				assertEquals(exp.get(i), res.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.directional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+
+/**
+ * @author dlegland
+ *
+ */
+public class OrientedLineStrelTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.morphology.directional.OrientedLineStrel#dilation(ij.process.ImageProcessor)}.
+	 */
+	@Test
+	public final void testDilation_Horizontal()
+	{
+		ImageProcessor image = createRandomImage(40, 30);
+		OrientedLineStrel strel = new OrientedLineStrel(9, 0);
+		
+		ImageProcessor res = strel.dilation(image);
+		
+		assertEquals(bruteForceShifts(image, strel, true), res);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.morphology.directional.OrientedLineStrel#erosion(ij.process.ImageProcessor)}.
+	 */
+	@Test
+	public final void testErosion_Vertical()
+	{
+		ImageProcessor image = createRandomImage(40, 30);
+		OrientedLineStrel strel = new OrientedLineStrel(11, 90);
+		
+		ImageProcessor res = strel.erosion(image);
+		
+		assertEquals(bruteForceShifts(image, strel, false), res);
+	}
+	
+	/**
+	 * Diagonal lines are translation-invariant, so the result must equal the
+	 * result obtained by iterating over the shifts.
+	 */
+	@Test
+	public final void testDilation_Diagonals()
+	{
+		ImageProcessor image = createRandomImage(40, 30);
+		for (double theta : new double[] {45, 135})
+		{
+			OrientedLineStrel strel = new OrientedLineStrel(7, theta);
+			
+			ImageProcessor res = strel.dilation(image);
+			
+			assertEquals(bruteForceShifts(image, strel, true), res);
+		}
+	}
+	
+	/**
+	 * Compares with brute force computation of the extremum along the discrete
+	 * line passing through each pixel, for various orientations and lengths.
+	 */
+	@Test
+	public final void testDilationErosion_ArbitraryOrientations()
+	{
+		ImageProcessor image = createRandomImage(50, 40);
+		for (int length : new int[] {3, 8, 15, 61})
+		{
+			for (double theta = 0; theta < 180; theta += 12.5)
+			{
+				OrientedLineStrel strel = new OrientedLineStrel(length, theta);
+				
+				assertEquals(bruteForcePaths(image, strel, true), strel.dilation(image));
+				assertEquals(bruteForcePaths(image, strel, false), strel.erosion(image));
+			}
+		}
+	}
+	
+	/**
+	 * Checks the result of dilation is larger than original image, on a float
+	 * image with negative values.
+	 */
+	@Test
+	public final void testDilation_NegativeValues()
+	{
+		FloatProcessor image = new FloatProcessor(20, 20);
+		Random random = new Random(42);
+		for (int i = 0; i < 400; i++)
+		{
+			image.setf(i, -100 * random.nextFloat());
+		}
+		OrientedLineStrel strel = new OrientedLineStrel(7, 30);
+		
+		ImageProcessor res = strel.dilation(image);
+		
+		for (int i = 0; i < 400; i++)
+		{
+			assertTrue(res.getf(i) >= image.getf(i));
+			assertTrue(res.getf(i) < 0);
+		}
+	}
+	
+	private static final void assertEquals(ImageProcessor exp, ImageProcessor res)
+	{
+		for (int y = 0; y < exp.getHeight(); y++)
+		{
+			for (int x = 0; x < exp.getWidth(); x++)
+			{
+				org.junit.Assert.assertEquals(exp.getf(x, y), res.getf(x, y), 0.0);
+			}
+		}
+	}
+	
+	private static final ImageProcessor createRandomImage(int sizeX, int sizeY)
+	{
+		ByteProcessor image = new ByteProcessor(sizeX, sizeY);
+		Random random = new Random(42);
+		for (int i = 0; i < sizeX * sizeY; i++)
+		{
+			image.set(i, random.nextInt(256));
+		}
+		return image;
+	}
+	
+	/**
+	 * Computes min or max by translating the shifts of the strel.
+	 */
+	private static final ImageProcessor bruteForceShifts(ImageProcessor image,
+			OrientedLineStrel strel, boolean max)
+	{
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		ImageProcessor result = image.duplicate();
+		int[][] shifts = strel.getShifts();
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				float res = image.getf(x, y);
+				for (int[] shift : shifts)
+				{
+					float value = image.getf(mirror(x + shift[0], sizeX), mirror(y + shift[1], sizeY));
+					res = max ? Math.max(res, value) : Math.min(res, value);
+				}
+				result.setf(x, y, res);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Computes min or max along the discrete line passing through each pixel.
+	 */
+	private static final ImageProcessor bruteForcePaths(ImageProcessor image,
+			OrientedLineStrel strel, boolean max)
+	{
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		ImageProcessor result = image.duplicate();
+		int n2 = (strel.getShifts().length - 1) / 2;
+		double slope = strel.slope;
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				float res = image.getf(x, y);
+				for (int i = -n2; i <= n2; i++)
+				{
+					int x2, y2;
+					if (strel.horizontal)
+					{
+						x2 = x + i;
+						y2 = y + (int) Math.round((x + i) * slope) - (int) Math.round(x * slope);
+					}
+					else
+					{
+						y2 = y + i;
+						x2 = x + (int) Math.round((y + i) * slope) - (int) Math.round(y * slope);
+					}
+					float value = image.getf(mirror(x2, sizeX), mirror(y2, sizeY));
+					res = max ? Math.max(res, value) : Math.min(res, value);
+				}
+				result.setf(x, y, res);
+			}
+		}
+		return result;
+	}
+	
+	private static final int mirror(int index, int size)
+	{
+		index = index % (2 * size);
+		if (index < 0)
+			index = -index - 1;
+		if (index >= size)
+			index = 2 * size - 1 - index;
+		return index;
+	}
+}
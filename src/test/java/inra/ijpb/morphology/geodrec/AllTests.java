@@ -32,6 +32,7 @@ import org.junit.runners.Suite;
 	GeodesicReconstructionScanningTest.class,
 	GeodesicReconstruction3DHybrid0Gray8Test.class,
 	GeodesicReconstruction3DHybrid0Gray16Test.class,
+	GeodesicReconstruction3DParallelTest.class,
 	GeodesicReconstruction3DHybrid1Image3DTest.class,
 	GeodesicReconstructionByDilation3DGray8Test.class,
 	GeodesicReconstructionByDilation3DScanningGray8Test.class,
@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.geodrec;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+
+/**
+ * @author dlegland
+ *
+ */
+public class GeodesicReconstruction3DParallelTest
+{
+	/**
+	 * Compares with the single-threaded hybrid algorithm on random images,
+	 * for all data types, reconstruction types and connectivities.
+	 */
+	@Test
+	public final void testApplyTo_CompareWithHybrid()
+	{
+		for (int bitDepth : new int[] {8, 16, 32})
+		{
+			for (GeodesicReconstructionType type : GeodesicReconstructionType.values())
+			{
+				for (int conn : new int[] {6, 26})
+				{
+					ImageStack mask = createRandomImage(17, 13, 21, bitDepth, 1, 1, 0);
+					ImageStack marker = createRandomImage(17, 13, 21, bitDepth, 2, 40,
+							type == GeodesicReconstructionType.BY_DILATION ? 0 : 250);
+					
+					GeodesicReconstruction3DAlgo ref = createHybrid(bitDepth, type, conn);
+					ImageStack exp = ref.applyTo(marker, mask);
+					
+					for (int nThreads : new int[] {1, 3, 8})
+					{
+						GeodesicReconstruction3DParallel algo = new GeodesicReconstruction3DParallel(type, conn);
+						algo.setThreadCount(nThreads);
+						ImageStack res = algo.applyTo(marker, mask);
+						
+						assertEquals(bitDepth, res.getBitDepth());
+						assertSameContent(exp, res);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Compares with the hybrid algorithm on thin stacks and sparse masks,
+	 * using enough threads to obtain slabs containing a single slice.
+	 */
+	@Test
+	public final void testApplyTo_SingleSliceSlabs()
+	{
+		for (int sizeZ : new int[] {2, 3, 5, 8, 11})
+		{
+			for (GeodesicReconstructionType type : GeodesicReconstructionType.values())
+			{
+				for (int conn : new int[] {6, 26})
+				{
+					for (long seed = 0; seed < 5; seed++)
+					{
+						int background = type == GeodesicReconstructionType.BY_DILATION ? 0 : 250;
+						ImageStack mask = createRandomImage(9, 7, sizeZ, 8, 10 + seed, 2, 0);
+						ImageStack marker = createRandomImage(9, 7, sizeZ, 8, 20 + seed, 30, background);
+						
+						ImageStack exp = createHybrid(8, type, conn).applyTo(marker, mask);
+						
+						for (int nThreads : new int[] {Math.max(sizeZ / 2, 2), sizeZ, sizeZ + 3})
+						{
+							GeodesicReconstruction3DParallel algo = new GeodesicReconstruction3DParallel(type, conn);
+							algo.setThreadCount(nThreads);
+							assertSameContent(exp, algo.applyTo(marker, mask));
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reconstruct along a path that crosses slab boundaries several times.
+	 */
+	@Test
+	public final void testApplyTo_ZigZagPath()
+	{
+		int sizeX = 10;
+		int sizeY = 10;
+		int sizeZ = 12;
+		ImageStack mask = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		
+		// create a path along z, going back and forth at each row
+		for (int y = 0; y < sizeY; y += 2)
+		{
+			int z0 = (y / 2) % 2 == 0 ? 0 : sizeZ - 1;
+			for (int z = 0; z < sizeZ; z++)
+			{
+				mask.setVoxel(1, y, z, 255);
+			}
+			if (y < sizeY - 2)
+			{
+				mask.setVoxel(1, y + 1, sizeZ - 1 - z0, 255);
+			}
+		}
+		ImageStack marker = ImageStack.create(sizeX, sizeY, sizeZ, 8);
+		marker.setVoxel(1, 0, 0, 255);
+		
+		GeodesicReconstruction3DParallel algo = new GeodesicReconstruction3DParallel(
+				GeodesicReconstructionType.BY_DILATION, 6);
+		algo.setThreadCount(4);
+		ImageStack res = algo.applyTo(marker, mask);
+		
+		assertSameContent(mask, res);
+	}
+
+	private static final GeodesicReconstruction3DAlgo createHybrid(int bitDepth, GeodesicReconstructionType type, int conn)
+	{
+		switch (bitDepth)
+		{
+		case 8: return new GeodesicReconstruction3DHybrid0Gray8(type, conn);
+		case 16: return new GeodesicReconstruction3DHybrid0Gray16(type, conn);
+		default: return new GeodesicReconstruction3DHybrid0Float(type, conn);
+		}
+	}
+	
+	/**
+	 * Creates an image where one voxel over <code>sparsity</code> has a random
+	 * value, the other ones being set to the background value.
+	 */
+	private static final ImageStack createRandomImage(int sizeX, int sizeY, int sizeZ, int bitDepth, long seed, int sparsity, int background)
+	{
+		return createRandomStack(sizeX, sizeY, sizeZ, bitDepth, new Random(42 + seed),
+				(r, x, y, z) -> r.nextInt(sparsity) == 0 ? r.nextInt(200) : background);
+	}
+}
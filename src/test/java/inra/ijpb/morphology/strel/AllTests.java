@@ -33,6 +33,7 @@ import org.junit.runners.Suite;
 	LinearDiagDownStrelTest.class, 
 	LinearDiagUpStrelTest.class,
 	LinearDepthStrel3DTest.class,
+	RunningExtremumTest.class,
 	// compound of linear 
 	SquareStrelTest.class, 
 	OctagonStrelTest.class,
@@ -0,0 +1,117 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomBinaryStack;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.plugin.Filters3D;
+import inra.ijpb.morphology.Strel3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class BallStrelTest
+{
+	/**
+	 * Compares the binary dilation computed using distance map with the
+	 * result of the 3D maximum filter.
+	 */
+	@Test
+	public final void testDilation_Binary_SameAsFilters3D()
+	{
+		ImageStack image = createRandomBinaryStack(30, 28, 26, 0.02);
+		
+		for (double radius : new double[] {1.0, 1.5, 2.0, 3.0, 4.5, 6.0})
+		{
+			Strel3D strel = BallStrel.fromRadius(radius);
+			ImageStack res = strel.dilation(image);
+			
+			float r = (float) radius;
+			ImageStack expected = Filters3D.filter(image, Filters3D.MAX, r, r, r);
+			assertSameContent(expected, res);
+		}
+	}
+	
+	/**
+	 * Compares the binary erosion computed using distance map with the
+	 * result of the 3D minimum filter.
+	 */
+	@Test
+	public final void testErosion_Binary_SameAsFilters3D()
+	{
+		ImageStack image = createRandomBinaryStack(30, 28, 26, 0.98);
+		
+		for (double radius : new double[] {1.0, 1.5, 2.0, 3.0, 4.5, 6.0})
+		{
+			Strel3D strel = BallStrel.fromRadius(radius);
+			ImageStack res = strel.erosion(image);
+			
+			float r = (float) radius;
+			ImageStack expected = Filters3D.filter(image, Filters3D.MIN, r, r, r);
+			assertSameContent(expected, res);
+		}
+	}
+	
+	/**
+	 * Checks that the binary dilation of a single voxel gives a ball with
+	 * expected extent.
+	 */
+	@Test
+	public final void testGetMask3D_Radius3()
+	{
+		Strel3D strel = BallStrel.fromRadius(3);
+		int[][][] mask = strel.getMask3D();
+		
+		assertEquals(7, mask.length);
+		assertEquals(255, mask[3][3][3]);
+		assertEquals(255, mask[3][3][0]);
+		assertEquals(255, mask[3][3][6]);
+		assertEquals(255, mask[0][3][3]);
+		assertEquals(255, mask[6][3][3]);
+		assertEquals(0, mask[0][0][0]);
+		assertEquals(0, mask[6][6][6]);
+	}
+	
+	/**
+	 * Checks that shifts are centered around the origin.
+	 */
+	@Test
+	public final void testGetShifts3D_Radius2()
+	{
+		Strel3D strel = BallStrel.fromRadius(2);
+		int[][] shifts = strel.getShifts3D();
+		
+		assertTrue(shifts.length > 0);
+		for (int[] shift : shifts)
+		{
+			assertEquals(3, shift.length);
+			assertTrue(shift[0] * shift[0] + shift[1] * shift[1] + shift[2] * shift[2] <= 4);
+		}
+	}
+}
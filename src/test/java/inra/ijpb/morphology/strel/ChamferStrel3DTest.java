@@ -24,6 +24,8 @@
  */
 package inra.ijpb.morphology.strel;
 
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -312,4 +314,41 @@ public class ChamferStrel3DTest
         assertTrue(res.getVoxel(6, 6, 6) > 0);
     }
     
+    /**
+     * Test method for {@link inra.ijpb.morphology.strel.ChamferStrel3D#dilation(ij.ImageStack)},
+     * checking that multi-threaded processing gives the same result as single
+     * thread processing.
+     */
+    @Test
+    public final void testDilation_MultiThreaded()
+    {
+        ImageStack image = createRandomStack(30, 25, 20, 8);
+        
+        Strel3D strel = new ChamferStrel3D(ChamferMask3D.SVENSSON_3_4_5_7, 2.0);
+        ImageStack expected = strel.dilation(image);
+        
+        strel.setThreadCount(4);
+        ImageStack res = strel.dilation(image);
+        
+        assertSameContent(expected, res);
+    }
+    
+    /**
+     * Test method for {@link inra.ijpb.morphology.strel.ChamferStrel3D#closing(ij.ImageStack)},
+     * checking that multi-threaded processing gives the same result as single
+     * thread processing.
+     */
+    @Test
+    public final void testClosing_MultiThreaded()
+    {
+        ImageStack image = createRandomStack(30, 25, 20, 8);
+        
+        Strel3D strel = new ChamferStrel3D(ChamferMask3D.BORGEFORS, 2.0);
+        ImageStack expected = strel.closing(image);
+        
+        strel.setThreadCount(3);
+        ImageStack res = strel.closing(image);
+        
+        assertSameContent(expected, res);
+    }
 }
@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import inra.ijpb.morphology.Morphology;
+import inra.ijpb.morphology.Strel3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class Cross3DStrelTest
+{
+    /**
+     * Test method for {@link inra.ijpb.morphology.strel.Cross3DStrel#dilation(ij.ImageStack)}.
+     */
+    @Test
+    public final void testDilation_SingleVoxel()
+    {
+        ImageStack image = ImageStack.create(5, 5, 5, 8);
+        image.setVoxel(2, 2, 2, 255);
+        
+        Strel3D strel = new Cross3DStrel();
+        ImageStack res = strel.dilation(image);
+        
+        assertEquals(255, res.getVoxel(2, 2, 2), 0.01);
+        assertEquals(255, res.getVoxel(1, 2, 2), 0.01);
+        assertEquals(255, res.getVoxel(3, 2, 2), 0.01);
+        assertEquals(255, res.getVoxel(2, 1, 2), 0.01);
+        assertEquals(255, res.getVoxel(2, 3, 2), 0.01);
+        assertEquals(255, res.getVoxel(2, 2, 1), 0.01);
+        assertEquals(255, res.getVoxel(2, 2, 3), 0.01);
+        assertEquals(0, res.getVoxel(1, 1, 2), 0.01);
+        assertEquals(0, res.getVoxel(1, 2, 1), 0.01);
+        assertEquals(0, res.getVoxel(2, 1, 1), 0.01);
+    }
+    
+    /**
+     * Test method for {@link inra.ijpb.morphology.strel.Cross3DStrel#dilation(ij.ImageStack)},
+     * checking that multi-threaded processing gives the same result as single
+     * thread processing.
+     */
+    @Test
+    public final void testDilation_MultiThreaded()
+    {
+        ImageStack image = createRandomStack(20, 15, 17, 8);
+        
+        Strel3D strel = new Cross3DStrel();
+        ImageStack expected = strel.dilation(image);
+        
+        strel.setThreadCount(4);
+        ImageStack res = strel.dilation(image);
+        
+        assertSameContent(expected, res);
+    }
+    
+    /**
+     * Test method for {@link inra.ijpb.morphology.strel.Cross3DStrel#erosion(ij.ImageStack)},
+     * checking that multi-threaded processing gives the same result as single
+     * thread processing.
+     */
+    @Test
+    public final void testErosion_MultiThreaded()
+    {
+        ImageStack image = createRandomStack(20, 15, 17, 8);
+        
+        Strel3D strel = new Cross3DStrel();
+        ImageStack expected = strel.erosion(image);
+        
+        strel.setThreadCount(4);
+        ImageStack res = strel.erosion(image);
+        
+        assertSameContent(expected, res);
+    }
+    
+    /**
+     * Checks that the thread count given to the morphological operation
+     * is used for separable 3D structuring elements, and that the result is
+     * the same as single thread processing.
+     */
+    @Test
+    public final void testOperation_Cube_MultiThreaded()
+    {
+        ImageStack image = createRandomStack(20, 15, 17, 8);
+        
+        Strel3D strel = CubeStrel.fromRadius(2);
+        ImageStack expected = Morphology.Operation.OPENING.apply(image, strel);
+        
+        Strel3D strel2 = CubeStrel.fromRadius(2);
+        ImageStack res = Morphology.Operation.OPENING.apply(image, strel2, 4);
+        
+        assertSameContent(expected, res);
+        // the thread count of the structuring element is restored
+        assertEquals(1, strel2.getThreadCount());
+    }
+}
@@ -0,0 +1,102 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomBinaryStack;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.plugin.Filters3D;
+import inra.ijpb.morphology.Strel3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class EllipsoidStrelTest
+{
+	private static final double[][] RADIUS_LIST = new double[][] {
+		{2.0, 3.0, 1.0}, 
+		{4.0, 2.0, 3.0}, 
+		{1.5, 2.5, 0.0}, 
+		{0.0, 3.0, 2.0}, 
+		{5.0, 1.0, 2.5}, 
+	};
+	
+	/**
+	 * Compares the binary dilation computed using distance map with the
+	 * result of the 3D maximum filter.
+	 */
+	@Test
+	public final void testDilation_Binary_SameAsFilters3D()
+	{
+		ImageStack image = createRandomBinaryStack(30, 28, 26, 0.02);
+		
+		for (double[] radii : RADIUS_LIST)
+		{
+			Strel3D strel = EllipsoidStrel.fromRadiusList(radii[0], radii[1], radii[2]);
+			ImageStack res = strel.dilation(image);
+			
+			ImageStack expected = Filters3D.filter(image, Filters3D.MAX,
+					(float) radii[0], (float) radii[1], (float) radii[2]);
+			assertSameContent(expected, res);
+		}
+	}
+	
+	/**
+	 * Compares the binary erosion computed using distance map with the
+	 * result of the 3D minimum filter.
+	 */
+	@Test
+	public final void testErosion_Binary_SameAsFilters3D()
+	{
+		ImageStack image = createRandomBinaryStack(30, 28, 26, 0.97);
+		
+		for (double[] radii : RADIUS_LIST)
+		{
+			Strel3D strel = EllipsoidStrel.fromRadiusList(radii[0], radii[1], radii[2]);
+			strel.setThreadCount(3);
+			ImageStack res = strel.erosion(image);
+			
+			ImageStack expected = Filters3D.filter(image, Filters3D.MIN,
+					(float) radii[0], (float) radii[1], (float) radii[2]);
+			assertSameContent(expected, res);
+		}
+	}
+	
+	/**
+	 * Checks the offset of an ellipsoid with different radii.
+	 */
+	@Test
+	public final void testGetOffset()
+	{
+		Strel3D strel = EllipsoidStrel.fromRadiusList(3, 2, 1);
+		int[] offset = strel.getOffset();
+		
+		assertEquals(3, offset[0]);
+		assertEquals(2, offset[1]);
+		assertEquals(1, offset[2]);
+	}
+}
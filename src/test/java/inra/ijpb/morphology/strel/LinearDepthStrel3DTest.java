@@ -24,8 +24,11 @@
  */
 package inra.ijpb.morphology.strel;
 
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import ij.ImageStack;
@@ -54,6 +57,45 @@ public class LinearDepthStrel3DTest {
 		assertEquals(  0, result.getVoxel(5, 5, 9), .01);
 	}
 
+	/**
+	 * Compares dilation and erosion with a direct computation of the
+	 * extremum within the neighborhood, for 8, 16 and 32 bits stacks.
+	 */
+	@Test
+	public void testDilationErosion_AllTypes() 
+	{
+		LinearDepthStrel3D strel = new LinearDepthStrel3D(5, 1);
+		for (int bitDepth : new int[] {8, 16, 32})
+		{
+			int maxValue = bitDepth == 8 ? 256 : 3000;
+			double shift = bitDepth == 32 ? .5 : 0;
+			ImageStack image = createRandomStack(7, 6, 12, bitDepth, new Random(42),
+					(r, x, y, z) -> r.nextInt(maxValue) + shift);
+			
+			ImageStack dil = strel.dilation(image);
+			ImageStack ero = strel.erosion(image);
+			
+			for (int z = 0; z < 12; z++)
+			{
+				for (int y = 0; y < 6; y++)
+				{
+					for (int x = 0; x < 7; x++)
+					{
+						double vMax = Double.NEGATIVE_INFINITY;
+						double vMin = Double.POSITIVE_INFINITY;
+						for (int z2 = Math.max(z - 1, 0); z2 <= Math.min(z + 3, 11); z2++)
+						{
+							vMax = Math.max(vMax, image.getVoxel(x, y, z2));
+							vMin = Math.min(vMin, image.getVoxel(x, y, z2));
+						}
+						assertEquals(vMax, dil.getVoxel(x, y, z), .01);
+						assertEquals(vMin, ero.getVoxel(x, y, z), .01);
+					}
+				}
+			}
+		}
+	}
+	
 	private static final ImageStack createIsolatedVoxelImage()
 	{
 		ImageStack image = ImageStack.create(10, 10, 10, 8);
@@ -0,0 +1,155 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import static inra.ijpb.data.image.Images3DTestUtils.assertSameContent;
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import inra.ijpb.morphology.Strel3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class LinearStrel3DTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.morphology.strel.LinearStrel3D#getSize()}.
+	 */
+	@Test
+	public final void testGetSize()
+	{
+		Strel3D strel = new LinearStrel3D(1, 0, -1, 5);
+		int[] size = strel.getSize();
+		assertEquals(5, size[0]);
+		assertEquals(1, size[1]);
+		assertEquals(5, size[2]);
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.morphology.strel.LinearStrel3D#getMask3D()}.
+	 */
+	@Test
+	public final void testGetMask3D_BodyDiagonal()
+	{
+		Strel3D strel = new LinearStrel3D(-1, 1, 1, 3);
+		int[][][] mask = strel.getMask3D();
+		
+		assertEquals(255, mask[0][0][2]);
+		assertEquals(255, mask[1][1][1]);
+		assertEquals(255, mask[2][2][0]);
+		assertEquals(0, mask[0][0][0]);
+		assertEquals(0, mask[2][2][2]);
+	}
+	
+	/**
+	 * Compares the dilation with a brute-force computation for each
+	 * direction.
+	 */
+	@Test
+	public final void testDilation_AllDirections()
+	{
+		ImageStack image = createRandomStack(15, 12, 10, 8);
+		
+		for (int[] dir : allDirections())
+		{
+			LinearStrel3D strel = new LinearStrel3D(dir[0], dir[1], dir[2], 4, 1);
+			ImageStack res = strel.dilation(image);
+			ImageStack exp = bruteForce(image, strel.getShifts3D(), true);
+			assertSameContent(exp, res);
+		}
+	}
+	
+	/**
+	 * Compares the erosion with a brute-force computation for each
+	 * direction, using several threads.
+	 */
+	@Test
+	public final void testErosion_AllDirections_MultiThreaded()
+	{
+		ImageStack image = createRandomStack(15, 12, 10, 8);
+		
+		for (int[] dir : allDirections())
+		{
+			LinearStrel3D strel = new LinearStrel3D(dir[0], dir[1], dir[2], 5);
+			strel.setThreadCount(3);
+			ImageStack res = strel.erosion(image);
+			ImageStack exp = bruteForce(image, strel.getShifts3D(), false);
+			assertSameContent(exp, res);
+		}
+	}
+	
+	private static final int[][] allDirections()
+	{
+		int[][] dirs = new int[13][];
+		int i = 0;
+		for (int dz = -1; dz <= 1; dz++)
+		{
+			for (int dy = -1; dy <= 1; dy++)
+			{
+				for (int dx = -1; dx <= 1; dx++)
+				{
+					// keep only one direction of each pair of opposite directions
+					int code = dx + 3 * dy + 9 * dz;
+					if (code > 0)
+					{
+						dirs[i++] = new int[] {dx, dy, dz};
+					}
+				}
+			}
+		}
+		return dirs;
+	}
+	
+	private static final ImageStack bruteForce(ImageStack image, int[][] shifts, boolean max)
+	{
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		int sizeZ = image.getSize();
+		ImageStack res = ImageStack.create(sizeX, sizeY, sizeZ, image.getBitDepth());
+		for (int z = 0; z < sizeZ; z++)
+		{
+			for (int y = 0; y < sizeY; y++)
+			{
+				for (int x = 0; x < sizeX; x++)
+				{
+					double value = image.getVoxel(x, y, z);
+					for (int[] shift : shifts)
+					{
+						int x2 = x + shift[0];
+						int y2 = y + shift[1];
+						int z2 = z + shift[2];
+						if (x2 < 0 || x2 >= sizeX || y2 < 0 || y2 >= sizeY || z2 < 0 || z2 >= sizeZ) continue;
+						double v2 = image.getVoxel(x2, y2, z2);
+						value = max ? Math.max(value, v2) : Math.min(value, v2);
+					}
+					res.setVoxel(x, y, z, value);
+				}
+			}
+		}
+		return res;
+	}
+}
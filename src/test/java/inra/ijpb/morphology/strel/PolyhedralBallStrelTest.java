@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import static inra.ijpb.data.image.Images3DTestUtils.createRandomStack;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import inra.ijpb.morphology.Strel3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class PolyhedralBallStrelTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.morphology.strel.PolyhedralBallStrel#getMask3D()}.
+	 */
+	@Test
+	public final void testGetMask3D_Radius6()
+	{
+		Strel3D strel = PolyhedralBallStrel.fromRadius(6);
+		int[][][] mask = strel.getMask3D();
+		
+		assertEquals(13, mask.length);
+		
+		// extremities along axes
+		assertEquals(255, mask[6][6][0]);
+		assertEquals(255, mask[6][6][12]);
+		assertEquals(255, mask[6][0][6]);
+		assertEquals(255, mask[0][6][6]);
+		assertEquals(255, mask[12][6][6]);
+		
+		// corners of bounding box are outside
+		assertEquals(0, mask[0][0][0]);
+		assertEquals(0, mask[12][12][12]);
+		assertEquals(0, mask[0][0][12]);
+		
+		// check symmetry
+		for (int z = 0; z < 13; z++)
+		{
+			for (int y = 0; y < 13; y++)
+			{
+				for (int x = 0; x < 13; x++)
+				{
+					assertEquals(mask[z][y][x], mask[12 - z][12 - y][12 - x]);
+					assertEquals(mask[z][y][x], mask[x][z][y]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the dilation computed by decomposition equals the dilation
+	 * computed using the shifts of the structuring element. As voxels outside
+	 * of image are ignored, the comparison is restricted to the voxels far
+	 * enough from the image borders.
+	 */
+	@Test
+	public final void testDilation_SameAsShifts()
+	{
+		ImageStack image = createRandomStack(20, 18, 16, 8);
+		
+		int r = 5;
+		Strel3D strel = PolyhedralBallStrel.fromRadius(r);
+		ImageStack res = strel.dilation(image);
+		
+		int[][] shifts = strel.getShifts3D();
+		for (int z = r; z < image.getSize() - r; z++)
+		{
+			for (int y = r; y < image.getHeight() - r; y++)
+			{
+				for (int x = r; x < image.getWidth() - r; x++)
+				{
+					double value = image.getVoxel(x, y, z);
+					for (int[] shift : shifts)
+					{
+						int x2 = x + shift[0];
+						int y2 = y + shift[1];
+						int z2 = z + shift[2];
+						value = Math.max(value, image.getVoxel(x2, y2, z2));
+					}
+					assertEquals(value, res.getVoxel(x, y, z), 0.0);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks the creation from the enumeration of shapes.
+	 */
+	@Test
+	public final void testShape_FromRadiusList()
+	{
+		Strel3D strel = Strel3D.Shape.POLYHEDRAL_BALL.fromRadiusList(3, 3, 3);
+		int[] size = strel.getSize();
+		assertEquals(7, size[0]);
+		assertEquals(7, size[1]);
+		assertEquals(7, size[2]);
+	}
+}
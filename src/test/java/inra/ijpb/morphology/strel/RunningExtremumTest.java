@@ -0,0 +1,209 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.morphology.strel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+
+/**
+ * @author David Legland
+ *
+ */
+public class RunningExtremumTest
+{
+	/**
+	 * Test method for {@link inra.ijpb.morphology.strel.RunningExtremum#process(byte[], int, int, int, boolean)}.
+	 */
+	@Test
+	public final void testProcess_Byte_CompareBruteForce()
+	{
+		Random random = new Random(42);
+		for (int length : new int[] {1, 2, 3, 5, 8, 40})
+		{
+			for (int offset : new int[] {0, length / 2, length - 1})
+			{
+				RunningExtremum extremum = new RunningExtremum(length, offset);
+				for (boolean max : new boolean[] {true, false})
+				{
+					// use a strided line within a larger array
+					int n = 1 + random.nextInt(30);
+					byte[] array = new byte[3 * n];
+					for (int i = 0; i < array.length; i++)
+						array[i] = (byte) random.nextInt(256);
+					int[] values = new int[n];
+					for (int i = 0; i < n; i++)
+						values[i] = array[1 + 3 * i] & 0xFF;
+					
+					extremum.process(array, 1, 3, n, max);
+					
+					int[] exp = bruteForce(values, length, offset, max);
+					for (int i = 0; i < n; i++)
+						assertEquals(exp[i], array[1 + 3 * i] & 0xFF);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.morphology.strel.RunningExtremum#process(short[], int, int, int, boolean)}.
+	 */
+	@Test
+	public final void testProcess_Short_DecreasingRamp()
+	{
+		int n = 100;
+		short[] array = new short[n];
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			values[i] = 60000 - 500 * i;
+			array[i] = (short) values[i];
+		}
+		
+		for (boolean max : new boolean[] {true, false})
+		{
+			short[] res = array.clone();
+			new RunningExtremum(11, 5).process(res, 0, 1, n, max);
+			int[] exp = bruteForce(values, 11, 5, max);
+			for (int i = 0; i < n; i++)
+				assertEquals(exp[i], res[i] & 0xFFFF);
+		}
+	}
+	
+	/**
+	 * Test method for {@link inra.ijpb.morphology.strel.RunningExtremum#process(float[], int, int, int, boolean)}.
+	 */
+	@Test
+	public final void testProcess_Float()
+	{
+		float[] array = new float[] {1.5f, -2f, 3.25f, 0f, -7f, 4f, 4f, -1f};
+		
+		float[] res = array.clone();
+		new RunningExtremum(3, 1).process(res, 0, 1, array.length, true);
+		float[] exp = new float[] {1.5f, 3.25f, 3.25f, 3.25f, 4f, 4f, 4f, 4f};
+		for (int i = 0; i < array.length; i++)
+			assertEquals(exp[i], res[i], 0.0);
+		
+		res = array.clone();
+		new RunningExtremum(3, 1).process(res, 0, 1, array.length, false);
+		exp = new float[] {-2f, -2f, -2f, -7f, -7f, -7f, -1f, -1f};
+		for (int i = 0; i < array.length; i++)
+			assertEquals(exp[i], res[i], 0.0);
+	}
+	
+	/**
+	 * Checks that horizontal and vertical linear strels give the same result
+	 * on a 16-bit image with one or several threads, and the same result as a
+	 * float image.
+	 */
+	@Test
+	public final void testLinearStrels_Short_Threads()
+	{
+		Random random = new Random(42);
+		ImageProcessor image = new ShortProcessor(40, 30);
+		for (int i = 0; i < image.getPixelCount(); i++)
+			image.set(i, random.nextInt(65536));
+		ImageProcessor floatImage = image.convertToFloatProcessor();
+		
+		InPlaceStrel[] strels = new InPlaceStrel[] {
+				new LinearHorizontalStrel(7, 2), 
+				new LinearVerticalStrel(6, 4)};
+		for (InPlaceStrel strel : strels)
+		{
+			ImageProcessor res1 = strel.dilation(image);
+			ImageProcessor resFloat = strel.dilation(floatImage);
+			strel.setThreadCount(4);
+			ImageProcessor res4 = strel.dilation(image);
+			strel.setThreadCount(1);
+			
+			assertEquals(true, resFloat instanceof FloatProcessor);
+			for (int i = 0; i < image.getPixelCount(); i++)
+			{
+				assertEquals(res1.get(i), res4.get(i));
+				assertEquals(res1.get(i), (int) resFloat.getf(i));
+			}
+		}
+	}
+	
+	/**
+	 * Checks that LinearDepthStrel3D gives the same result with one or several
+	 * threads, and the same result as brute force along each z-column.
+	 */
+	@Test
+	public final void testLinearDepthStrel3D_Threads()
+	{
+		Random random = new Random(42);
+		int sizeX = 7, sizeY = 6, sizeZ = 15;
+		ImageStack image = ImageStack.create(sizeX, sizeY, sizeZ, 16);
+		for (int z = 0; z < sizeZ; z++)
+			for (int y = 0; y < sizeY; y++)
+				for (int x = 0; x < sizeX; x++)
+					image.setVoxel(x, y, z, random.nextInt(65536));
+		
+		LinearDepthStrel3D strel = new LinearDepthStrel3D(5, 1);
+		ImageStack res1 = strel.erosion(image);
+		strel.setThreadCount(3);
+		ImageStack res3 = strel.erosion(image);
+		
+		int[] values = new int[sizeZ];
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				for (int z = 0; z < sizeZ; z++)
+					values[z] = (int) image.getVoxel(x, y, z);
+				int[] exp = bruteForce(values, 5, 1, false);
+				for (int z = 0; z < sizeZ; z++)
+				{
+					assertEquals(exp[z], (int) res1.getVoxel(x, y, z));
+					assertEquals(exp[z], (int) res3.getVoxel(x, y, z));
+				}
+			}
+		}
+	}
+	
+	private static final int[] bruteForce(int[] values, int length, int offset, boolean max)
+	{
+		int n = values.length;
+		int[] res = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			int ext = max ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+			for (int k = 0; k < length; k++)
+			{
+				int j = i - offset + k;
+				if (j < 0 || j >= n)
+					continue;
+				ext = max ? Math.max(ext, values[j]) : Math.min(ext, values[j]);
+			}
+			res[i] = ext;
+		}
+		return res;
+	}
+}
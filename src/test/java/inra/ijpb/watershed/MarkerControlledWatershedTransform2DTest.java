@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.watershed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+import inra.ijpb.binary.BinaryImages;
+import inra.ijpb.morphology.MinimaAndMaxima;
+import inra.ijpb.morphology.Morphology;
+import inra.ijpb.morphology.strel.SquareStrel;
+
+/**
+ * @author Ignacio Arganda-Carreras
+ *
+ */
+public class MarkerControlledWatershedTransform2DTest
+{
+	/**
+	 * Checks that flooding with hierarchical queue gives the same result as
+	 * flooding with priority queue, for 8, 16 and 32 bit images.
+	 */
+	@Test
+	public final void testApplyWithHierarchicalQueue()
+	{
+		ImagePlus imagePlus = IJ.openImage(getClass().getResource("/files/grains.tif").getFile());
+		assertNotNull(imagePlus);
+		
+		ImageProcessor gradient = Morphology.gradient(imagePlus.getProcessor(), SquareStrel.fromDiameter(3));
+		ImageProcessor markers = createMarkers(gradient);
+		ImageProcessor mask = createMask(gradient);
+		
+		ImageProcessor[] inputs = new ImageProcessor[] {
+				gradient, gradient.convertToShort(false), gradient.convertToFloat() };
+		for (ImageProcessor input : inputs)
+		{
+			for (int conn : new int[] {4, 8})
+			{
+				for (ImageProcessor maskImage : new ImageProcessor[] {null, mask})
+				{
+					MarkerControlledWatershedTransform2D algo = 
+							new MarkerControlledWatershedTransform2D(input, markers, maskImage, conn);
+					
+					assertEquals(0, countDifferences(
+							algo.applyWithPriorityQueue(), 
+							algo.applyWithHierarchicalQueue()));
+					assertEquals(0, countDifferences(
+							algo.applyWithPriorityQueueAndDams(), 
+							algo.applyWithHierarchicalQueueAndDams()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that flooding with hierarchical queue gives the same result as
+	 * flooding with priority queue when using compact watershed.
+	 */
+	@Test
+	public final void testApplyWithHierarchicalQueue_Compact()
+	{
+		ImagePlus imagePlus = IJ.openImage(getClass().getResource("/files/grains.tif").getFile());
+		assertNotNull(imagePlus);
+		
+		ImageProcessor gradient = Morphology.gradient(imagePlus.getProcessor(), SquareStrel.fromDiameter(3));
+		ImageProcessor markers = createMarkers(gradient);
+		
+		for (int conn : new int[] {4, 8})
+		{
+			MarkerControlledWatershedTransform2D algo = 
+					new MarkerControlledWatershedTransform2D(gradient, markers, null, conn, 2.5);
+			
+			assertEquals(0, countDifferences(
+					algo.applyWithPriorityQueue(), 
+					algo.applyWithHierarchicalQueue()));
+			assertEquals(0, countDifferences(
+					algo.applyWithPriorityQueueAndDams(), 
+					algo.applyWithHierarchicalQueueAndDams()));
+		}
+	}
+	
+	private static final ImageProcessor createMarkers(ImageProcessor gradient)
+	{
+		ImageProcessor minima = MinimaAndMaxima.extendedMinima(gradient, 10, 4);
+		return BinaryImages.componentsLabeling(minima, 4, 32);
+	}
+	
+	private static final ImageProcessor createMask(ImageProcessor image)
+	{
+		int sizeX = image.getWidth();
+		int sizeY = image.getHeight();
+		ImageProcessor mask = new ByteProcessor(sizeX, sizeY);
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				// keep a disk at the center of the image
+				double dx = x - sizeX / 2.0;
+				double dy = y - sizeY / 2.0;
+				if (Math.hypot(dx, dy) < sizeX * 0.4)
+					mask.set(x, y, 255);
+			}
+		}
+		return mask;
+	}
+	
+	private static final int countDifferences(ImageProcessor image1, ImageProcessor image2)
+	{
+		int count = 0;
+		for (int y = 0; y < image1.getHeight(); y++)
+		{
+			for (int x = 0; x < image1.getWidth(); x++)
+			{
+				if (image1.getf(x, y) != image2.getf(x, y))
+					count++;
+			}
+		}
+		return count;
+	}
+}
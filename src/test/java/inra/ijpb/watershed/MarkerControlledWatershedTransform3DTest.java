@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.watershed;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+
+/**
+ * @author Ignacio Arganda-Carreras
+ *
+ */
+public class MarkerControlledWatershedTransform3DTest
+{
+	/**
+	 * Checks that flooding with hierarchical queue gives the same result as
+	 * flooding with priority queue, for 8, 16 and 32 bit images.
+	 */
+	@Test
+	public final void testApplyWithHierarchicalQueue()
+	{
+		ImagePlus markers = new ImagePlus("markers", createMarkers());
+		ImagePlus mask = new ImagePlus("mask", createMask());
+		
+		for (int bitDepth : new int[] {8, 16, 32})
+		{
+			ImagePlus input = new ImagePlus("input", createInput(bitDepth));
+			for (int conn : new int[] {6, 26})
+			{
+				for (ImagePlus maskImage : new ImagePlus[] {null, mask})
+				{
+					MarkerControlledWatershedTransform3D algo = 
+							new MarkerControlledWatershedTransform3D(input, markers, maskImage, conn);
+					
+					assertEquals(0, countDifferences(
+							algo.applyWithPriorityQueue().getStack(), 
+							algo.applyWithHierarchicalQueue().getStack()));
+					assertEquals(0, countDifferences(
+							algo.applyWithPriorityQueueAndDams().getStack(), 
+							algo.applyWithHierarchicalQueueAndDams().getStack()));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks that flooding with hierarchical queue gives the same result as
+	 * flooding with priority queue when using compact watershed.
+	 */
+	@Test
+	public final void testApplyWithHierarchicalQueue_Compact()
+	{
+		ImagePlus markers = new ImagePlus("markers", createMarkers());
+		ImagePlus input = new ImagePlus("input", createInput(8));
+		
+		for (int conn : new int[] {6, 26})
+		{
+			MarkerControlledWatershedTransform3D algo = 
+					new MarkerControlledWatershedTransform3D(input, markers, null, conn, 1.5);
+
+			assertEquals(0, countDifferences(
+					algo.applyWithPriorityQueue().getStack(), 
+					algo.applyWithHierarchicalQueue().getStack()));
+			assertEquals(0, countDifferences(
+					algo.applyWithPriorityQueueAndDams().getStack(), 
+					algo.applyWithHierarchicalQueueAndDams().getStack()));
+		}
+	}
+	
+	/**
+	 * Creates a 3D image with several basins and many plateaus.
+	 */
+	private static final ImageStack createInput(int bitDepth)
+	{
+		ImageStack image = ImageStack.create(30, 25, 20, bitDepth);
+		for (int z = 0; z < 20; z++)
+		{
+			for (int y = 0; y < 25; y++)
+			{
+				for (int x = 0; x < 30; x++)
+				{
+					double v = 60 * (Math.sin(x * 0.5) + Math.cos(y * 0.4) + Math.sin(z * 0.3 + x * 0.1)) + 180;
+					image.setVoxel(x, y, z, Math.floor(v / 4) * 4);
+				}
+			}
+		}
+		return image;
+	}
+	
+	private static final ImageStack createMarkers()
+	{
+		ImageStack markers = ImageStack.create(30, 25, 20, 16);
+		int label = 1;
+		for (int z = 2; z < 20; z += 6)
+		{
+			for (int y = 3; y < 25; y += 8)
+			{
+				for (int x = 4; x < 30; x += 9)
+				{
+					markers.setVoxel(x, y, z, label++);
+				}
+			}
+		}
+		return markers;
+	}
+	
+	private static final ImageStack createMask()
+	{
+		ImageStack mask = ImageStack.create(30, 25, 20, 8);
+		for (int z = 0; z < 20; z++)
+		{
+			for (int y = 0; y < 25; y++)
+			{
+				for (int x = 0; x < 30; x++)
+				{
+					if ((x - 15) * (x - 15) + (y - 12) * (y - 12) + (z - 10) * (z - 10) < 144)
+						mask.setVoxel(x, y, z, 255);
+				}
+			}
+		}
+		return mask;
+	}
+	
+	private static final int countDifferences(ImageStack image1, ImageStack image2)
+	{
+		int count = 0;
+		for (int z = 0; z < image1.getSize(); z++)
+		{
+			for (int y = 0; y < image1.getHeight(); y++)
+			{
+				for (int x = 0; x < image1.getWidth(); x++)
+				{
+					if (image1.getVoxel(x, y, z) != image2.getVoxel(x, y, z))
+						count++;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,181 @@
+/*-
+ * #%L
+ * Mathematical morphology library and plugins for ImageJ/Fiji.
+ * %%
+ * Copyright (C) 2014 - 2023 INRA.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package inra.ijpb.watershed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ij.ImageStack;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import inra.ijpb.binary.BinaryImages;
+import inra.ijpb.morphology.MinimaAndMaxima;
+import inra.ijpb.morphology.MinimaAndMaxima3D;
+
+/**
+ * @author dlegland
+ *
+ */
+public class WatershedHierarchyTest
+{
+	/**
+	 * Three basins with minima 0, 5 and 6, separated by passes at 20 and 7.
+	 */
+	@Test
+	public void testBuild_ThreeBasins()
+	{
+		float[] profile = new float[] {10, 0, 10, 20, 10, 5, 6, 7, 6, 8};
+		ImageProcessor image = new FloatProcessor(10, 3);
+		for (int y = 0; y < 3; y++)
+			for (int x = 0; x < 10; x++)
+				image.setf(x, y, profile[x]);
+		
+		WatershedHierarchy hierarchy = new WatershedHierarchy(4);
+		hierarchy.build(image);
+		
+		assertEquals(3, hierarchy.getBasinCount());
+		double[] dynamics = hierarchy.getDynamics();
+		assertTrue(Double.isInfinite(dynamics[0]));
+		assertEquals(15, dynamics[1], 1e-10);
+		assertEquals(1, dynamics[2], 1e-10);
+		
+		assertEquals(3, hierarchy.regionCount(0.5));
+		assertEquals(2, hierarchy.regionCount(1));
+		assertEquals(2, hierarchy.regionCount(10));
+		assertEquals(1, hierarchy.regionCount(15));
+		
+		ImageStack labels = hierarchy.labelMap(2, false);
+		assertEquals(1, labels.getVoxel(1, 1, 0), 0);
+		assertEquals(2, labels.getVoxel(5, 1, 0), 0);
+		assertEquals(2, labels.getVoxel(8, 1, 0), 0);
+	}
+	
+	/**
+	 * The number of regions for a given tolerance must equal the number of
+	 * extended minima.
+	 */
+	@Test
+	public void testRegionCount_CompareExtendedMinima2D()
+	{
+		ImageProcessor image = createRandomSmoothImage(80, 60, new Random(42));
+		
+		for (int conn : new int[] {4, 8})
+		{
+			WatershedHierarchy hierarchy = new WatershedHierarchy(conn);
+			hierarchy.build(image);
+			
+			for (double dyn : new double[] {2, 5, 10, 20})
+			{
+				ImageProcessor minima = MinimaAndMaxima.extendedMinima(image, dyn, conn);
+				ImageProcessor labels = BinaryImages.componentsLabeling(minima, conn, 32);
+				int expected = (int) labels.getStatistics().max;
+				assertEquals(expected, hierarchy.regionCount(dyn));
+				
+				// also check the number of labels within label map
+				ImageStack map = hierarchy.labelMap(dyn, false);
+				assertEquals(expected, (int) map.getProcessor(1).getStatistics().max);
+			}
+		}
+	}
+	
+	/**
+	 * Checks the number of regions in 3D, and that dams separate regions.
+	 */
+	@Test
+	public void testLabelMap_Dams3D()
+	{
+		Random random = new Random(42);
+		ImageStack image = ImageStack.create(30, 25, 20, 32);
+		for (int z = 1; z <= 20; z++)
+		{
+			ImageProcessor slice = createRandomSmoothImage(30, 25, random);
+			image.setProcessor(slice, z);
+		}
+		
+		WatershedHierarchy hierarchy = new WatershedHierarchy(6);
+		hierarchy.build(image);
+		
+		double dyn = 10;
+		ImageStack minima = MinimaAndMaxima3D.extendedMinima(image, dyn, 6);
+		ImageStack minLabels = BinaryImages.componentsLabeling(minima, 6, 32);
+		int expected = 0;
+		for (int z = 0; z < 20; z++)
+			for (int y = 0; y < 25; y++)
+				for (int x = 0; x < 30; x++)
+					expected = Math.max(expected, (int) minLabels.getVoxel(x, y, z));
+		assertEquals(expected, hierarchy.regionCount(dyn));
+		
+		ImageStack map = hierarchy.labelMap(dyn, true);
+		int[][] offsets = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+		for (int z = 0; z < 20; z++)
+		{
+			for (int y = 0; y < 25; y++)
+			{
+				for (int x = 0; x < 30; x++)
+				{
+					int label = (int) map.getVoxel(x, y, z);
+					if (label == 0)
+						continue;
+					for (int[] off : offsets)
+					{
+						int x2 = x + off[0], y2 = y + off[1], z2 = z + off[2];
+						if (x2 >= 30 || y2 >= 25 || z2 >= 20)
+							continue;
+						int label2 = (int) map.getVoxel(x2, y2, z2);
+						assertTrue(label2 == 0 || label2 == label);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Creates a random image with several smooth minima, with integer values.
+	 */
+	private static final ImageProcessor createRandomSmoothImage(int sizeX, int sizeY, Random random)
+	{
+		ImageProcessor image = new FloatProcessor(sizeX, sizeY);
+		double[][] waves = new double[4][];
+		for (int i = 0; i < waves.length; i++)
+		{
+			waves[i] = new double[] {random.nextDouble() * 0.5, random.nextDouble() * 0.5, random.nextDouble() * 6.28};
+		}
+		for (int y = 0; y < sizeY; y++)
+		{
+			for (int x = 0; x < sizeX; x++)
+			{
+				double v = 100;
+				for (double[] w : waves)
+				{
+					v += 20 * Math.sin(w[0] * x + w[1] * y + w[2]);
+				}
+				v += random.nextDouble() * 6;
+				image.setf(x, y, (float) Math.floor(v));
+			}
+		}
+		return image;
+	}
+}